@@ -1,34 +1,194 @@
 package org.example;
 
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.catalog.CatalogSnapshot;
+import org.example.catalog.CatalogSnapshots;
+import org.example.domain.Employee;
 import org.example.domain.Genre;
+import org.example.domain.Track;
+import org.example.http.CatalogHttpServer;
+import org.example.infra.CsvImporter;
 import org.example.infra.CsvLoader;
 import org.example.infra.DbInitializer;
+import org.example.infra.FastStart;
 import org.example.infra.LocalEntityManagerProvider;
+import org.example.infra.SketchStore;
+import org.example.infra.ReferenceDataCache;
+import org.example.infra.StatelessCsvLoader;
+import org.example.infra.TrackMerger;
+import org.example.infra.journal.Change;
+import org.example.infra.journal.ChangeJournal;
+import org.example.infra.metrics.SqlMetrics;
+import org.example.infra.metrics.StartupMetrics;
+import org.example.report.CatalogSketches;
+import org.example.report.CatalogSketches.Dimension;
+import org.example.report.CatalogSketches.Measure;
+import org.example.report.RankingService;
+import org.example.report.SalesAnalytics;
+import org.example.report.TopK;
+import org.example.repo.EmployeeRepository;
+import org.example.repo.GenreRepository;
+import org.example.repo.ReportRepository;
+import org.example.search.CatalogSearchIndex;
+import org.example.search.NearDuplicateTracks;
+import org.example.search.TrackRecommender;
 
+import java.nio.file.Path;
+import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class App {
 
+    private static final int BULK_FLUSH_INTERVAL = 5000;
+    private static final int HTTP_PORT = 8080;
+    private static final int HTTP_REPORT_TTL_SECONDS = 30;
+    private static final String JOURNAL_FILE = "catalog.journal";
+    private static final int SQL_STATS_LIMIT = 10;
+    private static final int DEDUP_PAIRS_LIMIT = 15;
+    private static final int SALES_TRACKS_LIMIT = 10;
+    private static final int SEARCH_HITS_LIMIT = 10;
+    private static final int SIMILAR_TRACKS_LIMIT = 10;
+    private static final int RECOMMENDER_NEIGHBORS = 20;
+    private static final int RECOMMENDER_MAX_PLAYLIST_SIZE = 1000;
+
     public static void main(String[] args) {
         try {
-            DbInitializer.init();
-            var emf = LocalEntityManagerProvider.get();
+            // --bulk: carga con el perfil de batching JDBC ("database-bulk")
+            // --stateless: carga con StatelessSession en lugar de EntityManager
+            // --deferred-indexes: índices secundarios y FKs recién después de importar
+            // --serve[=puerto]: al terminar deja el catálogo publicado por HTTP (por defecto 8080)
+            // --journal[=archivo]: registra los cambios confirmados en un journal binario
+            // --sql-stats: al final muestra las sentencias SQL y métodos de repositorio más costosos
+            // --fast-start: DDL y EntityManagerFactory en paralelo, validación omitida si la huella coincide
+            // --startup-stats: al final muestra los tiempos del arranque
+            // --sketches: al final muestra distintos y percentiles aproximados del catálogo
+            // --csv=archivo: importa ese archivo (CSV plano, gzip o por bloques) en lugar de DATA/playlists.csv
+            // --dedup: al final muestra los tracks casi duplicados y el plan de fusión; --dedup-apply además lo aplica
+            // --sales: al final muestra las ventas por género y país y los tracks más vendidos
+            // --search=texto: índice de búsqueda mantenido durante la importación; al final busca el texto
+            // --similar=trackId: recomendador por playlists mantenido durante la importación; al final lo consulta
+            boolean bulk = List.of(args).contains("--bulk");
+            boolean stateless = List.of(args).contains("--stateless");
+            boolean deferredIndexes = List.of(args).contains("--deferred-indexes");
+            boolean fastStart = List.of(args).contains("--fast-start");
+            String unit = bulk ? LocalEntityManagerProvider.BULK_UNIT : LocalEntityManagerProvider.UNIT;
+            EntityManagerFactory emf;
+            if (fastStart) {
+                emf = FastStart.start(unit, deferredIndexes, FastStart.DEFAULT_FINGERPRINT_FILE);
+            } else {
+                if (deferredIndexes) {
+                    DbInitializer.initForBulkLoad();
+                } else {
+                    DbInitializer.init();
+                }
+                emf = bulk ? LocalEntityManagerProvider.getBulk() : LocalEntityManagerProvider.get();
+            }
+            Path journalFile = journalFile(args);
+            ChangeJournal journal = journalFile == null ? null : ChangeJournal.open(journalFile);
+            long journalStart = journal == null ? 0 : journal.lastSequence();
+            ChangeJournal.install(journal);
+            String searchText = searchText(args);
+            Integer port = servePort(args);
+            CatalogSearchIndex searchIndex = null;
+            Integer similarTo = similarTrackId(args);
+            TrackRecommender recommender = null;
             try (EntityManager em = emf.createEntityManager()) {
-                CsvLoader loader = new CsvLoader(em);
-                CsvLoader.Stats stats = loader.loadFromClasspath("DATA/playlists.csv");
+                CsvImporter loader = stateless
+                        ? new StatelessCsvLoader(emf)
+                        : new CsvLoader(em).withFlushInterval(bulk ? BULK_FLUSH_INTERVAL : 0);
+                loader.addListener(StartupMetrics.get().importListener());
+                if (searchText != null || port != null) {
+                    // Se arma antes de importar y la importación lo completa de forma incremental
+                    searchIndex = CatalogSearchIndex.build(em);
+                    loader.addListener(searchIndex.importListener());
+                }
+                if (similarTo != null || port != null) {
+                    recommender = TrackRecommender.build(em, RECOMMENDER_NEIGHBORS, RECOMMENDER_MAX_PLAYLIST_SIZE);
+                    loader.addListener(recommender.importListener());
+                }
+                Path csv = csvFile(args);
+                CsvLoader.Stats stats = csv == null
+                        ? loader.loadFromClasspath("DATA/playlists.csv")
+                        : loader.loadFromFile(csv);
+                if (deferredIndexes) {
+                    System.out.println("[OK] Esquema completado: " + DbInitializer.finishBulkLoad());
+                }
 
                 mostrarResultadosImportacion(stats);
                 mostrarTopPromedios(em);
+                StartupMetrics.get().mark(StartupMetrics.FIRST_REPORT);
                 mostrarPlaylistsSoloJazz(em);
+                mostrarEstadisticasCache();
+                if (journal != null) mostrarJournal(journal, journalStart);
+                if (List.of(args).contains("--sql-stats")) mostrarEstadisticasSql();
+                if (fastStart || List.of(args).contains("--startup-stats")) mostrarArranque();
+                if (List.of(args).contains("--sketches")) mostrarSketches();
+                boolean dedupApply = List.of(args).contains("--dedup-apply");
+                if (dedupApply || List.of(args).contains("--dedup")) mostrarDuplicados(em, emf, dedupApply);
+                if (List.of(args).contains("--sales")) mostrarVentas(em, emf);
+                if (searchText != null) mostrarBusqueda(searchIndex, searchText);
+                if (similarTo != null) mostrarSimilares(em, recommender, similarTo);
             }
             System.out.println("[OK] Proceso finalizado correctamente");
+            if (port != null) {
+                CatalogSnapshots catalog = new CatalogSnapshots(emf);
+                CatalogSnapshot snapshot = catalog.current();
+                System.out.printf("[OK] Snapshot del catálogo v%d: %d tracks, %d álbumes, %d playlists en %d ms%n",
+                        snapshot.version(), snapshot.trackCount(), snapshot.albumCount(),
+                        snapshot.playlistCount(), snapshot.buildMillis());
+                CatalogHttpServer server = new CatalogHttpServer(emf, port, HTTP_REPORT_TTL_SECONDS)
+                        .withCatalog(catalog)
+                        .withSearch(searchIndex)
+                        .withRecommender(recommender)
+                        .start();
+                System.out.println("[OK] Servicio HTTP en http://localhost:" + server.port());
+            }
         } catch (Exception e) {
             System.out.println("[FAIL] Error en inicialización/carga CSV");
             e.printStackTrace();
         }
     }
 
+    private static Path journalFile(String[] args) {
+        for (String arg : args) {
+            if (arg.equals("--journal")) return Path.of(JOURNAL_FILE);
+            if (arg.startsWith("--journal=")) return Path.of(arg.substring("--journal=".length()));
+        }
+        return null;
+    }
+
+    private static Path csvFile(String[] args) {
+        for (String arg : args) {
+            if (arg.startsWith("--csv=")) return Path.of(arg.substring("--csv=".length()));
+        }
+        return null;
+    }
+
+    private static String searchText(String[] args) {
+        for (String arg : args) {
+            if (arg.startsWith("--search=")) return arg.substring("--search=".length());
+        }
+        return null;
+    }
+
+    private static Integer similarTrackId(String[] args) {
+        for (String arg : args) {
+            if (arg.startsWith("--similar=")) return Integer.parseInt(arg.substring("--similar=".length()));
+        }
+        return null;
+    }
+
+    private static Integer servePort(String[] args) {
+        for (String arg : args) {
+            if (arg.equals("--serve")) return HTTP_PORT;
+            if (arg.startsWith("--serve=")) return Integer.parseInt(arg.substring("--serve=".length()));
+        }
+        return null;
+    }
+
     private static void mostrarResultadosImportacion(CsvLoader.Stats stats) {
         System.out.println("1) RESULTADOS DE LA IMPORTACIÓN");
         System.out.println("----------------------------------------");
@@ -79,27 +239,13 @@ public class App {
         System.out.println("2) TOP 5 PLAYLISTS CON MAYOR PROMEDIO COSTO/MINUTO");
         System.out.println("----------------------------------------");
 
-        List<Object[]> top = em.createQuery("""
-                    SELECT p.name,
-                           SUM(t.unitPrice) / SUM(t.milliseconds / 60000.0)
-                    FROM PlaylistTrack pt
-                    JOIN pt.playlist p
-                    JOIN pt.track t
-                    WHERE t.milliseconds > 0
-                    GROUP BY p.name
-                    ORDER BY (SUM(t.unitPrice) / SUM(t.milliseconds / 60000.0)) DESC
-                    """, Object[].class)
-                .setMaxResults(5)
-                .getResultList();
+        List<TopK.Ranked<RankingService.Aggregate>> top = new RankingService(em)
+                .top(RankingService.Level.PLAYLIST, RankingService.Metric.COST_PER_MINUTE, 5);
 
         if (top.isEmpty()) {
             System.out.println("No se registraron playlists con tracks válidos.");
         } else {
-            top.forEach(row -> {
-                String name = (String) row[0];
-                double avg = row[1] == null ? 0.0 : ((Number) row[1]).doubleValue();
-                System.out.printf(" - %s: %.2f u$s/min%n", name, avg);
-            });
+            top.forEach(r -> System.out.printf(" - %s: %.2f u$s/min%n", r.item().name(), r.score()));
         }
         System.out.println();
     }
@@ -111,38 +257,146 @@ public class App {
         System.out.println("3) PLAYLISTS CON SOLO TRACKS DEL GÉNERO 2 (JAZZ)");
         System.out.println("----------------------------------------");
         Integer jazzGenreId = resolverGeneroJazz(em);
-        long cantidad = jazzGenreId == null ? 0 : contarPlaylistsSoloGenero(em, jazzGenreId);
+        long cantidad = jazzGenreId == null ? 0 : new ReportRepository(em).countPlaylistsOnlyGenre(jazzGenreId);
         System.out.printf("Cantidad: %d%n", cantidad);
     }
 
     private static Integer resolverGeneroJazz(EntityManager em) {
-        Genre genreById = em.find(Genre.class, 2);
+        GenreRepository genres = new GenreRepository(em);
+        Genre genreById = genres.findById(2);
         if (genreById != null && "JAZZ".equalsIgnoreCase(genreById.getName())) {
             return genreById.getGenreId();
         }
-        return em.createQuery("SELECT g FROM Genre g WHERE UPPER(g.name) = 'JAZZ'", Genre.class)
-                .getResultStream()
-                .findFirst()
-                .map(Genre::getGenreId)
-                .orElse(null);
-    }
-
-    private static long contarPlaylistsSoloGenero(EntityManager em, Integer genreId) {
-        return em.createQuery("""
-                        SELECT COUNT(p)
-                        FROM Playlist p
-                        WHERE EXISTS (
-                            SELECT 1 FROM PlaylistTrack pt
-                            WHERE pt.playlist = p
-                        )
-                        AND NOT EXISTS (
-                            SELECT 1 FROM PlaylistTrack pt
-                            WHERE pt.playlist = p
-                            AND (pt.track.genre IS NULL OR pt.track.genre.genreId <> :genreId)
-                        )
-                        """, Long.class)
-                .setParameter("genreId", genreId)
-                .getSingleResult();
+        Genre jazz = genres.findByName("JAZZ");
+        return jazz == null ? null : jazz.getGenreId();
+    }
+
+    private static void mostrarEstadisticasCache() {
+        System.out.println();
+        System.out.println("4) CACHÉ DE DATOS DE REFERENCIA");
+        System.out.println("----------------------------------------");
+        System.out.println("Nombres   : " + ReferenceDataCache.get().stats());
+    }
+
+    private static void mostrarEstadisticasSql() {
+        System.out.println();
+        System.out.println("6) SENTENCIAS SQL");
+        System.out.println("----------------------------------------");
+        System.out.print(SqlMetrics.get().report(SQL_STATS_LIMIT));
+    }
+
+    private static void mostrarArranque() {
+        System.out.println();
+        System.out.println("7) ARRANQUE (ms desde el inicio de la JVM)");
+        System.out.println("----------------------------------------");
+        System.out.print(StartupMetrics.get().report());
+    }
+
+    private static void mostrarSketches() throws SQLException {
+        System.out.println();
+        System.out.println("8) ESTADÍSTICAS APROXIMADAS (sketches)");
+        System.out.println("----------------------------------------");
+        CatalogSketches sketches = SketchStore.load();
+        System.out.printf("Compositores distintos : ~%d%n", sketches.distinctComposers());
+        System.out.printf("Artistas distintos     : ~%d%n", sketches.distinctArtists());
+        System.out.printf("Duración p50/p90/p99   : %.2f / %.2f / %.2f min%n",
+                sketches.quantile(Measure.MILLISECONDS, 0.5) / 60000,
+                sketches.quantile(Measure.MILLISECONDS, 0.9) / 60000,
+                sketches.quantile(Measure.MILLISECONDS, 0.99) / 60000);
+        for (String genre : sketches.values(Dimension.GENRE)) {
+            System.out.printf(" - %-20s tracks=%-5d artistas=~%-4d duración p50=%.2f p90=%.2f min  precio p50=%.2f%n",
+                    genre, sketches.count(Measure.MILLISECONDS, Dimension.GENRE, genre),
+                    sketches.distinctArtists(genre),
+                    sketches.quantile(Measure.MILLISECONDS, Dimension.GENRE, genre, 0.5) / 60000,
+                    sketches.quantile(Measure.MILLISECONDS, Dimension.GENRE, genre, 0.9) / 60000,
+                    sketches.quantile(Measure.UNIT_PRICE, Dimension.GENRE, genre, 0.5));
+        }
+    }
+
+    private static void mostrarDuplicados(EntityManager em, EntityManagerFactory emf, boolean apply) {
+        System.out.println();
+        System.out.println("9) TRACKS CASI DUPLICADOS");
+        System.out.println("----------------------------------------");
+        List<NearDuplicateTracks.Entry> tracks = NearDuplicateTracks.load(em);
+        NearDuplicateTracks.Result result = new NearDuplicateTracks().find(tracks);
+        Map<Integer, String> names = new TreeMap<>();
+        for (NearDuplicateTracks.Entry t : tracks) names.put(t.trackId(), t.name() + " / " + t.artist());
+        System.out.printf("Tracks: %d, candidatos LSH: %d, pares confirmados: %d, a fusionar: %d%n",
+                result.tracks(), result.candidatePairs(), result.pairs().size(), result.plan().size());
+        System.out.printf("Tiempos: firmas %d ms, candidatos %d ms, verificación %d ms%n",
+                result.signatureMillis(), result.candidateMillis(), result.verifyMillis());
+        result.pairs().stream().limit(DEDUP_PAIRS_LIMIT).forEach(p -> System.out.printf(" - %.2f  [%d] %s  ~  [%d] %s%n",
+                p.similarity(), p.trackId(), names.get(p.trackId()), p.otherTrackId(), names.get(p.otherTrackId())));
+        if (apply) {
+            TrackMerger.Result merged = TrackMerger.apply(emf, result.plan());
+            System.out.printf("[OK] Fusionados %d tracks: %d enlaces de playlist movidos (%d repetidos quitados), "
+                            + "%d líneas de factura, %d compositores copiados%n", merged.tracks(), merged.playlistLinks(),
+                    merged.playlistLinksRemoved(), merged.invoiceItems(), merged.composerLinks());
+        }
+    }
+
+    private static void mostrarVentas(EntityManager em, EntityManagerFactory emf) {
+        System.out.println();
+        System.out.println("10) VENTAS");
+        System.out.println("----------------------------------------");
+        SalesAnalytics.SalesReport report = new SalesAnalytics(emf).report();
+        System.out.println("Total: " + report.total());
+        System.out.println("Por género:");
+        report.byGenre().forEach(r -> System.out.printf(" - %-24s %s%n", r.label(), r.amount()));
+        System.out.println("Por país:");
+        report.byCountry().forEach(r -> System.out.printf(" - %-24s %s%n", r.label(), r.amount()));
+        System.out.println("Tracks más vendidos:");
+        report.topTracks(SALES_TRACKS_LIMIT).forEach(r -> System.out.printf(" - %-40s %s%n", r.label(), r.amount()));
+        System.out.println("Por equipo (jefe y todos sus subordinados):");
+        EmployeeRepository employees = new EmployeeRepository(em);
+        for (Integer managerId : employees.findManagerIds()) {
+            Employee manager = employees.findById(managerId);
+            System.out.printf(" - %-24s %d subordinados, %s%n", manager.getFirstName() + " " + manager.getLastName(),
+                    employees.findSubordinateIds(managerId).size(), employees.totalSalesUnder(managerId));
+        }
+    }
+
+    private static void mostrarBusqueda(CatalogSearchIndex index, String text) {
+        System.out.println();
+        System.out.println("11) BÚSQUEDA: " + text);
+        System.out.println("----------------------------------------");
+        long start = System.nanoTime();
+        List<CatalogSearchIndex.Hit> hits = index.search(text, SEARCH_HITS_LIMIT);
+        long micros = (System.nanoTime() - start) / 1000;
+        System.out.printf("%d documentos indexados, %d resultados en %d µs%n", index.documentCount(), hits.size(), micros);
+        hits.forEach(h -> System.out.printf(" - %-8s %-50s %.2f%n", h.type(), h.label(), h.score()));
+    }
+
+    private static void mostrarSimilares(EntityManager em, TrackRecommender recommender, int trackId) {
+        System.out.println();
+        Track track = em.find(Track.class, trackId);
+        System.out.println("12) SIMILARES A: " + (track == null ? "track " + trackId + " (no existe)" : track.getName()));
+        System.out.println("----------------------------------------");
+        long start = System.nanoTime();
+        List<TrackRecommender.Recommendation> similar = recommender.similarTracks(trackId, SIMILAR_TRACKS_LIMIT);
+        long micros = (System.nanoTime() - start) / 1000;
+        System.out.printf("%d tracks en el modelo (~%d KB), %d vecinos en %d µs%n",
+                recommender.trackCount(), recommender.memoryBytes() / 1024, similar.size(), micros);
+        for (TrackRecommender.Recommendation r : similar) {
+            Track t = em.find(Track.class, r.trackId());
+            System.out.printf(" - %-50s %.3f%n", t == null ? "#" + r.trackId() : t.getName(), r.score());
+        }
+    }
+
+    private static void mostrarJournal(ChangeJournal journal, long fromSequence) throws Exception {
+        System.out.println();
+        System.out.println("5) JOURNAL DE CAMBIOS");
+        System.out.println("----------------------------------------");
+        journal.awaitDurable(journal.lastSequence());
+        Map<String, Integer> counts = new TreeMap<>();
+        try (ChangeJournal.Tail tail = journal.tail(fromSequence)) {
+            Change change;
+            while ((change = tail.poll()) != null) {
+                counts.merge(change.entity() + " " + change.op(), 1, Integer::sum);
+            }
+        }
+        System.out.println(journal);
+        counts.forEach((k, v) -> System.out.printf(" - %-24s: %d%n", k, v));
     }
 }
 
@@ -0,0 +1,326 @@
+package org.example.catalog;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.FlushModeType;
+import org.example.repo.projection.AlbumWithArtist;
+import org.example.repo.projection.PlaylistStats;
+import org.example.repo.projection.TrackSummary;
+import org.example.util.IntList;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Copia inmutable del catálogo (artistas, álbumes, géneros, tracks, playlists y sus
+ * links) en arrays paralelos ordenados por id. Las referencias entre entidades son
+ * posiciones dentro de esos arrays (-1 = sin valor) y los links de playlists van en
+ * formato CSR: los tracks de la playlist i son {@code playlistTracks[offsets[i] .. offsets[i+1])}.
+ *
+ * Como nada se modifica después de construirla, se puede leer desde cualquier cantidad
+ * de hilos sin locks; ver {@link CatalogSnapshots} para el reemplazo tras cada importación.
+ * Las consultas devuelven las mismas proyecciones que {@code ReportRepository}.
+ */
+public final class CatalogSnapshot {
+
+    private final long version;
+    private final long buildMillis;
+
+    private final int[] artistIds;
+    private final String[] artistNames;
+
+    private final int[] albumIds;
+    private final String[] albumTitles;
+    private final int[] albumArtist;
+
+    private final int[] genreIds;
+    private final String[] genreNames;
+
+    private final int[] trackIds;
+    private final String[] trackNames;
+    private final int[] trackAlbum;
+    private final int[] trackGenre;
+    private final String[] trackComposers;
+    private final int[] trackMillis;
+    private final int[] trackBytes;
+    private final BigDecimal[] trackPrices;
+
+    private final int[] playlistIds;
+    private final String[] playlistNames;
+    private final int[] playlistOffsets;
+    private final int[] playlistTracks;
+
+    // nombre normalizado -> posiciones (tracks por id, playlists por id)
+    private final Map<String, int[]> tracksByName;
+    private final Map<String, int[]> playlistsByName;
+
+    // agregados que no dependen de parámetros: se calculan una vez al construir
+    private final List<PlaylistStats> playlistStats;
+    private final List<AlbumWithArtist> albumsWithArtist;
+
+    private CatalogSnapshot(Builder b, long version, long startNanos) {
+        this.version = version;
+        this.artistIds = b.artistIds.toArray();
+        this.artistNames = b.artistNames.toArray(String[]::new);
+        this.albumIds = b.albumIds.toArray();
+        this.albumTitles = b.albumTitles.toArray(String[]::new);
+        this.genreIds = b.genreIds.toArray();
+        this.genreNames = b.genreNames.toArray(String[]::new);
+        this.trackIds = b.trackIds.toArray();
+        this.trackNames = b.trackNames.toArray(String[]::new);
+        this.trackComposers = b.trackComposers.toArray(String[]::new);
+        this.trackMillis = b.trackMillis.toArray();
+        this.trackBytes = b.trackBytes.toArray();
+        this.trackPrices = b.trackPrices.toArray(BigDecimal[]::new);
+        this.playlistIds = b.playlistIds.toArray();
+        this.playlistNames = b.playlistNames.toArray(String[]::new);
+
+        // ids -> posiciones
+        this.albumArtist = positions(b.albumArtistIds, artistIds);
+        this.trackAlbum = positions(b.trackAlbumIds, albumIds);
+        this.trackGenre = positions(b.trackGenreIds, genreIds);
+
+        // links ordenados por (playlist, track) -> CSR
+        this.playlistOffsets = new int[playlistIds.length + 1];
+        IntList links = new IntList(b.linkTrackIds.size());
+        int p = 0;
+        for (int i = 0; i < b.linkPlaylistIds.size(); i++) {
+            int playlist = Arrays.binarySearch(playlistIds, b.linkPlaylistIds.get(i));
+            int track = Arrays.binarySearch(trackIds, b.linkTrackIds.get(i));
+            if (playlist < 0 || track < 0) continue;
+            while (p < playlist) playlistOffsets[++p] = links.size();
+            links.add(track);
+        }
+        while (p < playlistIds.length) playlistOffsets[++p] = links.size();
+        this.playlistTracks = links.toArray();
+
+        this.tracksByName = byName(trackNames);
+        this.playlistsByName = byName(playlistNames);
+        this.playlistStats = List.copyOf(computePlaylistStats());
+        this.albumsWithArtist = List.copyOf(computeAlbumsWithArtist());
+        this.buildMillis = (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /** Lee el catálogo confirmado completo con el EntityManager dado. */
+    public static CatalogSnapshot build(EntityManager em, long version) {
+        long start = System.nanoTime();
+        Builder b = new Builder();
+        rows(em, "SELECT a.artistid, a.name FROM Artist a ORDER BY a.artistid").forEach(r -> {
+            b.artistIds.add((Integer) r[0]);
+            b.artistNames.add((String) r[1]);
+        });
+        rows(em, """
+                SELECT al.albumId, al.title, ar.artistid
+                FROM Album al LEFT JOIN al.artistId ar
+                ORDER BY al.albumId
+                """).forEach(r -> {
+            b.albumIds.add((Integer) r[0]);
+            b.albumTitles.add((String) r[1]);
+            b.albumArtistIds.add(r[2] == null ? -1 : (Integer) r[2]);
+        });
+        rows(em, "SELECT g.genreId, g.name FROM Genre g ORDER BY g.genreId").forEach(r -> {
+            b.genreIds.add((Integer) r[0]);
+            b.genreNames.add((String) r[1]);
+        });
+        rows(em, """
+                SELECT t.trackId, t.name, al.albumId, g.genreId, t.composer, t.milliseconds, t.bytes, t.unitPrice
+                FROM Track t LEFT JOIN t.album al LEFT JOIN t.genre g
+                ORDER BY t.trackId
+                """).forEach(r -> {
+            b.trackIds.add((Integer) r[0]);
+            b.trackNames.add((String) r[1]);
+            b.trackAlbumIds.add(r[2] == null ? -1 : (Integer) r[2]);
+            b.trackGenreIds.add(r[3] == null ? -1 : (Integer) r[3]);
+            b.trackComposers.add((String) r[4]);
+            b.trackMillis.add((Integer) r[5]);
+            b.trackBytes.add((Integer) r[6]);
+            b.trackPrices.add((BigDecimal) r[7]);
+        });
+        rows(em, "SELECT p.playlistId, p.name FROM Playlist p ORDER BY p.playlistId").forEach(r -> {
+            b.playlistIds.add((Integer) r[0]);
+            b.playlistNames.add((String) r[1]);
+        });
+        rows(em, """
+                SELECT pt.playlist.playlistId, pt.track.trackId
+                FROM PlaylistTrack pt
+                ORDER BY pt.playlist.playlistId, pt.track.trackId
+                """).forEach(r -> {
+            b.linkPlaylistIds.add((Integer) r[0]);
+            b.linkTrackIds.add((Integer) r[1]);
+        });
+        return new CatalogSnapshot(b, version, start);
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public long buildMillis() {
+        return buildMillis;
+    }
+
+    public int trackCount() {
+        return trackIds.length;
+    }
+
+    public int albumCount() {
+        return albumIds.length;
+    }
+
+    public int playlistCount() {
+        return playlistIds.length;
+    }
+
+    public int linkCount() {
+        return playlistTracks.length;
+    }
+
+    // =========================================================
+    // Consultas (mismas proyecciones que ReportRepository)
+    // =========================================================
+
+    public List<TrackSummary> findTrackSummariesByName(String name) {
+        if (name == null) return List.of();
+        int[] tracks = tracksByName.getOrDefault(key(name), EMPTY);
+        List<TrackSummary> out = new ArrayList<>(tracks.length);
+        for (int t : tracks) out.add(summary(t));
+        return out;
+    }
+
+    public List<TrackSummary> findTrackSummariesByPlaylist(String playlistName) {
+        if (playlistName == null) return List.of();
+        List<TrackSummary> out = new ArrayList<>();
+        for (int p : playlistsByName.getOrDefault(key(playlistName), EMPTY)) {
+            for (int i = playlistOffsets[p]; i < playlistOffsets[p + 1]; i++) {
+                out.add(summary(playlistTracks[i]));
+            }
+        }
+        out.sort(Comparator.comparing(TrackSummary::name));
+        return out;
+    }
+
+    /** Estadísticas por playlist (solo tracks con duración positiva), sumando las homónimas. */
+    public List<PlaylistStats> findPlaylistStats() {
+        return playlistStats;
+    }
+
+    public List<AlbumWithArtist> findAlbumsWithArtist() {
+        return albumsWithArtist;
+    }
+
+    /** Álbum por id, o null si no existe en esta versión. */
+    public AlbumWithArtist findAlbum(int albumId) {
+        int a = Arrays.binarySearch(albumIds, albumId);
+        return a < 0 ? null : album(a);
+    }
+
+    // =========================================================
+    // Internos
+    // =========================================================
+
+    private static final int[] EMPTY = new int[0];
+
+    private List<PlaylistStats> computePlaylistStats() {
+        Map<String, PlaylistStats> byName = new LinkedHashMap<>();
+        for (int p = 0; p < playlistIds.length; p++) {
+            long count = 0;
+            long millis = 0;
+            BigDecimal price = BigDecimal.ZERO;
+            for (int i = playlistOffsets[p]; i < playlistOffsets[p + 1]; i++) {
+                int t = playlistTracks[i];
+                if (trackMillis[t] <= 0) continue;
+                count++;
+                millis += trackMillis[t];
+                price = price.add(trackPrices[t]);
+            }
+            if (count == 0) continue;
+            byName.merge(playlistNames[p], new PlaylistStats(playlistNames[p], count, millis, price),
+                    (x, y) -> new PlaylistStats(x.name(), x.trackCount() + y.trackCount(),
+                            x.totalMilliseconds() + y.totalMilliseconds(), x.totalPrice().add(y.totalPrice())));
+        }
+        return new ArrayList<>(byName.values());
+    }
+
+    private List<AlbumWithArtist> computeAlbumsWithArtist() {
+        List<AlbumWithArtist> out = new ArrayList<>(albumIds.length);
+        for (int a = 0; a < albumIds.length; a++) {
+            if (albumArtist[a] >= 0) out.add(album(a));
+        }
+        out.sort(Comparator.comparing(AlbumWithArtist::title));
+        return out;
+    }
+
+    private TrackSummary summary(int t) {
+        int album = trackAlbum[t];
+        int artist = album < 0 ? -1 : albumArtist[album];
+        int genre = trackGenre[t];
+        return new TrackSummary(trackIds[t], trackNames[t],
+                album < 0 ? null : albumTitles[album],
+                artist < 0 ? null : artistNames[artist],
+                genre < 0 ? null : genreNames[genre],
+                trackMillis[t], trackPrices[t]);
+    }
+
+    private AlbumWithArtist album(int a) {
+        int artist = albumArtist[a];
+        return new AlbumWithArtist(albumIds[a], albumTitles[a], artist < 0 ? null : artistNames[artist]);
+    }
+
+    private static String key(String name) {
+        return name.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static int[] positions(IntList ids, int[] sortedIds) {
+        int[] out = new int[ids.size()];
+        for (int i = 0; i < out.length; i++) {
+            int id = ids.get(i);
+            out[i] = id < 0 ? -1 : Math.max(-1, Arrays.binarySearch(sortedIds, id));
+        }
+        return out;
+    }
+
+    private static Map<String, int[]> byName(String[] names) {
+        Map<String, IntList> grouped = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] != null) grouped.computeIfAbsent(key(names[i]), k -> new IntList(1)).add(i);
+        }
+        Map<String, int[]> out = new HashMap<>(grouped.size() * 2);
+        grouped.forEach((k, v) -> out.put(k, v.toArray()));
+        return Map.copyOf(out);
+    }
+
+    private static List<Object[]> rows(EntityManager em, String jpql) {
+        return em.createQuery(jpql, Object[].class)
+                .setFlushMode(FlushModeType.COMMIT)
+                .getResultList();
+    }
+
+    /** Acumuladores mutables de {@link #build}; el snapshot copia todo a arrays. */
+    private static final class Builder {
+        final IntList artistIds = new IntList(512);
+        final List<String> artistNames = new ArrayList<>();
+        final IntList albumIds = new IntList(512);
+        final List<String> albumTitles = new ArrayList<>();
+        final IntList albumArtistIds = new IntList(512);
+        final IntList genreIds = new IntList(32);
+        final List<String> genreNames = new ArrayList<>();
+        final IntList trackIds = new IntList(4096);
+        final List<String> trackNames = new ArrayList<>();
+        final IntList trackAlbumIds = new IntList(4096);
+        final IntList trackGenreIds = new IntList(4096);
+        final List<String> trackComposers = new ArrayList<>();
+        final IntList trackMillis = new IntList(4096);
+        final IntList trackBytes = new IntList(4096);
+        final List<BigDecimal> trackPrices = new ArrayList<>();
+        final IntList playlistIds = new IntList(32);
+        final List<String> playlistNames = new ArrayList<>();
+        final IntList linkPlaylistIds = new IntList(8192);
+        final IntList linkTrackIds = new IntList(8192);
+    }
+}
@@ -0,0 +1,56 @@
+package org.example.catalog;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.infra.CsvLoader;
+import org.example.infra.ImportListener;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Publica el {@link CatalogSnapshot} vigente. Los lectores toman {@link #current()} (una
+ * lectura volátil, sin locks ni conexiones) y trabajan con esa versión aunque mientras
+ * tanto se esté importando; al confirmar cada importación se arma un snapshot nuevo
+ * desde la base y se reemplaza de forma atómica. Las versiones viejas no se liberan a
+ * mano: el GC las recoge cuando ningún lector las sigue referenciando.
+ */
+public class CatalogSnapshots {
+
+    private final EntityManagerFactory emf;
+    private final AtomicReference<CatalogSnapshot> current = new AtomicReference<>();
+
+    public CatalogSnapshots(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    /** Snapshot vigente; si todavía no hay ninguno lo construye. */
+    public CatalogSnapshot current() {
+        CatalogSnapshot snapshot = current.get();
+        return snapshot != null ? snapshot : refresh();
+    }
+
+    /**
+     * Construye un snapshot nuevo y lo publica. Es synchronized para que dos refrescos
+     * simultáneos no publiquen fuera de orden; los lectores no esperan por él.
+     */
+    public synchronized CatalogSnapshot refresh() {
+        CatalogSnapshot previous = current.get();
+        long version = previous == null ? 1 : previous.version() + 1;
+        CatalogSnapshot next;
+        try (EntityManager em = emf.createEntityManager()) {
+            next = CatalogSnapshot.build(em, version);
+        }
+        current.set(next);
+        return next;
+    }
+
+    /** Listener para {@link CsvLoader#addListener}: publica un snapshot nuevo tras cada commit. */
+    public ImportListener importListener() {
+        return new ImportListener() {
+            @Override
+            public void onCommit(CsvLoader.Stats stats) {
+                refresh();
+            }
+        };
+    }
+}
@@ -0,0 +1,42 @@
+package org.example.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Entity
+@Table(name="COMPOSERS")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class Composer {
+    @Id
+    @SequenceGenerator(name = "composer_seq", sequenceName = "SEQ_COMPOSER_ID", allocationSize = 1)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "composer_seq")
+    @Column(name="COMPOSER_ID")
+    private Integer composerId;
+
+    @Column(name="NAME", length = 220, nullable = false)
+    private String name;
+
+    // Columna generada por la base (UPPER(NAME)), indexada para búsquedas por nombre
+    @Column(name="NAME_KEY", length = 220, insertable = false, updatable = false)
+    private String nameKey;
+
+    /** Separa el campo TRACKS.COMPOSER ("Angus Young | Malcolm Young") en nombres individuales. */
+    public static List<String> splitNames(String composer) {
+        List<String> out = new ArrayList<>();
+        if (composer == null) return out;
+        for (String part : composer.split("\\|")) {
+            String name = part.trim().replaceAll("\\s+", " ");
+            if (!name.isEmpty()) out.add(name);
+        }
+        return out;
+    }
+}
@@ -4,7 +4,9 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.util.Date;
 
@@ -31,9 +33,12 @@ public class Employee {
     @Column(name = "TITLE", length = 30)
     private String title;
 
-    // Empleado al que reporta (puede ser null)
-    @ManyToOne(fetch = FetchType.EAGER)
+    // Empleado al que reporta (puede ser null). LAZY para no recorrer toda la cadena
+    // de jefes al cargar un empleado; las consultas jerárquicas usan EMPLOYEE_CLOSURE.
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "REPORTS_TO") // <-- nombre real de la FK
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Employee reportsTo;  // Autorreferencia
 
     @Temporal(TemporalType.DATE)
@@ -6,8 +6,6 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
-
 @Entity
 @Table(name="INVOICE_ITEMS")
 @Data
@@ -26,8 +24,9 @@ public class InvoiceItem {
     @ManyToOne(optional = false, fetch = FetchType.EAGER)
     @JoinColumn(name="TRACK_ID", nullable = false)
     private Track trackId;
+    @Convert(converter = MoneyConverter.class)
     @Column(name="UNIT_PRICE",precision = 10,scale = 2, nullable = false)
-    private BigDecimal unitPrice;
+    private Money unitPrice;
     @Column(name="QUANTITY", nullable = false)
     private Integer quantity;
 
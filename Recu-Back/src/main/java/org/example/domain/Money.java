@@ -0,0 +1,135 @@
+package org.example.domain;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Importe en punto fijo: un long con centavos. Pensado para los caminos calientes
+ * (parseo del CSV, sumas de ventas) donde crear un BigDecimal por fila es caro.
+ * {@link #toBigDecimal()} devuelve exactamente lo mismo que
+ * {@code new BigDecimal(texto).setScale(2, RoundingMode.HALF_UP)}.
+ */
+public record Money(long cents) implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    /** Resultado de {@link #parseCents} cuando el texto no es un importe válido. */
+    public static final long INVALID_CENTS = Long.MIN_VALUE;
+
+    // Con hasta 16 dígitos enteros, units * 100 + 99 + 1 < 10^18 entra en un long
+    // (Long.MAX_VALUE ~ 9.2 * 10^18); con 17 ya no: 99999999999999999 * 100 desborda
+    private static final int MAX_FAST_DIGITS = 16;
+
+    public static Money ofCents(long cents) {
+        return new Money(cents);
+    }
+
+    public static Money of(BigDecimal value) {
+        if (value == null) return null;
+        return new Money(value.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    /**
+     * Parsea "12", "0.99", "1,5", "-3.005" (coma o punto decimal, redondeo HALF_UP a
+     * 2 decimales) recorriendo los caracteres sin crear objetos intermedios. Formatos
+     * poco comunes (exponentes, más de 16 dígitos enteros) pasan por BigDecimal para dar el
+     * mismo resultado. Devuelve null si el texto no es un número o no entra en un long
+     * de centavos (de todos modos no cabría en DECIMAL(10,2)).
+     */
+    public static Money parse(CharSequence text) {
+        long cents = parseCents(text);
+        return cents == INVALID_CENTS ? null : new Money(cents);
+    }
+
+    /**
+     * Igual que {@link #parse} pero devuelve los centavos sin crear el Money (para las
+     * reglas de validación, que corren una vez por fila); {@link #INVALID_CENTS} si el
+     * texto no es válido. Long.MIN_VALUE centavos queda reservado y se trata como inválido.
+     */
+    public static long parseCents(CharSequence text) {
+        if (text == null) return INVALID_CENTS;
+        int start = 0, end = text.length();
+        while (start < end && text.charAt(start) <= ' ') start++;
+        while (end > start && text.charAt(end - 1) <= ' ') end--;
+        if (start == end) return INVALID_CENTS;
+
+        int i = start;
+        boolean negative = false;
+        char first = text.charAt(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+        long units = 0;
+        int digits = 0;
+        int fraction = 0;      // dígitos decimales leídos (se guardan hasta 2)
+        long fractionCents = 0;
+        int roundDigit = -1;   // tercer decimal, decide el redondeo HALF_UP
+        boolean seenPoint = false;
+        boolean any = false;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                any = true;
+                int d = c - '0';
+                if (!seenPoint) {
+                    if (units != 0 || d != 0) digits++;
+                    if (digits > MAX_FAST_DIGITS) return parseSlow(text, start, end);
+                    units = units * 10 + d;
+                } else if (fraction < 2) {
+                    fractionCents = fractionCents * 10 + d;
+                    fraction++;
+                } else if (roundDigit < 0) {
+                    roundDigit = d;
+                }
+            } else if ((c == '.' || c == ',') && !seenPoint) {
+                seenPoint = true;
+            } else {
+                return parseSlow(text, start, end);
+            }
+        }
+        if (!any) return INVALID_CENTS;
+        while (fraction < 2) {
+            fractionCents *= 10;
+            fraction++;
+        }
+        long cents = units * 100 + fractionCents;
+        // HALF_UP redondea por magnitud: 5 o más en el tercer decimal sube (el signo se aplica después)
+        if (roundDigit >= 5) cents++;
+        return negative ? -cents : cents;
+    }
+
+    private static long parseSlow(CharSequence text, int start, int end) {
+        try {
+            return of(new BigDecimal(text.subSequence(start, end).toString().replace(',', '.'))).cents();
+        } catch (NumberFormatException | ArithmeticException e) {
+            return INVALID_CENTS;
+        }
+    }
+
+    public Money plus(Money other) {
+        return new Money(Math.addExact(cents, other.cents));
+    }
+
+    public Money times(long quantity) {
+        return new Money(Math.multiplyExact(cents, quantity));
+    }
+
+    public boolean isPositive() {
+        return cents > 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    @Override
+    public int compareTo(Money o) {
+        return Long.compare(cents, o.cents);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
@@ -5,8 +5,12 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
 
+// PLAYLIST_TRACK es una vista sobre las particiones PLAYLIST_TRACK_n: solo lectura,
+// los inserts pasan por PlaylistTrackRepository / PlaylistTrackShards
 @Entity
+@Immutable
 @Table(name="PLAYLIST_TRACK")
 @Data
 @AllArgsConstructor
@@ -0,0 +1,29 @@
+package org.example.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name="TRACK_COMPOSER")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TrackComposer {
+    @Id
+    @SequenceGenerator(name = "track_composer_seq", sequenceName = "SEQ_TRACK_COMPOSER_ID", allocationSize = 1)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "track_composer_seq")
+    @Column(name="TRACK_COMPOSER_ID")
+    private Integer trackComposerId;
+
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JoinColumn(name="TRACK_ID", nullable = false)
+    private Track track;
+
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JoinColumn(name="COMPOSER_ID", nullable = false)
+    private Composer composer;
+}
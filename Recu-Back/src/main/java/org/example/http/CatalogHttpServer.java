@@ -0,0 +1,353 @@
+package org.example.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.catalog.CatalogSnapshots;
+import org.example.domain.Album;
+import org.example.infra.CsvLoader;
+import org.example.infra.ImportListener;
+import org.example.report.RankingService;
+import org.example.report.SalesAnalytics;
+import org.example.repo.AlbumRepository;
+import org.example.repo.ReportRepository;
+import org.example.repo.projection.AlbumWithArtist;
+import org.example.search.CatalogSearchIndex;
+import org.example.search.TrackRecommender;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Servicio HTTP de solo lectura sobre el catálogo, con el HttpServer del JDK.
+ *
+ * <pre>
+ * GET /health
+ * GET /tracks?name=...                 tracks con ese nombre
+ * GET /playlists/{nombre}/tracks       tracks de la playlist
+ * GET /albums                          álbumes con su artista
+ * GET /albums/{id}
+ * GET /reports/playlists               estadísticas por playlist (caché)
+ * GET /reports/top?level=&metric=&k=   ranking top-K (caché)
+ * GET /reports/sales?from=&to=&k=     ventas por género, artista, país, mes y top-k tracks (caché)
+ * GET /search?q=...&limit=             tracks, álbumes, artistas y compositores (con {@link #withSearch})
+ * GET /tracks/{id}/similar?limit=      tracks que suelen compartir playlists (con {@link #withRecommender})
+ * </pre>
+ *
+ * Cada request corre en su propio hilo virtual y usa su propio EntityManager. Las
+ * respuestas de /reports se cachean {@code ttlSeconds} con ETag (If-None-Match da 304).
+ * Con {@link #withCatalog} las consultas de tracks, álbumes y estadísticas de playlists
+ * se responden desde el snapshot en memoria, sin tocar H2 ni competir con importaciones.
+ */
+public class CatalogHttpServer {
+
+    private static final int MAX_TOP_K = 1000;
+    private static final int MAX_SALES_TRACKS = 100;
+    private static final int MAX_SEARCH_HITS = 100;
+    private static final int MAX_SIMILAR_TRACKS = 100;
+
+    static {
+        // Cabeceras y cuerpo salen en dos escrituras: con Nagle + ACK diferido cada
+        // respuesta keep-alive esperaba ~40 ms. Se lee una sola vez al cargar el HttpServer.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final EntityManagerFactory emf;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ReportCache reportCache;
+    private final SalesAnalytics sales;
+    private volatile CatalogSnapshots catalog;
+    private volatile CatalogSearchIndex search;
+    private volatile TrackRecommender recommender;
+
+    public CatalogHttpServer(EntityManagerFactory emf, int port, int ttlSeconds) throws IOException {
+        this.emf = emf;
+        this.reportCache = new ReportCache(ttlSeconds * 1000L);
+        this.sales = new SalesAnalytics(emf);
+        this.executor = virtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(executor);
+        server.createContext("/health", ex -> handle(ex, false, em -> Map.of("status", "ok")));
+        server.createContext("/tracks", ex -> handle(ex, false, em -> tracks(em, ex)));
+        server.createContext("/playlists/", ex -> handle(ex, false, em -> playlistTracks(em, ex)));
+        server.createContext("/albums", ex -> handle(ex, false, em -> albums(em, ex)));
+        server.createContext("/reports/", ex -> handle(ex, true, em -> reports(em, ex)));
+        server.createContext("/search", ex -> handle(ex, false, em -> search(ex)));
+        server.createContext("/tracks/", ex -> handle(ex, false, em -> similarTracks(ex)));
+    }
+
+    /** Responde las lecturas desde los snapshots del catálogo en lugar de la base. */
+    public CatalogHttpServer withCatalog(CatalogSnapshots catalog) {
+        this.catalog = catalog;
+        return this;
+    }
+
+    /** Habilita /search sobre el índice (que se mantiene con su propio listener de importación). */
+    public CatalogHttpServer withSearch(CatalogSearchIndex search) {
+        this.search = search;
+        return this;
+    }
+
+    /** Habilita /tracks/{id}/similar sobre el recomendador (que se mantiene con su propio listener). */
+    public CatalogHttpServer withRecommender(TrackRecommender recommender) {
+        this.recommender = recommender;
+        return this;
+    }
+
+    public CatalogHttpServer start() {
+        server.start();
+        return this;
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /** Descarta las respuestas de reportes cacheadas (por ejemplo, tras importar). */
+    public void invalidateReports() {
+        reportCache.invalidateAll();
+    }
+
+    /**
+     * Listener para {@link CsvLoader#addListener}: al confirmar una carga publica un snapshot
+     * nuevo (si hay catálogo) y recién después invalida los reportes cacheados.
+     */
+    public ImportListener importListener() {
+        return new ImportListener() {
+            @Override
+            public void onCommit(CsvLoader.Stats stats) {
+                CatalogSnapshots snapshots = catalog;
+                if (snapshots != null) snapshots.refresh();
+                invalidateReports();
+            }
+        };
+    }
+
+    // =========================================================
+    // Endpoints
+    // =========================================================
+
+    private Object tracks(EntityManager em, HttpExchange ex) {
+        String name = query(ex).get("name");
+        if (name == null || name.isBlank()) throw new IllegalArgumentException("Falta el parámetro name");
+        CatalogSnapshots snapshots = catalog;
+        if (snapshots != null) return snapshots.current().findTrackSummariesByName(name);
+        return new ReportRepository(em).findTrackSummariesByName(name);
+    }
+
+    private Object playlistTracks(EntityManager em, HttpExchange ex) {
+        String[] parts = path(ex).split("/");
+        // "", "playlists", "{nombre}", "tracks"
+        if (parts.length != 4 || !"tracks".equals(parts[3])) throw new NoSuchElementException(path(ex));
+        CatalogSnapshots snapshots = catalog;
+        if (snapshots != null) return snapshots.current().findTrackSummariesByPlaylist(parts[2]);
+        return new ReportRepository(em).findTrackSummariesByPlaylist(parts[2]);
+    }
+
+    private Object albums(EntityManager em, HttpExchange ex) {
+        String[] parts = path(ex).split("/");
+        CatalogSnapshots snapshots = catalog;
+        if (snapshots != null) {
+            if (parts.length <= 2) return snapshots.current().findAlbumsWithArtist();
+            AlbumWithArtist album = snapshots.current().findAlbum(parseInt(parts[2], "id"));
+            if (album == null) throw new NoSuchElementException("Álbum " + parts[2]);
+            return album;
+        }
+        if (parts.length <= 2) return new ReportRepository(em).findAlbumsWithArtist();
+        Album album = new AlbumRepository(em).findById(parseInt(parts[2], "id"));
+        if (album == null) throw new NoSuchElementException("Álbum " + parts[2]);
+        return new AlbumWithArtist(album.getAlbumId(), album.getTitle(),
+                album.getArtistId() == null ? null : album.getArtistId().getName());
+    }
+
+    private Object search(HttpExchange ex) {
+        CatalogSearchIndex index = search;
+        if (index == null) throw new NoSuchElementException("Búsqueda no habilitada");
+        Map<String, String> q = query(ex);
+        String text = q.get("q");
+        if (text == null || text.isBlank()) throw new IllegalArgumentException("Falta el parámetro q");
+        int limit = parseInt(q.getOrDefault("limit", "20"), "limit");
+        if (limit <= 0 || limit > MAX_SEARCH_HITS) throw new IllegalArgumentException("limit debe estar entre 1 y " + MAX_SEARCH_HITS);
+        return index.search(text, limit);
+    }
+
+    private Object similarTracks(HttpExchange ex) {
+        String[] parts = path(ex).split("/");
+        // "", "tracks", "{id}", "similar"
+        if (parts.length != 4 || !"similar".equals(parts[3])) throw new NoSuchElementException(path(ex));
+        TrackRecommender model = recommender;
+        if (model == null) throw new NoSuchElementException("Recomendaciones no habilitadas");
+        int limit = parseInt(query(ex).getOrDefault("limit", "10"), "limit");
+        if (limit <= 0 || limit > MAX_SIMILAR_TRACKS) throw new IllegalArgumentException("limit debe estar entre 1 y " + MAX_SIMILAR_TRACKS);
+        return model.similarTracks(parseInt(parts[2], "id"), limit);
+    }
+
+    private Object reports(EntityManager em, HttpExchange ex) {
+        String path = path(ex);
+        if (path.equals("/reports/playlists")) {
+            CatalogSnapshots snapshots = catalog;
+            if (snapshots != null) return snapshots.current().findPlaylistStats();
+            return new ReportRepository(em).findPlaylistStats();
+        }
+        if (path.equals("/reports/top")) {
+            Map<String, String> q = query(ex);
+            RankingService.Level level = parseEnum(RankingService.Level.class, q.getOrDefault("level", "PLAYLIST"));
+            RankingService.Metric metric = parseEnum(RankingService.Metric.class, q.getOrDefault("metric", "COST_PER_MINUTE"));
+            int k = parseInt(q.getOrDefault("k", "5"), "k");
+            if (k <= 0 || k > MAX_TOP_K) throw new IllegalArgumentException("k debe estar entre 1 y " + MAX_TOP_K);
+            return new RankingService(em).top(level, metric, k);
+        }
+        if (path.equals("/reports/sales")) {
+            Map<String, String> q = query(ex);
+            int k = parseInt(q.getOrDefault("k", "10"), "k");
+            if (k <= 0 || k > MAX_SALES_TRACKS) throw new IllegalArgumentException("k debe estar entre 1 y " + MAX_SALES_TRACKS);
+            SalesAnalytics.SalesReport report = sales.report(parseDate(q.get("from"), "from"), parseDate(q.get("to"), "to"));
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("total", report.total());
+            out.put("byGenre", report.byGenre());
+            out.put("byArtist", report.byArtist());
+            out.put("byCountry", report.byCountry());
+            out.put("monthly", report.monthly());
+            out.put("topTracks", report.topTracks(k));
+            return out;
+        }
+        throw new NoSuchElementException(path);
+    }
+
+    // =========================================================
+    // Infraestructura
+    // =========================================================
+
+    private interface Endpoint {
+        Object handle(EntityManager em);
+    }
+
+    private void handle(HttpExchange ex, boolean cached, Endpoint endpoint) throws IOException {
+        try (ex) {
+            if (!"GET".equals(ex.getRequestMethod())) {
+                send(ex, 405, Json.write(Map.of("error", "Solo GET")).getBytes(StandardCharsets.UTF_8), null, 0);
+                return;
+            }
+            try {
+                if (cached) {
+                    ReportCache.Entry entry = reportCache.get(ex.getRequestURI().toString(), () -> render(endpoint));
+                    if (entry.etag().equals(ex.getRequestHeaders().getFirst("If-None-Match"))) {
+                        send(ex, 304, null, entry.etag(), reportCache.ttlSeconds());
+                    } else {
+                        send(ex, 200, entry.body(), entry.etag(), reportCache.ttlSeconds());
+                    }
+                } else {
+                    send(ex, 200, render(endpoint).getBytes(StandardCharsets.UTF_8), null, 0);
+                }
+            } catch (IllegalArgumentException e) {
+                send(ex, 400, error(e), null, 0);
+            } catch (NoSuchElementException e) {
+                send(ex, 404, error(e), null, 0);
+            } catch (RuntimeException e) {
+                send(ex, 500, error(e), null, 0);
+            }
+        }
+    }
+
+    private String render(Endpoint endpoint) {
+        try (EntityManager em = emf.createEntityManager()) {
+            return Json.write(endpoint.handle(em));
+        }
+    }
+
+    private static void send(HttpExchange ex, int status, byte[] body, String etag, long maxAgeSeconds) throws IOException {
+        var headers = ex.getResponseHeaders();
+        headers.set("Content-Type", "application/json; charset=utf-8");
+        if (etag != null) {
+            headers.set("ETag", etag);
+            headers.set("Cache-Control", "max-age=" + maxAgeSeconds);
+        }
+        if (body == null) {
+            ex.sendResponseHeaders(status, -1);
+            return;
+        }
+        ex.sendResponseHeaders(status, body.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] error(RuntimeException e) {
+        return Json.write(Map.of("error", String.valueOf(e.getMessage()))).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String path(HttpExchange ex) {
+        return URLDecoder.decode(ex.getRequestURI().getRawPath(), StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> query(HttpExchange ex) {
+        Map<String, String> out = new HashMap<>();
+        String raw = ex.getRequestURI().getRawQuery();
+        if (raw == null) return out;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            out.put(key, value);
+        }
+        return out;
+    }
+
+    private static int parseInt(String value, String name) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " inválido: " + value);
+        }
+    }
+
+    private static LocalDate parseDate(String value, String name) {
+        if (value == null || value.isBlank()) return null;
+        try {
+            return LocalDate.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(name + " inválido: " + value);
+        }
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value) {
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(type.getSimpleName() + " inválido: " + value);
+        }
+    }
+
+    /**
+     * Un hilo virtual por tarea (Java 21). Se obtiene por reflexión para que el proyecto
+     * siga compilando y corriendo en un JDK 17, donde cae a un pool de hilos de plataforma.
+     */
+    static ExecutorService virtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
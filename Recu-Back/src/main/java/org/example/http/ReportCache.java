@@ -0,0 +1,60 @@
+package org.example.http;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Caché de respuestas de reportes por URL con vencimiento (TTL). Cada entrada guarda el
+ * cuerpo ya serializado y su ETag (hash del contenido), así un cliente con
+ * If-None-Match recibe 304 sin que se vuelva a consultar ni a serializar.
+ */
+final class ReportCache {
+
+    record Entry(byte[] body, String etag, long expiresAtNanos) {
+        boolean isFresh(long now) {
+            return now - expiresAtNanos < 0;
+        }
+    }
+
+    private final long ttlNanos;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    ReportCache(long ttlMillis) {
+        this.ttlNanos = ttlMillis * 1_000_000L;
+    }
+
+    /** Entrada vigente para la clave, o la que genere {@code compute} (una sola vez por clave a la vez). */
+    Entry get(String key, Supplier<String> compute) {
+        long now = System.nanoTime();
+        Entry cached = entries.get(key);
+        if (cached != null && cached.isFresh(now)) return cached;
+        return entries.compute(key, (k, current) -> {
+            long t = System.nanoTime();
+            if (current != null && current.isFresh(t)) return current;
+            byte[] body = compute.get().getBytes(StandardCharsets.UTF_8);
+            return new Entry(body, etag(body), t + ttlNanos);
+        });
+    }
+
+    long ttlSeconds() {
+        return ttlNanos / 1_000_000_000L;
+    }
+
+    void invalidateAll() {
+        entries.clear();
+    }
+
+    static String etag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
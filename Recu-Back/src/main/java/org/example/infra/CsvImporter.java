@@ -0,0 +1,33 @@
+package org.example.infra;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Importador del formato playlists.csv. Hay dos implementaciones con el mismo
+ * resultado: {@link CsvLoader} (EntityManager) y {@link StatelessCsvLoader}
+ * (StatelessSession de Hibernate, sin contexto de persistencia). La entrada puede
+ * venir en CSV plano, gzip o {@link BlockCsv}.
+ */
+public interface CsvImporter {
+
+    CsvLoader.Stats load(InputStream csvStream) throws Exception;
+
+    CsvImporter addListener(ImportListener listener);
+
+    default CsvLoader.Stats loadFromClasspath(String classpath) throws Exception {
+        try (InputStream in = Thread.currentThread().getContextClassLoader()
+                .getResourceAsStream(classpath.startsWith("/") ? classpath.substring(1) : classpath)) {
+            if (in == null) throw new IllegalStateException("No se encontró en classpath: " + classpath);
+            return load(in);
+        }
+    }
+
+    /** Carga un archivo CSV plano, gzip o {@link BlockCsv} (el formato se detecta por su contenido). */
+    default CsvLoader.Stats loadFromFile(Path file) throws Exception {
+        try (InputStream in = Files.newInputStream(file)) {
+            return load(in);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package org.example.infra;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+import org.example.infra.rules.RuleChain;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Detecta el formato de la entrada por sus primeros bytes: {@link BlockCsv} se decodifica
+ * en paralelo, gzip se descomprime al vuelo y cualquier otra cosa se lee como CSV plano.
+ */
+final class CsvInput {
+
+    private static final int BUFFER = 1 << 16;
+    private static final int GZIP_MAGIC = 0x1f8b;
+    // Hilos para descomprimir/parsear bloques (por defecto, uno por núcleo)
+    private static final int DECODE_THREADS =
+            Integer.getInteger("recu.csv.decodeThreads", Runtime.getRuntime().availableProcessors());
+
+    private CsvInput() {
+    }
+
+    static CsvRowReader.Source open(InputStream in, RuleChain rules) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, BUFFER);
+        if (Arrays.equals(peek(buffered, BlockCsv.MAGIC.length), BlockCsv.MAGIC)) {
+            return new BlockSource(buffered, rules, DECODE_THREADS);
+        }
+        return new PlainSource(decompressed(buffered), rules);
+    }
+
+    /** {@code in} tal cual, o descomprimido si empieza con la firma de gzip. */
+    static InputStream decompressed(InputStream in) throws IOException {
+        BufferedInputStream buffered = in instanceof BufferedInputStream b ? b : new BufferedInputStream(in, BUFFER);
+        byte[] head = peek(buffered, 2);
+        boolean gzip = head.length == 2 && ((head[0] & 0xff) << 8 | (head[1] & 0xff)) == GZIP_MAGIC;
+        return gzip ? new GZIPInputStream(buffered, BUFFER) : buffered;
+    }
+
+    private static byte[] peek(BufferedInputStream in, int n) throws IOException {
+        in.mark(n);
+        byte[] head = in.readNBytes(n);
+        in.reset();
+        return head;
+    }
+
+    /** CSV secuencial: parsea y valida en el hilo que lee. */
+    private static final class PlainSource implements CsvRowReader.Source {
+        private final CSVReader reader;
+        private final RuleChain rules;
+        private boolean header = true;
+
+        PlainSource(InputStream in, RuleChain rules) {
+            this.reader = BlockCsv.reader(in);
+            this.rules = rules;
+        }
+
+        @Override
+        public CsvRowReader.Checked next() throws IOException, CsvValidationException {
+            String[] row;
+            while ((row = reader.readNext()) != null) {
+                if (header) { header = false; continue; }
+                return CsvRowReader.check(row, rules);
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /**
+     * Bloques: el hilo que consume lee los bytes comprimidos (barato) y los reparte; el
+     * pool descomprime, parsea y valida. Los resultados se devuelven en orden de bloque,
+     * con a lo sumo 2 bloques por hilo en vuelo para acotar la memoria.
+     */
+    private static final class BlockSource implements CsvRowReader.Source {
+        private final DataInputStream in;
+        private final RuleChain rules;
+        private final ExecutorService pool;
+        private final int maxInFlight;
+        private final Deque<Future<List<CsvRowReader.Checked>>> inFlight = new ArrayDeque<>();
+        private Iterator<CsvRowReader.Checked> current = Collections.emptyIterator();
+        private boolean eof;
+
+        BlockSource(InputStream in, RuleChain rules, int threads) throws IOException {
+            this.in = new DataInputStream(in);
+            this.rules = rules;
+            BlockCsv.readHeader(this.in);
+            // Con un solo hilo se decodifica en el que lee, sin pasar por un pool
+            this.pool = threads > 1 ? Executors.newFixedThreadPool(threads, daemonThreads()) : null;
+            this.maxInFlight = threads > 1 ? 2 * threads : 1;
+        }
+
+        @Override
+        public CsvRowReader.Checked next() throws IOException {
+            while (!current.hasNext()) {
+                fill();
+                Future<List<CsvRowReader.Checked>> next = inFlight.poll();
+                if (next == null) return null;
+                current = await(next).iterator();
+            }
+            return current.next();
+        }
+
+        private void fill() throws IOException {
+            while (!eof && inFlight.size() < maxInFlight) {
+                BlockCsv.Frame frame = BlockCsv.readFrame(in);
+                if (frame == null) {
+                    eof = true;
+                    break;
+                }
+                FutureTask<List<CsvRowReader.Checked>> task =
+                        new FutureTask<>(() -> BlockCsv.decode(frame, record -> CsvRowReader.check(record, rules)));
+                if (pool == null) task.run();
+                else pool.execute(task);
+                inFlight.add(task);
+            }
+        }
+
+        private static List<CsvRowReader.Checked> await(Future<List<CsvRowReader.Checked>> future) throws IOException {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Decodificación de bloques interrumpida");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException io) throw io;
+                throw new IOException("Error decodificando un bloque", e.getCause());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (pool != null) pool.shutdownNow();
+            in.close();
+        }
+
+        private static ThreadFactory daemonThreads() {
+            AtomicInteger n = new AtomicInteger();
+            return r -> {
+                Thread t = new Thread(r, "csv-decode-" + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            };
+        }
+    }
+}
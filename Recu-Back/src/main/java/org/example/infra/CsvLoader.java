@@ -1,43 +1,60 @@
 package org.example.infra;
 
-import com.opencsv.CSVParser;
-import com.opencsv.CSVParserBuilder;
-import com.opencsv.CSVReader;
-import com.opencsv.CSVReaderBuilder;
 import jakarta.persistence.EntityManager;
-import jakarta.persistence.TypedQuery;
+import jakarta.persistence.FlushModeType;
 import org.example.domain.Album;
 import org.example.domain.Artist;
+import org.example.domain.Composer;
 import org.example.domain.Genre;
 import org.example.domain.MediaType;
+import org.example.domain.Money;
 import org.example.domain.Playlist;
 import org.example.domain.Track;
+import org.example.infra.rules.QuarantineWriter;
+import org.example.infra.rules.RuleChain;
+import org.example.report.CatalogSketches;
 import org.example.repo.AlbumRepository;
 import org.example.repo.ArtistRepository;
+import org.example.repo.ComposerRepository;
+import org.example.repo.GenreRepository;
+import org.example.repo.MediaTypeRepository;
 import org.example.repo.PlaylistRepository;
 import org.example.repo.PlaylistTrackRepository;
 import org.example.repo.TrackRepository;
+import org.example.util.IntList;
+import org.hibernate.Session;
 
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
  * Loader adaptado al formato del archivo playlists.csv entregado en el enunciado:
  * playListName, trackName, composer, milliseconds, bytes, unitPrice,
  * albumTitle, artistName, genreName, mediaTypeName
+ *
+ * Cada fila pasa primero por una {@link RuleChain} (por defecto {@link RuleChain#defaults()});
+ * las rechazadas se cuentan por regla y, si se configuró, se escriben a un CSV de cuarentena.
+ *
+ * La importación es una sola transacción con {@link FlushModeType#COMMIT}: los inserts
+ * salen al hacer flush (cada {@link #withFlushInterval} filas y al final), no fila por
+ * fila. Un error de la base en ese flush ya no se puede atribuir a una fila, así que
+ * revierte toda la importación: {@link #load} lanza la excepción y los listeners reciben
+ * onRollback. Por eso las reglas por defecto rechazan antes lo que la base no aceptaría
+ * (campos obligatorios, largos de columna, precio); lo que queda (por ejemplo una clave
+ * duplicada por otra conexión que escribe a la vez) aborta la carga, que se puede repetir.
  */
-public class CsvLoader {
+public class CsvLoader implements CsvImporter {
 
     private final EntityManager em;
     private final ArtistRepository artistRepo;
     private final AlbumRepository albumRepo;
+    private final GenreRepository genreRepo;
+    private final MediaTypeRepository mediaTypeRepo;
     private final TrackRepository trackRepo;
     private final PlaylistRepository playlistRepo;
     private final PlaylistTrackRepository playlistTrackRepo;
+    private final ComposerRepository composerRepo;
 
     private final Map<String, Artist> artistCache = new HashMap<>();
     private final Map<String, Album> albumCache = new HashMap<>();
@@ -45,103 +62,113 @@ public class CsvLoader {
     private final Map<String, Genre> genreCache = new HashMap<>();
     private final Map<String, Track> trackCache = new HashMap<>();
     private final Map<String, Playlist> playlistCache = new HashMap<>();
+    private final Map<String, Composer> composerCache = new HashMap<>();
     private final Set<String> playlistTrackKeys = new HashSet<>();
+    // Relaciones nuevas pendientes: se escriben en lote por partición al hacer flush
+    private final IntList pendingPlaylistIds = new IntList();
+    private final IntList pendingTrackIds = new IntList();
+    private final List<ImportListener> listeners = new ArrayList<>();
+    private RuleChain rules = RuleChain.defaults();
+    private Path quarantineFile;
+    private int flushInterval;
 
     public CsvLoader(EntityManager em) {
         this.em = em;
         this.artistRepo = new ArtistRepository(em);
         this.albumRepo = new AlbumRepository(em);
+        this.genreRepo = new GenreRepository(em);
+        this.mediaTypeRepo = new MediaTypeRepository(em);
         this.trackRepo = new TrackRepository(em);
         this.playlistRepo = new PlaylistRepository(em);
         this.playlistTrackRepo = new PlaylistTrackRepository(em);
+        this.composerRepo = new ComposerRepository(em);
     }
 
-    public Stats loadFromClasspath(String classpath) throws Exception {
-        try (InputStream in = Thread.currentThread().getContextClassLoader()
-                .getResourceAsStream(classpath.startsWith("/") ? classpath.substring(1) : classpath)) {
-            if (in == null) throw new IllegalStateException("No se encontró en classpath: " + classpath);
-            return load(in);
-        }
+    public CsvLoader addListener(ImportListener listener) {
+        listeners.add(listener);
+        return this;
+    }
+
+    /** Reemplaza las reglas de validación (por ejemplo {@code RuleChain.defaults().then(...)}). */
+    public CsvLoader withRules(RuleChain rules) {
+        this.rules = Objects.requireNonNull(rules);
+        return this;
+    }
+
+    /** Archivo donde se escriben las filas rechazadas; null para solo contarlas. */
+    public CsvLoader withQuarantine(Path file) {
+        this.quarantineFile = file;
+        return this;
+    }
+
+    /**
+     * Cada cuántas filas procesadas se hace flush + clear del contexto de persistencia
+     * (0 = nunca, todo se escribe al commit). Con el perfil "database-bulk" cada flush
+     * sale en lotes JDBC y el contexto no crece con el tamaño del archivo.
+     */
+    public CsvLoader withFlushInterval(int rows) {
+        if (rows < 0) throw new IllegalArgumentException("rows < 0");
+        this.flushInterval = rows;
+        return this;
     }
 
+    @Override
     public Stats load(InputStream csvStream) throws Exception {
         Stats st = new Stats();
         var tx = em.getTransaction();
+        // Las filas ya vistas se resuelven con los mapas del loader, así que las consultas
+        // no necesitan ver los inserts pendientes: sin auto-flush los inserts se agrupan
+        FlushModeType previousFlushMode = em.getFlushMode();
+        em.setFlushMode(FlushModeType.COMMIT);
         tx.begin();
-        CSVParser parser = new CSVParserBuilder()
-                .withSeparator(',')
-                .build();
-        try (CSVReader reader = new CSVReaderBuilder(new InputStreamReader(csvStream, StandardCharsets.UTF_8))
-                .withCSVParser(parser)
-                .build()) {
-            String[] row;
-            boolean header = true;
-            while ((row = reader.readNext()) != null) {
-                if (header) { header = false; continue; }
-                st.totalRows++;
-
-                String playlistName = str(row, 0);
-                String trackName = str(row, 1);
-                String composer = str(row, 2);
-                String millisecondsS = str(row, 3);
-                String bytesS = str(row, 4);
-                String unitPriceS = str(row, 5);
-                String albumTitle = str(row, 6);
-                String artistName = str(row, 7);
-                String genreName = str(row, 8);
-                String mediaTypeName = str(row, 9);
-
-                if (hasMissingRequiredField(playlistName, trackName, composer, millisecondsS,
-                        bytesS, unitPriceS, albumTitle, artistName, genreName, mediaTypeName)) {
-                    st.skippedRows++;
-                    st.missingRequiredRows++;
-                    continue;
-                }
-
-                Integer millis = parsePositiveInt(millisecondsS);
-                if (millis == null) {
-                    st.skippedRows++; st.reasons.add("Fila " + st.totalRows + ": duración inválida");
-                    continue;
-                }
-
-                Integer bytes = parseInt(bytesS);
-                if (bytes == null) {
-                    st.skippedRows++; st.reasons.add("Fila " + st.totalRows + ": bytes inválidos");
-                    continue;
-                }
-                if (bytes < 0) {
-                    st.fixedBytes++;
-                    bytes = null;
-                }
-
-                BigDecimal unitPrice = parsePrice(unitPriceS);
-                if (unitPrice == null) {
-                    st.skippedRows++; st.reasons.add("Fila " + st.totalRows + ": precio inválido");
-                    continue;
-                }
-
+        try (QuarantineWriter quarantine = quarantineFile == null ? null : new QuarantineWriter(quarantineFile);
+             CsvRowReader rows = new CsvRowReader(csvStream, rules, quarantine, st)) {
+            CsvRowReader.Row row;
+            while ((row = rows.next()) != null) {
                 try {
-                    Artist artist = getOrCreateArtist(artistName);
-                    Album album = getOrCreateAlbum(albumTitle, artist, st);
-                    MediaType mediaType = getOrCreateMediaType(mediaTypeName);
-                    Genre genre = getOrCreateGenre(genreName);
-                    Track track = getOrCreateTrack(trackName, album, mediaType, genre, composer, millis, bytes, unitPrice, st);
-                    Playlist playlist = getOrCreatePlaylist(playlistName, st);
+                    Artist artist = getOrCreateArtist(row.artistName());
+                    Album album = getOrCreateAlbum(row.albumTitle(), artist, st);
+                    MediaType mediaType = getOrCreateMediaType(row.mediaTypeName());
+                    Genre genre = getOrCreateGenre(row.genreName());
+                    Track track = getOrCreateTrack(row.trackName(), album, mediaType, genre, row.composer(),
+                            row.milliseconds(), row.bytes(), row.unitPrice(), st);
+                    Playlist playlist = getOrCreatePlaylist(row.playlistName(), st);
                     linkPlaylistTrack(playlist, track, st);
                     st.processedRows++;
+                    if (flushInterval > 0 && st.processedRows % flushInterval == 0) {
+                        writePendingPlaylistTracks();
+                        em.clear();
+                    }
                 } catch (RuntimeException ex) {
-                    st.skippedRows++;
-                    st.reasons.add("Fila " + st.totalRows + ": error al persistir (" + ex.getMessage() + ")");
+                    rows.persistFailed(row, ex);
                 }
             }
+            writePendingPlaylistTracks();
+            em.unwrap(Session.class).doWork(conn -> SketchStore.merge(conn, st.sketches));
             tx.commit();
+            listeners.forEach(l -> l.onCommit(st));
         } catch (Exception e) {
             if (tx.isActive()) tx.rollback();
+            listeners.forEach(ImportListener::onRollback);
             throw e;
+        } finally {
+            pendingPlaylistIds.clear();
+            pendingTrackIds.clear();
+            em.setFlushMode(previousFlushMode);
+            // Lo cacheado durante la carga puede haber cambiado (o no existir tras un rollback)
+            ReferenceDataCache.get().invalidateAll();
         }
         return st;
     }
 
+    /** Flush de las entidades pendientes y escritura en lote de las relaciones playlist-track. */
+    private void writePendingPlaylistTracks() {
+        playlistTrackRepo.createAll(pendingPlaylistIds, pendingTrackIds);
+        em.flush();
+        pendingPlaylistIds.clear();
+        pendingTrackIds.clear();
+    }
+
     private Artist getOrCreateArtist(String name) {
         String key = name.toUpperCase(Locale.ROOT);
         if (artistCache.containsKey(key)) return artistCache.get(key);
@@ -150,6 +177,7 @@ public class CsvLoader {
             existing = new Artist();
             existing.setName(name.trim());
             em.persist(existing);
+            for (ImportListener l : listeners) l.onArtistInserted(existing);
         }
         artistCache.put(key, existing);
         return existing;
@@ -165,6 +193,7 @@ public class CsvLoader {
             album.setArtistId(artist);
             em.persist(album);
             stats.insertedAlbums++;
+            for (ImportListener l : listeners) l.onAlbumInserted(album);
         }
         albumCache.put(key, album);
         return album;
@@ -173,7 +202,7 @@ public class CsvLoader {
     private MediaType getOrCreateMediaType(String name) {
         String key = name.toUpperCase(Locale.ROOT);
         if (mediaTypeCache.containsKey(key)) return mediaTypeCache.get(key);
-        MediaType mt = findMediaType(name);
+        MediaType mt = mediaTypeRepo.findByName(name);
         if (mt == null) {
             mt = new MediaType();
             mt.setName(name.trim());
@@ -183,19 +212,10 @@ public class CsvLoader {
         return mt;
     }
 
-    private MediaType findMediaType(String name) {
-        TypedQuery<MediaType> query = em.createQuery(
-                "SELECT m FROM MediaType m WHERE UPPER(m.name) = :name", MediaType.class);
-        return query.setParameter("name", name.trim().toUpperCase())
-                .getResultStream()
-                .findFirst()
-                .orElse(null);
-    }
-
     private Genre getOrCreateGenre(String name) {
         String key = name.toUpperCase(Locale.ROOT);
         if (genreCache.containsKey(key)) return genreCache.get(key);
-        Genre genre = findGenre(name);
+        Genre genre = genreRepo.findByName(name);
         if (genre == null) {
             genre = new Genre();
             genre.setName(name.trim());
@@ -205,15 +225,6 @@ public class CsvLoader {
         return genre;
     }
 
-    private Genre findGenre(String name) {
-        TypedQuery<Genre> query = em.createQuery(
-                "SELECT g FROM Genre g WHERE UPPER(g.name) = :name", Genre.class);
-        return query.setParameter("name", name.trim().toUpperCase())
-                .getResultStream()
-                .findFirst()
-                .orElse(null);
-    }
-
     private Track getOrCreateTrack(String name,
                                    Album album,
                                    MediaType mediaType,
@@ -221,7 +232,7 @@ public class CsvLoader {
                                    String composer,
                                    Integer millis,
                                    Integer bytes,
-                                   BigDecimal unitPrice,
+                                   Money unitPrice,
                                    Stats stats) {
         String normalizedName = normalizeTrackName(name);
         if (trackCache.containsKey(normalizedName)) {
@@ -237,16 +248,43 @@ public class CsvLoader {
             track.setComposer(composer != null ? composer.trim() : null);
             track.setMilliseconds(millis);
             track.setBytes(bytes);
-            track.setUnitPrice(unitPrice);
+            track.setUnitPrice(unitPrice.toBigDecimal());
             em.persist(track);
-            em.flush(); // Asegurar que el track esté disponible para búsquedas posteriores
             stats.insertedTracks++;
+            stats.sketches.addTrack(track);
+            for (ImportListener l : listeners) l.onTrackInserted(track);
+            linkComposers(track, stats);
         }
         trackCache.put(normalizedName, track);
         return track;
     }
 
-    private static String normalizeTrackName(String name) {
+    private void linkComposers(Track track, Stats stats) {
+        Set<Integer> linked = new HashSet<>();
+        for (String name : Composer.splitNames(track.getComposer())) {
+            Composer composer = getOrCreateComposer(name, stats);
+            if (linked.add(composer.getComposerId())) {
+                composerRepo.link(track, composer);
+            }
+        }
+    }
+
+    private Composer getOrCreateComposer(String name, Stats stats) {
+        String key = name.toUpperCase(Locale.ROOT);
+        if (composerCache.containsKey(key)) return composerCache.get(key);
+        Composer composer = composerRepo.findByName(name);
+        if (composer == null) {
+            composer = new Composer();
+            composer.setName(name);
+            em.persist(composer);
+            stats.insertedComposers++;
+            for (ImportListener l : listeners) l.onComposerInserted(composer);
+        }
+        composerCache.put(key, composer);
+        return composer;
+    }
+
+    static String normalizeTrackName(String name) {
         if (name == null) return "";
         return name.trim().replaceAll("\\s+", " ").toUpperCase(Locale.ROOT);
     }
@@ -260,6 +298,7 @@ public class CsvLoader {
             playlist.setName(name.trim());
             em.persist(playlist);
             stats.insertedPlaylists++;
+            for (ImportListener l : listeners) l.onPlaylistInserted(playlist);
         }
         playlistCache.put(key, playlist);
         return playlist;
@@ -274,61 +313,17 @@ public class CsvLoader {
             playlistTrackKeys.add(key);
             return;
         }
-        playlistTrackRepo.create(playlist, track);
+        pendingPlaylistIds.add(playlist.getPlaylistId());
+        pendingTrackIds.add(track.getTrackId());
         playlistTrackKeys.add(key);
         stats.insertedPlaylistTracks++;
-    }
-
-    private static String str(String[] row, int idx) {
-        if (row == null || idx >= row.length) return null;
-        String value = row[idx];
-        return value == null ? null : value.trim();
-    }
-
-    private static boolean hasMissingRequiredField(String... values) {
-        for (String value : values) {
-            if (value == null || value.isBlank()) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private static Integer parsePositiveInt(String value) {
-        if (isBlank(value)) return null;
-        try {
-            int parsed = Integer.parseInt(value.trim());
-            return parsed > 0 ? parsed : null;
-        } catch (NumberFormatException e) {
-            return null;
-        }
-    }
-
-    private static Integer parseInt(String value) {
-        if (isBlank(value)) return null;
-        try {
-            return Integer.valueOf(value.trim());
-        } catch (NumberFormatException e) {
-            return null;
-        }
-    }
-
-    private static BigDecimal parsePrice(String value) {
-        if (isBlank(value)) return null;
-        try {
-            BigDecimal price = new BigDecimal(value.replace(',', '.').trim());
-            if (price.compareTo(BigDecimal.ZERO) <= 0) return null;
-            return price.setScale(2, RoundingMode.HALF_UP);
-        } catch (NumberFormatException e) {
-            return null;
-        }
-    }
-
-    private static boolean isBlank(String value) {
-        return value == null || value.trim().isEmpty();
+        for (ImportListener l : listeners) l.onPlaylistTrackInserted(playlist, track);
     }
 
     public static class Stats {
+        /** Cantidad máxima de motivos de descarte que se guardan como muestra. */
+        public static final int MAX_REASON_SAMPLES = 50;
+
         public int totalRows;
         public int processedRows;
         public int skippedRows;
@@ -336,9 +331,22 @@ public class CsvLoader {
         public int insertedPlaylists;
         public int insertedAlbums;
         public int insertedPlaylistTracks;
+        public int insertedComposers;
         public int fixedBytes;
         public int missingRequiredRows;
+        /** Muestra (las primeras {@value #MAX_REASON_SAMPLES}) de los descartes; el total está en rejectionsByRule. */
         public List<String> reasons = new ArrayList<>();
+        public Map<String, Integer> rejectionsByRule = new LinkedHashMap<>();
+        /** Sketches de los tracks insertados en esta carga; los acumulados quedan en {@link SketchStore}. */
+        public CatalogSketches sketches = new CatalogSketches();
+
+        void countRejection(String rule) {
+            rejectionsByRule.merge(rule, 1, Integer::sum);
+        }
+
+        void addReason(String reason) {
+            if (reasons.size() < MAX_REASON_SAMPLES) reasons.add(reason);
+        }
 
         @Override
         public String toString() {
@@ -349,8 +357,10 @@ public class CsvLoader {
                     ", playlists=" + insertedPlaylists +
                     ", albums=" + insertedAlbums +
                     ", playlistTracks=" + insertedPlaylistTracks +
+                    ", composers=" + insertedComposers +
                     ", fixedBytes=" + fixedBytes +
-                    ", missingRequired=" + missingRequiredRows + "}";
+                    ", missingRequired=" + missingRequiredRows +
+                    ", rechazosPorRegla=" + rejectionsByRule + "}";
         }
     }
 }
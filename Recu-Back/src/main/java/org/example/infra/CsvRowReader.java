@@ -0,0 +1,126 @@
+package org.example.infra;
+
+import com.opencsv.exceptions.CsvValidationException;
+import org.example.domain.Money;
+import org.example.infra.rules.QuarantineWriter;
+import org.example.infra.rules.RowValues;
+import org.example.infra.rules.RuleChain;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Lectura y validación de filas de playlists.csv compartida por los loaders: salta el
+ * encabezado, aplica la {@link RuleChain}, registra los descartes en {@link CsvLoader.Stats}
+ * (y en la cuarentena, si hay) y devuelve solo filas válidas ya parseadas.
+ *
+ * La entrada puede ser CSV plano, gzip o {@link BlockCsv} (ver {@link CsvInput}); con
+ * bloques, descomprimir, parsear y validar corre en paralelo, pero los resultados se
+ * consumen acá en orden, así que números de fila, Stats y cuarentena quedan iguales.
+ */
+final class CsvRowReader implements Closeable {
+
+    static final String PERSIST_ERROR = "error al persistir";
+
+    /** Fila válida: textos recortados, bytes negativos ya corregidos a null. */
+    record Row(String[] raw, String playlistName, String trackName, String composer,
+               int milliseconds, Integer bytes, Money unitPrice, String albumTitle,
+               String artistName, String genreName, String mediaTypeName) { }
+
+    /** Fila ya validada: {@code row} si es válida, si no la regla que falló. */
+    record Checked(String[] raw, Row row, String rule, boolean fixedBytes) { }
+
+    /** Origen de filas validadas, en el orden del archivo y sin el encabezado. */
+    interface Source extends Closeable {
+        /** Siguiente fila, o null al final. */
+        Checked next() throws IOException, CsvValidationException;
+    }
+
+    // Una por hilo: check corre en los hilos de decodificación de BlockCsv
+    private static final ThreadLocal<RowValues> VALUES = ThreadLocal.withInitial(RowValues::new);
+
+    private final Source source;
+    private final QuarantineWriter quarantine;
+    private final CsvLoader.Stats st;
+
+    CsvRowReader(InputStream in, RuleChain rules, QuarantineWriter quarantine, CsvLoader.Stats st) throws IOException {
+        this.source = CsvInput.open(in, rules);
+        this.quarantine = quarantine;
+        this.st = st;
+    }
+
+    /** Siguiente fila válida, o null al final del archivo. */
+    Row next() throws IOException, CsvValidationException {
+        Checked checked;
+        while ((checked = source.next()) != null) {
+            st.totalRows++;
+            if (checked.fixedBytes()) st.fixedBytes++;
+            if (checked.rule() != null) {
+                reject(checked.raw(), checked.rule());
+                continue;
+            }
+            return checked.row();
+        }
+        return null;
+    }
+
+    /**
+     * Valida y parsea una fila sin tocar Stats (se puede llamar desde varios hilos si las
+     * reglas no tienen estado, como las de {@link RuleChain#defaults()}). Duración, bytes
+     * y precio salen de lo que dejaron las reglas en {@link RowValues}: cada campo se
+     * parsea una sola vez.
+     */
+    static Checked check(String[] row, RuleChain rules) {
+        RowValues values = VALUES.get();
+        int failed = rules.firstFailure(row, values);
+        if (failed >= 0) return new Checked(row, null, rules.rule(failed).name(), false);
+
+        long bytes = values.get(4);
+        boolean fixedBytes = bytes < 0;
+        Row parsed = new Row(row, str(row, 0), str(row, 1), str(row, 2), (int) values.get(3),
+                fixedBytes ? null : (int) bytes, Money.ofCents(values.get(5)),
+                str(row, 6), str(row, 7), str(row, 8), str(row, 9));
+        return new Checked(row, parsed, null, fixedBytes);
+    }
+
+    /** Registra una fila válida que falló al persistirse. */
+    void persistFailed(Row row, RuntimeException ex) {
+        persistFailed(row, st.totalRows, ex);
+    }
+
+    /** Igual, para quien persiste las filas después de leer otras ({@code rowNumber} es el de {@link #rowNumber()}). */
+    void persistFailed(Row row, int rowNumber, RuntimeException ex) {
+        st.skippedRows++;
+        st.countRejection(PERSIST_ERROR);
+        st.addReason("Fila " + rowNumber + ": error al persistir (" + ex.getMessage() + ")");
+        if (quarantine != null) quarantine.write(rowNumber, PERSIST_ERROR, row.raw());
+    }
+
+    /** Número (1 = primera fila de datos) de la última fila devuelta por {@link #next()}. */
+    int rowNumber() {
+        return st.totalRows;
+    }
+
+    private void reject(String[] row, String rule) {
+        st.skippedRows++;
+        st.countRejection(rule);
+        if (RuleChain.REQUIRED_FIELDS.equals(rule)) {
+            st.missingRequiredRows++;
+        } else {
+            st.addReason("Fila " + st.totalRows + ": " + rule);
+        }
+        if (quarantine != null) quarantine.write(st.totalRows, rule, row);
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    private static String str(String[] row, int idx) {
+        if (row == null || idx >= row.length) return null;
+        String value = row[idx];
+        return value == null ? null : value.trim();
+    }
+}
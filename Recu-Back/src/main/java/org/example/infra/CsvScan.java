@@ -0,0 +1,25 @@
+package org.example.infra;
+
+import org.example.infra.rules.QuarantineWriter;
+import org.example.infra.rules.RuleChain;
+
+import java.io.InputStream;
+
+/**
+ * Lee y valida un CSV (plano, gzip o {@link BlockCsv}) sin tocar la base: deja las mismas
+ * Stats de descartes que dejaría la importación, con processedRows = filas válidas.
+ * Sirve para revisar un feed antes de cargarlo y para medir el costo de la lectura sola.
+ */
+public final class CsvScan {
+
+    private CsvScan() {
+    }
+
+    public static CsvLoader.Stats scan(InputStream in, RuleChain rules, QuarantineWriter quarantine) throws Exception {
+        CsvLoader.Stats st = new CsvLoader.Stats();
+        try (CsvRowReader rows = new CsvRowReader(in, rules, quarantine, st)) {
+            while (rows.next() != null) st.processedRows++;
+        }
+        return st;
+    }
+}
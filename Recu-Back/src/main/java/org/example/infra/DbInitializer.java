@@ -1,30 +1,208 @@
 package org.example.infra;
 
-import org.h2.tools.RunScript;
+import org.example.infra.metrics.StartupMetrics;
+import org.example.repo.ComposerRepository;
+import org.example.repo.EmployeeRepository;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+/**
+ * Crea el esquema a partir de sql/database-ddl.sql (más las particiones de PLAYLIST_TRACK).
+ *
+ * Para cargas masivas el esquema se arma en dos fases: {@link #initForBulkLoad()} crea
+ * secuencias y tablas (con PK y UNIQUE) pero sin índices secundarios ni FKs, y
+ * {@link #finishBulkLoad()} los construye después de importar. Los índices de búsqueda
+ * por nombre (IDX_*_KEY) se crean con las tablas: los loaders los consultan durante la carga. Los índices de tablas
+ * distintas se crean en paralelo, cada tabla en su propia conexión; las FKs van al final
+ * (así reutilizan los índices IFK_* ya creados). {@link #init()} hace las dos fases juntas.
+ */
 public class DbInitializer {
 
+    // ", CONSTRAINT FK_X FOREIGN KEY (COL) REFERENCES TABLA (COL)" dentro de un CREATE TABLE
+    private static final Pattern INLINE_FK = Pattern.compile(
+            ",\\s*CONSTRAINT\\s+(\\w+)\\s+FOREIGN\\s+KEY\\s*\\(([^)]*)\\)\\s*REFERENCES\\s+(\\w+)\\s*\\(([^)]*)\\)",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern CREATE_TABLE = Pattern.compile("^CREATE\\s+TABLE\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern CREATE_INDEX = Pattern.compile(
+            "^CREATE\\s+(?:UNIQUE\\s+)?INDEX\\s+\\w+\\s+ON\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern NAME_KEY_INDEX = Pattern.compile("^CREATE\\s+INDEX\\s+IDX_\\w+_KEY\\s", Pattern.CASE_INSENSITIVE);
+
+    // Índices (por tabla) y FKs pendientes entre initForBulkLoad y finishBulkLoad
+    private static Map<String, List<String>> pendingIndexes = new LinkedHashMap<>();
+    private static List<String> pendingForeignKeys = new ArrayList<>();
+
+    /** Tiempos de la construcción diferida. */
+    public record BuildReport(int indexes, int foreignKeys, long indexMillis, long foreignKeyMillis) {
+        @Override
+        public String toString() {
+            return String.format("%d índices en %d ms, %d FKs en %d ms",
+                    indexes, indexMillis, foreignKeys, foreignKeyMillis);
+        }
+    }
+
     public static void init() {
-        try (Connection conn = DataSourceProvider.getDataSource().getConnection()) {
-            try (InputStream in = Thread.currentThread().getContextClassLoader()
-                    .getResourceAsStream("sql/database-ddl.sql")) {
-                if (in == null) {
-                    throw new IllegalStateException("No se encontró sql/database-ddl.sql");
-                }
-                try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
-                    RunScript.execute(conn, reader);
-                }
-            }
+        try {
+            long start = System.nanoTime();
+            createTables();
+            buildDeferred();
+            StartupMetrics.get().mark(StartupMetrics.SCHEMA_CREATED, (System.nanoTime() - start) / 1_000_000, null);
             System.out.println("[OK] Esquema creado");
         } catch (Exception e) {
             e.printStackTrace();
             System.err.println("[FAIL] " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /** Primera fase: tablas sin índices secundarios ni FKs. Llamar a {@link #finishBulkLoad()} al terminar la carga. */
+    public static void initForBulkLoad() {
+        try {
+            long start = System.nanoTime();
+            createTables();
+            StartupMetrics.get().mark(StartupMetrics.SCHEMA_CREATED, (System.nanoTime() - start) / 1_000_000,
+                    "(índices y FKs diferidos)");
+            System.out.println("[OK] Esquema creado (índices y FKs diferidos)");
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.err.println("[FAIL] " + e.getMessage());
+        }
+    }
+
+    /** Segunda fase: crea los índices y FKs pendientes sobre las tablas ya cargadas. */
+    public static BuildReport finishBulkLoad() throws SQLException {
+        return buildDeferred();
+    }
+
+    private static synchronized void createTables() throws IOException, SQLException {
+        List<String> statements = new ArrayList<>(splitStatements(readScript()));
+        statements.addAll(PlaylistTrackShards.ddl());
+        pendingIndexes = new LinkedHashMap<>();
+        pendingForeignKeys = new ArrayList<>();
+        try (Connection conn = DataSourceProvider.getDataSource().getConnection();
+             Statement st = conn.createStatement()) {
+            for (String sql : statements) {
+                Matcher index = CREATE_INDEX.matcher(sql);
+                if (index.find() && !NAME_KEY_INDEX.matcher(sql).find()) {
+                    pendingIndexes.computeIfAbsent(index.group(1).toUpperCase(Locale.ROOT), t -> new ArrayList<>()).add(sql);
+                    continue;
+                }
+                Matcher table = CREATE_TABLE.matcher(sql);
+                if (table.find()) {
+                    sql = extractForeignKeys(table.group(1), sql);
+                }
+                st.execute(sql);
+            }
+        }
+    }
+
+    private static synchronized BuildReport buildDeferred() throws SQLException {
+        Map<String, List<String>> indexes = pendingIndexes;
+        List<String> foreignKeys = pendingForeignKeys;
+        pendingIndexes = new LinkedHashMap<>();
+        pendingForeignKeys = new ArrayList<>();
+
+        // Lo mismo con TRACK_COMPOSER para los tracks cargados por SQL; va antes de los
+        // índices y FKs diferidos para no mantenerlos fila por fila (UK_TRACK_COMPOSER ya existe)
+        try (Connection conn = DataSourceProvider.getDataSource().getConnection()) {
+            ComposerRepository.backfill(conn);
+        }
+
+        long start = System.nanoTime();
+        int threads = Math.max(1, Math.min(indexes.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (List<String> tableIndexes : indexes.values()) {
+                futures.add(pool.submit(() -> {
+                    execute(tableIndexes);
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Construcción de índices interrumpida", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sql) throw sql;
+            throw new SQLException("Error construyendo índices", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        long indexMillis = (System.nanoTime() - start) / 1_000_000;
+
+        start = System.nanoTime();
+        execute(foreignKeys);
+        long fkMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // La clausura de la jerarquía se mantiene desde EmployeeRepository; los empleados
+        // que hayan entrado por otra vía (SQL directo durante una carga) se siembran acá
+        try (Connection conn = DataSourceProvider.getDataSource().getConnection()) {
+            EmployeeRepository.rebuildClosure(conn);
+        }
+
+        int indexCount = indexes.values().stream().mapToInt(List::size).sum();
+        return new BuildReport(indexCount, foreignKeys.size(), indexMillis, fkMillis);
+    }
+
+    private static void execute(List<String> statements) throws SQLException {
+        try (Connection conn = DataSourceProvider.getDataSource().getConnection();
+             Statement st = conn.createStatement()) {
+            for (String sql : statements) {
+                st.execute(sql);
+            }
+        }
+    }
+
+    /** Quita las FKs del CREATE TABLE y las deja pendientes como ALTER TABLE ... ADD CONSTRAINT. */
+    private static String extractForeignKeys(String table, String createTable) {
+        Matcher fk = INLINE_FK.matcher(createTable);
+        while (fk.find()) {
+            pendingForeignKeys.add("ALTER TABLE " + table + " ADD CONSTRAINT " + fk.group(1)
+                    + " FOREIGN KEY (" + fk.group(2).trim() + ") REFERENCES " + fk.group(3)
+                    + " (" + fk.group(4).trim() + ")");
+        }
+        return fk.replaceAll("");
+    }
+
+    private static String readScript() throws IOException {
+        try (InputStream in = Thread.currentThread().getContextClassLoader()
+                .getResourceAsStream("sql/database-ddl.sql")) {
+            if (in == null) {
+                throw new IllegalStateException("No se encontró sql/database-ddl.sql");
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /** Separa el script en sentencias (sin comentarios "--"; el DDL no tiene ';' dentro de textos). */
+    static List<String> splitStatements(String script) {
+        StringBuilder clean = new StringBuilder(script.length());
+        for (String line : script.split("\\R")) {
+            int comment = line.indexOf("--");
+            clean.append(comment >= 0 ? line.substring(0, comment) : line).append('\n');
+        }
+        List<String> out = new ArrayList<>();
+        for (String sql : clean.toString().split(";")) {
+            String trimmed = sql.trim();
+            if (!trimmed.isEmpty()) out.add(trimmed);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,52 @@
+package org.example.infra;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.infra.metrics.StartupMetrics;
+import org.hibernate.SessionFactory;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Arranque rápido: el DDL de {@link DbInitializer} corre mientras Hibernate arma la
+ * EntityManagerFactory en otro hilo (con hbm2ddl.auto=none, porque todavía no hay tablas
+ * que validar). Con las dos listas se calcula la {@link SchemaFingerprint}; si coincide
+ * con la guardada se omite la validación, si no se valida como haría hbm2ddl=validate y
+ * se guarda la huella nueva.
+ *
+ * Solo se arma la unidad que va a usar la importación; la otra sigue creándose recién
+ * cuando alguien la pida.
+ */
+public final class FastStart {
+
+    public static final Path DEFAULT_FINGERPRINT_FILE = Path.of("schema.fingerprint");
+
+    private FastStart() {
+    }
+
+    public static EntityManagerFactory start(String unit, boolean deferredIndexes, Path fingerprintFile)
+            throws Exception {
+        CompletableFuture<EntityManagerFactory> emf =
+                LocalEntityManagerProvider.bootstrapAsync(unit, Map.of("hibernate.hbm2ddl.auto", "none"));
+        if (deferredIndexes) {
+            DbInitializer.initForBulkLoad();
+        } else {
+            DbInitializer.init();
+        }
+        EntityManagerFactory factory = emf.join();
+
+        long start = System.nanoTime();
+        String fingerprint = SchemaFingerprint.compute(factory);
+        if (fingerprint.equals(SchemaFingerprint.read(fingerprintFile))) {
+            StartupMetrics.get().mark(StartupMetrics.SCHEMA_VALIDATED, (System.nanoTime() - start) / 1_000_000,
+                    "omitido: la huella coincide con " + fingerprintFile);
+        } else {
+            factory.unwrap(SessionFactory.class).getSchemaManager().validateMappedObjects();
+            SchemaFingerprint.write(fingerprintFile, fingerprint);
+            StartupMetrics.get().mark(StartupMetrics.SCHEMA_VALIDATED, (System.nanoTime() - start) / 1_000_000,
+                    "huella nueva guardada en " + fingerprintFile);
+        }
+        return factory;
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.infra;
+
+import org.example.domain.Album;
+import org.example.domain.Artist;
+import org.example.domain.Composer;
+import org.example.domain.Playlist;
+import org.example.domain.Track;
+
+/**
+ * Eventos de {@link CsvLoader} para mantener índices y agregados en memoria de forma
+ * incremental. Los on*Inserted se disparan al persistir (con el id ya asignado) pero
+ * antes del commit; quien los use debe acumularlos y aplicarlos en {@link #onCommit}
+ * o descartarlos en {@link #onRollback}.
+ */
+public interface ImportListener {
+
+    default void onArtistInserted(Artist artist) { }
+
+    default void onAlbumInserted(Album album) { }
+
+    default void onTrackInserted(Track track) { }
+
+    default void onComposerInserted(Composer composer) { }
+
+    default void onPlaylistInserted(Playlist playlist) { }
+
+    default void onPlaylistTrackInserted(Playlist playlist, Track track) { }
+
+    default void onCommit(CsvLoader.Stats stats) { }
+
+    default void onRollback() { }
+}
@@ -2,13 +2,74 @@ package org.example.infra;
 
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.Persistence;
+import org.example.infra.metrics.StartupMetrics;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class LocalEntityManagerProvider {
 
-    private static final EntityManagerFactory emf =
-            Persistence.createEntityManagerFactory("database");
+    public static final String UNIT = "database";
+    public static final String BULK_UNIT = "database-bulk";
+
+    // Una fábrica por unidad; la primera que la pide (get o bootstrapAsync) decide cómo se crea
+    private static final Map<String, CompletableFuture<EntityManagerFactory>> factories = new ConcurrentHashMap<>();
 
     public static EntityManagerFactory get() {
+        return join(factory(UNIT, Map.of(), false));
+    }
+
+    /**
+     * Unidad "database-bulk" (misma base, con batching JDBC y orden de inserts) para
+     * cargas masivas. Se crea recién la primera vez que se pide.
+     */
+    public static EntityManagerFactory getBulk() {
+        return join(factory(BULK_UNIT, Map.of(), false));
+    }
+
+    /**
+     * Empieza a crear la fábrica de {@code unit} en otro hilo, con {@code overrides} sobre
+     * persistence.xml, para solaparla con el DDL. Si la unidad ya se pidió antes devuelve
+     * la misma fábrica y los overrides no se aplican.
+     */
+    public static CompletableFuture<EntityManagerFactory> bootstrapAsync(String unit, Map<String, Object> overrides) {
+        return factory(unit, overrides, true);
+    }
+
+    private static CompletableFuture<EntityManagerFactory> factory(String unit, Map<String, Object> overrides,
+                                                                   boolean async) {
+        return factories.computeIfAbsent(unit, u -> {
+            if (!async) return CompletableFuture.completedFuture(create(u, overrides));
+            CompletableFuture<EntityManagerFactory> future = new CompletableFuture<>();
+            Thread t = new Thread(() -> {
+                try {
+                    future.complete(create(u, overrides));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            }, "emf-bootstrap-" + u);
+            t.setDaemon(true);
+            t.start();
+            return future;
+        });
+    }
+
+    private static EntityManagerFactory create(String unit, Map<String, Object> overrides) {
+        long start = System.nanoTime();
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory(unit, overrides);
+        StartupMetrics.get().mark(StartupMetrics.EMF_READY, (System.nanoTime() - start) / 1_000_000, unit);
         return emf;
     }
-}
\ No newline at end of file
+
+    private static EntityManagerFactory join(CompletableFuture<EntityManagerFactory> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package org.example.infra;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.infra.metrics.SqlMetrics;
+import org.example.util.IntList;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Particionado de PLAYLIST_TRACK por hash de PLAYLIST_ID en las tablas
+ * PLAYLIST_TRACK_0..N-1 (N = propiedad {@code recu.playlistTrack.shards}, por defecto 4,
+ * fija desde que se crea el esquema). Todas las filas de una playlist quedan en la misma
+ * tabla, así que las consultas por playlist tocan una sola y los agregados por playlist
+ * se calculan por tabla en paralelo y solo se juntan los resultados.
+ *
+ * PLAYLIST_TRACK sigue existiendo como vista UNION ALL de las particiones para las
+ * lecturas JPQL de la entidad PlaylistTrack; las escrituras pasan por {@link #insert}.
+ */
+public final class PlaylistTrackShards {
+
+    public static final String VIEW = "PLAYLIST_TRACK";
+    private static final int COUNT = Math.max(1, Integer.getInteger("recu.playlistTrack.shards", 4));
+
+    private PlaylistTrackShards() { }
+
+    public static int count() {
+        return COUNT;
+    }
+
+    public static int shardOf(int playlistId) {
+        // Mezcla de bits para que ids consecutivos no caigan siempre en el mismo orden de tablas
+        int h = playlistId * 0x9E3779B9;
+        return Math.floorMod(h ^ (h >>> 16), COUNT);
+    }
+
+    public static String table(int shard) {
+        return VIEW + "_" + shard;
+    }
+
+    public static String tableFor(int playlistId) {
+        return table(shardOf(playlistId));
+    }
+
+    /** Sentencias que crean las particiones, sus índices y la vista PLAYLIST_TRACK. */
+    static List<String> ddl() {
+        List<String> out = new ArrayList<>();
+        StringBuilder view = new StringBuilder("CREATE VIEW " + VIEW + " AS ");
+        for (int i = 0; i < COUNT; i++) {
+            String t = table(i);
+            out.add("CREATE TABLE " + t + " ("
+                    + "PLAYLIST_TRACK_ID INTEGER NOT NULL DEFAULT NEXT VALUE FOR SEQ_PLAYLIST_TRACK_ID, "
+                    + "PLAYLIST_ID INTEGER NOT NULL, "
+                    + "TRACK_ID INTEGER NOT NULL, "
+                    + "CONSTRAINT PK_" + t + " PRIMARY KEY (PLAYLIST_TRACK_ID), "
+                    + "CONSTRAINT FK_" + t + "_PLAYLIST FOREIGN KEY (PLAYLIST_ID) REFERENCES PLAYLISTS (PLAYLIST_ID), "
+                    + "CONSTRAINT FK_" + t + "_TRACK FOREIGN KEY (TRACK_ID) REFERENCES TRACKS (TRACK_ID))");
+            out.add("CREATE INDEX IDX_" + t + "_PLAYLIST_TRACK ON " + t + " (PLAYLIST_ID, TRACK_ID)");
+            out.add("CREATE INDEX IFK_" + t + "_TRACK_ID ON " + t + " (TRACK_ID)");
+            if (i > 0) view.append(" UNION ALL ");
+            view.append("SELECT PLAYLIST_TRACK_ID, PLAYLIST_ID, TRACK_ID FROM ").append(t);
+        }
+        out.add(view.toString());
+        return out;
+    }
+
+    /**
+     * Inserta los pares (playlistIds[i], trackIds[i]) en su partición con un batch JDBC
+     * por tabla. Las filas de PLAYLISTS y TRACKS referenciadas ya tienen que estar escritas.
+     */
+    public static void insert(Connection conn, IntList playlistIds, IntList trackIds) throws SQLException {
+        batchByShard(conn, playlistIds, trackIds,
+                t -> "INSERT INTO " + t + " (PLAYLIST_ID, TRACK_ID) VALUES (?1, ?2)");
+    }
+
+    /**
+     * Como {@link #insert} pero omite los pares que ya existen y los de tracks que ya no
+     * están en TRACKS (así un track borrado no hace fallar todo el batch por la FK).
+     * Devuelve cuántos insertó.
+     */
+    public static int insertMissing(Connection conn, IntList playlistIds, IntList trackIds) throws SQLException {
+        return batchByShard(conn, playlistIds, trackIds, t -> "INSERT INTO " + t + " (PLAYLIST_ID, TRACK_ID) "
+                + "SELECT ?1, ?2 WHERE EXISTS (SELECT 1 FROM TRACKS WHERE TRACK_ID = ?2) "
+                + "AND NOT EXISTS (SELECT 1 FROM " + t + " WHERE PLAYLIST_ID = ?1 AND TRACK_ID = ?2)");
+    }
+
+    /** Borra los pares (playlistIds[i], trackIds[i]); devuelve cuántas filas borró. */
+    public static int delete(Connection conn, IntList playlistIds, IntList trackIds) throws SQLException {
+        return batchByShard(conn, playlistIds, trackIds,
+                t -> "DELETE FROM " + t + " WHERE PLAYLIST_ID = ?1 AND TRACK_ID = ?2");
+    }
+
+    /** Ejecuta {@code sql(tabla)} con (playlistId, trackId) en un batch por partición. */
+    private static int batchByShard(Connection conn, IntList playlistIds, IntList trackIds,
+                                    Function<String, String> sql) throws SQLException {
+        if (playlistIds.size() == 0) return 0;
+        PreparedStatement[] statements = new PreparedStatement[COUNT];
+        try {
+            for (int i = 0; i < playlistIds.size(); i++) {
+                int shard = shardOf(playlistIds.get(i));
+                PreparedStatement ps = statements[shard];
+                if (ps == null) {
+                    ps = conn.prepareStatement(sql.apply(table(shard)));
+                    statements[shard] = ps;
+                }
+                ps.setInt(1, playlistIds.get(i));
+                ps.setInt(2, trackIds.get(i));
+                ps.addBatch();
+            }
+            int rows = 0;
+            for (PreparedStatement ps : statements) {
+                if (ps == null) continue;
+                for (int count : ps.executeBatch()) {
+                    if (count > 0) rows += count;
+                }
+            }
+            return rows;
+        } finally {
+            for (PreparedStatement ps : statements) {
+                if (ps != null) ps.close();
+            }
+        }
+    }
+
+    /**
+     * Ejecuta {@code query(em, tabla)} sobre cada partición en paralelo, cada una con su
+     * propio EntityManager (y conexión), y devuelve los resultados en orden de partición.
+     * Lee solo datos confirmados.
+     */
+    public static <T> List<T> scatter(EntityManagerFactory emf, BiFunction<EntityManager, String, T> query) {
+        // Las sentencias de los hilos del pool se atribuyen al método de repositorio que llamó
+        String caller = SqlMetrics.get().currentCaller();
+        return IntStream.range(0, COUNT)
+                .parallel()
+                .mapToObj(shard -> SqlMetrics.get().withCaller(caller, () -> {
+                    try (EntityManager em = emf.createEntityManager()) {
+                        return query.apply(em, table(shard));
+                    }
+                }))
+                .toList();
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.infra;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Caché local en proceso con desalojo LRU por tamaño y expiración por TTL.
+ * Los valores nulos no se cachean (un "no encontrado" se vuelve a consultar).
+ * Lleva contadores de aciertos, fallos y desalojos para medir la tasa de acierto.
+ */
+public class ReferenceCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public ReferenceCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > ReferenceCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /** Devuelve el valor cacheado o lo carga con {@code loader} (fuera del lock) y lo guarda. */
+    public V get(K key, Function<K, V> loader) {
+        V cached = getIfPresent(key);
+        if (cached != null) return cached;
+        V loaded = loader.apply(key);
+        if (loaded != null) put(key, loaded);
+        return loaded;
+    }
+
+    public synchronized V getIfPresent(K key) {
+        Entry<V> e = entries.get(key);
+        if (e != null && System.nanoTime() - e.loadedAt <= ttlNanos) {
+            hits++;
+            return e.value;
+        }
+        if (e != null) {
+            entries.remove(key);
+            evictions++;
+        }
+        misses++;
+        return null;
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, System.nanoTime()));
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, entries.size());
+    }
+
+    private record Entry<V>(V value, long loadedAt) { }
+
+    public record CacheStats(long hits, long misses, long evictions, int size) {
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+
+        public CacheStats plus(CacheStats o) {
+            return new CacheStats(hits + o.hits, misses + o.misses, evictions + o.evictions, size + o.size);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d, misses=%d, evictions=%d, size=%d, hitRate=%.1f%%",
+                    hits, misses, evictions, size, hitRate() * 100);
+        }
+    }
+}
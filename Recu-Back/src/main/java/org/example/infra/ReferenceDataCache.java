@@ -0,0 +1,72 @@
+package org.example.infra;
+
+import jakarta.persistence.EntityManager;
+
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Caché de nombres de los datos de referencia (Genre, MediaType, Artist, Album),
+ * compartida entre EntityManagers e hilos: (tipo, nombre en mayúsculas) -> id.
+ *
+ * Solo guarda ids, nunca entidades: cada acierto se resuelve con {@code em.find} en el
+ * EntityManager de quien pregunta (un lookup por PK, o ninguno si ya está en su contexto
+ * de persistencia), y se descarta si la fila ya no existe o cambió de nombre. Así una
+ * baja o un renombre hechos por cualquier escritor (otra importación, {@link TrackMerger},
+ * SQL directo, una transacción que volvió atrás) nunca devuelven un dato viejo; a lo
+ * sumo cuestan la consulta por nombre que la caché quería evitar.
+ *
+ * Tamaño máximo y TTL configurables con las propiedades de sistema
+ * {@code recu.cache.maxSize} y {@code recu.cache.ttlSeconds}. Los escritores del catálogo
+ * ({@link CsvLoader}, {@link StatelessCsvLoader}, {@link TrackMerger}) la vacían al terminar.
+ */
+public class ReferenceDataCache {
+
+    private static final ReferenceDataCache INSTANCE = new ReferenceDataCache(
+            Integer.getInteger("recu.cache.maxSize", 10_000),
+            Long.getLong("recu.cache.ttlSeconds", 600L) * 1000L);
+
+    private final ReferenceCache<NameKey, Object> ids;
+
+    ReferenceDataCache(int maxSize, long ttlMillis) {
+        this.ids = new ReferenceCache<>(maxSize, ttlMillis);
+    }
+
+    public static ReferenceDataCache get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Búsqueda por nombre: la caché resuelve nombre -> id y la entidad sale de
+     * {@code em.find}; si no hay id, o la entidad ya no existe o no se llama así,
+     * se ejecuta {@code query}. {@code nameOf} es el atributo que se compara.
+     */
+    public <T> T findByName(EntityManager em, Class<T> type, String name,
+                            Function<String, T> query, Function<T, String> nameOf) {
+        if (name == null) return null;
+        NameKey key = new NameKey(type, name.trim().toUpperCase(Locale.ROOT));
+        Object id = ids.getIfPresent(key);
+        if (id != null) {
+            T cached = em.find(type, id);
+            String cachedName = cached == null ? null : nameOf.apply(cached);
+            if (cachedName != null && cachedName.trim().toUpperCase(Locale.ROOT).equals(key.name())) return cached;
+            ids.invalidate(key);
+        }
+        T found = query.apply(name);
+        if (found != null) {
+            Object foundId = em.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(found);
+            if (foundId != null) ids.put(key, foundId);
+        }
+        return found;
+    }
+
+    public void invalidateAll() {
+        ids.invalidateAll();
+    }
+
+    public ReferenceCache.CacheStats stats() {
+        return ids.stats();
+    }
+
+    private record NameKey(Class<?> type, String name) { }
+}
@@ -0,0 +1,104 @@
+package org.example.infra;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Version;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Huella SHA-256 del esquema real (tablas, vistas, columnas y secuencias de PUBLIC según
+ * INFORMATION_SCHEMA) junto con el mapeo de Hibernate (tabla, columna y tipo JDBC de cada
+ * entidad). Si coincide con la guardada de una validación anterior, validar de nuevo no
+ * puede encontrar nada distinto y se puede omitir.
+ */
+public final class SchemaFingerprint {
+
+    private static final String TABLES = """
+            SELECT TABLE_NAME, TABLE_TYPE FROM INFORMATION_SCHEMA.TABLES
+            WHERE TABLE_SCHEMA = 'PUBLIC' ORDER BY TABLE_NAME""";
+    private static final String COLUMNS = """
+            SELECT TABLE_NAME, COLUMN_NAME, DATA_TYPE, IS_NULLABLE, CHARACTER_MAXIMUM_LENGTH,
+                   NUMERIC_PRECISION, NUMERIC_SCALE
+            FROM INFORMATION_SCHEMA.COLUMNS
+            WHERE TABLE_SCHEMA = 'PUBLIC' ORDER BY TABLE_NAME, ORDINAL_POSITION""";
+    private static final String SEQUENCES = """
+            SELECT SEQUENCE_NAME FROM INFORMATION_SCHEMA.SEQUENCES
+            WHERE SEQUENCE_SCHEMA = 'PUBLIC' ORDER BY SEQUENCE_NAME""";
+
+    private SchemaFingerprint() {
+    }
+
+    public static String compute(EntityManagerFactory emf) throws SQLException {
+        MessageDigest digest = sha256();
+        update(digest, "hibernate " + Version.getVersionString());
+        try (Connection conn = DataSourceProvider.getDataSource().getConnection();
+             Statement st = conn.createStatement()) {
+            for (String sql : List.of(TABLES, COLUMNS, SEQUENCES)) {
+                try (ResultSet rs = st.executeQuery(sql)) {
+                    int columns = rs.getMetaData().getColumnCount();
+                    while (rs.next()) {
+                        StringBuilder row = new StringBuilder();
+                        for (int i = 1; i <= columns; i++) row.append(rs.getString(i)).append('|');
+                        update(digest, row.toString());
+                    }
+                }
+            }
+        }
+        for (String mapping : mapping(emf)) update(digest, mapping);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /** Huella guardada en {@code file}, o null si no hay. */
+    public static String read(Path file) throws IOException {
+        return Files.exists(file) ? Files.readString(file, StandardCharsets.UTF_8).trim() : null;
+    }
+
+    public static void write(Path file, String fingerprint) throws IOException {
+        Files.writeString(file, fingerprint + System.lineSeparator(), StandardCharsets.UTF_8);
+    }
+
+    /** Una línea por columna mapeada, en orden de entidad para que la huella sea estable. */
+    private static List<String> mapping(EntityManagerFactory emf) {
+        List<EntityPersister> persisters = new ArrayList<>();
+        emf.unwrap(SessionFactoryImplementor.class).getMappingMetamodel().forEachEntityDescriptor(persisters::add);
+        persisters.sort((a, b) -> a.getEntityName().compareTo(b.getEntityName()));
+        List<String> lines = new ArrayList<>();
+        for (EntityPersister persister : persisters) {
+            String entity = persister.getEntityName();
+            persister.getIdentifierMapping().forEachSelectable((i, s) -> lines.add(entity + "#id|"
+                    + s.getContainingTableExpression() + "|" + s.getSelectionExpression() + "|"
+                    + s.getJdbcMapping().getJdbcType().getDefaultSqlTypeCode()));
+            persister.forEachSelectable((i, s) -> lines.add(entity + "|"
+                    + s.getContainingTableExpression() + "|" + s.getSelectionExpression() + "|"
+                    + s.getJdbcMapping().getJdbcType().getDefaultSqlTypeCode() + "|" + s.isNullable()));
+        }
+        return lines;
+    }
+
+    private static void update(MessageDigest digest, String line) {
+        digest.update(line.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.infra;
+
+import org.example.report.CatalogSketches;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Map;
+
+/**
+ * Persistencia de {@link CatalogSketches} en IMPORT_SKETCHES. Los loaders llaman a
+ * {@link #merge} con la conexión de su transacción antes del commit: los sketches
+ * acumulados y los de la importación se combinan fila por fila (SELECT ... FOR UPDATE
+ * y MERGE), así que dos importaciones concurrentes no se pisan.
+ */
+public final class SketchStore {
+
+    private static final String SELECT = "SELECT DATA FROM IMPORT_SKETCHES WHERE SKETCH_KEY = ? FOR UPDATE";
+    private static final String UPSERT = "MERGE INTO IMPORT_SKETCHES (SKETCH_KEY, DATA, UPDATED_AT) KEY (SKETCH_KEY) VALUES (?, ?, ?)";
+    private static final String SELECT_ALL = "SELECT SKETCH_KEY, DATA FROM IMPORT_SKETCHES";
+
+    private SketchStore() {
+    }
+
+    /** Suma {@code sketches} a los guardados, dentro de la transacción de {@code conn}. */
+    public static void merge(Connection conn, CatalogSketches sketches) throws SQLException {
+        if (sketches.isEmpty()) return;
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        try (PreparedStatement select = conn.prepareStatement(SELECT);
+             PreparedStatement upsert = conn.prepareStatement(UPSERT)) {
+            for (Map.Entry<String, byte[]> entry : sketches.toEntries().entrySet()) {
+                CatalogSketches merged = new CatalogSketches();
+                merged.mergeEntry(entry.getKey(), entry.getValue());
+                select.setString(1, entry.getKey());
+                try (ResultSet rs = select.executeQuery()) {
+                    if (rs.next()) merged.mergeEntry(entry.getKey(), rs.getBytes(1));
+                }
+                upsert.setString(1, entry.getKey());
+                upsert.setBytes(2, merged.toEntries().get(entry.getKey()));
+                upsert.setTimestamp(3, now);
+                upsert.addBatch();
+            }
+            upsert.executeBatch();
+        } catch (IOException e) {
+            throw new SQLException("Sketch corrupto en IMPORT_SKETCHES", e);
+        }
+    }
+
+    /** Sketches de todo lo importado hasta ahora (vacío si todavía no hubo importaciones). */
+    public static CatalogSketches load() throws SQLException {
+        try (Connection conn = DataSourceProvider.getDataSource().getConnection()) {
+            return load(conn);
+        }
+    }
+
+    public static CatalogSketches load(Connection conn) throws SQLException {
+        CatalogSketches sketches = new CatalogSketches();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(SELECT_ALL)) {
+            while (rs.next()) sketches.mergeEntry(rs.getString(1), rs.getBytes(2));
+        } catch (IOException e) {
+            throw new SQLException("Sketch corrupto en IMPORT_SKETCHES", e);
+        }
+        return sketches;
+    }
+}
@@ -0,0 +1,457 @@
+package org.example.infra;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.domain.Album;
+import org.example.domain.Artist;
+import org.example.domain.Composer;
+import org.example.domain.Genre;
+import org.example.domain.MediaType;
+import org.example.domain.Playlist;
+import org.example.domain.Track;
+import org.example.domain.TrackComposer;
+import org.example.infra.journal.SessionChanges;
+import org.example.infra.rules.QuarantineWriter;
+import org.example.infra.rules.RuleChain;
+import org.example.util.IntList;
+import org.example.util.IntSet;
+import org.example.util.LongSet;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Variante de {@link CsvLoader} sobre un {@link StatelessSession}: cada insert va
+ * directo a la base, sin contexto de persistencia, dirty checking ni cascadas, así que
+ * el costo por fila no crece con el tamaño de la importación.
+ *
+ * Como no hay caché de primer nivel, los ids se resuelven por nombre (igual que buscan
+ * los repositorios) en bloques de {@value #CHUNK_ROWS} filas: los nombres del bloque que
+ * no están en memoria se buscan con una consulta IN por tabla sobre las columnas
+ * indexadas NAME_KEY / TITLE_KEY. Los mapas nombre -> entidad son LRU con tope
+ * ({@code recu.stateless.maxCachedNames}), así que la memoria no depende del tamaño del
+ * catálogo ni del archivo; lo insertado en la misma transacción también lo ve la consulta.
+ * Los pares playlist-track van en un {@link LongSet}: los ya existentes se cargan por
+ * playlist la primera vez que el archivo la toca. Produce las mismas filas y
+ * {@link CsvLoader.Stats}.
+ */
+public class StatelessCsvLoader implements CsvImporter {
+
+    static final int CHUNK_ROWS = 2_000;
+    // Parámetros por consulta IN
+    private static final int LOOKUP_SLICE = 500;
+    // Un bloque agrega a lo sumo unas pocas claves por fila a cada mapa: con este mínimo
+    // nada de lo resuelto al empezar el bloque se desaloja antes de usarse
+    private static final int MAX_CACHED_NAMES = Math.max(8 * CHUNK_ROWS,
+            Integer.getInteger("recu.stateless.maxCachedNames", 100_000));
+
+    private final SessionFactory sessionFactory;
+
+    // Nombre en mayúsculas -> entidad (con id; las preexistentes son referencias con id y nombre)
+    private final Map<String, Artist> artists = new BoundedMap<>(MAX_CACHED_NAMES);
+    private final Map<String, Album> albums = new BoundedMap<>(MAX_CACHED_NAMES);
+    private final Map<String, Playlist> playlists = new BoundedMap<>(MAX_CACHED_NAMES);
+    private final Map<String, Composer> composers = new BoundedMap<>(MAX_CACHED_NAMES);
+    // Tracks por nombre normalizado (mismo criterio que CsvLoader)
+    private final Map<String, Track> tracks = new BoundedMap<>(MAX_CACHED_NAMES);
+    // Tablas de referencia chicas (unos pocos géneros y formatos): se cargan enteras
+    private final Map<String, MediaType> mediaTypes = new HashMap<>();
+    private final Map<String, Genre> genres = new HashMap<>();
+    // Tracks existentes encontrados para el bloque actual, por nombre en mayúsculas
+    private final Map<String, Track> chunkTracks = new HashMap<>();
+    // (playlistId << 32) | trackId, de las playlists tocadas por esta carga
+    private final LongSet playlistTracks = new LongSet();
+    private final IntSet pairsLoaded = new IntSet();
+    // Relaciones nuevas pendientes: se escriben en lote por partición antes del commit
+    private final IntList pendingPlaylistIds = new IntList();
+    private final IntList pendingTrackIds = new IntList();
+    private final List<ImportListener> listeners = new ArrayList<>();
+    private RuleChain rules = RuleChain.defaults();
+    private Path quarantineFile;
+    // Altas para el journal de cambios: un StatelessSession no dispara eventos de Hibernate
+    private SessionChanges changes;
+
+    public StatelessCsvLoader(EntityManagerFactory emf) {
+        this.sessionFactory = emf.unwrap(SessionFactory.class);
+    }
+
+    public StatelessCsvLoader addListener(ImportListener listener) {
+        listeners.add(listener);
+        return this;
+    }
+
+    public StatelessCsvLoader withRules(RuleChain rules) {
+        this.rules = Objects.requireNonNull(rules);
+        return this;
+    }
+
+    public StatelessCsvLoader withQuarantine(Path file) {
+        this.quarantineFile = file;
+        return this;
+    }
+
+    @Override
+    public CsvLoader.Stats load(InputStream csvStream) throws Exception {
+        CsvLoader.Stats st = new CsvLoader.Stats();
+        try (StatelessSession ss = sessionFactory.openStatelessSession()) {
+            Transaction tx = ss.beginTransaction();
+            changes = SessionChanges.begin(ss);
+            try (QuarantineWriter quarantine = quarantineFile == null ? null : new QuarantineWriter(quarantineFile);
+                 CsvRowReader rows = new CsvRowReader(csvStream, rules, quarantine, st)) {
+                clearCaches();
+                preloadReferenceData(ss);
+                List<CsvRowReader.Row> chunk = new ArrayList<>(CHUNK_ROWS);
+                IntList rowNumbers = new IntList(CHUNK_ROWS);
+                CsvRowReader.Row row;
+                while ((row = rows.next()) != null) {
+                    chunk.add(row);
+                    rowNumbers.add(rows.rowNumber());
+                    if (chunk.size() == CHUNK_ROWS) loadChunk(ss, chunk, rowNumbers, rows, st);
+                }
+                loadChunk(ss, chunk, rowNumbers, rows, st);
+                ss.doWork(conn -> PlaylistTrackShards.insert(conn, pendingPlaylistIds, pendingTrackIds));
+                changes.linked(pendingPlaylistIds, pendingTrackIds);
+                ss.doWork(conn -> SketchStore.merge(conn, st.sketches));
+                tx.commit();
+                listeners.forEach(l -> l.onCommit(st));
+            } catch (Exception e) {
+                if (tx.isActive()) tx.rollback();
+                listeners.forEach(ImportListener::onRollback);
+                throw e;
+            } finally {
+                clearCaches();
+                ReferenceDataCache.get().invalidateAll();
+            }
+        }
+        return st;
+    }
+
+    private void loadChunk(StatelessSession ss, List<CsvRowReader.Row> chunk, IntList rowNumbers,
+                           CsvRowReader rows, CsvLoader.Stats st) {
+        if (chunk.isEmpty()) return;
+        resolve(ss, chunk);
+        for (int i = 0; i < chunk.size(); i++) {
+            CsvRowReader.Row row = chunk.get(i);
+            try {
+                Artist artist = getOrCreateArtist(ss, row.artistName());
+                Album album = getOrCreateAlbum(ss, row.albumTitle(), artist, st);
+                MediaType mediaType = getOrCreateMediaType(ss, row.mediaTypeName());
+                Genre genre = getOrCreateGenre(ss, row.genreName());
+                Track track = getOrCreateTrack(ss, row, album, mediaType, genre, st);
+                Playlist playlist = getOrCreatePlaylist(ss, row.playlistName(), st);
+                linkPlaylistTrack(playlist, track, st);
+                st.processedRows++;
+            } catch (RuntimeException ex) {
+                rows.persistFailed(row, rowNumbers.get(i), ex);
+            }
+        }
+        chunk.clear();
+        rowNumbers.clear();
+        chunkTracks.clear();
+    }
+
+    // =========================================================
+    // Ids existentes
+    // =========================================================
+
+    private void preloadReferenceData(StatelessSession ss) {
+        index(ss, "SELECT m.mediaTypeId, m.name FROM MediaType m ORDER BY m.mediaTypeId", mediaTypes, r -> {
+            MediaType m = new MediaType();
+            m.setMediaTypeId((Integer) r[0]);
+            m.setName((String) r[1]);
+            return m;
+        });
+        index(ss, "SELECT g.genreId, g.name FROM Genre g ORDER BY g.genreId", genres, r -> {
+            Genre g = new Genre();
+            g.setGenreId((Integer) r[0]);
+            g.setName((String) r[1]);
+            return g;
+        });
+    }
+
+    private static <T> void index(StatelessSession ss, String hql, Map<String, T> into, Function<Object[], T> stub) {
+        ss.createQuery(hql, Object[].class)
+                .getResultStream()
+                .forEach(r -> {
+                    String name = (String) r[1];
+                    if (name != null) into.putIfAbsent(key(name), stub.apply(r));
+                });
+    }
+
+    /**
+     * Busca en la base los nombres del bloque que no están en memoria. Lo que no aparece
+     * no existe: el bloque lo inserta y lo deja en el mapa.
+     */
+    private void resolve(StatelessSession ss, List<CsvRowReader.Row> chunk) {
+        Set<String> artistKeys = new HashSet<>();
+        Set<String> albumKeys = new HashSet<>();
+        Set<String> playlistKeys = new HashSet<>();
+        Set<String> trackKeys = new HashSet<>();
+        Set<String> composerKeys = new HashSet<>();
+        for (CsvRowReader.Row row : chunk) {
+            missing(artists, key(row.artistName()), artistKeys);
+            missing(albums, key(row.albumTitle()), albumKeys);
+            missing(playlists, key(row.playlistName()), playlistKeys);
+            if (!tracks.containsKey(CsvLoader.normalizeTrackName(row.trackName()))) {
+                trackKeys.add(key(row.trackName()));
+                // Solo los tracks nuevos enlazan compositores
+                for (String name : Composer.splitNames(row.composer())) missing(composers, composerKey(name), composerKeys);
+            }
+        }
+        ss.doWork(conn -> {
+            lookup(conn, "SELECT ARTIST_ID, NAME FROM ARTISTS WHERE NAME_KEY IN ", artistKeys, rs -> {
+                Artist a = new Artist();
+                a.setArtistid(rs.getInt(1));
+                a.setName(rs.getString(2));
+                artists.putIfAbsent(key(a.getName()), a);
+            });
+            lookup(conn, "SELECT ALBUM_ID, TITLE FROM ALBUMS WHERE TITLE_KEY IN ", albumKeys, rs -> {
+                Album a = new Album();
+                a.setAlbumId(rs.getInt(1));
+                a.setTitle(rs.getString(2));
+                albums.putIfAbsent(key(a.getTitle()), a);
+            });
+            IntList existingPlaylists = new IntList();
+            lookup(conn, "SELECT PLAYLIST_ID, NAME FROM PLAYLISTS WHERE NAME_KEY IN ", playlistKeys, rs -> {
+                Playlist p = new Playlist();
+                p.setPlaylistId(rs.getInt(1));
+                p.setName(rs.getString(2));
+                if (playlists.putIfAbsent(key(p.getName()), p) == null) existingPlaylists.add(p.getPlaylistId());
+            });
+            lookup(conn, "SELECT TRACK_ID, NAME FROM TRACKS WHERE NAME_KEY IN ", trackKeys, rs -> {
+                Track t = new Track();
+                t.setTrackId(rs.getInt(1));
+                t.setName(rs.getString(2));
+                chunkTracks.putIfAbsent(key(t.getName()), t);
+            });
+            // COMPOSERS se busca por NAME_KEY, como ComposerRepository
+            lookup(conn, "SELECT COMPOSER_ID, NAME, NAME_KEY FROM COMPOSERS WHERE NAME_KEY IN ", composerKeys, rs -> {
+                Composer c = new Composer();
+                c.setComposerId(rs.getInt(1));
+                c.setName(rs.getString(2));
+                composers.putIfAbsent(rs.getString(3), c);
+            });
+            for (int i = 0; i < existingPlaylists.size(); i++) loadPairs(conn, existingPlaylists.get(i));
+        });
+    }
+
+    private static void missing(Map<String, ?> cache, String key, Set<String> into) {
+        if (!cache.containsKey(key)) into.add(key);
+    }
+
+    /** Ejecuta {@code select + "(?, ?, ...)"} por tandas de claves, en orden de id. */
+    private static void lookup(Connection conn, String select, Set<String> keys, RowHandler handler) throws SQLException {
+        List<String> all = new ArrayList<>(keys);
+        for (int from = 0; from < all.size(); from += LOOKUP_SLICE) {
+            List<String> slice = all.subList(from, Math.min(all.size(), from + LOOKUP_SLICE));
+            StringJoiner params = new StringJoiner(", ", "(", ")");
+            for (int i = 0; i < slice.size(); i++) params.add("?");
+            String sql = select + params + " ORDER BY 1";
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (int i = 0; i < slice.size(); i++) ps.setString(i + 1, slice.get(i));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        if (rs.getString(2) != null) handler.accept(rs);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Pares ya guardados de una playlist existente (una sola partición, por índice). */
+    private void loadPairs(Connection conn, int playlistId) throws SQLException {
+        if (!pairsLoaded.add(playlistId)) return;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT TRACK_ID FROM " + PlaylistTrackShards.tableFor(playlistId) + " WHERE PLAYLIST_ID = ?")) {
+            ps.setInt(1, playlistId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) playlistTracks.add(pairKey(playlistId, rs.getInt(1)));
+            }
+        }
+    }
+
+    private interface RowHandler {
+        void accept(ResultSet rs) throws SQLException;
+    }
+
+    private void clearCaches() {
+        artists.clear();
+        albums.clear();
+        mediaTypes.clear();
+        genres.clear();
+        playlists.clear();
+        composers.clear();
+        tracks.clear();
+        chunkTracks.clear();
+        playlistTracks.clear();
+        pairsLoaded.clear();
+        pendingPlaylistIds.clear();
+        pendingTrackIds.clear();
+    }
+
+    // =========================================================
+    // Inserts
+    // =========================================================
+
+    private void insert(StatelessSession ss, Object entity) {
+        ss.insert(entity);
+        changes.inserted(entity);
+    }
+
+    private Artist getOrCreateArtist(StatelessSession ss, String name) {
+        String key = key(name);
+        Artist artist = artists.get(key);
+        if (artist != null) return artist;
+        artist = new Artist();
+        artist.setName(name.trim());
+        insert(ss, artist);
+        artists.put(key, artist);
+        for (ImportListener l : listeners) l.onArtistInserted(artist);
+        return artist;
+    }
+
+    private Album getOrCreateAlbum(StatelessSession ss, String title, Artist artist, CsvLoader.Stats stats) {
+        String key = key(title);
+        Album album = albums.get(key);
+        if (album != null) return album;
+        album = new Album();
+        album.setTitle(title.trim());
+        album.setArtistId(artist);
+        insert(ss, album);
+        albums.put(key, album);
+        stats.insertedAlbums++;
+        for (ImportListener l : listeners) l.onAlbumInserted(album);
+        return album;
+    }
+
+    private MediaType getOrCreateMediaType(StatelessSession ss, String name) {
+        String key = key(name);
+        MediaType mt = mediaTypes.get(key);
+        if (mt != null) return mt;
+        mt = new MediaType();
+        mt.setName(name.trim());
+        insert(ss, mt);
+        mediaTypes.put(key, mt);
+        return mt;
+    }
+
+    private Genre getOrCreateGenre(StatelessSession ss, String name) {
+        String key = key(name);
+        Genre genre = genres.get(key);
+        if (genre != null) return genre;
+        genre = new Genre();
+        genre.setName(name.trim());
+        insert(ss, genre);
+        genres.put(key, genre);
+        return genre;
+    }
+
+    private Track getOrCreateTrack(StatelessSession ss, CsvRowReader.Row row, Album album, MediaType mediaType,
+                                   Genre genre, CsvLoader.Stats stats) {
+        String normalizedName = CsvLoader.normalizeTrackName(row.trackName());
+        Track track = tracks.get(normalizedName);
+        if (track != null) return track;
+        track = chunkTracks.get(key(row.trackName()));
+        if (track == null) {
+            track = new Track();
+            track.setName(row.trackName().trim());
+            track.setAlbum(album);
+            track.setMediaType(mediaType);
+            track.setGenre(genre);
+            track.setComposer(row.composer() != null ? row.composer().trim() : null);
+            track.setMilliseconds(row.milliseconds());
+            track.setBytes(row.bytes());
+            track.setUnitPrice(row.unitPrice().toBigDecimal());
+            insert(ss, track);
+            stats.insertedTracks++;
+            stats.sketches.addTrack(track);
+            for (ImportListener l : listeners) l.onTrackInserted(track);
+            linkComposers(ss, track, stats);
+        }
+        tracks.put(normalizedName, track);
+        return track;
+    }
+
+    private void linkComposers(StatelessSession ss, Track track, CsvLoader.Stats stats) {
+        Set<Integer> linked = new HashSet<>();
+        for (String name : Composer.splitNames(track.getComposer())) {
+            Composer composer = getOrCreateComposer(ss, name, stats);
+            if (linked.add(composer.getComposerId())) {
+                TrackComposer tc = new TrackComposer();
+                tc.setTrack(track);
+                tc.setComposer(composer);
+                insert(ss, tc);
+            }
+        }
+    }
+
+    private Composer getOrCreateComposer(StatelessSession ss, String name, CsvLoader.Stats stats) {
+        String key = composerKey(name);
+        Composer composer = composers.get(key);
+        if (composer != null) return composer;
+        composer = new Composer();
+        composer.setName(name);
+        insert(ss, composer);
+        composers.put(key, composer);
+        stats.insertedComposers++;
+        for (ImportListener l : listeners) l.onComposerInserted(composer);
+        return composer;
+    }
+
+    private Playlist getOrCreatePlaylist(StatelessSession ss, String name, CsvLoader.Stats stats) {
+        String key = key(name);
+        Playlist playlist = playlists.get(key);
+        if (playlist != null) return playlist;
+        playlist = new Playlist();
+        playlist.setName(name.trim());
+        insert(ss, playlist);
+        playlists.put(key, playlist);
+        pairsLoaded.add(playlist.getPlaylistId());
+        stats.insertedPlaylists++;
+        for (ImportListener l : listeners) l.onPlaylistInserted(playlist);
+        return playlist;
+    }
+
+    private void linkPlaylistTrack(Playlist playlist, Track track, CsvLoader.Stats stats) {
+        if (!playlistTracks.add(pairKey(playlist.getPlaylistId(), track.getTrackId()))) return;
+        pendingPlaylistIds.add(playlist.getPlaylistId());
+        pendingTrackIds.add(track.getTrackId());
+        stats.insertedPlaylistTracks++;
+        for (ImportListener l : listeners) l.onPlaylistTrackInserted(playlist, track);
+    }
+
+    private static String key(String name) {
+        return name.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static String composerKey(String name) {
+        return name.trim().replaceAll("\\s+", " ").toUpperCase(Locale.ROOT);
+    }
+
+    private static long pairKey(int playlistId, int trackId) {
+        return ((long) playlistId << 32) | (trackId & 0xFFFFFFFFL);
+    }
+
+    /** Mapa LRU (por acceso) con tope de entradas. */
+    private static final class BoundedMap<K, V> extends LinkedHashMap<K, V> {
+        private final int maxSize;
+
+        BoundedMap(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.example.infra;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Versión de un conjunto de tablas según H2: la suma de sus
+ * {@code INFORMATION_SCHEMA.TABLES.LAST_MODIFICATION}. H2 sube ese contador con cada
+ * modificación confirmada (y también con los rollbacks), venga de donde venga: cargas
+ * CSV, fusiones de tracks, ediciones de playlists o SQL directo. Como cada valor sólo
+ * crece, la suma cambia siempre que cambie alguna de las tablas; a lo sumo avisa de más.
+ *
+ * Un nombre terminado en {@code *} incluye todas las tablas con ese prefijo (por ejemplo
+ * {@code PLAYLIST_TRACK*} para las particiones de {@link PlaylistTrackShards}).
+ */
+public final class TableVersions {
+
+    private static final String SQL =
+            "SELECT TABLE_NAME, LAST_MODIFICATION FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = 'PUBLIC'";
+
+    private TableVersions() {
+    }
+
+    public static long read(Connection conn, String... tables) throws SQLException {
+        long version = 0;
+        try (PreparedStatement ps = conn.prepareStatement(SQL);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                if (matches(rs.getString(1), tables)) version += rs.getLong(2);
+            }
+        }
+        return version;
+    }
+
+    /** Igual que {@link #read(Connection, String...)} con una conexión propia. */
+    public static long read(String... tables) {
+        try (Connection conn = DataSourceProvider.getDataSource().getConnection()) {
+            return read(conn, tables);
+        } catch (SQLException e) {
+            throw new IllegalStateException("No se pudo leer la versión de " + String.join(", ", tables), e);
+        }
+    }
+
+    private static boolean matches(String table, String[] tables) {
+        for (String t : tables) {
+            if (t.endsWith("*") ? table.startsWith(t.substring(0, t.length() - 1)) : table.equals(t)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,130 @@
+package org.example.infra;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.infra.journal.SessionChanges;
+import org.example.search.NearDuplicateTracks;
+import org.example.search.NearDuplicateTracks.Merge;
+import org.hibernate.Session;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Aplica el plan de {@link NearDuplicateTracks}: cada referencia a un duplicado pasa a su
+ * sobreviviente y después se borra el duplicado.
+ * - PLAYLIST_TRACK_0..N-1: UPDATE en todas las particiones (el track no dice en cuáles
+ *   está) y, si la playlist ya tenía al sobreviviente, queda la fila más antigua.
+ * - INVOICE_ITEMS: UPDATE (las líneas conservan su precio).
+ * - TRACK_COMPOSER: se copian los compositores que el sobreviviente no tenía y se borran
+ *   los del duplicado (UK_TRACK_COMPOSER impide un UPDATE directo).
+ * Cada paso es un batch JDBC. IMPORT_SKETCHES no se corrige: los distintos no cambian
+ * y los cuantiles cuentan de más solo a los duplicados.
+ */
+public final class TrackMerger {
+
+    public record Result(int tracks, int playlistLinks, int playlistLinksRemoved, int invoiceItems,
+                         int composerLinks) { }
+
+    private TrackMerger() {
+    }
+
+    /** Aplica el plan en una transacción propia; con journal activo registra cada baja. */
+    public static Result apply(EntityManagerFactory emf, List<Merge> plan) {
+        try (EntityManager em = emf.createEntityManager()) {
+            Session session = em.unwrap(Session.class);
+            var tx = em.getTransaction();
+            tx.begin();
+            try {
+                SessionChanges changes = SessionChanges.begin(session);
+                Result result = session.doReturningWork(conn -> apply(conn, plan));
+                for (Merge m : plan) changes.merged(m.duplicateId(), m.survivorId());
+                tx.commit();
+                ReferenceDataCache.get().invalidateAll();
+                return result;
+            } catch (RuntimeException e) {
+                if (tx.isActive()) tx.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /** Aplica el plan dentro de la transacción de {@code conn}. */
+    public static Result apply(Connection conn, List<Merge> plan) throws SQLException {
+        Set<Integer> duplicates = new HashSet<>();
+        Set<Integer> survivors = new LinkedHashSet<>();
+        for (Merge m : plan) {
+            if (m.duplicateId() == m.survivorId() || !duplicates.add(m.duplicateId())) {
+                throw new IllegalArgumentException("Plan inválido para el track " + m.duplicateId());
+            }
+            survivors.add(m.survivorId());
+        }
+        for (int survivor : survivors) {
+            if (duplicates.contains(survivor)) {
+                throw new IllegalArgumentException("El track " + survivor + " es sobreviviente y duplicado a la vez");
+            }
+        }
+        if (plan.isEmpty()) return new Result(0, 0, 0, 0, 0);
+
+        int playlistLinks = 0;
+        int playlistLinksRemoved = 0;
+        for (int shard = 0; shard < PlaylistTrackShards.count(); shard++) {
+            String table = PlaylistTrackShards.table(shard);
+            playlistLinks += update(conn, "UPDATE " + table + " SET TRACK_ID = ? WHERE TRACK_ID = ?", plan);
+            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM " + table
+                    + " WHERE TRACK_ID = ? AND PLAYLIST_TRACK_ID NOT IN (SELECT MIN(PLAYLIST_TRACK_ID) FROM " + table
+                    + " WHERE TRACK_ID = ? GROUP BY PLAYLIST_ID)")) {
+                for (int survivor : survivors) {
+                    ps.setInt(1, survivor);
+                    ps.setInt(2, survivor);
+                    ps.addBatch();
+                }
+                playlistLinksRemoved += sum(ps.executeBatch());
+            }
+        }
+        int invoiceItems = update(conn, "UPDATE INVOICE_ITEMS SET TRACK_ID = ? WHERE TRACK_ID = ?", plan);
+        // Cada INSERT ve los anteriores del batch, así que dos duplicados con el mismo compositor no chocan
+        int composerLinks = update(conn, """
+                INSERT INTO TRACK_COMPOSER (TRACK_ID, COMPOSER_ID)
+                SELECT ?1, COMPOSER_ID FROM TRACK_COMPOSER WHERE TRACK_ID = ?2
+                AND COMPOSER_ID NOT IN (SELECT COMPOSER_ID FROM TRACK_COMPOSER WHERE TRACK_ID = ?1)""", plan);
+        byDuplicate(conn, "DELETE FROM TRACK_COMPOSER WHERE TRACK_ID = ?", plan);
+        int tracks = byDuplicate(conn, "DELETE FROM TRACKS WHERE TRACK_ID = ?", plan);
+        return new Result(tracks, playlistLinks, playlistLinksRemoved, invoiceItems, composerLinks);
+    }
+
+    /** Ejecuta {@code sql} con (sobreviviente, duplicado) por cada fusión. */
+    private static int update(Connection conn, String sql, List<Merge> plan) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (Merge m : plan) {
+                ps.setInt(1, m.survivorId());
+                ps.setInt(2, m.duplicateId());
+                ps.addBatch();
+            }
+            return sum(ps.executeBatch());
+        }
+    }
+
+    private static int byDuplicate(Connection conn, String sql, List<Merge> plan) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (Merge m : plan) {
+                ps.setInt(1, m.duplicateId());
+                ps.addBatch();
+            }
+            return sum(ps.executeBatch());
+        }
+    }
+
+    private static int sum(int[] counts) {
+        int total = 0;
+        for (int c : counts) {
+            if (c > 0) total += c;
+        }
+        return total;
+    }
+}
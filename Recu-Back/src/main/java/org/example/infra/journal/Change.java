@@ -0,0 +1,26 @@
+package org.example.infra.journal;
+
+import java.util.Map;
+
+/**
+ * Un cambio confirmado sobre una entidad del catálogo, tal como queda en el journal.
+ * {@code columns} trae solo las columnas que cambiaron (todas en un alta, ninguna en una
+ * baja); las relaciones se guardan como el id de la entidad referenciada.
+ */
+public record Change(long sequence,
+                     long timestampMillis,
+                     Op op,
+                     String entity,
+                     long id,
+                     Map<String, Object> columns) {
+
+    public enum Op {
+        INSERT, UPDATE, DELETE;
+
+        private static final Op[] VALUES = values();
+
+        static Op of(int ordinal) {
+            return VALUES[ordinal];
+        }
+    }
+}
@@ -0,0 +1,496 @@
+package org.example.infra.journal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Journal binario de solo agregado con los cambios confirmados del catálogo.
+ *
+ * <pre>
+ * archivo  = "RJNL" version:int registro*
+ * registro = largo:int payload crc32(payload):int
+ * payload  = seq:long ts:long op:byte entidad:str16 id:long n:short (columna:str16 valor)*
+ * valor    = tag:byte dato  (null, int, long, decimal, string, boolean, double)
+ * </pre>
+ *
+ * {@link #append} solo serializa el registro en un buffer en memoria y devuelve su
+ * número de secuencia. Un hilo escritor junta lo acumulado durante una ventana corta
+ * (group commit), lo escribe con un solo write y hace un único fsync para todo el
+ * grupo; {@link #awaitDurable} espera a que una secuencia quede en disco. Al abrir un
+ * archivo existente se valida cada registro y se trunca una cola incompleta.
+ *
+ * Los lectores usan {@link #tail(long)}: leen del archivo solo lo que ya es durable,
+ * a partir de una secuencia, y pueden bloquearse esperando cambios nuevos.
+ */
+public class ChangeJournal implements AutoCloseable {
+
+    private static final int MAGIC = 0x524A4E4C; // "RJNL"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 16 << 20;
+    // Cada cuántos registros se guarda seq -> offset para que tail() no lea desde el principio
+    private static final int INDEX_EVERY = 1024;
+    // Con este tamaño pendiente el escritor no espera a que termine la ventana
+    private static final int FLUSH_THRESHOLD = 256 * 1024;
+    private static final Duration DEFAULT_GROUP_COMMIT = Duration.ofMillis(2);
+
+    private static final byte NULL = 0;
+    private static final byte INT = 1;
+    private static final byte LONG = 2;
+    private static final byte DECIMAL = 3;
+    private static final byte STRING = 4;
+    private static final byte BOOLEAN = 5;
+    private static final byte DOUBLE = 6;
+
+    private static volatile ChangeJournal active;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long groupCommitNanos;
+    private final ConcurrentSkipListMap<Long, Long> sparseIndex = new ConcurrentSkipListMap<>();
+    private final Thread writer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition dataAvailable = lock.newCondition();
+    private final Condition durable = lock.newCondition();
+    // Protegidos por lock
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private long nextSequence;
+    private long appendOffset;
+    private long pendingLastSequence;
+    private long records;
+    private long syncs;
+    private boolean closed;
+    private IOException failure;
+    // Escritos solo por el hilo escritor (bajo lock), leídos sin lock por los tails
+    private volatile long durableSequence;
+    private volatile long durableOffset;
+
+    private ChangeJournal(Path file, FileChannel channel, long groupCommitNanos) {
+        this.file = file;
+        this.channel = channel;
+        this.groupCommitNanos = groupCommitNanos;
+        this.writer = new Thread(this::writeLoop, "change-journal-writer");
+        writer.setDaemon(true);
+    }
+
+    public static ChangeJournal open(Path file) throws IOException {
+        return open(file, DEFAULT_GROUP_COMMIT);
+    }
+
+    /** Abre (o crea) el journal; si existe, recupera la última secuencia válida. */
+    public static ChangeJournal open(Path file, Duration groupCommit) throws IOException {
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ChangeJournal journal = new ChangeJournal(file, channel, groupCommit.toNanos());
+        try {
+            journal.recover();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        journal.writer.start();
+        return journal;
+    }
+
+    /** Journal que reciben los listeners de Hibernate y los loaders (null = sin journal). */
+    public static ChangeJournal active() {
+        return active;
+    }
+
+    public static void install(ChangeJournal journal) {
+        active = journal;
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    // =========================================================
+    // Escritura
+    // =========================================================
+
+    /** Agrega un cambio y devuelve su secuencia; no espera al fsync. */
+    public long append(Change.Op op, String entity, long id, Map<String, Object> columns) {
+        byte[] body = encodeBody(op, entity, id, columns);
+        if (body.length + 20 > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Registro demasiado grande: " + body.length + " bytes");
+        }
+        lock.lock();
+        try {
+            if (failure != null) throw new UncheckedIOException("Journal inutilizable", failure);
+            if (closed) throw new IllegalStateException("Journal cerrado: " + file);
+            boolean wasEmpty = pending.position() == 0;
+            int payloadLength = 16 + body.length;
+            ensureCapacity(4 + payloadLength + 4);
+            long seq = nextSequence++;
+            if ((seq - 1) % INDEX_EVERY == 0) sparseIndex.put(seq, appendOffset);
+
+            pending.putInt(payloadLength);
+            int payloadStart = pending.position();
+            pending.putLong(seq).putLong(System.currentTimeMillis()).put(body);
+            CRC32 crc = new CRC32();
+            crc.update(pending.array(), payloadStart, payloadLength);
+            pending.putInt((int) crc.getValue());
+
+            appendOffset += 4 + payloadLength + 4;
+            pendingLastSequence = seq;
+            records++;
+            if (wasEmpty || pending.position() >= FLUSH_THRESHOLD) dataAvailable.signal();
+            return seq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Bloquea hasta que la secuencia dada (y todas las anteriores) estén en disco. */
+    public void awaitDurable(long sequence) throws InterruptedException {
+        lock.lock();
+        try {
+            while (durableSequence < sequence) {
+                if (failure != null) throw new UncheckedIOException("Journal inutilizable", failure);
+                if (closed && !writer.isAlive()) throw new IllegalStateException("Journal cerrado: " + file);
+                durable.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Última secuencia asignada (0 si el journal está vacío). */
+    public long lastSequence() {
+        lock.lock();
+        try {
+            return nextSequence - 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long durableSequence() {
+        return durableSequence;
+    }
+
+    /** Tamaño del archivo contando lo que todavía no se escribió. */
+    public long sizeBytes() {
+        lock.lock();
+        try {
+            return appendOffset;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            dataAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (active == this) active = null;
+            channel.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return String.format("%s: %d registros, %d fsync, %d KB", file.getFileName(),
+                    records, syncs, appendOffset / 1024);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeLoop() {
+        ByteBuffer spare = ByteBuffer.allocate(pending.capacity());
+        while (true) {
+            ByteBuffer batch;
+            long lastSequence;
+            long endOffset;
+            lock.lock();
+            try {
+                while (pending.position() == 0 && !closed) {
+                    dataAvailable.awaitUninterruptibly();
+                }
+                if (pending.position() == 0) return;
+                // Ventana de group commit: los commits que lleguen mientras tanto van en el mismo fsync
+                long remaining = groupCommitNanos;
+                while (remaining > 0 && !closed && pending.position() < FLUSH_THRESHOLD) {
+                    remaining = dataAvailable.awaitNanos(remaining);
+                }
+                batch = pending;
+                pending = spare.capacity() >= batch.capacity() ? spare.clear() : ByteBuffer.allocate(batch.capacity());
+                lastSequence = pendingLastSequence;
+                endOffset = appendOffset;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) channel.write(batch);
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durableSequence = lastSequence;
+                    durableOffset = endOffset;
+                    syncs++;
+                }
+                durable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (error != null) return;
+            spare = batch;
+        }
+    }
+
+    private void ensureCapacity(int extra) {
+        if (pending.remaining() >= extra) return;
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + extra));
+        pending.flip();
+        bigger.put(pending);
+        pending = bigger;
+    }
+
+    // =========================================================
+    // Recuperación
+    // =========================================================
+
+    private void recover() throws IOException {
+        long size = channel.size();
+        if (size < HEADER_BYTES) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(FORMAT_VERSION).flip();
+            channel.truncate(0);
+            channel.write(header, 0);
+            channel.force(true);
+            size = HEADER_BYTES;
+        } else {
+            ByteBuffer header = readFully(channel, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                throw new IOException("No es un journal de cambios: " + file);
+            }
+        }
+
+        long position = HEADER_BYTES;
+        long lastSequence = 0;
+        while (position + 4 <= size) {
+            int payloadLength = readFully(channel, position, 4).getInt();
+            if (payloadLength < 16 || payloadLength > MAX_RECORD_BYTES || position + 8 + payloadLength > size) break;
+            ByteBuffer record = readFully(channel, position + 4, payloadLength + 4);
+            CRC32 crc = new CRC32();
+            crc.update(record.array(), 0, payloadLength);
+            if ((int) crc.getValue() != record.getInt(payloadLength)) break;
+            long seq = record.getLong(0);
+            if ((seq - 1) % INDEX_EVERY == 0) sparseIndex.put(seq, position);
+            lastSequence = seq;
+            position += 4 + payloadLength + 4;
+            records++;
+        }
+        // Lo que sigue al último registro válido es una escritura cortada: se descarta
+        channel.truncate(position);
+        channel.position(position);
+        nextSequence = lastSequence + 1;
+        appendOffset = position;
+        durableSequence = lastSequence;
+        durableOffset = position;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) throw new IOException("Fin de archivo inesperado");
+        }
+        return buf.flip();
+    }
+
+    // =========================================================
+    // Lectura
+    // =========================================================
+
+    /** Lector de los cambios con secuencia mayor a {@code afterSequence} (0 = desde el principio). */
+    public Tail tail(long afterSequence) throws IOException {
+        Map.Entry<Long, Long> start = sparseIndex.floorEntry(afterSequence + 1);
+        return new Tail(afterSequence, start == null ? HEADER_BYTES : start.getValue());
+    }
+
+    /** Recorre el journal en orden; cada instancia tiene su propio canal de lectura. */
+    public final class Tail implements AutoCloseable {
+
+        private final FileChannel in;
+        private final long afterSequence;
+        private long position;
+
+        private Tail(long afterSequence, long position) throws IOException {
+            this.in = FileChannel.open(file, StandardOpenOption.READ);
+            this.afterSequence = afterSequence;
+            this.position = position;
+        }
+
+        /** Próximo cambio ya durable, o null si por ahora no hay más. */
+        public Change poll() throws IOException {
+            while (position < durableOffset) {
+                int payloadLength = readFully(in, position, 4).getInt();
+                ByteBuffer payload = readFully(in, position + 4, payloadLength);
+                position += 4 + payloadLength + 4;
+                Change change = decode(payload);
+                if (change.sequence() > afterSequence) return change;
+            }
+            return null;
+        }
+
+        /** Como {@link #poll()} pero espera hasta {@code timeout} a que llegue un cambio. */
+        public Change next(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            Change change;
+            while ((change = poll()) == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) return null;
+                lock.lock();
+                try {
+                    if (position >= durableOffset) {
+                        if (failure != null) throw new UncheckedIOException("Journal inutilizable", failure);
+                        durable.awaitNanos(remaining);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return change;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    // =========================================================
+    // Codificación
+    // =========================================================
+
+    private static byte[] encodeBody(Change.Op op, String entity, long id, Map<String, Object> columns) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + columns.size() * 24);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(op.ordinal());
+            writeShortString(out, entity);
+            out.writeLong(id);
+            out.writeShort(columns.size());
+            for (Map.Entry<String, Object> column : columns.entrySet()) {
+                writeShortString(out, column.getKey());
+                writeValue(out, column.getValue());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(INT);
+            out.writeInt(((Number) value).intValue());
+        } else if (value instanceof Long l) {
+            out.writeByte(LONG);
+            out.writeLong(l);
+        } else if (value instanceof BigDecimal d) {
+            out.writeByte(DECIMAL);
+            writeShortString(out, d.toPlainString());
+        } else if (value instanceof Boolean b) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean(b);
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else {
+            byte[] utf8 = value.toString().getBytes(StandardCharsets.UTF_8);
+            out.writeByte(STRING);
+            out.writeInt(utf8.length);
+            out.write(utf8);
+        }
+    }
+
+    private static void writeShortString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(utf8.length);
+        out.write(utf8);
+    }
+
+    private static Change decode(ByteBuffer in) {
+        long seq = in.getLong();
+        long timestamp = in.getLong();
+        Change.Op op = Change.Op.of(in.get());
+        String entity = readShortString(in);
+        long id = in.getLong();
+        int count = in.getShort() & 0xFFFF;
+        Map<String, Object> columns = new LinkedHashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String name = readShortString(in);
+            columns.put(name, readValue(in));
+        }
+        return new Change(seq, timestamp, op, entity, id, columns);
+    }
+
+    private static Object readValue(ByteBuffer in) {
+        byte tag = in.get();
+        return switch (tag) {
+            case NULL -> null;
+            case INT -> in.getInt();
+            case LONG -> in.getLong();
+            case DECIMAL -> new BigDecimal(readShortString(in));
+            case BOOLEAN -> in.get() != 0;
+            case DOUBLE -> in.getDouble();
+            case STRING -> {
+                byte[] utf8 = new byte[in.getInt()];
+                in.get(utf8);
+                yield new String(utf8, StandardCharsets.UTF_8);
+            }
+            default -> throw new IllegalStateException("Tipo de valor desconocido en el journal: " + tag);
+        };
+    }
+
+    private static String readShortString(ByteBuffer in) {
+        byte[] utf8 = new byte[in.getShort() & 0xFFFF];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
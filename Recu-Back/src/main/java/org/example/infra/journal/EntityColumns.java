@@ -0,0 +1,47 @@
+package org.example.infra.journal;
+
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.Type;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Convierte el estado de una entidad (según su persister) en las columnas de un {@link Change}. */
+final class EntityColumns {
+
+    private EntityColumns() {
+    }
+
+    static String entityName(EntityPersister persister) {
+        return persister.getMappedClass().getSimpleName();
+    }
+
+    static long id(Object id) {
+        if (id instanceof Number n) return n.longValue();
+        throw new IllegalArgumentException("El journal solo admite ids numéricos: " + id);
+    }
+
+    /**
+     * Propiedades {@code properties} del estado (todas si es null); las relaciones se
+     * reemplazan por el id de la entidad referenciada.
+     */
+    static Map<String, Object> of(EntityPersister persister, Object[] state, int[] properties) {
+        String[] names = persister.getPropertyNames();
+        Type[] types = persister.getPropertyTypes();
+        Map<String, Object> columns = new LinkedHashMap<>();
+        if (properties == null) {
+            for (int i = 0; i < names.length; i++) put(columns, persister, names[i], types[i], state[i]);
+        } else {
+            for (int i : properties) put(columns, persister, names[i], types[i], state[i]);
+        }
+        return columns;
+    }
+
+    private static void put(Map<String, Object> columns, EntityPersister persister, String name, Type type, Object value) {
+        if (type.isCollectionType()) return;
+        if (value != null && type.isEntityType()) {
+            value = persister.getFactory().getPersistenceUnitUtil().getIdentifier(value);
+        }
+        columns.put(name, value);
+    }
+}
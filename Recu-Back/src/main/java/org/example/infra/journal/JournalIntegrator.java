@@ -0,0 +1,92 @@
+package org.example.infra.journal;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+import java.util.Map;
+
+/**
+ * Registra en cada SessionFactory listeners post-commit que pasan al
+ * {@link ChangeJournal#active() journal activo} los inserts, updates y deletes hechos
+ * con un EntityManager. Se descubre por ServiceLoader
+ * (META-INF/services/org.hibernate.integrator.spi.Integrator).
+ *
+ * Sin journal instalado {@code requiresPostCommitHandling} da false y Hibernate no
+ * retiene las acciones hasta el commit, así que el costo es nulo. Lo que no pasa por
+ * eventos (StatelessSession, SQL nativo) se registra con {@link SessionChanges}.
+ */
+public class JournalIntegrator implements Integrator {
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        Listener listener = new Listener();
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    private static final class Listener implements PostCommitInsertEventListener,
+            PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return ChangeJournal.active() != null;
+        }
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            ChangeJournal journal = ChangeJournal.active();
+            if (journal == null) return;
+            EntityPersister persister = event.getPersister();
+            journal.append(Change.Op.INSERT, EntityColumns.entityName(persister), EntityColumns.id(event.getId()),
+                    EntityColumns.of(persister, event.getState(), null));
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            ChangeJournal journal = ChangeJournal.active();
+            if (journal == null) return;
+            EntityPersister persister = event.getPersister();
+            journal.append(Change.Op.UPDATE, EntityColumns.entityName(persister), EntityColumns.id(event.getId()),
+                    EntityColumns.of(persister, event.getState(), event.getDirtyProperties()));
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            ChangeJournal journal = ChangeJournal.active();
+            if (journal == null) return;
+            journal.append(Change.Op.DELETE, EntityColumns.entityName(event.getPersister()),
+                    EntityColumns.id(event.getId()), Map.of());
+        }
+
+        // Si el commit falla no hay nada que registrar
+        @Override
+        public void onPostInsertCommitFailed(PostInsertEvent event) {
+        }
+
+        @Override
+        public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        }
+
+        @Override
+        public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.example.infra.journal;
+
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import org.example.util.IntList;
+import org.hibernate.SharedSessionContract;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cambios hechos por fuera de los eventos de Hibernate (inserts de un StatelessSession,
+ * relaciones playlist-track por JDBC) que se agregan al journal recién cuando confirma
+ * la transacción actual de la sesión; si hace rollback se descartan.
+ *
+ * Sin journal activo {@link #begin} no registra nada y los métodos no hacen nada.
+ */
+public final class SessionChanges {
+
+    // Las relaciones no tienen id conocido (lo genera la base): se identifican por el par
+    private static final String PLAYLIST_TRACK = "PlaylistTrack";
+    private static final String TRACK = "Track";
+    private static final String PLAYLIST = "Playlist";
+
+    private record Pending(Change.Op op, String entity, long id, Map<String, Object> columns) { }
+
+    private final SharedSessionContractImplementor session;
+    private final List<Pending> pending;
+
+    private SessionChanges(SharedSessionContractImplementor session, boolean enabled) {
+        this.session = session;
+        this.pending = enabled ? new ArrayList<>() : null;
+    }
+
+    /** Empieza a juntar cambios para la transacción en curso de {@code session}. */
+    public static SessionChanges begin(SharedSessionContract session) {
+        if (ChangeJournal.active() == null) return new SessionChanges(null, false);
+        SessionChanges changes = new SessionChanges((SharedSessionContractImplementor) session, true);
+        session.getTransaction().registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) changes.appendAll();
+                changes.pending.clear();
+            }
+        });
+        return changes;
+    }
+
+    /** Alta de una entidad ya insertada (con id asignado). */
+    public void inserted(Object entity) {
+        if (pending == null) return;
+        EntityPersister persister = session.getEntityPersister(null, entity);
+        pending.add(new Pending(Change.Op.INSERT, EntityColumns.entityName(persister),
+                EntityColumns.id(persister.getIdentifier(entity, session)),
+                EntityColumns.of(persister, persister.getValues(entity), null)));
+    }
+
+    /** Altas de relaciones (playlistIds[i], trackIds[i]); id = (playlistId << 32) | trackId. */
+    public void linked(IntList playlistIds, IntList trackIds) {
+        links(Change.Op.INSERT, playlistIds, trackIds);
+    }
+
+    /** Bajas de relaciones, con el mismo id que {@link #linked}. */
+    public void unlinked(IntList playlistIds, IntList trackIds) {
+        links(Change.Op.DELETE, playlistIds, trackIds);
+    }
+
+    /** Alta (INSERT) o cambio de nombre (UPDATE) de una playlist escrita por JDBC. */
+    public void playlist(Change.Op op, int playlistId, String name) {
+        if (pending == null) return;
+        Map<String, Object> columns = new LinkedHashMap<>(2);
+        columns.put("name", name);
+        pending.add(new Pending(op, PLAYLIST, playlistId, columns));
+    }
+
+    private void links(Change.Op op, IntList playlistIds, IntList trackIds) {
+        if (pending == null) return;
+        for (int i = 0; i < playlistIds.size(); i++) {
+            int playlistId = playlistIds.get(i);
+            int trackId = trackIds.get(i);
+            Map<String, Object> columns = new LinkedHashMap<>(4);
+            columns.put("playlist", playlistId);
+            columns.put("track", trackId);
+            pending.add(new Pending(op, PLAYLIST_TRACK,
+                    ((long) playlistId << 32) | (trackId & 0xFFFFFFFFL), columns));
+        }
+    }
+
+    /**
+     * Baja de un track fusionado con otro (ver TrackMerger): sus referencias pasaron a
+     * {@code survivorId}, que queda en la columna "mergedInto".
+     */
+    public void merged(int duplicateId, int survivorId) {
+        if (pending == null) return;
+        Map<String, Object> columns = new LinkedHashMap<>(2);
+        columns.put("mergedInto", survivorId);
+        pending.add(new Pending(Change.Op.DELETE, TRACK, duplicateId, columns));
+    }
+
+    private void appendAll() {
+        ChangeJournal journal = ChangeJournal.active();
+        if (journal == null) return;
+        for (Pending p : pending) {
+            journal.append(p.op(), p.entity(), p.id(), p.columns());
+        }
+    }
+}
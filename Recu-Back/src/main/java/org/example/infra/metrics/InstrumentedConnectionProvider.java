@@ -0,0 +1,27 @@
+package org.example.infra.metrics;
+
+import org.hibernate.engine.jdbc.connections.internal.DriverManagerConnectionProviderImpl;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * El pool de conexiones de Hibernate, con cada conexión envuelta por los proxies de
+ * {@link JdbcProxies} que alimentan {@link SqlMetrics}. Se configura en persistence.xml
+ * con hibernate.connection.provider_class; {@code -Drecu.sql.metrics=false} lo apaga.
+ */
+public class InstrumentedConnectionProvider extends DriverManagerConnectionProviderImpl {
+
+    private static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("recu.sql.metrics"));
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = super.getConnection();
+        return ENABLED ? JdbcProxies.connection(connection, SqlMetrics.get()) : connection;
+    }
+
+    @Override
+    public void closeConnection(Connection connection) throws SQLException {
+        super.closeConnection(JdbcProxies.unwrap(connection));
+    }
+}
@@ -0,0 +1,170 @@
+package org.example.infra.metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Proxies dinámicos de JDBC que miden cada execute* y cuentan las filas de los
+ * ResultSet. Los parámetros de los PreparedStatement se guardan por índice para
+ * poder repetir la sentencia con EXPLAIN si resulta lenta.
+ */
+final class JdbcProxies {
+
+    /** Lo implementan los proxies de conexión para devolver la conexión real al pool. */
+    interface Wrapper {
+        Connection jdbcTarget();
+    }
+
+    private static final ClassLoader LOADER = JdbcProxies.class.getClassLoader();
+
+    private JdbcProxies() {
+    }
+
+    static Connection connection(Connection target, SqlMetrics metrics) {
+        return (Connection) Proxy.newProxyInstance(LOADER, new Class<?>[]{Connection.class, Wrapper.class},
+                new ConnectionHandler(target, metrics));
+    }
+
+    static Connection unwrap(Connection connection) {
+        return connection instanceof Wrapper w ? w.jdbcTarget() : connection;
+    }
+
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private record ConnectionHandler(Connection target, SqlMetrics metrics) implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("jdbcTarget")) return target;
+            Object result = call(target, method, args);
+            return switch (name) {
+                case "prepareStatement" -> statement(result, PreparedStatement.class, (String) args[0]);
+                case "prepareCall" -> statement(result, CallableStatement.class, (String) args[0]);
+                case "createStatement" -> statement(result, Statement.class, null);
+                default -> result;
+            };
+        }
+
+        private Object statement(Object statement, Class<?> type, String sql) {
+            return Proxy.newProxyInstance(LOADER, new Class<?>[]{type},
+                    new StatementHandler((Statement) statement, sql, metrics));
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+        private final String sql;
+        private final SqlMetrics metrics;
+        private Object[] parameters = new Object[8];
+        private int parameterCount;
+        private SqlMetrics.Recording last;
+
+        StatementHandler(Statement target, String sql, SqlMetrics metrics) {
+            this.target = target;
+            this.sql = sql;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) return execute(method, args);
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                parameter(index, name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                Arrays.fill(parameters, null);
+                parameterCount = 0;
+            } else if (name.equals("getResultSet")) {
+                Object rs = call(target, method, args);
+                return rs == null || last == null ? rs : resultSet((ResultSet) rs, last);
+            }
+            return call(target, method, args);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            String executed = args != null && args.length > 0 && args[0] instanceof String s ? s : sql;
+            long start = System.nanoTime();
+            Object result = null;
+            boolean failed = true;
+            try {
+                result = call(target, method, args);
+                failed = false;
+            } finally {
+                last = metrics.record(executed, System.nanoTime() - start, failed, updates(result), this::parameters);
+            }
+            return result instanceof ResultSet rs ? resultSet(rs, last) : result;
+        }
+
+        private void parameter(int index, Object value) {
+            if (index < 1) return;
+            if (index > parameters.length) parameters = Arrays.copyOf(parameters, Math.max(index, parameters.length * 2));
+            parameters[index - 1] = value;
+            parameterCount = Math.max(parameterCount, index);
+        }
+
+        private List<Object> parameters() {
+            return new ArrayList<>(Arrays.asList(parameters).subList(0, parameterCount));
+        }
+
+        private static long updates(Object result) {
+            if (result instanceof Integer i) return Math.max(0, i);
+            if (result instanceof Long l) return Math.max(0, l);
+            long total = 0;
+            if (result instanceof int[] counts) {
+                for (int c : counts) total += c >= 0 ? c : 1; // SUCCESS_NO_INFO
+            } else if (result instanceof long[] counts) {
+                for (long c : counts) total += c >= 0 ? c : 1;
+            }
+            return total;
+        }
+
+        private static ResultSet resultSet(ResultSet target, SqlMetrics.Recording recording) {
+            return (ResultSet) Proxy.newProxyInstance(LOADER, new Class<?>[]{ResultSet.class},
+                    new ResultSetHandler(target, recording));
+        }
+    }
+
+    private static final class ResultSetHandler implements InvocationHandler {
+
+        private final ResultSet target;
+        private final SqlMetrics.Recording recording;
+        private long rows;
+        private boolean closed;
+
+        ResultSetHandler(ResultSet target, SqlMetrics.Recording recording) {
+            this.target = target;
+            this.recording = recording;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = call(target, method, args);
+            String name = method.getName();
+            if (name.equals("next")) {
+                if ((Boolean) result) rows++;
+            } else if (name.equals("close") && !closed) {
+                closed = true;
+                recording.addRows(rows);
+            }
+            return result;
+        }
+    }
+}
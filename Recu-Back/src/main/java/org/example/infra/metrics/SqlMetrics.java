@@ -0,0 +1,306 @@
+package org.example.infra.metrics;
+
+import org.example.infra.DataSourceProvider;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Métricas de las sentencias SQL que pasan por {@link InstrumentedConnectionProvider}
+ * (todo lo que ejecuta Hibernate, incluido el JDBC de doWork). Se agregan por forma de
+ * la sentencia (el SQL parametrizado) y por el método de org.example.repo que la
+ * originó: cantidad, errores, filas leídas/actualizadas e histograma de latencia.
+ *
+ * Las sentencias que superan {@code recu.sql.slowMillis} (100 ms por defecto) quedan en
+ * un log acotado con sus parámetros; la primera vez que una forma resulta lenta se pide
+ * su EXPLAIN a H2 en un hilo aparte, sin demorar a quien la ejecutó.
+ */
+public final class SqlMetrics {
+
+    private static final SqlMetrics INSTANCE = new SqlMetrics();
+
+    private static final String REPO_PACKAGE = "org.example.repo.";
+    private static final String NO_REPOSITORY = "(fuera de org.example.repo)";
+    private static final String OTHER_SHAPES = "(otras formas)";
+    private static final int MAX_SHAPES = 2048;
+    private static final int MAX_SLOW_QUERIES = 100;
+    private static final String PLAN_PENDING = "(EXPLAIN pendiente)";
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final StackWalker WALKER = StackWalker.getInstance();
+    // Recorrer la pila en cada sentencia cuesta más que la sentencia misma: una forma que
+    // viene siempre del mismo método fija el caller y solo se verifica cada 64 ejecuciones
+    private static final int PIN_AFTER = 32;
+    private static final int RECHECK_MASK = 63;
+
+    /** Agregados de una forma de sentencia o de un método de repositorio. */
+    public record StatementStats(String key, long count, long errors, long rows, long updates,
+                                 double totalMillis, double meanMillis, double p50Millis, double p99Millis,
+                                 double maxMillis) { }
+
+    public record SlowQuery(String sql, String caller, List<Object> parameters, double millis, String plan) { }
+
+    /** Destino de una ejecución: las filas del ResultSet se suman al cerrarlo. */
+    public static final class Recording {
+        private final Stats shape;
+        private final Stats caller;
+
+        private Recording(Stats shape, Stats caller) {
+            this.shape = shape;
+            this.caller = caller;
+        }
+
+        public void addRows(long rows) {
+            shape.rows.add(rows);
+            caller.rows.add(rows);
+        }
+    }
+
+    private static final class Stats {
+        final LongAdder errors = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final LongAdder updates = new LongAdder();
+        final LatencyHistogram latency = new LatencyHistogram();
+        // Solo en las de forma; las carreras entre hilos a lo sumo fuerzan otro recorrido
+        private volatile String pinnedCaller;
+        private String lastCaller;
+        private int streak;
+        private int executions;
+
+        String pinnedCaller() {
+            String pinned = pinnedCaller;
+            return pinned != null && (++executions & RECHECK_MASK) != 0 ? pinned : null;
+        }
+
+        void observeCaller(String caller) {
+            if (caller.equals(lastCaller)) {
+                if (++streak >= PIN_AFTER) pinnedCaller = caller;
+            } else {
+                lastCaller = caller;
+                streak = 0;
+                pinnedCaller = null;
+            }
+        }
+
+        void add(long nanos, boolean failed, long updated) {
+            latency.record(nanos);
+            if (failed) errors.increment();
+            if (updated > 0) updates.add(updated);
+        }
+
+        StatementStats snapshot(String key) {
+            long count = latency.count();
+            return new StatementStats(key, count, errors.sum(), rows.sum(), updates.sum(),
+                    latency.meanNanos() * count / 1e6, latency.meanNanos() / 1e6,
+                    latency.percentileNanos(0.50) / 1e6, latency.percentileNanos(0.99) / 1e6,
+                    latency.maxNanos() / 1e6);
+        }
+    }
+
+    private record Slow(String shape, String caller, List<Object> parameters, long nanos) { }
+
+    private final long slowNanos = Long.getLong("recu.sql.slowMillis", 100) * 1_000_000;
+    // SQL tal como llega -> forma normalizada (Hibernate repite siempre los mismos strings)
+    private final Map<String, String> shapeOfSql = new ConcurrentHashMap<>();
+    private final Map<String, Stats> byShape = new ConcurrentHashMap<>();
+    private final Map<String, Stats> byCaller = new ConcurrentHashMap<>();
+    private final Map<String, String> plans = new ConcurrentHashMap<>();
+    private final Deque<Slow> slowLog = new ArrayDeque<>();
+    // Hilos del scatter de PlaylistTrackShards: heredan el método de repositorio del que los lanzó
+    private final ThreadLocal<String> inheritedCaller = new ThreadLocal<>();
+    private final ExecutorService explainer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "sql-explain");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private SqlMetrics() {
+    }
+
+    public static SqlMetrics get() {
+        return INSTANCE;
+    }
+
+    long slowNanos() {
+        return slowNanos;
+    }
+
+    /** Registra una ejecución; {@code parameters} solo hace falta si fue lenta. */
+    Recording record(String sql, long nanos, boolean failed, long updates, Supplier<List<Object>> parameters) {
+        String shape = shape(sql);
+        Stats shapeStats = byShape.computeIfAbsent(shape, k -> new Stats());
+        String caller = caller(shapeStats);
+        Stats callerStats = byCaller.computeIfAbsent(caller, k -> new Stats());
+        shapeStats.add(nanos, failed, updates);
+        callerStats.add(nanos, failed, updates);
+        if (nanos >= slowNanos) slow(shape, sql, caller, parameters.get(), nanos);
+        return new Recording(shapeStats, callerStats);
+    }
+
+    /** Método de repositorio de la tarea que lanza {@code task} en otro hilo. */
+    public String currentCaller() {
+        return caller();
+    }
+
+    /** Ejecuta {@code task} atribuyendo sus sentencias a {@code caller}. */
+    public <T> T withCaller(String caller, Supplier<T> task) {
+        String previous = inheritedCaller.get();
+        inheritedCaller.set(caller);
+        try {
+            return task.get();
+        } finally {
+            if (previous == null) inheritedCaller.remove();
+            else inheritedCaller.set(previous);
+        }
+    }
+
+    // =========================================================
+    // Consulta
+    // =========================================================
+
+    /** Formas de sentencia, de mayor a menor tiempo total. */
+    public List<StatementStats> statements() {
+        return sorted(byShape);
+    }
+
+    /** SQL por método de repositorio, de mayor a menor tiempo total. */
+    public List<StatementStats> repositoryMethods() {
+        return sorted(byCaller);
+    }
+
+    /** Últimas sentencias lentas (la más reciente primero), con su plan si ya está. */
+    public List<SlowQuery> slowQueries() {
+        List<Slow> copy;
+        synchronized (slowLog) {
+            copy = new ArrayList<>(slowLog);
+        }
+        List<SlowQuery> out = new ArrayList<>(copy.size());
+        for (int i = copy.size() - 1; i >= 0; i--) {
+            Slow s = copy.get(i);
+            out.add(new SlowQuery(s.shape(), s.caller(), s.parameters(), s.nanos() / 1e6, plans.get(s.shape())));
+        }
+        return out;
+    }
+
+    public void reset() {
+        byShape.clear();
+        byCaller.clear();
+        synchronized (slowLog) {
+            slowLog.clear();
+        }
+    }
+
+    /** Resumen legible: las {@code limit} formas y métodos más costosos y el log de lentas. */
+    public String report(int limit) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Sentencias (por tiempo total):\n");
+        statements().stream().limit(limit).forEach(s -> line(sb, s, 110));
+        sb.append("Por método de repositorio:\n");
+        repositoryMethods().stream().limit(limit).forEach(s -> line(sb, s, 60));
+        List<SlowQuery> slow = slowQueries();
+        sb.append(String.format("Lentas (>= %d ms): %d%n", slowNanos / 1_000_000, slow.size()));
+        slow.stream().limit(limit).forEach(q -> {
+            sb.append(String.format(Locale.ROOT, " - %.1f ms [%s] %s %s%n", q.millis(), q.caller(),
+                    abbreviate(q.sql(), 110), q.parameters()));
+            if (q.plan() != null) {
+                for (String planLine : q.plan().split("\\R")) sb.append("     ").append(planLine).append('\n');
+            }
+        });
+        return sb.toString();
+    }
+
+    // =========================================================
+    // Internos
+    // =========================================================
+
+    private String shape(String sql) {
+        if (sql == null) return OTHER_SHAPES;
+        String shape = shapeOfSql.get(sql);
+        if (shape != null) return shape;
+        shape = WHITESPACE.matcher(sql).replaceAll(" ").trim();
+        // Un SQL armado con literales generaría formas sin fin: pasado el límite se agrupa
+        if (shapeOfSql.size() >= MAX_SHAPES) return byShape.containsKey(shape) ? shape : OTHER_SHAPES;
+        shapeOfSql.put(sql, shape);
+        return shape;
+    }
+
+    private String caller(Stats shapeStats) {
+        String inherited = inheritedCaller.get();
+        if (inherited != null) return inherited;
+        String pinned = shapeStats.pinnedCaller();
+        if (pinned != null) return pinned;
+        String walked = caller();
+        shapeStats.observeCaller(walked);
+        return walked;
+    }
+
+    private String caller() {
+        String inherited = inheritedCaller.get();
+        if (inherited != null) return inherited;
+        return WALKER.walk(frames -> frames
+                .filter(f -> f.getClassName().startsWith(REPO_PACKAGE) && !f.getMethodName().startsWith("lambda$"))
+                .findFirst()
+                .map(f -> f.getClassName().substring(REPO_PACKAGE.length()) + "." + f.getMethodName())
+                .orElse(NO_REPOSITORY));
+    }
+
+    private void slow(String shape, String sql, String caller, List<Object> parameters, long nanos) {
+        synchronized (slowLog) {
+            if (slowLog.size() == MAX_SLOW_QUERIES) slowLog.removeFirst();
+            slowLog.addLast(new Slow(shape, caller, parameters, nanos));
+        }
+        if (plans.putIfAbsent(shape, PLAN_PENDING) == null) {
+            explainer.execute(() -> plans.put(shape, explain(sql, parameters)));
+        }
+    }
+
+    /** EXPLAIN de H2 con los mismos parámetros, en una conexión propia (no instrumentada). */
+    private static String explain(String sql, List<Object> parameters) {
+        String verb = sql.stripLeading().split("\\s", 2)[0].toUpperCase(Locale.ROOT);
+        if (!List.of("SELECT", "WITH", "INSERT", "UPDATE", "DELETE", "MERGE").contains(verb)) {
+            return "(sin EXPLAIN para " + verb + ")";
+        }
+        try (Connection conn = DataSourceProvider.getDataSource().getConnection();
+             PreparedStatement ps = conn.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < parameters.size(); i++) ps.setObject(i + 1, parameters.get(i));
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) plan.append(rs.getString(1)).append('\n');
+            }
+            return plan.toString().strip();
+        } catch (SQLException e) {
+            return "(EXPLAIN falló: " + e.getMessage() + ")";
+        }
+    }
+
+    private static List<StatementStats> sorted(Map<String, Stats> stats) {
+        List<StatementStats> out = new ArrayList<>(stats.size());
+        stats.forEach((k, s) -> out.add(s.snapshot(k)));
+        out.sort(Comparator.comparingDouble(StatementStats::totalMillis).reversed());
+        return out;
+    }
+
+    private static void line(StringBuilder sb, StatementStats s, int width) {
+        sb.append(String.format(Locale.ROOT, " - %8.1f ms  n=%-6d filas=%-7d upd=%-6d p50=%.2f p99=%.2f max=%.1f  %s%n",
+                s.totalMillis(), s.count(), s.rows(), s.updates(), s.p50Millis(), s.p99Millis(), s.maxMillis(),
+                abbreviate(s.key(), width)));
+    }
+
+    private static String abbreviate(String s, int width) {
+        return s.length() <= width ? s : s.substring(0, width - 3) + "...";
+    }
+}
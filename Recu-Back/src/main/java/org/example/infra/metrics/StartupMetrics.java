@@ -0,0 +1,93 @@
+package org.example.infra.metrics;
+
+import org.example.domain.Album;
+import org.example.domain.Artist;
+import org.example.domain.Composer;
+import org.example.domain.Playlist;
+import org.example.domain.Track;
+import org.example.infra.CsvLoader;
+import org.example.infra.ImportListener;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Hitos del arranque medidos desde que arrancó la JVM: esquema creado, EntityManagerFactory
+ * lista, validación (u omisión) del esquema, primera fila importada y primer reporte.
+ * Cada hito se registra una sola vez; las marcas repetidas se ignoran.
+ */
+public final class StartupMetrics {
+
+    public static final String SCHEMA_CREATED = "esquema creado";
+    public static final String EMF_READY = "EntityManagerFactory lista";
+    public static final String SCHEMA_VALIDATED = "esquema validado";
+    public static final String FIRST_ROW = "primera fila importada";
+    public static final String IMPORT_DONE = "importación terminada";
+    public static final String FIRST_REPORT = "primer reporte";
+
+    private static final StartupMetrics INSTANCE = new StartupMetrics();
+
+    public record Phase(String name, long atMillis, long durationMillis, String detail) { }
+
+    private final long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private final List<Phase> phases = new ArrayList<>();
+
+    private StartupMetrics() {
+    }
+
+    public static StartupMetrics get() {
+        return INSTANCE;
+    }
+
+    /** Registra el hito {@code name} ahora; {@code durationMillis} es lo que tardó la fase (0 si no aplica). */
+    public synchronized void mark(String name, long durationMillis, String detail) {
+        for (Phase p : phases) {
+            if (p.name().equals(name)) return;
+        }
+        phases.add(new Phase(name, System.currentTimeMillis() - jvmStartMillis, durationMillis, detail));
+    }
+
+    public void mark(String name) {
+        mark(name, 0, null);
+    }
+
+    public synchronized List<Phase> phases() {
+        List<Phase> out = new ArrayList<>(phases);
+        out.sort((a, b) -> Long.compare(a.atMillis(), b.atMillis()));
+        return out;
+    }
+
+    /** Milisegundos desde el arranque de la JVM hasta {@code name}, o -1 si todavía no pasó. */
+    public synchronized long millisTo(String name) {
+        for (Phase p : phases) {
+            if (p.name().equals(name)) return p.atMillis();
+        }
+        return -1;
+    }
+
+    /** Marca {@link #FIRST_ROW} con la primera inserción de cualquier entidad, e {@link #IMPORT_DONE} al commit. */
+    public ImportListener importListener() {
+        return new ImportListener() {
+            @Override public void onArtistInserted(Artist artist) { mark(FIRST_ROW); }
+            @Override public void onAlbumInserted(Album album) { mark(FIRST_ROW); }
+            @Override public void onTrackInserted(Track track) { mark(FIRST_ROW); }
+            @Override public void onComposerInserted(Composer composer) { mark(FIRST_ROW); }
+            @Override public void onPlaylistInserted(Playlist playlist) { mark(FIRST_ROW); }
+            @Override public void onPlaylistTrackInserted(Playlist playlist, Track track) { mark(FIRST_ROW); }
+            @Override public void onCommit(CsvLoader.Stats stats) { mark(IMPORT_DONE); }
+        };
+    }
+
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        for (Phase p : phases()) {
+            sb.append(String.format(Locale.ROOT, " - %7d ms  %-28s", p.atMillis(), p.name()));
+            if (p.durationMillis() > 0) sb.append(String.format(" (%d ms)", p.durationMillis()));
+            if (p.detail() != null) sb.append(' ').append(p.detail());
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
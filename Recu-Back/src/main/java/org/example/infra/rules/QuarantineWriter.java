@@ -0,0 +1,49 @@
+package org.example.infra.rules;
+
+import com.opencsv.CSVWriter;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Escribe las filas rechazadas a un CSV de cuarentena a medida que aparecen
+ * (número de fila, regla, campos originales), sin acumularlas en memoria.
+ */
+public class QuarantineWriter implements Closeable {
+
+    private final CSVWriter writer;
+    private long written;
+
+    public QuarantineWriter(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        this.writer = new CSVWriter(out);
+        writer.writeNext(new String[]{"row", "rule", "fields..."}, false);
+    }
+
+    public void write(int rowNumber, String rule, String[] row) {
+        String[] line = new String[2 + (row == null ? 0 : row.length)];
+        line[0] = Integer.toString(rowNumber);
+        line[1] = rule;
+        if (row != null) System.arraycopy(row, 0, line, 2, row.length);
+        writer.writeNext(line);
+        written++;
+    }
+
+    public long written() {
+        return written;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // CSVWriter no propaga errores de E/S en writeNext; se revisan una sola vez al cerrar
+        boolean failed = writer.checkError();
+        writer.close();
+        if (failed) throw new IOException("No se pudo escribir la cuarentena");
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.infra.rules;
+
+/**
+ * Regla de validación sobre una fila cruda del CSV. Las implementaciones no deben
+ * crear objetos cuando la fila es válida (se evalúan una vez por fila importada).
+ */
+public interface RowRule {
+
+    /** Nombre con el que se agregan los descartes y se escribe la cuarentena. */
+    String name();
+
+    /** true si la fila cumple la regla. */
+    boolean test(String[] row);
+
+    /**
+     * Como {@link #test(String[])}, y si la regla parsea un valor lo deja en
+     * {@code values} para que el loader no lo vuelva a leer.
+     */
+    default boolean test(String[] row, RowValues values) {
+        return test(row);
+    }
+}
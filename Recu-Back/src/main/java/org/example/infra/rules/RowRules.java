@@ -0,0 +1,170 @@
+package org.example.infra.rules;
+
+import org.example.domain.Money;
+
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fábricas de reglas comunes. Los chequeos recorren los caracteres del campo sin
+ * recortarlo ni convertirlo a otros objetos, así que una fila válida no genera basura.
+ * {@link #intRange} y {@link #positivePrice} dejan el número leído en {@link RowValues}.
+ */
+public final class RowRules {
+
+    private RowRules() { }
+
+    /** Las columnas indicadas existen y no están en blanco. */
+    public static RowRule required(String name, int... columns) {
+        int[] cols = columns.clone();
+        return rule(name, row -> {
+            for (int col : cols) {
+                if (isBlank(field(row, col))) return false;
+            }
+            return true;
+        });
+    }
+
+    /** La columna es un entero en [min, max] (queda en {@code values}). Un campo vacío no cumple la regla. */
+    public static RowRule intRange(String name, int column, long min, long max) {
+        return parsing(name, (row, values) -> {
+            String value = field(row, column);
+            if (value == null) return false;
+            long parsed = parseLong(value);
+            if (parsed == INVALID || parsed < min || parsed > max) return false;
+            values.put(column, parsed);
+            return true;
+        });
+    }
+
+    /** La columna es un precio (coma o punto decimal) mayor a cero; sus centavos quedan en {@code values}. */
+    public static RowRule positivePrice(String name, int column) {
+        return positivePrice(name, column, Long.MAX_VALUE);
+    }
+
+    /** Como {@link #positivePrice(String, int)}, con a lo sumo {@code maxCents} centavos. */
+    public static RowRule positivePrice(String name, int column, long maxCents) {
+        return parsing(name, (row, values) -> {
+            long cents = Money.parseCents(field(row, column));
+            if (cents == Money.INVALID_CENTS || cents <= 0 || cents > maxCents) return false;
+            values.put(column, cents);
+            return true;
+        });
+    }
+
+    /** Largo (sin espacios en los extremos) como máximo {@code maxLength}; vacío cumple. */
+    public static RowRule maxLength(String name, int column, int maxLength) {
+        return rule(name, row -> {
+            String value = field(row, column);
+            return value == null || trimmedLength(value) <= maxLength;
+        });
+    }
+
+    /**
+     * La columna completa coincide con la expresión. Reutiliza un único Matcher, así
+     * que la regla no es thread-safe (como el loader, se usa desde un solo hilo).
+     */
+    public static RowRule matches(String name, int column, Pattern pattern) {
+        Matcher matcher = pattern.matcher("");
+        return rule(name, row -> {
+            String value = field(row, column);
+            return value != null && matcher.reset(value).matches();
+        });
+    }
+
+    /** Regla arbitraria sobre la fila completa (chequeos entre columnas). */
+    public static RowRule rule(String name, Predicate<String[]> check) {
+        return new RowRule() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public boolean test(String[] row) {
+                return check.test(row);
+            }
+
+            @Override
+            public String toString() {
+                return name;
+            }
+        };
+    }
+
+    // Sin destino para los valores, test(row) los descarta en una instancia por hilo
+    private static final ThreadLocal<RowValues> DISCARDED = ThreadLocal.withInitial(RowValues::new);
+
+    private static RowRule parsing(String name, BiPredicate<String[], RowValues> check) {
+        return new RowRule() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public boolean test(String[] row) {
+                return check.test(row, DISCARDED.get());
+            }
+
+            @Override
+            public boolean test(String[] row, RowValues values) {
+                return check.test(row, values);
+            }
+
+            @Override
+            public String toString() {
+                return name;
+            }
+        };
+    }
+
+    // =========================================================
+    // Utilidades sin asignaciones
+    // =========================================================
+
+    private static final long INVALID = Long.MIN_VALUE;
+
+    static String field(String[] row, int column) {
+        return row == null || column >= row.length ? null : row[column];
+    }
+
+    static boolean isBlank(String value) {
+        if (value == null) return true;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > ' ') return false;
+        }
+        return true;
+    }
+
+    private static int trimmedLength(String value) {
+        int start = 0, end = value.length();
+        while (start < end && value.charAt(start) <= ' ') start++;
+        while (end > start && value.charAt(end - 1) <= ' ') end--;
+        return end - start;
+    }
+
+    /** Entero con signo opcional y espacios en los extremos; INVALID si no es un entero de hasta 18 dígitos. */
+    private static long parseLong(String value) {
+        int start = 0, end = value.length();
+        while (start < end && value.charAt(start) <= ' ') start++;
+        while (end > start && value.charAt(end - 1) <= ' ') end--;
+        if (start == end) return INVALID;
+        boolean negative = false;
+        char first = value.charAt(start);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            start++;
+        }
+        if (start == end || end - start > 18) return INVALID;
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') return INVALID;
+            result = result * 10 + (c - '0');
+        }
+        return negative ? -result : result;
+    }
+}
@@ -0,0 +1,34 @@
+package org.example.infra.rules;
+
+/**
+ * Valores numéricos que las reglas dejan parseados al validar una fila (por columna),
+ * así el loader no vuelve a parsear lo que la regla ya leyó. Se reutiliza entre filas
+ * con {@link #clear()}; no es thread-safe (una instancia por hilo).
+ */
+public final class RowValues {
+
+    private static final int MAX_COLUMNS = 64;
+
+    private final long[] values = new long[MAX_COLUMNS];
+    private long present;
+
+    public void clear() {
+        present = 0;
+    }
+
+    public void put(int column, long value) {
+        if (column >= MAX_COLUMNS) return;
+        values[column] = value;
+        present |= 1L << column;
+    }
+
+    /** true si alguna regla dejó el valor de la columna. */
+    public boolean has(int column) {
+        return column < MAX_COLUMNS && (present & (1L << column)) != 0;
+    }
+
+    public long get(int column) {
+        if (!has(column)) throw new IllegalStateException("ninguna regla parseó la columna " + column);
+        return values[column];
+    }
+}
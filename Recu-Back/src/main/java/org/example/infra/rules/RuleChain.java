@@ -0,0 +1,92 @@
+package org.example.infra.rules;
+
+import java.util.List;
+
+/**
+ * Cadena ordenada de reglas, compilada a un array. {@link #firstFailure} evalúa en
+ * orden y corta en la primera regla que falla.
+ */
+public final class RuleChain {
+
+    public static final String REQUIRED_FIELDS = "campos obligatorios incompletos";
+    public static final String INVALID_DURATION = "duración inválida";
+    public static final String INVALID_BYTES = "bytes inválidos";
+    public static final String INVALID_PRICE = "precio inválido";
+    public static final String FIELD_TOO_LONG = "texto más largo que la columna";
+
+    // NUMERIC(10, 2) de TRACKS.UNIT_PRICE
+    private static final long MAX_PRICE_CENTS = 99_999_999_99L;
+
+    private final RowRule[] rules;
+
+    private RuleChain(RowRule[] rules) {
+        this.rules = rules;
+    }
+
+    public static RuleChain of(RowRule... rules) {
+        return new RuleChain(rules.clone());
+    }
+
+    public static RuleChain of(List<RowRule> rules) {
+        return new RuleChain(rules.toArray(new RowRule[0]));
+    }
+
+    /**
+     * Reglas por defecto del formato playlists.csv (las mismas validaciones que hacía
+     * CsvLoader): todos los campos obligatorios, duración entera positiva, bytes
+     * enteros (los negativos se corrigen luego a null) y precio positivo. Los loaders
+     * toman duración, bytes y precio de lo que parsean estas reglas, así que una cadena
+     * propia tiene que partir de acá ({@code defaults().then(...)}).
+     *
+     * También rechazan lo que la base no aceptaría (textos más largos que su columna,
+     * precios fuera de NUMERIC(10, 2)): los loaders escriben al hacer flush, donde un
+     * error ya no es de una fila sino de toda la importación.
+     */
+    public static RuleChain defaults() {
+        return of(
+                RowRules.required(REQUIRED_FIELDS, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9),
+                RowRules.intRange(INVALID_DURATION, 3, 1, Integer.MAX_VALUE),
+                RowRules.intRange(INVALID_BYTES, 4, Integer.MIN_VALUE, Integer.MAX_VALUE),
+                RowRules.positivePrice(INVALID_PRICE, 5, MAX_PRICE_CENTS),
+                RowRules.maxLength(FIELD_TOO_LONG, 0, 120),  // PLAYLISTS.NAME
+                RowRules.maxLength(FIELD_TOO_LONG, 1, 200),  // TRACKS.NAME
+                RowRules.maxLength(FIELD_TOO_LONG, 2, 220),  // TRACKS.COMPOSER
+                RowRules.maxLength(FIELD_TOO_LONG, 6, 160),  // ALBUMS.TITLE
+                RowRules.maxLength(FIELD_TOO_LONG, 7, 120),  // ARTISTS.NAME
+                RowRules.maxLength(FIELD_TOO_LONG, 8, 120),  // GENRES.NAME
+                RowRules.maxLength(FIELD_TOO_LONG, 9, 120)); // MEDIA_TYPES.NAME
+    }
+
+    /** Agrega reglas al final (por ejemplo, reglas propias de un feed sobre las de defecto). */
+    public RuleChain then(RowRule... more) {
+        RowRule[] all = new RowRule[rules.length + more.length];
+        System.arraycopy(rules, 0, all, 0, rules.length);
+        System.arraycopy(more, 0, all, rules.length, more.length);
+        return new RuleChain(all);
+    }
+
+    /** Índice de la primera regla que falla, o -1 si la fila es válida. */
+    public int firstFailure(String[] row) {
+        for (int i = 0; i < rules.length; i++) {
+            if (!rules[i].test(row)) return i;
+        }
+        return -1;
+    }
+
+    /** Como {@link #firstFailure(String[])}, dejando en {@code values} lo que parseen las reglas. */
+    public int firstFailure(String[] row, RowValues values) {
+        values.clear();
+        for (int i = 0; i < rules.length; i++) {
+            if (!rules[i].test(row, values)) return i;
+        }
+        return -1;
+    }
+
+    public RowRule rule(int index) {
+        return rules[index];
+    }
+
+    public int size() {
+        return rules.length;
+    }
+}
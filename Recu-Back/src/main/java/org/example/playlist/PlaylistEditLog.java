@@ -0,0 +1,156 @@
+package org.example.playlist;
+
+import org.example.infra.journal.Change;
+import org.example.infra.journal.ChangeJournal;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Write-ahead log de {@link PlaylistEditService}: segmentos {@link ChangeJournal}
+ * {@code playlist-edits-<n>.wal} en un directorio, con group commit y fsync del journal.
+ *
+ * <pre>
+ * Playlist      INSERT | UPDATE  id = playlist             {name}
+ * PlaylistTrack INSERT | DELETE  id = (playlist << 32) | track
+ * Checkpoint    UPDATE           id = seq: lo del segmento hasta seq ya está en la base
+ * </pre>
+ *
+ * Un segmento se retira (se cierra y se empieza otro) cuando supera su tamaño máximo, y
+ * se borra cuando un flush confirma todo lo que tenía. No es thread-safe: el servicio
+ * agrega bajo su lock de lectura y rota bajo el de escritura.
+ */
+final class PlaylistEditLog implements AutoCloseable {
+
+    static final String PLAYLIST = "Playlist";
+    static final String PLAYLIST_TRACK = "PlaylistTrack";
+    static final String CHECKPOINT = "Checkpoint";
+
+    private static final Pattern SEGMENT = Pattern.compile("playlist-edits-(\\d+)\\.wal");
+
+    private final Path directory;
+    private final Duration groupCommit;
+    // Las estadísticas leen el tamaño sin tomar los locks del servicio
+    private final List<ChangeJournal> retired = new CopyOnWriteArrayList<>();
+    private volatile ChangeJournal current;
+    private long number;
+    // Último checkpoint anotado, para no agregar otro si desde entonces no llegó nada
+    private Mark checkpoint;
+
+    private PlaylistEditLog(Path directory, Duration groupCommit, long number) throws IOException {
+        this.directory = directory;
+        this.groupCommit = groupCommit;
+        this.number = number;
+        this.current = ChangeJournal.open(segment(number), groupCommit);
+    }
+
+    /** Registros de los segmentos que quedaron en el directorio, sin los ya confirmados. */
+    record Recovered(List<Change> changes, List<Path> segments, long lastNumber) { }
+
+    /** Lee los segmentos existentes en orden; no los modifica. */
+    static Recovered recover(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Matcher m = SEGMENT.matcher(file.getFileName().toString());
+                if (m.matches()) segments.put(Long.parseLong(m.group(1)), file);
+            }
+        }
+        List<Change> changes = new ArrayList<>();
+        for (Path file : segments.values()) {
+            // open() valida los registros y corta una cola incompleta por una caída a mitad de write
+            try (ChangeJournal journal = ChangeJournal.open(file); ChangeJournal.Tail tail = journal.tail(0)) {
+                List<Change> segment = new ArrayList<>();
+                for (Change c = tail.poll(); c != null; c = tail.poll()) {
+                    if (CHECKPOINT.equals(c.entity())) {
+                        long upTo = c.id();
+                        segment.removeIf(s -> s.sequence() <= upTo);
+                    } else {
+                        segment.add(c);
+                    }
+                }
+                changes.addAll(segment);
+            }
+        }
+        return new Recovered(changes, List.copyOf(segments.values()),
+                segments.isEmpty() ? 0 : segments.lastKey());
+    }
+
+    /** Empieza un segmento nuevo después de {@code lastNumber}. */
+    static PlaylistEditLog open(Path directory, long lastNumber, Duration groupCommit) throws IOException {
+        return new PlaylistEditLog(directory, groupCommit, lastNumber + 1);
+    }
+
+    /** Segmento al que van los registros nuevos (para esperar su fsync). */
+    ChangeJournal current() {
+        return current;
+    }
+
+    long playlist(Change.Op op, int playlistId, String name) {
+        return current.append(op, PLAYLIST, playlistId, Map.of("name", name));
+    }
+
+    long link(Change.Op op, int playlistId, int trackId) {
+        return current.append(op, PLAYLIST_TRACK, linkId(playlistId, trackId), Map.of());
+    }
+
+    static long linkId(int playlistId, int trackId) {
+        return ((long) playlistId << 32) | (trackId & 0xFFFFFFFFL);
+    }
+
+    /** Hasta dónde llega el log: último registro del segmento actual. */
+    record Mark(ChangeJournal segment, long sequence) { }
+
+    Mark mark() {
+        return new Mark(current, current.lastSequence());
+    }
+
+    /** Cierra el segmento actual y abre otro si pasó {@code maxBytes}; true si rotó. */
+    boolean rotateIfLarger(long maxBytes) throws IOException {
+        if (current.sizeBytes() < maxBytes) return false;
+        // close() deja en disco lo pendiente, así que las esperas de fsync sobre él terminan
+        current.close();
+        retired.add(current);
+        current = ChangeJournal.open(segment(++number), groupCommit);
+        return true;
+    }
+
+    /**
+     * Todo lo anterior a {@code mark} (incluidos los segmentos retirados) ya está en la
+     * base: borra los retirados y, si el segmento de la marca sigue siendo el actual,
+     * anota un checkpoint para que la recuperación no lo vuelva a aplicar.
+     */
+    void confirmed(Mark mark) throws IOException {
+        for (ChangeJournal segment : retired) Files.deleteIfExists(segment.file());
+        retired.clear();
+        if (mark.segment() == current && mark.sequence() > 0 && !mark.equals(checkpoint)) {
+            checkpoint = new Mark(current, current.append(Change.Op.UPDATE, CHECKPOINT, mark.sequence(), Map.of()));
+        }
+    }
+
+    long sizeBytes() {
+        long bytes = current.sizeBytes();
+        for (ChangeJournal segment : retired) bytes += segment.sizeBytes();
+        return bytes;
+    }
+
+    private Path segment(long n) {
+        return directory.resolve(String.format("playlist-edits-%06d.wal", n));
+    }
+
+    @Override
+    public void close() throws IOException {
+        current.close();
+    }
+}
@@ -0,0 +1,560 @@
+package org.example.playlist;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.infra.PlaylistTrackShards;
+import org.example.infra.journal.Change;
+import org.example.infra.journal.ChangeJournal;
+import org.example.infra.journal.SessionChanges;
+import org.example.util.IntList;
+import org.example.util.IntSet;
+import org.hibernate.Session;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Edición de playlists con escritura diferida. Cada edición (alta, renombre, agregar o
+ * quitar tracks) se anota en un WAL local ({@link PlaylistEditLog}), se aplica a la vista
+ * en memoria de la playlist y se confirma apenas el WAL hace fsync (group commit, así que
+ * muchos usuarios concurrentes comparten cada fsync). La base se actualiza después: un
+ * hilo junta lo pendiente de todas las playlists cada {@code flushInterval} (o antes si
+ * se acumulan {@code maxPendingOps}) y lo escribe en una transacción con batches JDBC
+ * por partición de PLAYLIST_TRACK.
+ *
+ * Lo pendiente se guarda como diferencia contra la base, así que las ediciones que se
+ * anulan no llegan a escribirse (agregar y quitar el mismo track, renombrar dos veces).
+ * Una playlist es un conjunto de tracks: agregar uno que ya está no hace nada.
+ *
+ * Si el proceso se cae, al abrir de nuevo sobre el mismo directorio se aplica a la base
+ * lo del WAL posterior al último flush confirmado. Las vistas se cargan de la base la
+ * primera vez que se usa cada playlist y desde ahí mandan: las escrituras a PLAYLIST_TRACK
+ * hechas por fuera del servicio sobre esas playlists no se ven hasta reabrirlo.
+ */
+public class PlaylistEditService implements AutoCloseable {
+
+    public static final int MAX_NAME_LENGTH = 120;
+
+    /**
+     * @param flushInterval cada cuánto se escribe lo pendiente en la base
+     * @param maxPendingOps con tantas operaciones pendientes el flush se adelanta
+     * @param segmentBytes  tamaño a partir del cual el flush empieza otro segmento del WAL
+     * @param groupCommit   ventana del group commit del WAL
+     * @param durableAcks   si las ediciones esperan el fsync del WAL antes de volver
+     */
+    public record Options(Duration flushInterval, int maxPendingOps, long segmentBytes, Duration groupCommit,
+                          boolean durableAcks) {
+
+        public static final Options DEFAULT =
+                new Options(Duration.ofMillis(200), 50_000, 64L << 20, Duration.ofMillis(2), true);
+    }
+
+    /** Estado de una playlist según la vista (incluye lo que todavía no se escribió). */
+    public record Snapshot(int playlistId, String name, int[] trackIds) { }
+
+    /**
+     * @param edits     ediciones que cambiaron alguna vista
+     * @param noops     ediciones sin efecto (agregar un track que ya estaba, etc.)
+     * @param written   operaciones que llegaron a la base (filas y nombres)
+     * @param rejected  altas que la base no aceptó porque el track ya no existía
+     * @param recovered registros del WAL reaplicados al abrir
+     */
+    public record Stats(long edits, long noops, long flushes, long flushFailures, long written, long rejected,
+                        long pendingOps, int playlists, long walBytes, long recovered) {
+
+        /** Ediciones por operación escrita: cuánto ahorró la coalescencia. */
+        public double coalescing() {
+            return written == 0 ? 0 : (double) edits / written;
+        }
+    }
+
+    private final EntityManagerFactory emf;
+    private final Options options;
+    private final PlaylistEditLog log;
+    private final long recovered;
+    private final Map<Integer, PlaylistState> playlists = new ConcurrentHashMap<>();
+    private final Set<Integer> knownTracks = ConcurrentHashMap.newKeySet();
+    private final ConcurrentLinkedQueue<PlaylistState> dirty = new ConcurrentLinkedQueue<>();
+    // Lectura: cada edición (WAL + vista + pendiente). Escritura: el flush, que así retira
+    // lo pendiente en un corte que coincide exactamente con una posición del WAL
+    private final ReentrantReadWriteLock cut = new ReentrantReadWriteLock();
+    private final Object flushing = new Object();
+    private final Thread flusher;
+    private final AtomicLong pendingOps = new AtomicLong();
+    private final LongAdder edits = new LongAdder();
+    private final LongAdder noops = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile boolean closed;
+
+    private PlaylistEditService(EntityManagerFactory emf, Options options, PlaylistEditLog log, long recovered) {
+        this.emf = emf;
+        this.options = options;
+        this.log = log;
+        this.recovered = recovered;
+        this.flusher = new Thread(this::flushLoop, "playlist-edit-flusher");
+        flusher.setDaemon(true);
+    }
+
+    public static PlaylistEditService open(EntityManagerFactory emf, Path walDirectory) throws IOException {
+        return open(emf, walDirectory, Options.DEFAULT);
+    }
+
+    /**
+     * Abre el servicio sobre {@code walDirectory} (un solo servicio por directorio). Si
+     * quedaron ediciones sin escribir de una ejecución anterior, primero las aplica.
+     */
+    public static PlaylistEditService open(EntityManagerFactory emf, Path walDirectory, Options options)
+            throws IOException {
+        PlaylistEditLog.Recovered previous = PlaylistEditLog.recover(walDirectory);
+        if (!previous.changes().isEmpty()) write(emf, Batch.replay(previous.changes()));
+        PlaylistEditLog log = PlaylistEditLog.open(walDirectory, previous.lastNumber(), options.groupCommit());
+        for (Path segment : previous.segments()) Files.deleteIfExists(segment);
+        PlaylistEditService service = new PlaylistEditService(emf, options, log, previous.changes().size());
+        service.flusher.start();
+        return service;
+    }
+
+    // =========================================================
+    // Ediciones
+    // =========================================================
+
+    /** Crea una playlist vacía y devuelve su id (tomado de SEQ_PLAYLIST_ID). */
+    public int create(String name) {
+        String clean = validName(name);
+        int playlistId = nextPlaylistId();
+        PlaylistState state = PlaylistState.created(playlistId, clean);
+        ChangeJournal segment;
+        long seq;
+        cut.readLock().lock();
+        try {
+            ensureOpen();
+            synchronized (state) {
+                segment = log.current();
+                seq = log.playlist(Change.Op.INSERT, playlistId, clean);
+                pending(state, 1);
+            }
+            playlists.put(playlistId, state);
+        } finally {
+            cut.readLock().unlock();
+        }
+        acknowledge(segment, seq);
+        return playlistId;
+    }
+
+    /** false si ya se llamaba así. */
+    public boolean rename(int playlistId, String name) {
+        String clean = validName(name);
+        PlaylistState state = state(playlistId);
+        ChangeJournal segment;
+        long seq;
+        cut.readLock().lock();
+        try {
+            ensureOpen();
+            synchronized (state) {
+                if (clean.equals(state.name())) {
+                    noops.increment();
+                    return false;
+                }
+                segment = log.current();
+                seq = log.playlist(Change.Op.UPDATE, playlistId, clean);
+                state.rename(clean);
+                pending(state, 1);
+            }
+        } finally {
+            cut.readLock().unlock();
+        }
+        acknowledge(segment, seq);
+        return true;
+    }
+
+    /** false si el track ya estaba en la playlist. */
+    public boolean add(int playlistId, int trackId) {
+        return addAll(playlistId, new int[]{trackId}) > 0;
+    }
+
+    /** Agrega los tracks que no estaban (un solo fsync para todos); devuelve cuántos agregó. */
+    public int addAll(int playlistId, int[] trackIds) {
+        requireTracks(trackIds);
+        PlaylistState state = state(playlistId);
+        ChangeJournal segment;
+        long seq = 0;
+        int added = 0;
+        cut.readLock().lock();
+        try {
+            ensureOpen();
+            synchronized (state) {
+                segment = log.current();
+                for (int trackId : trackIds) {
+                    if (state.contains(trackId)) continue;
+                    seq = log.link(Change.Op.INSERT, playlistId, trackId);
+                    state.add(trackId);
+                    added++;
+                }
+                if (added > 0) pending(state, added);
+            }
+        } finally {
+            cut.readLock().unlock();
+        }
+        noops.add(trackIds.length - added);
+        if (added > 0) acknowledge(segment, seq);
+        return added;
+    }
+
+    /** false si el track no estaba en la playlist. */
+    public boolean remove(int playlistId, int trackId) {
+        PlaylistState state = state(playlistId);
+        ChangeJournal segment;
+        long seq;
+        cut.readLock().lock();
+        try {
+            ensureOpen();
+            synchronized (state) {
+                if (!state.contains(trackId)) {
+                    noops.increment();
+                    return false;
+                }
+                segment = log.current();
+                seq = log.link(Change.Op.DELETE, playlistId, trackId);
+                state.remove(trackId);
+                pending(state, 1);
+            }
+        } finally {
+            cut.readLock().unlock();
+        }
+        acknowledge(segment, seq);
+        return true;
+    }
+
+    /** La playlist según la vista, con los tracks ordenados por id. */
+    public Snapshot get(int playlistId) {
+        PlaylistState state = state(playlistId);
+        synchronized (state) {
+            return new Snapshot(playlistId, state.name(), state.tracks());
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(edits.sum(), noops.sum(), flushes.sum(), flushFailures.sum(), written.sum(),
+                rejected.sum(), pendingOps.get(), playlists.size(), log.sizeBytes(), recovered);
+    }
+
+    private void pending(PlaylistState state, int operations) {
+        edits.add(operations);
+        if (state.markDirty()) dirty.add(state);
+        long before = pendingOps.getAndAdd(operations);
+        if (before < options.maxPendingOps() && before + operations >= options.maxPendingOps()) {
+            LockSupport.unpark(flusher);
+        }
+    }
+
+    private void acknowledge(ChangeJournal segment, long seq) {
+        if (!options.durableAcks()) return;
+        try {
+            segment.awaitDurable(seq);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando el fsync del WAL", e);
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) throw new IllegalStateException("Servicio de edición de playlists cerrado");
+    }
+
+    private static String validName(String name) {
+        String clean = name == null ? "" : name.trim();
+        if (clean.isEmpty()) throw new IllegalArgumentException("Nombre de playlist vacío");
+        if (clean.length() > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("Nombre de playlist de más de " + MAX_NAME_LENGTH + " caracteres");
+        }
+        return clean;
+    }
+
+    // =========================================================
+    // Lecturas de la base
+    // =========================================================
+
+    private PlaylistState state(int playlistId) {
+        PlaylistState state = playlists.get(playlistId);
+        if (state != null) return state;
+        // Fuera del mapa no hay nada pendiente, así que la base está al día para esta playlist
+        PlaylistState loaded = load(playlistId);
+        PlaylistState raced = playlists.putIfAbsent(playlistId, loaded);
+        return raced != null ? raced : loaded;
+    }
+
+    private PlaylistState load(int playlistId) {
+        try (EntityManager em = emf.createEntityManager()) {
+            return em.unwrap(Session.class).doReturningWork(conn -> {
+                String name;
+                try (PreparedStatement ps = conn.prepareStatement("SELECT NAME FROM PLAYLISTS WHERE PLAYLIST_ID = ?")) {
+                    ps.setInt(1, playlistId);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (!rs.next()) throw new IllegalArgumentException("Playlist inexistente: " + playlistId);
+                        name = rs.getString(1);
+                    }
+                }
+                IntSet tracks = new IntSet();
+                try (PreparedStatement ps = conn.prepareStatement("SELECT TRACK_ID FROM "
+                        + PlaylistTrackShards.tableFor(playlistId) + " WHERE PLAYLIST_ID = ?")) {
+                    ps.setInt(1, playlistId);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) tracks.add(rs.getInt(1));
+                    }
+                }
+                return new PlaylistState(playlistId, name, tracks);
+            });
+        }
+    }
+
+    /** Falla si algún track no existe; los ya vistos no se vuelven a consultar. */
+    private void requireTracks(int[] trackIds) {
+        IntList unknown = new IntList();
+        for (int trackId : trackIds) {
+            if (!knownTracks.contains(trackId)) unknown.add(trackId);
+        }
+        if (unknown.size() == 0) return;
+        try (EntityManager em = emf.createEntityManager()) {
+            em.unwrap(Session.class).doWork(conn -> {
+                Object[] ids = new Object[unknown.size()];
+                for (int i = 0; i < ids.length; i++) ids[i] = unknown.get(i);
+                Array array = conn.createArrayOf("INTEGER", ids);
+                try (PreparedStatement ps = conn.prepareStatement("SELECT TRACK_ID FROM TRACKS WHERE TRACK_ID = ANY(?)")) {
+                    ps.setArray(1, array);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) knownTracks.add(rs.getInt(1));
+                    }
+                } finally {
+                    array.free();
+                }
+            });
+        }
+        for (int i = 0; i < unknown.size(); i++) {
+            if (!knownTracks.contains(unknown.get(i))) {
+                throw new IllegalArgumentException("Track inexistente: " + unknown.get(i));
+            }
+        }
+    }
+
+    private int nextPlaylistId() {
+        try (EntityManager em = emf.createEntityManager()) {
+            return em.unwrap(Session.class).doReturningWork(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement("SELECT NEXT VALUE FOR SEQ_PLAYLIST_ID");
+                     ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    return rs.getInt(1);
+                }
+            });
+        }
+    }
+
+    // =========================================================
+    // Flush
+    // =========================================================
+
+    /**
+     * Escribe en la base todo lo pendiente hasta ahora. Si falla, lo pendiente vuelve a
+     * su lugar (compuesto con lo que llegó mientras tanto) y el próximo flush lo reintenta.
+     */
+    public void flush() {
+        synchronized (flushing) {
+            List<PlaylistState.Delta> deltas = new ArrayList<>();
+            PlaylistEditLog.Mark mark;
+            cut.writeLock().lock();
+            try {
+                for (PlaylistState state; (state = dirty.poll()) != null; ) {
+                    synchronized (state) {
+                        PlaylistState.Delta delta = state.take();
+                        if (delta != null) deltas.add(delta);
+                    }
+                }
+                pendingOps.set(0);
+                mark = log.mark();
+                log.rotateIfLarger(options.segmentBytes());
+            } catch (IOException e) {
+                restore(deltas);
+                throw new UncheckedIOException("No se pudo rotar el WAL de playlists", e);
+            } finally {
+                cut.writeLock().unlock();
+            }
+
+            if (!deltas.isEmpty()) {
+                Batch batch = Batch.of(deltas);
+                try {
+                    int inserted = write(emf, batch);
+                    flushes.increment();
+                    written.add(batch.operations());
+                    rejected.add(batch.addPlaylists.size() - inserted);
+                } catch (RuntimeException e) {
+                    flushFailures.increment();
+                    restore(deltas);
+                    throw e;
+                }
+            }
+            try {
+                log.confirmed(mark);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudieron borrar segmentos del WAL de playlists", e);
+            }
+        }
+    }
+
+    private void restore(List<PlaylistState.Delta> deltas) {
+        for (PlaylistState.Delta delta : deltas) {
+            PlaylistState state = delta.state();
+            synchronized (state) {
+                state.restore(delta);
+                if (state.markDirty()) dirty.add(state);
+            }
+            pendingOps.addAndGet(delta.operations());
+        }
+    }
+
+    private void flushLoop() {
+        long interval = options.flushInterval().toNanos();
+        while (!closed) {
+            LockSupport.parkNanos(this, interval);
+            if (closed) return;
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                System.err.println("[WARN] Flush de playlists falló, se reintenta: " + e.getMessage());
+            }
+        }
+    }
+
+    /** Lo que se escribe en una transacción: nombres y pares (playlist, track) a agregar o quitar. */
+    private static final class Batch {
+        final Map<Integer, String> created = new LinkedHashMap<>();
+        final Map<Integer, String> renamed = new LinkedHashMap<>();
+        final IntList addPlaylists = new IntList();
+        final IntList addTracks = new IntList();
+        final IntList removePlaylists = new IntList();
+        final IntList removeTracks = new IntList();
+
+        static Batch of(List<PlaylistState.Delta> deltas) {
+            Batch batch = new Batch();
+            for (PlaylistState.Delta delta : deltas) {
+                int playlistId = delta.state().playlistId;
+                if (delta.created()) {
+                    batch.created.put(playlistId, delta.name());
+                } else if (delta.name() != null) {
+                    batch.renamed.put(playlistId, delta.name());
+                }
+                delta.adds().forEach(t -> batch.link(playlistId, t, true));
+                delta.removes().forEach(t -> batch.link(playlistId, t, false));
+            }
+            return batch;
+        }
+
+        /** Registros del WAL en orden; de cada par y de cada nombre queda lo último. */
+        static Batch replay(List<Change> changes) {
+            Batch batch = new Batch();
+            Map<Long, Change.Op> links = new LinkedHashMap<>();
+            for (Change c : changes) {
+                if (PlaylistEditLog.PLAYLIST.equals(c.entity())) {
+                    int playlistId = (int) c.id();
+                    String name = (String) c.columns().get("name");
+                    if (c.op() == Change.Op.INSERT || batch.created.containsKey(playlistId)) {
+                        batch.created.put(playlistId, name);
+                    } else {
+                        batch.renamed.put(playlistId, name);
+                    }
+                } else if (PlaylistEditLog.PLAYLIST_TRACK.equals(c.entity())) {
+                    links.put(c.id(), c.op());
+                }
+            }
+            links.forEach((id, op) -> batch.link((int) (id >>> 32), (int) (long) id, op == Change.Op.INSERT));
+            return batch;
+        }
+
+        private void link(int playlistId, int trackId, boolean add) {
+            (add ? addPlaylists : removePlaylists).add(playlistId);
+            (add ? addTracks : removeTracks).add(trackId);
+        }
+
+        int operations() {
+            return created.size() + renamed.size() + addPlaylists.size() + removePlaylists.size();
+        }
+    }
+
+    /**
+     * Escribe el batch en una transacción; devuelve cuántas altas insertó. Todas las
+     * sentencias son idempotentes (MERGE, DELETE, INSERT si falta) para poder reaplicar
+     * el WAL sobre una base que ya tenía parte de esos cambios.
+     */
+    private static int write(EntityManagerFactory emf, Batch batch) {
+        try (EntityManager em = emf.createEntityManager()) {
+            Session session = em.unwrap(Session.class);
+            var tx = em.getTransaction();
+            tx.begin();
+            try {
+                SessionChanges changes = SessionChanges.begin(session);
+                int inserted = session.doReturningWork(conn -> {
+                    if (!batch.created.isEmpty() || !batch.renamed.isEmpty()) {
+                        try (PreparedStatement ps = conn.prepareStatement(
+                                "MERGE INTO PLAYLISTS (PLAYLIST_ID, NAME) KEY (PLAYLIST_ID) VALUES (?, ?)")) {
+                            for (Map<Integer, String> names : List.of(batch.created, batch.renamed)) {
+                                for (Map.Entry<Integer, String> e : names.entrySet()) {
+                                    ps.setInt(1, e.getKey());
+                                    ps.setString(2, e.getValue());
+                                    ps.addBatch();
+                                }
+                            }
+                            ps.executeBatch();
+                        }
+                    }
+                    PlaylistTrackShards.delete(conn, batch.removePlaylists, batch.removeTracks);
+                    return PlaylistTrackShards.insertMissing(conn, batch.addPlaylists, batch.addTracks);
+                });
+                batch.created.forEach((id, name) -> changes.playlist(Change.Op.INSERT, id, name));
+                batch.renamed.forEach((id, name) -> changes.playlist(Change.Op.UPDATE, id, name));
+                changes.unlinked(batch.removePlaylists, batch.removeTracks);
+                changes.linked(batch.addPlaylists, batch.addTracks);
+                tx.commit();
+                return inserted;
+            } catch (RuntimeException e) {
+                if (tx.isActive()) tx.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /** Detiene el flush periódico, escribe lo pendiente y cierra el WAL. */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flush();
+        } finally {
+            log.close();
+        }
+    }
+}
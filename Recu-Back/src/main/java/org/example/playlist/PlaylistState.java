@@ -0,0 +1,116 @@
+package org.example.playlist;
+
+import org.example.util.IntSet;
+
+/**
+ * Vista en memoria de una playlist más lo que todavía no se escribió en la base, como
+ * diferencia contra lo último confirmado: un alta cancela una baja pendiente del mismo
+ * track y viceversa, y de los renombres queda el último. Todo se accede bajo el monitor
+ * de la instancia.
+ */
+final class PlaylistState {
+
+    /** Lo pendiente de una playlist, retirado por el flush. */
+    record Delta(PlaylistState state, boolean created, String name, IntSet adds, IntSet removes) {
+
+        int operations() {
+            return (created || name != null ? 1 : 0) + adds.size() + removes.size();
+        }
+    }
+
+    final int playlistId;
+    private String name;
+    private final IntSet tracks;
+
+    private boolean created;
+    private String pendingName;
+    private IntSet adds = new IntSet();
+    private IntSet removes = new IntSet();
+    private boolean dirty;
+
+    PlaylistState(int playlistId, String name, IntSet tracks) {
+        this.playlistId = playlistId;
+        this.name = name;
+        this.tracks = tracks;
+    }
+
+    /** Playlist nueva, todavía no escrita. */
+    static PlaylistState created(int playlistId, String name) {
+        PlaylistState state = new PlaylistState(playlistId, name, new IntSet());
+        state.created = true;
+        state.pendingName = name;
+        return state;
+    }
+
+    String name() {
+        return name;
+    }
+
+    int[] tracks() {
+        return tracks.toSortedArray();
+    }
+
+    int size() {
+        return tracks.size();
+    }
+
+    boolean contains(int trackId) {
+        return tracks.contains(trackId);
+    }
+
+    /** false si el track ya estaba. */
+    boolean add(int trackId) {
+        if (!tracks.add(trackId)) return false;
+        if (!removes.remove(trackId)) adds.add(trackId);
+        return true;
+    }
+
+    /** false si el track no estaba. */
+    boolean remove(int trackId) {
+        if (!tracks.remove(trackId)) return false;
+        if (!adds.remove(trackId)) removes.add(trackId);
+        return true;
+    }
+
+    /** false si ya se llamaba así. */
+    boolean rename(String newName) {
+        if (newName.equals(name)) return false;
+        name = newName;
+        pendingName = newName;
+        return true;
+    }
+
+    /** Marca la playlist como pendiente de flush; true si no lo estaba. */
+    boolean markDirty() {
+        if (dirty) return false;
+        dirty = true;
+        return true;
+    }
+
+    /** Retira lo pendiente (null si al final no quedó nada que escribir). */
+    Delta take() {
+        dirty = false;
+        if (!created && pendingName == null && adds.isEmpty() && removes.isEmpty()) return null;
+        Delta delta = new Delta(this, created, pendingName, adds, removes);
+        created = false;
+        pendingName = null;
+        adds = new IntSet();
+        removes = new IntSet();
+        return delta;
+    }
+
+    /**
+     * Devuelve al pendiente un delta que no se pudo escribir, compuesto con lo que llegó
+     * después: se aplica como si esas ediciones hubieran pasado antes que las nuevas.
+     */
+    void restore(Delta delta) {
+        created |= delta.created();
+        if (pendingName == null) pendingName = delta.name();
+        delta.adds().forEach(t -> {
+            if (!removes.remove(t)) adds.add(t);
+        });
+        delta.removes().forEach(t -> {
+            if (!adds.remove(t)) removes.add(t);
+        });
+    }
+}
@@ -4,6 +4,7 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
 import org.example.domain.Album;
 import org.example.domain.Artist;
+import org.example.infra.ReferenceDataCache;
 
 import java.util.List;
 
@@ -14,14 +15,15 @@ public class AlbumRepository {
 
     public Album findById(Integer id){ //busca por PK
         if (id == null) return null;
-        TypedQuery<Album> q = em.createQuery(
-                "SELECT a FROM Album a WHERE a.albumId = :id", Album.class);
-        q.setParameter("id", id);
-        try { return q.getSingleResult();
-        } catch (Exception e) { return null; }
+        return em.find(Album.class, id);
     }
 
     public Album findByTitle(String title){ //busca por titulo
+        if (title == null) return null;
+        return ReferenceDataCache.get().findByName(em, Album.class, title, this::queryByTitle, Album::getTitle);
+    }
+
+    private Album queryByTitle(String title){
         TypedQuery<Album> q = em.createQuery(
                 "SELECT a FROM Album a WHERE UPPER(a.title) = :title", Album.class);
         q.setParameter("title", title.trim().toUpperCase());
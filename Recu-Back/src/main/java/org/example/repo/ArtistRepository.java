@@ -3,14 +3,23 @@ package org.example.repo;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
 import org.example.domain.Artist;
+import org.example.infra.ReferenceDataCache;
 
 public class ArtistRepository {
     private final EntityManager em;
 
     public ArtistRepository(EntityManager em) { this.em = em; }
 
+    public Artist findById(Integer id) {
+        return id == null ? null : em.find(Artist.class, id);
+    }
+
     public Artist findbyName(String name) {
         if (name == null) return null;
+        return ReferenceDataCache.get().findByName(em, Artist.class, name, this::queryByName, Artist::getName);
+    }
+
+    private Artist queryByName(String name) {
         TypedQuery<Artist> q= em.createQuery(
                 "SELECT a FROM Artist a WHERE UPPER(a.name) = :name", Artist.class)
                 .setParameter("name", name.trim().toUpperCase());
@@ -0,0 +1,163 @@
+package org.example.repo;
+
+import jakarta.persistence.EntityManager;
+import org.example.domain.Composer;
+import org.example.domain.Track;
+import org.example.domain.TrackComposer;
+import org.hibernate.Session;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compositores normalizados (COMPOSERS) y su relación con los tracks (TRACK_COMPOSER).
+ * Las búsquedas por nombre usan la columna indexada NAME_KEY = UPPER(NAME), y las de
+ * la relación los índices por TRACK_ID / COMPOSER_ID, en vez de LIKE sobre TRACKS.COMPOSER.
+ * Los tracks que entraron sin pasar por los loaders (SQL directo, datos anteriores a
+ * la tabla) se enlazan con {@link #backfill()}; {@code DbInitializer} lo corre al
+ * terminar de crear el esquema. {@code tools.ComposerBench} compara con el LIKE.
+ */
+public class ComposerRepository {
+
+    private static final int BATCH = 5_000;
+
+    private final EntityManager em;
+
+    public ComposerRepository(EntityManager em) {
+        this.em = em;
+    }
+
+    public Composer findByName(String name) {
+        if (name == null) {
+            return null;
+        }
+        return em.createQuery("SELECT c FROM Composer c WHERE c.nameKey = :key", Composer.class)
+                .setParameter("key", key(name))
+                .getResultStream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    public Composer getOrCreate(String name) {
+        if (name == null) {
+            return null;
+        }
+        Composer existing = findByName(name);
+        if (existing != null) {
+            return existing;
+        }
+        Composer composer = new Composer();
+        composer.setName(name.trim());
+        em.persist(composer);
+        return composer;
+    }
+
+    public TrackComposer link(Track track, Composer composer) {
+        TrackComposer tc = new TrackComposer();
+        tc.setTrack(track);
+        tc.setComposer(composer);
+        em.persist(tc);
+        return tc;
+    }
+
+    public List<Track> findTracksByComposer(String composerName) {
+        if (composerName == null) {
+            return List.of();
+        }
+        return em.createQuery("""
+                        SELECT t FROM TrackComposer tc
+                        JOIN tc.track t
+                        WHERE tc.composer.nameKey = :key
+                        ORDER BY t.trackId
+                        """, Track.class)
+                .setParameter("key", key(composerName))
+                .getResultList();
+    }
+
+    public List<Composer> findComposersByTrack(Track track) {
+        if (track == null) {
+            return List.of();
+        }
+        return em.createQuery("""
+                        SELECT c FROM TrackComposer tc
+                        JOIN tc.composer c
+                        WHERE tc.track = :track
+                        ORDER BY tc.trackComposerId
+                        """, Composer.class)
+                .setParameter("track", track)
+                .getResultList();
+    }
+
+    /** Enlaza los tracks con COMPOSER que todavía no tienen filas en TRACK_COMPOSER; devuelve los enlaces creados. */
+    public int backfill() {
+        em.flush();
+        return em.unwrap(Session.class).doReturningWork(ComposerRepository::backfill);
+    }
+
+    /** Igual que {@link #backfill()} sobre una conexión JDBC (la usa {@code DbInitializer}). */
+    public static int backfill(Connection conn) throws SQLException {
+        Map<String, Integer> ids = new HashMap<>();
+        int linked = 0;
+        // Una sola transacción (si no viene ya dentro de una): sin un commit por lote
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement st = conn.createStatement();
+             PreparedStatement insertComposer = conn.prepareStatement("INSERT INTO COMPOSERS (NAME) VALUES (?)",
+                     new String[]{"COMPOSER_ID"});
+             PreparedStatement link = conn.prepareStatement(
+                     "INSERT INTO TRACK_COMPOSER (TRACK_ID, COMPOSER_ID) VALUES (?, ?)")) {
+            try (ResultSet rs = st.executeQuery("SELECT COMPOSER_ID, NAME_KEY FROM COMPOSERS")) {
+                while (rs.next()) ids.putIfAbsent(rs.getString(2), rs.getInt(1));
+            }
+            try (ResultSet rs = st.executeQuery("""
+                    SELECT t.TRACK_ID, t.COMPOSER FROM TRACKS t
+                    WHERE t.COMPOSER IS NOT NULL
+                    AND NOT EXISTS (SELECT 1 FROM TRACK_COMPOSER tc WHERE tc.TRACK_ID = t.TRACK_ID)
+                    """)) {
+                List<Integer> trackComposers = new ArrayList<>(4);
+                while (rs.next()) {
+                    trackComposers.clear();
+                    for (String name : Composer.splitNames(rs.getString(2))) {
+                        Integer composerId = ids.get(key(name));
+                        if (composerId == null) {
+                            insertComposer.setString(1, name);
+                            insertComposer.executeUpdate();
+                            try (ResultSet keys = insertComposer.getGeneratedKeys()) {
+                                keys.next();
+                                composerId = keys.getInt(1);
+                            }
+                            ids.put(key(name), composerId);
+                        }
+                        // Un mismo nombre repetido en el campo se enlaza una vez (UK_TRACK_COMPOSER)
+                        if (trackComposers.contains(composerId)) continue;
+                        trackComposers.add(composerId);
+                        link.setInt(1, rs.getInt(1));
+                        link.setInt(2, composerId);
+                        link.addBatch();
+                        if (++linked % BATCH == 0) link.executeBatch();
+                    }
+                }
+            }
+            link.executeBatch();
+            if (autoCommit) conn.commit();
+        } catch (SQLException e) {
+            if (autoCommit) conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        return linked;
+    }
+
+    private static String key(String name) {
+        return name.trim().replaceAll("\\s+", " ").toUpperCase(Locale.ROOT);
+    }
+}
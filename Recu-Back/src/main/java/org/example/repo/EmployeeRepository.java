@@ -0,0 +1,199 @@
+package org.example.repo;
+
+import jakarta.persistence.EntityManager;
+import org.example.domain.Customer;
+import org.example.domain.Employee;
+import org.example.infra.DbInitializer;
+import org.hibernate.Session;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Empleados y su jerarquía (REPORTS_TO) mantenida como clausura transitiva en
+ * EMPLOYEE_CLOSURE (ancestro, descendiente, profundidad). Las consultas de
+ * subárbol son un único lookup indexado por ANCESTOR_ID, sin recursión.
+ * Las altas y cambios de jefe deben pasar por este repositorio para que la
+ * clausura se actualice de forma incremental; {@link #rebuildClosure()} la
+ * reconstruye completa si se modificaron empleados por otra vía. {@link DbInitializer}
+ * la siembra al terminar de crear el esquema (también después de una carga con
+ * índices diferidos), así que los empleados insertados por SQL en esa carga quedan.
+ */
+public class EmployeeRepository {
+
+    private final EntityManager em;
+
+    public EmployeeRepository(EntityManager em) {
+        this.em = em;
+    }
+
+    public Employee findById(Integer id) {
+        if (id == null) {
+            return null;
+        }
+        return em.find(Employee.class, id);
+    }
+
+    /** Persiste el empleado y agrega sus caminos: (e, e, 0) + (ancestro de su jefe, e, d + 1). */
+    public Employee create(Employee employee) {
+        em.persist(employee);
+        em.flush();
+        Employee manager = employee.getReportsTo();
+        em.createNativeQuery("""
+                        INSERT INTO EMPLOYEE_CLOSURE (ANCESTOR_ID, DESCENDANT_ID, DEPTH)
+                        SELECT ANCESTOR_ID, :e, DEPTH + 1 FROM EMPLOYEE_CLOSURE WHERE DESCENDANT_ID = :m
+                        UNION ALL
+                        SELECT CAST(:e AS INTEGER), CAST(:e AS INTEGER), 0
+                        """)
+                .setParameter("e", employee.getId())
+                .setParameter("m", manager == null ? -1 : manager.getId())
+                .executeUpdate();
+        return employee;
+    }
+
+    /**
+     * Cambia el jefe de un empleado moviendo todo su subárbol: se borran los caminos
+     * que entraban al subárbol desde afuera y se insertan los nuevos (producto cruzado
+     * ancestros del nuevo jefe x descendientes del empleado).
+     */
+    public void changeManager(Employee employee, Employee newManager) {
+        if (newManager != null && isInSubtree(employee.getId(), newManager.getId())) {
+            throw new IllegalArgumentException("El nuevo jefe no puede ser subordinado del empleado "
+                    + employee.getId());
+        }
+        employee.setReportsTo(newManager);
+        em.flush();
+        em.createNativeQuery("""
+                        DELETE FROM EMPLOYEE_CLOSURE
+                        WHERE DESCENDANT_ID IN (SELECT DESCENDANT_ID FROM EMPLOYEE_CLOSURE WHERE ANCESTOR_ID = :e)
+                        AND ANCESTOR_ID NOT IN (SELECT DESCENDANT_ID FROM EMPLOYEE_CLOSURE WHERE ANCESTOR_ID = :e)
+                        """)
+                .setParameter("e", employee.getId())
+                .executeUpdate();
+        if (newManager != null) {
+            em.createNativeQuery("""
+                            INSERT INTO EMPLOYEE_CLOSURE (ANCESTOR_ID, DESCENDANT_ID, DEPTH)
+                            SELECT sup.ANCESTOR_ID, sub.DESCENDANT_ID, sup.DEPTH + sub.DEPTH + 1
+                            FROM EMPLOYEE_CLOSURE sup, EMPLOYEE_CLOSURE sub
+                            WHERE sup.DESCENDANT_ID = :m AND sub.ANCESTOR_ID = :e
+                            """)
+                    .setParameter("m", newManager.getId())
+                    .setParameter("e", employee.getId())
+                    .executeUpdate();
+        }
+    }
+
+    /** Elimina un empleado sin subordinados junto con sus caminos en la clausura. */
+    public void delete(Employee employee) {
+        if (!findSubordinateIds(employee.getId()).isEmpty()) {
+            throw new IllegalStateException("El empleado " + employee.getId() + " tiene subordinados");
+        }
+        em.createNativeQuery("DELETE FROM EMPLOYEE_CLOSURE WHERE DESCENDANT_ID = :e")
+                .setParameter("e", employee.getId())
+                .executeUpdate();
+        em.remove(employee);
+    }
+
+    /** Reconstruye la clausura completa a partir de REPORTS_TO con un CTE recursivo. */
+    public void rebuildClosure() {
+        em.flush();
+        em.unwrap(Session.class).doWork(EmployeeRepository::rebuildClosure);
+    }
+
+    /** Igual que {@link #rebuildClosure()} sobre una conexión JDBC (la usa {@link DbInitializer}). */
+    public static void rebuildClosure(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate("DELETE FROM EMPLOYEE_CLOSURE");
+            st.executeUpdate("""
+                    INSERT INTO EMPLOYEE_CLOSURE (ANCESTOR_ID, DESCENDANT_ID, DEPTH)
+                    WITH RECURSIVE chain (ANCESTOR_ID, DESCENDANT_ID, DEPTH) AS (
+                        SELECT EMPLOYEE_ID, EMPLOYEE_ID, 0 FROM EMPLOYEES
+                        UNION ALL
+                        SELECT c.ANCESTOR_ID, e.EMPLOYEE_ID, c.DEPTH + 1
+                        FROM chain c
+                        JOIN EMPLOYEES e ON e.REPORTS_TO = c.DESCENDANT_ID
+                    )
+                    SELECT ANCESTOR_ID, DESCENDANT_ID, DEPTH FROM chain
+                    """);
+        }
+    }
+
+    public boolean isInSubtree(Integer managerId, Integer employeeId) {
+        Number count = (Number) em.createNativeQuery(
+                        "SELECT COUNT(*) FROM EMPLOYEE_CLOSURE WHERE ANCESTOR_ID = :m AND DESCENDANT_ID = :e")
+                .setParameter("m", managerId)
+                .setParameter("e", employeeId)
+                .getSingleResult();
+        return count.longValue() > 0;
+    }
+
+    /** Ids de los empleados con al menos un subordinado. */
+    @SuppressWarnings("unchecked")
+    public List<Integer> findManagerIds() {
+        return ((List<Number>) em.createNativeQuery(
+                        "SELECT DISTINCT ANCESTOR_ID FROM EMPLOYEE_CLOSURE WHERE DEPTH > 0 ORDER BY ANCESTOR_ID")
+                .getResultList())
+                .stream()
+                .map(Number::intValue)
+                .toList();
+    }
+
+    /** Ids de todos los subordinados (directos e indirectos) del jefe, sin incluirlo. */
+    @SuppressWarnings("unchecked")
+    public List<Integer> findSubordinateIds(Integer managerId) {
+        return ((List<Number>) em.createNativeQuery("""
+                        SELECT DESCENDANT_ID FROM EMPLOYEE_CLOSURE
+                        WHERE ANCESTOR_ID = :m AND DEPTH > 0
+                        ORDER BY DEPTH, DESCENDANT_ID
+                        """)
+                .setParameter("m", managerId)
+                .getResultList())
+                .stream()
+                .map(Number::intValue)
+                .toList();
+    }
+
+    /** Cadena de jefes del empleado, del inmediato hacia arriba. */
+    @SuppressWarnings("unchecked")
+    public List<Integer> findManagerChainIds(Integer employeeId) {
+        return ((List<Number>) em.createNativeQuery("""
+                        SELECT ANCESTOR_ID FROM EMPLOYEE_CLOSURE
+                        WHERE DESCENDANT_ID = :e AND DEPTH > 0
+                        ORDER BY DEPTH
+                        """)
+                .setParameter("e", employeeId)
+                .getResultList())
+                .stream()
+                .map(Number::intValue)
+                .toList();
+    }
+
+    /** Clientes atendidos por el jefe o por cualquiera de sus subordinados. */
+    @SuppressWarnings("unchecked")
+    public List<Customer> findCustomersUnder(Integer managerId) {
+        return em.createNativeQuery("""
+                        SELECT c.* FROM EMPLOYEE_CLOSURE ec
+                        JOIN CUSTOMERS c ON c.SUPPORT_REP_ID = ec.DESCENDANT_ID
+                        WHERE ec.ANCESTOR_ID = :m
+                        ORDER BY c.CUSTOMER_ID
+                        """, Customer.class)
+                .setParameter("m", managerId)
+                .getResultList();
+    }
+
+    /** Total facturado a los clientes atendidos por el subárbol del jefe. */
+    public BigDecimal totalSalesUnder(Integer managerId) {
+        Object total = em.createNativeQuery("""
+                        SELECT COALESCE(SUM(i.TOTAL), 0) FROM EMPLOYEE_CLOSURE ec
+                        JOIN CUSTOMERS c ON c.SUPPORT_REP_ID = ec.DESCENDANT_ID
+                        JOIN INVOICES i ON i.CUSTOMER_ID = c.CUSTOMER_ID
+                        WHERE ec.ANCESTOR_ID = :m
+                        """)
+                .setParameter("m", managerId)
+                .getSingleResult();
+        return total instanceof BigDecimal bd ? bd : new BigDecimal(total.toString());
+    }
+}
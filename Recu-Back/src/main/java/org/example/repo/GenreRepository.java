@@ -0,0 +1,46 @@
+package org.example.repo;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.example.domain.Genre;
+import org.example.infra.ReferenceDataCache;
+
+public class GenreRepository {
+
+    private final EntityManager em;
+
+    public GenreRepository(EntityManager em) {
+        this.em = em;
+    }
+
+    public Genre findById(Integer id) {
+        return id == null ? null : em.find(Genre.class, id);
+    }
+
+    public Genre findByName(String name) {
+        return ReferenceDataCache.get().findByName(em, Genre.class, name, this::queryByName, Genre::getName);
+    }
+
+    private Genre queryByName(String name) {
+        TypedQuery<Genre> query = em.createQuery(
+                "SELECT g FROM Genre g WHERE UPPER(g.name) = :name", Genre.class);
+        return query.setParameter("name", name.trim().toUpperCase())
+                .getResultStream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    public Genre getOrCreate(String name) {
+        if (name == null) {
+            return null;
+        }
+        Genre existing = findByName(name);
+        if (existing != null) {
+            return existing;
+        }
+        Genre genre = new Genre();
+        genre.setName(name.trim());
+        em.persist(genre);
+        return genre;
+    }
+}
@@ -1,19 +1,29 @@
 package org.example.repo;
 
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
 import jakarta.persistence.TypedQuery;
 
 import org.example.domain.Customer;
 import org.example.domain.Invoice;
-import org.example.domain.Invoice;
 
 
 import java.math.BigDecimal;
-import java.sql.*;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 
 
 public class InvoiceRepository {
+    // Cantidad máxima de claves por consulta en la deduplicación en lote (acota las listas IN)
+    private static final int DEDUP_CHUNK_SIZE = 500;
+
     private final EntityManager em;
     public InvoiceRepository(EntityManager em) { this.em = em; }
 
@@ -21,7 +31,7 @@ public class InvoiceRepository {
         if (id == null) return null;
         TypedQuery<Invoice> q = em.createQuery("SELECT i FROM Invoice i WHERE i.invoiceId = :id", Invoice.class);
         q.setParameter("id", id);
-        try { return q.getSingleResult(); } catch (Exception e) { return null; }
+        return q.getResultStream().findFirst().orElse(null);
     }
 
     public Invoice findByCustomerDateTotal(Customer customer, java.util.Date invoiceDate, BigDecimal total) {
@@ -32,7 +42,72 @@ public class InvoiceRepository {
         q.setParameter("customer", customer);
         q.setParameter("d", invoiceDate);
         q.setParameter("tot", total);
-        try { return q.getSingleResult(); } catch (Exception e) { return null; }
+        // Sin getSingleResult: si hay duplicados devuelve el primero en vez de lanzar excepción
+        return q.setMaxResults(1).getResultStream().findFirst().orElse(null);
+    }
+
+    /**
+     * Deduplicación en lote: resuelve con una consulta por bloque (no una por factura)
+     * cuáles de las facturas candidatas ya existen. Devuelve clave -> INVOICE_ID solo
+     * para las existentes. Cada bloque es un IN de tuplas (cliente, fecha, total), que
+     * H2 resuelve con búsquedas exactas en IDX_INVOICE_CUSTOMER_DATE_TOTAL. Las claves
+     * con algún campo null no pueden existir (las columnas son NOT NULL) y se omiten.
+     */
+    public Map<InvoiceKey, Integer> findExistingIds(Collection<InvoiceKey> keys) {
+        Map<InvoiceKey, Integer> found = new HashMap<>();
+        if (keys == null || keys.isEmpty()) return found;
+        List<InvoiceKey> pending = new ArrayList<>();
+        for (InvoiceKey k : new LinkedHashSet<>(keys)) {
+            if (k.isComplete()) pending.add(k);
+        }
+        for (int from = 0; from < pending.size(); from += DEDUP_CHUNK_SIZE) {
+            List<InvoiceKey> chunk = pending.subList(from, Math.min(from + DEDUP_CHUNK_SIZE, pending.size()));
+            StringBuilder sql = new StringBuilder("SELECT INVOICE_ID, CUSTOMER_ID, INVOICE_DATE, TOTAL FROM INVOICES "
+                    + "WHERE (CUSTOMER_ID, INVOICE_DATE, TOTAL) IN (");
+            for (int i = 0; i < chunk.size(); i++) {
+                if (i > 0) sql.append(", ");
+                sql.append("(?").append(3 * i + 1).append(", ?").append(3 * i + 2).append(", ?").append(3 * i + 3).append(')');
+            }
+            Query query = em.createNativeQuery(sql.append(')').toString());
+            for (int i = 0; i < chunk.size(); i++) {
+                InvoiceKey k = chunk.get(i);
+                query.setParameter(3 * i + 1, k.customerId());
+                query.setParameter(3 * i + 2, java.sql.Date.valueOf(k.invoiceDate()));
+                query.setParameter(3 * i + 3, k.total());
+            }
+            @SuppressWarnings("unchecked")
+            List<Object[]> rows = query.getResultList();
+            for (Object[] row : rows) {
+                InvoiceKey key = new InvoiceKey(((Number) row[1]).intValue(), toLocalDate(row[2]), (BigDecimal) row[3]);
+                found.putIfAbsent(key, ((Number) row[0]).intValue());
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Versión en lote de {@link #getOrCreate}: una consulta por bloque para las existentes
+     * y un alta por cada clave que falta. Devuelve clave -> INVOICE_ID para todas las
+     * claves completas (las nuevas quedan con id asignado; se escriben en el flush).
+     */
+    public Map<InvoiceKey, Integer> getOrCreateAll(Collection<InvoiceKey> keys) {
+        Map<InvoiceKey, Integer> ids = findExistingIds(keys);
+        if (keys == null) return ids;
+        for (InvoiceKey k : keys) {
+            if (!k.isComplete() || ids.containsKey(k)) continue;
+            Invoice inv = new Invoice();
+            inv.setCustomerId(em.getReference(Customer.class, k.customerId()));
+            inv.setInvoiceDate(java.sql.Date.valueOf(k.invoiceDate()));
+            inv.setTotal(k.total());
+            em.persist(inv);
+            ids.put(k, inv.getInvoiceId());
+        }
+        return ids;
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof LocalDate d) return d;
+        return new java.sql.Date(((Date) value).getTime()).toLocalDate();
     }
 
     public Invoice getOrCreate(Customer customer, Date invoiceDate, BigDecimal total) {
@@ -46,7 +121,22 @@ public class InvoiceRepository {
         em.persist(inv);
         return inv;
     }
-    
+
+    /** Clave natural de una factura: cliente + fecha (sin hora) + total con escala 2. */
+    public record InvoiceKey(Integer customerId, LocalDate invoiceDate, BigDecimal total) {
+        public InvoiceKey {
+            if (total != null) total = total.setScale(2, RoundingMode.HALF_UP);
+        }
+
+        public static InvoiceKey of(Integer customerId, Date invoiceDate, BigDecimal total) {
+            return new InvoiceKey(customerId, invoiceDate == null ? null : toLocalDate(invoiceDate), total);
+        }
+
+        /** false si falta algún campo: esa clave no puede estar en INVOICES. */
+        public boolean isComplete() {
+            return customerId != null && invoiceDate != null && total != null;
+        }
+    }
 
 }
 
@@ -0,0 +1,46 @@
+package org.example.repo;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.example.domain.MediaType;
+import org.example.infra.ReferenceDataCache;
+
+public class MediaTypeRepository {
+
+    private final EntityManager em;
+
+    public MediaTypeRepository(EntityManager em) {
+        this.em = em;
+    }
+
+    public MediaType findById(Integer id) {
+        return id == null ? null : em.find(MediaType.class, id);
+    }
+
+    public MediaType findByName(String name) {
+        return ReferenceDataCache.get().findByName(em, MediaType.class, name, this::queryByName, MediaType::getName);
+    }
+
+    private MediaType queryByName(String name) {
+        TypedQuery<MediaType> query = em.createQuery(
+                "SELECT m FROM MediaType m WHERE UPPER(m.name) = :name", MediaType.class);
+        return query.setParameter("name", name.trim().toUpperCase())
+                .getResultStream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    public MediaType getOrCreate(String name) {
+        if (name == null) {
+            return null;
+        }
+        MediaType existing = findByName(name);
+        if (existing != null) {
+            return existing;
+        }
+        MediaType mediaType = new MediaType();
+        mediaType.setName(name.trim());
+        em.persist(mediaType);
+        return mediaType;
+    }
+}
@@ -1,11 +1,18 @@
 package org.example.repo;
 
 import jakarta.persistence.EntityManager;
-import jakarta.persistence.TypedQuery;
+import jakarta.persistence.FlushModeType;
 import org.example.domain.Playlist;
-import org.example.domain.PlaylistTrack;
 import org.example.domain.Track;
+import org.example.infra.PlaylistTrackShards;
+import org.example.infra.journal.SessionChanges;
+import org.example.util.IntList;
+import org.hibernate.Session;
 
+/**
+ * Relación playlist-track, enrutada a la partición PLAYLIST_TRACK_n de cada playlist
+ * (ver {@link PlaylistTrackShards}). Cada operación toca una sola partición.
+ */
 public class PlaylistTrackRepository {
 
     private final EntityManager em;
@@ -15,21 +22,34 @@ public class PlaylistTrackRepository {
     }
 
     public boolean exists(Playlist playlist, Track track) {
-        TypedQuery<Long> query = em.createQuery(
-                "SELECT COUNT(pt) FROM PlaylistTrack pt WHERE pt.playlist = :playlist AND pt.track = :track",
-                Long.class);
-        Long count = query.setParameter("playlist", playlist)
-                .setParameter("track", track)
+        Number count = (Number) em.createNativeQuery(
+                        "SELECT COUNT(*) FROM " + PlaylistTrackShards.tableFor(playlist.getPlaylistId())
+                                + " WHERE PLAYLIST_ID = :playlist AND TRACK_ID = :track")
+                .setParameter("playlist", playlist.getPlaylistId())
+                .setParameter("track", track.getTrackId())
+                .setFlushMode(FlushModeType.COMMIT)
                 .getSingleResult();
-        return count != null && count > 0;
+        return count != null && count.longValue() > 0;
     }
 
-    public PlaylistTrack create(Playlist playlist, Track track) {
-        PlaylistTrack pt = new PlaylistTrack();
-        pt.setPlaylist(playlist);
-        pt.setTrack(track);
-        em.persist(pt);
-        return pt;
+    public void create(Playlist playlist, Track track) {
+        IntList playlists = new IntList(1);
+        IntList tracks = new IntList(1);
+        playlists.add(playlist.getPlaylistId());
+        tracks.add(track.getTrackId());
+        createAll(playlists, tracks);
     }
-}
 
+    /**
+     * Inserta los pares (playlistIds[i], trackIds[i]) con un batch JDBC por partición.
+     * Antes hace flush para que las playlists y tracks nuevos ya estén escritos (FK).
+     * Como no pasa por eventos de Hibernate, las altas se anotan en el journal a mano.
+     */
+    public void createAll(IntList playlistIds, IntList trackIds) {
+        if (playlistIds.size() == 0) return;
+        em.flush();
+        Session session = em.unwrap(Session.class);
+        session.doWork(conn -> PlaylistTrackShards.insert(conn, playlistIds, trackIds));
+        SessionChanges.begin(session).linked(playlistIds, trackIds);
+    }
+}
@@ -0,0 +1,139 @@
+package org.example.repo;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.FlushModeType;
+import jakarta.persistence.Query;
+import org.example.infra.PlaylistTrackShards;
+import org.example.repo.projection.AlbumWithArtist;
+import org.example.repo.projection.PlaylistStats;
+import org.example.repo.projection.TrackSummary;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consultas de solo lectura para reportes. Devuelven proyecciones (records) armadas
+ * con expresiones constructoras JPQL, así que no se materializan entidades ni se
+ * registran en el contexto de persistencia. Además usan FlushModeType.COMMIT para
+ * no disparar el dirty checking del EntityManager antes de cada consulta.
+ *
+ * Las consultas sobre PLAYLIST_TRACK van en SQL nativo contra sus particiones
+ * (ver {@link PlaylistTrackShards}); los agregados leen solo datos confirmados.
+ */
+public class ReportRepository {
+
+    private final EntityManager em;
+
+    public ReportRepository(EntityManager em) {
+        this.em = em;
+    }
+
+    /**
+     * Estadísticas por playlist (solo tracks con duración positiva). Cada partición de
+     * PLAYLIST_TRACK se agrega en paralelo; como una playlist vive en una sola partición,
+     * solo se juntan las filas (sumando si dos playlists distintas comparten nombre).
+     */
+    public List<PlaylistStats> findPlaylistStats() {
+        Map<String, PlaylistStats> byName = new LinkedHashMap<>();
+        PlaylistTrackShards.scatter(em.getEntityManagerFactory(), (shardEm, table) -> rows(shardEm.createNativeQuery("""
+                        SELECT p.NAME, COUNT(*), SUM(t.MILLISECONDS), SUM(t.UNIT_PRICE)
+                        FROM %s pt
+                        JOIN PLAYLISTS p ON p.PLAYLIST_ID = pt.PLAYLIST_ID
+                        JOIN TRACKS t ON t.TRACK_ID = pt.TRACK_ID
+                        WHERE t.MILLISECONDS > 0
+                        GROUP BY p.PLAYLIST_ID, p.NAME
+                        """.formatted(table))))
+                .forEach(shard -> shard.forEach(r -> byName.merge((String) r[0],
+                        new PlaylistStats((String) r[0], ((Number) r[1]).longValue(),
+                                ((Number) r[2]).longValue(), (BigDecimal) r[3]),
+                        (x, y) -> new PlaylistStats(x.name(), x.trackCount() + y.trackCount(),
+                                x.totalMilliseconds() + y.totalMilliseconds(), x.totalPrice().add(y.totalPrice())))));
+        return new ArrayList<>(byName.values());
+    }
+
+    public List<TrackSummary> findTrackSummariesByName(String name) {
+        if (name == null) return List.of();
+        return em.createQuery("""
+                        SELECT new org.example.repo.projection.TrackSummary(
+                               t.trackId, t.name, al.title, ar.name, g.name, t.milliseconds, t.unitPrice)
+                        FROM Track t
+                        LEFT JOIN t.album al
+                        LEFT JOIN al.artistId ar
+                        LEFT JOIN t.genre g
+                        WHERE UPPER(t.name) = :name
+                        ORDER BY t.trackId
+                        """, TrackSummary.class)
+                .setParameter("name", name.trim().toUpperCase())
+                .setFlushMode(FlushModeType.COMMIT)
+                .getResultList();
+    }
+
+    /** Tracks de la(s) playlist(s) con ese nombre; cada playlist se lee solo de su partición. */
+    public List<TrackSummary> findTrackSummariesByPlaylist(String playlistName) {
+        if (playlistName == null) return List.of();
+        List<Integer> playlistIds = em.createQuery(
+                        "SELECT p.playlistId FROM Playlist p WHERE UPPER(p.name) = :name", Integer.class)
+                .setParameter("name", playlistName.trim().toUpperCase())
+                .setFlushMode(FlushModeType.COMMIT)
+                .getResultList();
+        List<TrackSummary> out = new ArrayList<>();
+        for (Integer playlistId : playlistIds) {
+            rows(em.createNativeQuery("""
+                            SELECT t.TRACK_ID, t.NAME, al.TITLE, ar.NAME, g.NAME, t.MILLISECONDS, t.UNIT_PRICE
+                            FROM %s pt
+                            JOIN TRACKS t ON t.TRACK_ID = pt.TRACK_ID
+                            LEFT JOIN ALBUMS al ON al.ALBUM_ID = t.ALBUM_ID
+                            LEFT JOIN ARTISTS ar ON ar.ARTIST_ID = al.ARTIST_ID
+                            LEFT JOIN GENRES g ON g.GENRE_ID = t.GENRE_ID
+                            WHERE pt.PLAYLIST_ID = :playlist
+                            """.formatted(PlaylistTrackShards.tableFor(playlistId)))
+                    .setParameter("playlist", playlistId))
+                    .forEach(r -> out.add(new TrackSummary((Integer) r[0], (String) r[1], (String) r[2],
+                            (String) r[3], (String) r[4], (Integer) r[5], (BigDecimal) r[6])));
+        }
+        out.sort(Comparator.comparing(TrackSummary::name));
+        return out;
+    }
+
+    public List<AlbumWithArtist> findAlbumsWithArtist() {
+        return em.createQuery("""
+                        SELECT new org.example.repo.projection.AlbumWithArtist(a.albumId, a.title, ar.name)
+                        FROM Album a
+                        JOIN a.artistId ar
+                        ORDER BY a.title
+                        """, AlbumWithArtist.class)
+                .setFlushMode(FlushModeType.COMMIT)
+                .getResultList();
+    }
+
+    /**
+     * Cantidad de playlists no vacías cuyos tracks son todos del género indicado. Se
+     * cuenta por partición en paralelo y se suma (cada playlist está en una sola).
+     */
+    public long countPlaylistsOnlyGenre(Integer genreId) {
+        return PlaylistTrackShards.scatter(em.getEntityManagerFactory(), (shardEm, table) ->
+                        ((Number) shardEm.createNativeQuery("""
+                                        SELECT COUNT(*) FROM (
+                                            SELECT pt.PLAYLIST_ID
+                                            FROM %s pt
+                                            JOIN TRACKS t ON t.TRACK_ID = pt.TRACK_ID
+                                            GROUP BY pt.PLAYLIST_ID
+                                            HAVING COUNT(*) = COUNT(CASE WHEN t.GENRE_ID = :genreId THEN 1 END)
+                                        )
+                                        """.formatted(table))
+                                .setParameter("genreId", genreId)
+                                .getSingleResult()).longValue())
+                .stream()
+                .mapToLong(Long::longValue)
+                .sum();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object[]> rows(Query query) {
+        return query.setFlushMode(FlushModeType.COMMIT).getResultList();
+    }
+}
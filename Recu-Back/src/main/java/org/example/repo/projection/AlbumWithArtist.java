@@ -0,0 +1,5 @@
+package org.example.repo.projection;
+
+/** Álbum con el nombre de su artista, sin materializar las entidades. */
+public record AlbumWithArtist(Integer albumId, String title, String artistName) {
+}
@@ -0,0 +1,16 @@
+package org.example.repo.projection;
+
+import java.math.BigDecimal;
+
+/** Agregados de una playlist: cantidad de tracks, duración total y costo total. */
+public record PlaylistStats(String name,
+                            Long trackCount,
+                            Long totalMilliseconds,
+                            BigDecimal totalPrice) {
+
+    /** Costo por minuto de la playlist: SUM(precio) / SUM(minutos). */
+    public double costPerMinute() {
+        if (totalMilliseconds == null || totalMilliseconds == 0 || totalPrice == null) return 0.0;
+        return totalPrice.doubleValue() / (totalMilliseconds / 60000.0);
+    }
+}
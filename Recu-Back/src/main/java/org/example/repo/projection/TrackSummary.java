@@ -0,0 +1,17 @@
+package org.example.repo.projection;
+
+import java.math.BigDecimal;
+
+/** Vista liviana de un track con los nombres de álbum, artista y género ya resueltos. */
+public record TrackSummary(Integer trackId,
+                           String name,
+                           String albumTitle,
+                           String artistName,
+                           String genreName,
+                           Integer milliseconds,
+                           BigDecimal unitPrice) {
+
+    public double durationInMinutes() {
+        return milliseconds != null ? milliseconds / 60000.0 : 0.0;
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.report;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Cuantiles aproximados con error relativo acotado (DDSketch): cada valor positivo cae en
+ * el bucket ⌈log_γ(x)⌉ con γ = (1 + α)/(1 − α), así que el cuantil devuelto está a menos
+ * de α (relativo) del valor real de ese rango, sin importar la distribución ni n. La
+ * memoria crece con log(max/min), no con n: para duraciones de 1 s a 2 h con α = 1%
+ * son ~450 contadores. Dos sketches con el mismo α se combinan sumando buckets.
+ */
+public final class QuantileSketch {
+
+    public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+
+    private final double alpha;
+    private final double logGamma;
+    private long[] counts = new long[0];
+    private int offset;             // índice de bucket de counts[0]
+    private long zeros;             // valores <= 0 (no entran en ningún bucket logarítmico)
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public QuantileSketch() {
+        this(DEFAULT_RELATIVE_ACCURACY);
+    }
+
+    public QuantileSketch(double relativeAccuracy) {
+        if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+            throw new IllegalArgumentException("precisión relativa fuera de (0, 1): " + relativeAccuracy);
+        }
+        this.alpha = relativeAccuracy;
+        this.logGamma = Math.log((1 + relativeAccuracy) / (1 - relativeAccuracy));
+    }
+
+    public void add(double value) {
+        if (Double.isNaN(value)) return;
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        if (value <= 0) {
+            zeros++;
+            return;
+        }
+        int index = (int) Math.ceil(Math.log(value) / logGamma);
+        grow(index, index);
+        counts[index - offset]++;
+    }
+
+    /**
+     * Valor del cuantil {@code q} (0 = mínimo, 1 = máximo), a menos de α relativo del
+     * elemento de rango ⌊q·(n − 1)⌋; NaN si el sketch está vacío.
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) throw new IllegalArgumentException("q fuera de [0, 1]: " + q);
+        if (count == 0) return Double.NaN;
+        if (q == 0) return min;
+        if (q == 1) return max;
+        long rank = (long) (q * (count - 1));
+        if (rank < zeros) return Math.min(0, max);
+        long seen = zeros;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen > rank) {
+                // Punto medio del bucket (γ^(i-1), γ^i], acotado por los extremos reales
+                double value = 2 * Math.exp((i + offset) * logGamma) / (1 + Math.exp(logGamma));
+                return Math.max(min, Math.min(max, value));
+            }
+        }
+        return max;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public double relativeAccuracy() {
+        return alpha;
+    }
+
+    public QuantileSketch merge(QuantileSketch other) {
+        if (other.alpha != alpha) throw new IllegalArgumentException("precisiones distintas: " + alpha + " y " + other.alpha);
+        if (other.counts.length > 0) {
+            grow(other.offset, other.offset + other.counts.length - 1);
+            for (int i = 0; i < other.counts.length; i++) counts[other.offset + i - offset] += other.counts[i];
+        }
+        zeros += other.zeros;
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeDouble(alpha);
+        out.writeLong(count);
+        out.writeLong(zeros);
+        out.writeDouble(min);
+        out.writeDouble(max);
+        out.writeInt(offset);
+        out.writeInt(counts.length);
+        for (long c : counts) out.writeLong(c);
+    }
+
+    public static QuantileSketch readFrom(DataInputStream in) throws IOException {
+        QuantileSketch sketch = new QuantileSketch(in.readDouble());
+        sketch.count = in.readLong();
+        sketch.zeros = in.readLong();
+        sketch.min = in.readDouble();
+        sketch.max = in.readDouble();
+        sketch.offset = in.readInt();
+        sketch.counts = new long[in.readInt()];
+        for (int i = 0; i < sketch.counts.length; i++) sketch.counts[i] = in.readLong();
+        return sketch;
+    }
+
+    /** Amplía counts para cubrir los buckets [from, to]. */
+    private void grow(int from, int to) {
+        if (counts.length == 0) {
+            counts = new long[Math.max(16, to - from + 1)];
+            offset = from;
+            return;
+        }
+        int last = offset + counts.length - 1;
+        if (from >= offset && to <= last) return;
+        int newFirst = Math.min(from, offset);
+        int newLast = Math.max(to, last);
+        // Crece con margen para no copiar en cada bucket nuevo
+        int slack = Math.max(8, (newLast - newFirst + 1) / 2);
+        if (from < offset) newFirst -= slack;
+        if (to > last) newLast += slack;
+        long[] grown = new long[newLast - newFirst + 1];
+        System.arraycopy(counts, 0, grown, offset - newFirst, counts.length);
+        counts = grown;
+        offset = newFirst;
+    }
+
+    @Override
+    public String toString() {
+        return "QuantileSketch{n=" + count + ", α=" + alpha + ", buckets=" + counts.length
+                + ", p50=" + quantile(0.5) + "}";
+    }
+}
@@ -0,0 +1,150 @@
+package org.example.report;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.FlushModeType;
+import org.example.infra.PlaylistTrackShards;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Rankings top-K de playlists, álbumes, artistas o tracks según una métrica calculada.
+ * La base solo agrupa (sin ORDER BY); los agregados se recorren en streaming y se
+ * rankean con {@link TopK}, sin ordenar el resultado completo. El stream de resultados
+ * se consume en un solo hilo: lo produce un cursor JDBC y paralelizarlo solo agrega
+ * reparto y combinación de heaps sobre un trabajo que es de O(n log k).
+ *
+ * Las playlists se agrupan por nombre, igual que {@code ReportRepository.findPlaylistStats}
+ * y {@code CatalogSnapshot}: dos playlists que comparten nombre cuentan como una.
+ */
+public class RankingService {
+
+    public enum Level { PLAYLIST, ALBUM, ARTIST, TRACK }
+
+    public enum Metric {
+        COST_PER_MINUTE {
+            @Override
+            public double of(Aggregate a) {
+                return a.totalMilliseconds() == 0 ? Double.NaN
+                        : a.totalPrice().doubleValue() / (a.totalMilliseconds() / 60000.0);
+            }
+        },
+        TOTAL_DURATION {
+            @Override
+            public double of(Aggregate a) {
+                return a.totalMilliseconds();
+            }
+        },
+        BYTES_PER_SECOND {
+            @Override
+            public double of(Aggregate a) {
+                return a.totalMilliseconds() == 0 ? Double.NaN
+                        : a.totalBytes() / (a.totalMilliseconds() / 1000.0);
+            }
+        },
+        TRACK_COUNT {
+            @Override
+            public double of(Aggregate a) {
+                return a.trackCount();
+            }
+        };
+
+        public abstract double of(Aggregate a);
+    }
+
+    /** Agregado por entidad: cantidad de tracks, duración, bytes y precio totales. */
+    public record Aggregate(Integer id, String name, long trackCount, long totalMilliseconds,
+                            long totalBytes, BigDecimal totalPrice) { }
+
+    private final EntityManager em;
+
+    public RankingService(EntityManager em) {
+        this.em = em;
+    }
+
+    public List<TopK.Ranked<Aggregate>> top(Level level, Metric metric, int k) {
+        if (level == Level.PLAYLIST) return topPlaylists(metric, k);
+        try (Stream<Object[]> rows = em.createQuery(queryFor(level), Object[].class)
+                .setFlushMode(FlushModeType.COMMIT)
+                .getResultStream()) {
+            return rows.map(RankingService::toAggregate)
+                    .collect(TopK.collector(k, metric::of));
+        }
+    }
+
+    /**
+     * PLAYLIST_TRACK está particionada por playlist: cada partición agrega sus playlists
+     * en paralelo (con su propio EntityManager) y después se suman por nombre, porque
+     * dos playlists con el mismo nombre pueden caer en particiones distintas. El id del
+     * agregado es el menor de las playlists con ese nombre.
+     */
+    private List<TopK.Ranked<Aggregate>> topPlaylists(Metric metric, int k) {
+        Map<String, Aggregate> byName = new HashMap<>();
+        PlaylistTrackShards.scatter(em.getEntityManagerFactory(), (shardEm, table) -> {
+                    @SuppressWarnings("unchecked")
+                    Stream<Object[]> rows = shardEm.createNativeQuery("""
+                                    SELECT MIN(p.PLAYLIST_ID), p.NAME, COUNT(*), SUM(t.MILLISECONDS),
+                                           COALESCE(SUM(t.BYTES), 0), SUM(t.UNIT_PRICE)
+                                    FROM %s pt
+                                    JOIN PLAYLISTS p ON p.PLAYLIST_ID = pt.PLAYLIST_ID
+                                    JOIN TRACKS t ON t.TRACK_ID = pt.TRACK_ID
+                                    WHERE t.MILLISECONDS > 0
+                                    GROUP BY p.NAME
+                                    """.formatted(table))
+                            .setFlushMode(FlushModeType.COMMIT)
+                            .getResultStream();
+                    try (rows) {
+                        return rows.map(RankingService::toAggregate).toList();
+                    }
+                })
+                .forEach(shard -> shard.forEach(a -> byName.merge(a.name(), a, RankingService::sum)));
+        TopK<Aggregate> top = new TopK<>(k);
+        byName.values().forEach(a -> top.offer(a, metric.of(a)));
+        return top.toList();
+    }
+
+    private static Aggregate sum(Aggregate x, Aggregate y) {
+        return new Aggregate(Math.min(x.id(), y.id()), x.name(), x.trackCount() + y.trackCount(),
+                x.totalMilliseconds() + y.totalMilliseconds(), x.totalBytes() + y.totalBytes(),
+                x.totalPrice().add(y.totalPrice()));
+    }
+
+    private static String queryFor(Level level) {
+        return switch (level) {
+            case PLAYLIST -> throw new IllegalArgumentException("PLAYLIST se resuelve por partición");
+            case ALBUM -> """
+                    SELECT a.albumId, a.title, COUNT(t), SUM(t.milliseconds),
+                           COALESCE(SUM(t.bytes), 0), SUM(t.unitPrice)
+                    FROM Track t
+                    JOIN t.album a
+                    WHERE t.milliseconds > 0
+                    GROUP BY a.albumId, a.title
+                    """;
+            case ARTIST -> """
+                    SELECT ar.artistid, ar.name, COUNT(t), SUM(t.milliseconds),
+                           COALESCE(SUM(t.bytes), 0), SUM(t.unitPrice)
+                    FROM Track t
+                    JOIN t.album a
+                    JOIN a.artistId ar
+                    WHERE t.milliseconds > 0
+                    GROUP BY ar.artistid, ar.name
+                    """;
+            case TRACK -> """
+                    SELECT t.trackId, t.name, 1, t.milliseconds, COALESCE(t.bytes, 0), t.unitPrice
+                    FROM Track t
+                    WHERE t.milliseconds > 0
+                    """;
+        };
+    }
+
+    private static Aggregate toAggregate(Object[] r) {
+        return new Aggregate((Integer) r[0], (String) r[1],
+                ((Number) r[2]).longValue(),
+                ((Number) r[3]).longValue(),
+                ((Number) r[4]).longValue(),
+                (BigDecimal) r[5]);
+    }
+}
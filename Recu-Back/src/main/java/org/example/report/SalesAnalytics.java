@@ -0,0 +1,302 @@
+package org.example.report;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.domain.Money;
+import org.example.infra.TableVersions;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Reportes de ventas sobre INVOICE_ITEMS (join con TRACKS, ALBUMS e INVOICES/CUSTOMERS).
+ *
+ * Las líneas se cargan una sola vez en una proyección de arrays primitivos (ids
+ * codificados como índices densos, importes en centavos) y cada reporte se calcula
+ * en una única pasada paralela sobre esos arrays, con un acumulador por hilo. Tanto
+ * la proyección como los resultados quedan cacheados mientras no cambie la versión
+ * ({@link TableVersions}) de ninguna de las tablas del join: así se detectan también los
+ * cambios en el lugar, como la reasignación de TRACK_ID que hace {@code TrackMerger}.
+ */
+public class SalesAnalytics {
+
+    private static final String[] TABLES =
+            {"INVOICE_ITEMS", "INVOICES", "CUSTOMERS", "TRACKS", "GENRES", "ALBUMS", "ARTISTS"};
+    // Mínimo de líneas por hilo: por debajo no compensa repartir la pasada
+    private static final int MIN_LINES_PER_WORKER = 1 << 16;
+    private static final int MAX_CACHED_REPORTS = 32;
+
+    private final EntityManagerFactory emf;
+    private volatile Projection projection;
+    private final Map<Window, SalesReport> reports = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Window, SalesReport> eldest) {
+                    return size() > MAX_CACHED_REPORTS;
+                }
+            });
+
+    public SalesAnalytics(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    /** Reporte completo sobre todas las ventas registradas. */
+    public SalesReport report() {
+        return report(null, null);
+    }
+
+    /** Reporte restringido a facturas con fecha en [from, to] (extremos nulos = sin límite). */
+    public SalesReport report(LocalDate from, LocalDate to) {
+        Projection p = currentProjection();
+        Window window = new Window(from, to, p.stamp);
+        SalesReport cached = reports.get(window);
+        if (cached != null) return cached;
+        SalesReport computed = compute(p, from, to);
+        reports.put(window, computed);
+        return computed;
+    }
+
+    public List<Revenue> topTracks(int n, LocalDate from, LocalDate to) {
+        return report(from, to).topTracks(n);
+    }
+
+    private Projection currentProjection() {
+        long stamp = TableVersions.read(TABLES);
+        Projection p = projection;
+        if (p != null && p.stamp == stamp) return p;
+        synchronized (this) {
+            p = projection;
+            if (p == null || p.stamp != stamp) {
+                reports.clear();
+                p = loadProjection(stamp);
+                projection = p;
+            }
+            return p;
+        }
+    }
+
+    private Projection loadProjection(long stamp) {
+        try (EntityManager em = emf.createEntityManager()) {
+            long count = em.createQuery("SELECT COUNT(ii) FROM InvoiceItem ii", Long.class).getSingleResult();
+            Projection p = new Projection(stamp, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(16, count)));
+            em.createQuery("""
+                            SELECT t.trackId, t.name, g.genreId, g.name, al.albumId, al.title,
+                                   ar.artistid, ar.name, c.country, inv.invoiceDate,
+                                   ii.unitPrice, ii.quantity
+                            FROM InvoiceItem ii
+                            JOIN ii.invoiceId inv
+                            JOIN inv.customerId c
+                            JOIN ii.trackId t
+                            LEFT JOIN t.genre g
+                            LEFT JOIN t.album al
+                            LEFT JOIN al.artistId ar
+                            """, Object[].class)
+                    .getResultStream()
+                    .forEach(p::add);
+            return p;
+        }
+    }
+
+    private static SalesReport compute(Projection p, LocalDate from, LocalDate to) {
+        int lo = from == null ? Integer.MIN_VALUE : (int) from.toEpochDay();
+        int hi = to == null ? Integer.MAX_VALUE : (int) to.toEpochDay();
+        // Un tramo contiguo y un acumulador por hilo: los acumuladores miden lo que los
+        // diccionarios, así que crearlos por bloque costaba O(bloques x diccionario)
+        int workers = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(),
+                p.size / MIN_LINES_PER_WORKER));
+        Accumulator total = IntStream.range(0, workers)
+                .parallel()
+                .mapToObj(w -> {
+                    Accumulator acc = new Accumulator(p);
+                    int end = (int) ((long) p.size * (w + 1) / workers);
+                    for (int i = (int) ((long) p.size * w / workers); i < end; i++) {
+                        int day = p.epochDay[i];
+                        if (day < lo || day > hi) continue;
+                        long cents = p.cents[i];
+                        acc.track[p.track[i]] += cents;
+                        acc.genre[p.genre[i]] += cents;
+                        acc.album[p.album[i]] += cents;
+                        acc.artist[p.artist[i]] += cents;
+                        acc.country[p.country[i]] += cents;
+                        acc.month[p.month[i] - p.minMonth] += cents;
+                        acc.total += cents;
+                    }
+                    return acc;
+                })
+                .reduce(Accumulator::merge)
+                .orElseGet(() -> new Accumulator(p));
+        return new SalesReport(p, total);
+    }
+
+    // =========================================================
+    // Resultados
+    // =========================================================
+
+    public record Revenue(String label, BigDecimal amount) { }
+
+    public record MonthlyRevenue(YearMonth month, BigDecimal amount) { }
+
+    public static final class SalesReport {
+        private final Projection p;
+        private final Accumulator acc;
+
+        private SalesReport(Projection p, Accumulator acc) {
+            this.p = p;
+            this.acc = acc;
+        }
+
+        public BigDecimal total() { return money(acc.total); }
+
+        public List<Revenue> byGenre() { return ranked(p.genres, acc.genre, Integer.MAX_VALUE); }
+
+        public List<Revenue> byArtist() { return ranked(p.artists, acc.artist, Integer.MAX_VALUE); }
+
+        public List<Revenue> byAlbum() { return ranked(p.albums, acc.album, Integer.MAX_VALUE); }
+
+        public List<Revenue> byCountry() { return ranked(p.countries, acc.country, Integer.MAX_VALUE); }
+
+        public List<Revenue> topTracks(int n) { return ranked(p.tracks, acc.track, n); }
+
+        public List<MonthlyRevenue> monthly() {
+            List<MonthlyRevenue> out = new ArrayList<>();
+            for (int i = 0; i < acc.month.length; i++) {
+                if (acc.month[i] == 0) continue;
+                int m = p.minMonth + i;
+                out.add(new MonthlyRevenue(YearMonth.of(Math.floorDiv(m, 12), Math.floorMod(m, 12) + 1), money(acc.month[i])));
+            }
+            return out;
+        }
+
+        private static List<Revenue> ranked(Dictionary dict, long[] values, int n) {
+            Integer[] order = IntStream.range(0, dict.size())
+                    .filter(i -> values[i] != 0)
+                    .boxed()
+                    .toArray(Integer[]::new);
+            Arrays.sort(order, (a, b) -> Long.compare(values[b], values[a]));
+            List<Revenue> out = new ArrayList<>(Math.min(n, order.length));
+            for (int i = 0; i < order.length && i < n; i++) {
+                out.add(new Revenue(dict.label(order[i]), money(values[order[i]])));
+            }
+            return out;
+        }
+
+        private static BigDecimal money(long cents) {
+            return BigDecimal.valueOf(cents, 2);
+        }
+    }
+
+    // =========================================================
+    // Proyección en arrays primitivos
+    // =========================================================
+
+    private record Window(LocalDate from, LocalDate to, long stamp) { }
+
+    /** Codifica claves (ids o textos) como índices densos 0..n-1 y guarda su etiqueta. */
+    private static final class Dictionary {
+        private final Map<Object, Integer> index = new HashMap<>();
+        private final List<String> labels = new ArrayList<>();
+
+        int encode(Object key, String label) {
+            Integer idx = index.get(key);
+            if (idx != null) return idx;
+            int next = labels.size();
+            index.put(key, next);
+            labels.add(label == null ? "(sin dato)" : label);
+            return next;
+        }
+
+        int size() { return labels.size(); }
+
+        String label(int idx) { return labels.get(idx); }
+    }
+
+    private static final class Projection {
+        final long stamp;
+        final Dictionary tracks = new Dictionary();
+        final Dictionary genres = new Dictionary();
+        final Dictionary albums = new Dictionary();
+        final Dictionary artists = new Dictionary();
+        final Dictionary countries = new Dictionary();
+        int[] track, genre, album, artist, country, epochDay, month;
+        long[] cents;
+        int size;
+        int minMonth = Integer.MAX_VALUE;
+        int maxMonth = Integer.MIN_VALUE;
+
+        Projection(long stamp, int capacity) {
+            this.stamp = stamp;
+            track = new int[capacity];
+            genre = new int[capacity];
+            album = new int[capacity];
+            artist = new int[capacity];
+            country = new int[capacity];
+            epochDay = new int[capacity];
+            month = new int[capacity];
+            cents = new long[capacity];
+        }
+
+        void add(Object[] row) {
+            if (size == track.length) grow();
+            int i = size++;
+            track[i] = tracks.encode(row[0], (String) row[1]);
+            genre[i] = genres.encode(row[2], (String) row[3]);
+            album[i] = albums.encode(row[4], (String) row[5]);
+            artist[i] = artists.encode(row[6], (String) row[7]);
+            country[i] = countries.encode(row[8], (String) row[8]);
+            LocalDate date = new java.sql.Date(((Date) row[9]).getTime()).toLocalDate();
+            epochDay[i] = (int) date.toEpochDay();
+            month[i] = date.getYear() * 12 + date.getMonthValue() - 1;
+            minMonth = Math.min(minMonth, month[i]);
+            maxMonth = Math.max(maxMonth, month[i]);
+            cents[i] = ((Money) row[10]).times(((Number) row[11]).intValue()).cents();
+        }
+
+        private void grow() {
+            int cap = track.length * 2;
+            track = Arrays.copyOf(track, cap);
+            genre = Arrays.copyOf(genre, cap);
+            album = Arrays.copyOf(album, cap);
+            artist = Arrays.copyOf(artist, cap);
+            country = Arrays.copyOf(country, cap);
+            epochDay = Arrays.copyOf(epochDay, cap);
+            month = Arrays.copyOf(month, cap);
+            cents = Arrays.copyOf(cents, cap);
+        }
+
+        int monthSpan() {
+            return size == 0 ? 0 : maxMonth - minMonth + 1;
+        }
+    }
+
+    private static final class Accumulator {
+        final long[] track, genre, album, artist, country, month;
+        long total;
+
+        Accumulator(Projection p) {
+            track = new long[p.tracks.size()];
+            genre = new long[p.genres.size()];
+            album = new long[p.albums.size()];
+            artist = new long[p.artists.size()];
+            country = new long[p.countries.size()];
+            month = new long[p.monthSpan()];
+        }
+
+        Accumulator merge(Accumulator o) {
+            add(track, o.track);
+            add(genre, o.genre);
+            add(album, o.album);
+            add(artist, o.artist);
+            add(country, o.country);
+            add(month, o.month);
+            total += o.total;
+            return this;
+        }
+
+        private static void add(long[] into, long[] from) {
+            for (int i = 0; i < into.length; i++) into[i] += from[i];
+        }
+    }
+}
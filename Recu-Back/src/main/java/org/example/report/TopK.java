@@ -0,0 +1,59 @@
+package org.example.report;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collector;
+
+/**
+ * Ranking de los K mejores elementos sin ordenar todo: min-heap acotado a K, así que
+ * procesar n elementos cuesta O(n log k) con memoria O(k). Con streams paralelos cada
+ * hilo arma su heap parcial y {@link #merge} los combina.
+ */
+public final class TopK<T> {
+
+    public record Ranked<T>(T item, double score) { }
+
+    private static final Comparator<Ranked<?>> BY_SCORE = Comparator.comparingDouble(Ranked::score);
+
+    private final int k;
+    private final PriorityQueue<Ranked<T>> heap;
+
+    public TopK(int k) {
+        if (k <= 0) throw new IllegalArgumentException("k debe ser positivo: " + k);
+        this.k = k;
+        this.heap = new PriorityQueue<>(k + 1, BY_SCORE);
+    }
+
+    public void offer(T item, double score) {
+        if (Double.isNaN(score)) return;
+        if (heap.size() < k) {
+            heap.offer(new Ranked<>(item, score));
+        } else if (score > heap.peek().score()) {
+            heap.poll();
+            heap.offer(new Ranked<>(item, score));
+        }
+    }
+
+    public TopK<T> merge(TopK<T> other) {
+        for (Ranked<T> r : other.heap) offer(r.item(), r.score());
+        return this;
+    }
+
+    /** Resultado de mayor a menor puntaje. */
+    public List<Ranked<T>> toList() {
+        List<Ranked<T>> out = new ArrayList<>(heap);
+        out.sort(BY_SCORE.reversed());
+        return out;
+    }
+
+    public static <T> Collector<T, TopK<T>, List<Ranked<T>>> collector(int k, ToDoubleFunction<? super T> score) {
+        return Collector.of(
+                () -> new TopK<>(k),
+                (acc, item) -> acc.offer(item, score.applyAsDouble(item)),
+                TopK::merge,
+                TopK::toList);
+    }
+}
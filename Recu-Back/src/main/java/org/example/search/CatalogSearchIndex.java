@@ -0,0 +1,695 @@
+package org.example.search;
+
+import jakarta.persistence.EntityManager;
+import org.example.domain.Album;
+import org.example.domain.Artist;
+import org.example.domain.Composer;
+import org.example.domain.Track;
+import org.example.infra.CsvLoader;
+import org.example.infra.ImportListener;
+import org.example.util.IntIntMap;
+import org.example.util.IntList;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido en memoria sobre nombres de tracks, títulos de álbumes, nombres de
+ * artistas y compositores individuales (tabla COMPOSERS). Los nombres de compositores
+ * también se indexan, con menor peso, dentro del documento de cada track.
+ *
+ * Cada término guarda su posting list como arrays primitivos (doc ids crecientes +
+ * peso del campo) y, aparte, su cabeza: los {@value #HEAD_SIZE} docs de mayor impacto
+ * (peso x boost del tipo, a igualdad el nombre más corto). Un índice directo guarda los
+ * términos de cada doc. Una consulta se tokeniza; cada token matchea el término exacto
+ * o, como prefijo, los términos que empiezan con él (diccionario ordenado). Los
+ * resultados deben contener todos los tokens y se ordenan por puntaje tipo idf:
+ * - un solo token: se responde desde las cabezas de sus términos, recorridos por cota
+ *   superior decreciente, sin tocar las posting lists completas;
+ * - varios tokens: se recorre solo el token con menos postings; un bitset por token
+ *   descarta a los candidatos a los que les falta alguno y el resto se puntúa con el
+ *   índice directo. Si ese token tiene muchos postings, sus listas se recorren por
+ *   impacto decreciente (un orden que cada lista arma la primera vez que se lo pide y
+ *   descarta al recibir un doc nuevo) y se corta cuando ni el mejor caso de lo que falta
+ *   puede entrar en el top; si eso no pasa pronto, se sigue en orden de doc.
+ * La selección del top se hace sobre arrays primitivos, sin boxing. Se actualiza de
+ * forma incremental con {@link #importListener()}; {@code tools.SearchBench} mide la
+ * latencia sobre millones de tracks.
+ */
+public class CatalogSearchIndex {
+
+    public enum DocType {
+        TRACK(1.0f), ALBUM(0.9f), ARTIST(1.1f), COMPOSER(0.8f);
+
+        private final float boost;
+
+        DocType(float boost) {
+            this.boost = boost;
+        }
+    }
+
+    public record Hit(DocType type, int id, String label, float score) { }
+
+    // Máximo de términos en los que se expande un prefijo (acota consultas de 1-2 letras)
+    private static final int MAX_PREFIX_TERMS = 256;
+    private static final float PREFIX_MATCH_FACTOR = 0.6f;
+    private static final float COMPOSER_FIELD_WEIGHT = 0.5f;
+    private static final int HEAD_SIZE = 32;
+    // Hasta esta cantidad de postings el token conductor se recorre completo
+    private static final int SCAN_LIMIT = 2048;
+    // Se arma el bitset de un token si tiene hasta tantas veces los postings del conductor
+    private static final int FILTER_FACTOR = 32;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private byte[] docType = new byte[1024];
+    private int[] docEntityId = new int[1024];
+    private String[] docLabel = new String[1024];
+    // Largo de cada label, para desempatar sin ir a buscar el String
+    private int[] docLength = new int[1024];
+    private int docCount;
+
+    // Índice directo: términos y pesos del doc d en [fwdStart[d], fwdStart[d + 1])
+    private int[] fwdStart = new int[1025];
+    private int[] fwdTerms = new int[4096];
+    private float[] fwdWeights = new float[4096];
+
+    private final TreeMap<String, Integer> terms = new TreeMap<>();
+    private final List<Postings> postings = new ArrayList<>();
+
+    /** Construye el índice completo leyendo artistas, álbumes, compositores y tracks. */
+    public static CatalogSearchIndex build(EntityManager em) {
+        CatalogSearchIndex index = new CatalogSearchIndex();
+        index.lock.writeLock().lock();
+        try {
+            em.createQuery("SELECT a.artistid, a.name FROM Artist a", Object[].class)
+                    .getResultStream()
+                    .forEach(r -> index.addArtist((Integer) r[0], (String) r[1]));
+            em.createQuery("SELECT a.albumId, a.title FROM Album a", Object[].class)
+                    .getResultStream()
+                    .forEach(r -> index.addAlbum((Integer) r[0], (String) r[1]));
+            em.createQuery("SELECT c.composerId, c.name FROM Composer c", Object[].class)
+                    .getResultStream()
+                    .forEach(r -> index.addComposer((Integer) r[0], (String) r[1]));
+            em.createQuery("SELECT t.trackId, t.name, t.composer FROM Track t", Object[].class)
+                    .getResultStream()
+                    .forEach(r -> index.addTrack((Integer) r[0], (String) r[1], (String) r[2]));
+        } finally {
+            index.lock.writeLock().unlock();
+        }
+        return index;
+    }
+
+    /**
+     * Listener para {@link CsvLoader}: acumula las altas de la importación y las
+     * aplica al índice recién en el commit.
+     */
+    public ImportListener importListener() {
+        return new ImportListener() {
+            private final List<Runnable> pending = new ArrayList<>();
+
+            @Override
+            public void onArtistInserted(Artist artist) {
+                pending.add(() -> addArtist(artist.getArtistid(), artist.getName()));
+            }
+
+            @Override
+            public void onAlbumInserted(Album album) {
+                pending.add(() -> addAlbum(album.getAlbumId(), album.getTitle()));
+            }
+
+            @Override
+            public void onTrackInserted(Track track) {
+                pending.add(() -> addTrack(track.getTrackId(), track.getName(), track.getComposer()));
+            }
+
+            @Override
+            public void onComposerInserted(Composer composer) {
+                pending.add(() -> addComposer(composer.getComposerId(), composer.getName()));
+            }
+
+            @Override
+            public void onCommit(CsvLoader.Stats stats) {
+                lock.writeLock().lock();
+                try {
+                    pending.forEach(Runnable::run);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                pending.clear();
+            }
+
+            @Override
+            public void onRollback() {
+                pending.clear();
+            }
+        };
+    }
+
+    public int documentCount() {
+        lock.readLock().lock();
+        try {
+            return docCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Busca documentos que contengan todos los tokens de la consulta (exactos o como prefijo). */
+    public List<Hit> search(String query, int limit) {
+        List<String> tokens = Tokenizer.tokens(query);
+        if (tokens.isEmpty() || limit <= 0) return List.of();
+        lock.readLock().lock();
+        try {
+            Match[] matches = new Match[tokens.size()];
+            for (int i = 0; i < matches.length; i++) {
+                matches[i] = match(tokens.get(i));
+                if (matches[i].postings == 0) return List.of();
+            }
+            TopHits top = new TopHits(limit);
+            Match driver = matches[0];
+            for (Match m : matches) {
+                if (m.postings < driver.postings) driver = m;
+            }
+            if (matches.length == 1 && limit <= HEAD_SIZE) {
+                fromHeads(driver, top);
+            } else if (driver.postings <= SCAN_LIMIT) {
+                scan(matches, driver, top, filters(matches, driver, driver.postings));
+            } else {
+                byImpact(matches, driver, top);
+            }
+            return top.hits();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // =========================================================
+    // Alta de documentos (llamar con el write lock tomado)
+    // =========================================================
+
+    private void addArtist(Integer id, String name) {
+        if (id == null || name == null) return;
+        int doc = newDoc(DocType.ARTIST, id, name);
+        indexText(doc, name, 1.0f);
+    }
+
+    private void addAlbum(Integer id, String title) {
+        if (id == null || title == null) return;
+        int doc = newDoc(DocType.ALBUM, id, title);
+        indexText(doc, title, 1.0f);
+    }
+
+    private void addTrack(Integer id, String name, String composer) {
+        if (id == null || name == null) return;
+        int doc = newDoc(DocType.TRACK, id, name);
+        indexText(doc, name, 1.0f);
+        for (String composerName : Composer.splitNames(composer)) {
+            indexText(doc, composerName, COMPOSER_FIELD_WEIGHT);
+        }
+    }
+
+    private void addComposer(Integer id, String name) {
+        if (id == null || name == null) return;
+        int doc = newDoc(DocType.COMPOSER, id, name);
+        indexText(doc, name, 1.0f);
+    }
+
+    private int newDoc(DocType type, int entityId, String label) {
+        if (docCount == docType.length) {
+            int cap = docCount * 2;
+            docType = Arrays.copyOf(docType, cap);
+            docEntityId = Arrays.copyOf(docEntityId, cap);
+            docLabel = Arrays.copyOf(docLabel, cap);
+            docLength = Arrays.copyOf(docLength, cap);
+            fwdStart = Arrays.copyOf(fwdStart, cap + 1);
+        }
+        docType[docCount] = (byte) type.ordinal();
+        docEntityId[docCount] = entityId;
+        docLabel[docCount] = label;
+        docLength[docCount] = label.length();
+        fwdStart[docCount + 1] = fwdStart[docCount];
+        return docCount++;
+    }
+
+    /** Indexa el texto en el último doc creado. */
+    private void indexText(int doc, String text, float weight) {
+        float boost = DocType.values()[docType[doc]].boost;
+        int length = docLength[doc];
+        for (String token : Tokenizer.tokens(text)) {
+            Integer termId = terms.get(token);
+            if (termId == null) {
+                termId = postings.size();
+                terms.put(token, termId);
+                postings.add(new Postings());
+            }
+            postings.get(termId).add(doc, weight, boost, length);
+            int f = fwdStart[doc + 1]++;
+            if (f == fwdTerms.length) {
+                fwdTerms = Arrays.copyOf(fwdTerms, f * 2);
+                fwdWeights = Arrays.copyOf(fwdWeights, f * 2);
+            }
+            fwdTerms[f] = termId;
+            fwdWeights[f] = weight;
+        }
+    }
+
+    // =========================================================
+    // Consulta
+    // =========================================================
+
+    private Match match(String token) {
+        Match m = new Match();
+        Integer exact = terms.get(token);
+        if (exact != null) m.add(exact, 1.0f);
+        int expanded = 0;
+        for (Integer termId : terms.subMap(token, false, token + Character.MAX_VALUE, false).values()) {
+            if (expanded++ >= MAX_PREFIX_TERMS) break;
+            m.add(termId, PREFIX_MATCH_FACTOR);
+        }
+        return m;
+    }
+
+    /**
+     * Un solo token: el puntaje de un doc es el de su mejor término, y dentro de un término
+     * el orden de la cabeza es el del puntaje. Así el top está entre las cabezas, y se
+     * deja de leer un término (o todos los que quedan) cuando su cota ya no alcanza.
+     */
+    private void fromHeads(Match m, TopHits top) {
+        long[] order = m.byBound();
+        for (int o = order.length - 1; o >= 0; o--) {
+            if (top.full() && Float.intBitsToFloat((int) (order[o] >>> 32)) < top.worstScore()) break;
+            int i = (int) order[o];
+            Postings p = postings.get(m.termIds.get(i));
+            for (int h = 0; h < p.headSize; h++) {
+                if (!top.offer(p.headDocs[h], m.base[i] * p.headImpacts[h])) break;
+            }
+        }
+    }
+
+    /** Varios tokens: recorre el de menos postings y verifica cada candidato con el índice directo. */
+    private void scan(Match[] matches, Match driver, TopHits top, long[][] filters) {
+        DocType[] types = DocType.values();
+        float[] best = new float[matches.length];
+        for (int i = 0; i < driver.termIds.size(); i++) {
+            int termId = driver.termIds.get(i);
+            Postings p = postings.get(termId);
+            for (int j = 0; j < p.size; j++) {
+                int doc = p.docs[j];
+                if (!passes(filters, doc)) continue;
+                float score = score(doc, matches, best, driver, termId);
+                if (score > 0) top.offer(doc, score * types[docType[doc]].boost);
+            }
+        }
+    }
+
+    /**
+     * Como {@link #scan} pero recorriendo las listas del conductor por impacto decreciente
+     * (mezcladas por puntaje base x impacto). Un candidato no supera su cota: su aporte al
+     * token conductor más el máximo posible de cada uno de los otros tokens. Como la cota
+     * solo baja a lo largo del recorrido, cuando una no alcanza para entrar al top ya no
+     * entra ningún otro. Un doc que aparece en varias listas se puntúa en cada una (el
+     * puntaje es el mismo) y {@link TopHits} lo deja una sola vez; lo mismo si al final
+     * hay que volver a recorrer en orden de doc.
+     */
+    private void byImpact(Match[] matches, Match driver, TopHits top) {
+        DocType[] types = DocType.values();
+        float[] best = new float[matches.length];
+        long[][] filters = filters(matches, null, driver.postings);
+        // Los términos de cota más alta de los otros tokens suelen ser raros (idf alto) y
+        // con pocas filas: sus docs se puntúan ya, y la cota de lo que queda usa solo el
+        // resto de los términos. Si un token entero entra en el presupuesto, ya se vio
+        // todo doc que puede matchear la consulta. Recorrer esas filas (casi todas
+        // descartadas por el filtro) cuesta a lo sumo lo mismo que el conductor, y un
+        // término de tamaño comparable al conductor se deja para la cota.
+        float rest = 0;
+        long budget = driver.postings;
+        for (Match m : matches) {
+            if (m == driver) continue;
+            long[] order = m.byBound();
+            int o = order.length - 1;
+            for (; o >= 0; o--) {
+                Postings p = postings.get(m.termIds.get((int) order[o]));
+                if (p.size > budget || 2L * p.size > driver.postings) break;
+                budget -= p.size;
+                for (int j = 0; j < p.size; j++) {
+                    int doc = p.docs[j];
+                    if (!passes(filters, doc)) continue;
+                    float score = score(doc, matches, best, driver, -1);
+                    if (score > 0) top.offer(doc, score * types[docType[doc]].boost);
+                }
+            }
+            if (o < 0) return;
+            rest += Float.intBitsToFloat((int) (order[o] >>> 32));
+        }
+        int n = driver.termIds.size();
+        int[][] docs = new int[n][];
+        float[][] impacts = new float[n][];
+        int[] ends = new int[n];
+        for (int i = 0; i < n; i++) {
+            Postings p = postings.get(driver.termIds.get(i));
+            if (p.size == p.headSize) {
+                docs[i] = p.headDocs;
+                impacts[i] = p.headImpacts;
+            } else {
+                ImpactOrder order = ordered(p);
+                docs[i] = order.docs;
+                impacts[i] = order.impacts;
+            }
+            ends[i] = p.size;
+        }
+        // Heap de listas por su próximo candidato (el mejor arriba)
+        int[] pos = new int[n];
+        int[] heap = new int[n];
+        for (int i = 0; i < n; i++) {
+            heap[i] = i;
+        }
+        MergeOrder order = (a, b) -> better(driver.base[a] * impacts[a][pos[a]], docLength[docs[a][pos[a]]], docs[a][pos[a]],
+                driver.base[b] * impacts[b][pos[b]], docLength[docs[b][pos[b]]], docs[b][pos[b]]);
+        int heapSize = n;
+        for (int i = heapSize / 2 - 1; i >= 0; i--) siftDown(heap, heapSize, i, order);
+        int steps = 0;
+        while (heapSize > 0) {
+            // Si la cota no corta pronto (tokens comunes que casi nunca van juntos) se
+            // termina en orden de doc, que por candidato es mucho más barato
+            if (++steps > SCAN_LIMIT) {
+                scan(matches, driver, top, filters);
+                return;
+            }
+            int i = heap[0];
+            int doc = docs[i][pos[i]];
+            float bound = driver.base[i] * impacts[i][pos[i]] + rest;
+            if (passes(filters, doc)) {
+                if (top.full() && !top.couldEnter(doc, bound)) break;
+                float score = score(doc, matches, best, driver, -1);
+                if (score > 0) top.offer(doc, score * types[docType[doc]].boost);
+            }
+            if (++pos[i] == ends[i]) heap[0] = heap[--heapSize];
+            siftDown(heap, heapSize, 0, order);
+        }
+    }
+
+    /**
+     * Un bitset por token (salvo {@code skip}) con los docs que lo matchean, para descartar
+     * sin puntuar a los candidatos que no tienen todos los tokens (la mayoría, si los
+     * tokens son comunes y aparecen poco juntos). Armarlo cuesta una escritura por
+     * posting: solo se arma si el token no es mucho más largo que lo que se va a recorrer.
+     */
+    private long[][] filters(Match[] matches, Match skip, long candidates) {
+        long[][] filters = new long[matches.length][];
+        for (int t = 0; t < matches.length; t++) {
+            Match m = matches[t];
+            if (m == skip || m.postings > FILTER_FACTOR * candidates) continue;
+            long[] bits = new long[(docCount >>> 6) + 1];
+            for (int i = 0; i < m.termIds.size(); i++) {
+                Postings p = postings.get(m.termIds.get(i));
+                for (int j = 0; j < p.size; j++) {
+                    bits[p.docs[j] >>> 6] |= 1L << p.docs[j];
+                }
+            }
+            filters[t] = bits;
+        }
+        return filters;
+    }
+
+    private static boolean passes(long[][] filters, int doc) {
+        for (long[] bits : filters) {
+            if (bits != null && (bits[doc >>> 6] & (1L << doc)) == 0) return false;
+        }
+        return true;
+    }
+
+    private interface MergeOrder {
+        boolean before(int a, int b);
+    }
+
+    private static void siftDown(int[] heap, int size, int i, MergeOrder order) {
+        while (true) {
+            int l = 2 * i + 1, r = l + 1, first = i;
+            if (l < size && order.before(heap[l], heap[first])) first = l;
+            if (r < size && order.before(heap[r], heap[first])) first = r;
+            if (first == i) return;
+            int t = heap[i];
+            heap[i] = heap[first];
+            heap[first] = t;
+            i = first;
+        }
+    }
+
+    /** Orden por impacto de una lista larga, armado la primera vez que se lo pide. */
+    private ImpactOrder ordered(Postings p) {
+        ImpactOrder order = p.ordered;
+        if (order != null) return order;
+        // Con el read lock tomado pueden llegar varios lectores a la vez; lo arma uno
+        synchronized (p) {
+            if (p.ordered != null) return p.ordered;
+            DocType[] types = DocType.values();
+            // Pocos impactos distintos (peso x boost): se ordenan por su rango
+            float[] distinct = new float[8];
+            int kinds = 0;
+            long[] keys = new long[p.size];
+            float[] impactOf = new float[p.size];
+            for (int j = 0; j < p.size; j++) {
+                impactOf[j] = p.weights[j] * types[docType[p.docs[j]]].boost;
+            }
+            for (float impact : impactOf) {
+                boolean seen = false;
+                for (int d = 0; d < kinds && !seen; d++) seen = distinct[d] == impact;
+                if (!seen) {
+                    if (kinds == distinct.length) distinct = Arrays.copyOf(distinct, kinds * 2);
+                    distinct[kinds++] = impact;
+                }
+            }
+            float[] ranks = Arrays.copyOf(distinct, kinds);
+            Arrays.sort(ranks);
+            for (int j = 0; j < p.size; j++) {
+                int doc = p.docs[j];
+                long rank = kinds - 1 - Arrays.binarySearch(ranks, impactOf[j]);
+                keys[j] = (rank << 41) | ((long) Math.min(1023, docLength[doc]) << 31) | doc;
+            }
+            Arrays.sort(keys);
+            int[] docs = new int[p.size];
+            float[] impacts = new float[p.size];
+            for (int j = 0; j < p.size; j++) {
+                docs[j] = (int) (keys[j] & Integer.MAX_VALUE);
+                impacts[j] = ranks[kinds - 1 - (int) (keys[j] >>> 41)];
+            }
+            order = new ImpactOrder(docs, impacts);
+            p.ordered = order;
+            return order;
+        }
+    }
+
+    /**
+     * Suma, por token, el puntaje del mejor término del doc que lo matchea; 0 si falta
+     * algún token. Un doc con varios términos del token conductor aparece en varias de
+     * sus listas: con {@code driverTerm >= 0} solo se puntúa desde la del primero de esos
+     * términos en el doc.
+     */
+    private float score(int doc, Match[] matches, float[] best, Match driver, int driverTerm) {
+        Arrays.fill(best, 0f);
+        boolean driverSeen = false;
+        for (int f = fwdStart[doc]; f < fwdStart[doc + 1]; f++) {
+            int term = fwdTerms[f];
+            if (driverTerm >= 0 && !driverSeen && driver.slot(term) >= 0) {
+                if (term != driverTerm) return 0;
+                driverSeen = true;
+            }
+            for (int t = 0; t < matches.length; t++) {
+                int slot = matches[t].slot(term);
+                if (slot >= 0) best[t] = Math.max(best[t], matches[t].base[slot] * fwdWeights[f]);
+            }
+        }
+        float total = 0;
+        for (float b : best) {
+            if (b == 0) return 0;
+            total += b;
+        }
+        return total;
+    }
+
+    private float idf(Postings p) {
+        return (float) Math.log(1.0 + (double) docCount / Math.max(1, p.size));
+    }
+
+    /** a antes que b: mayor puntaje, a igualdad nombre más corto, después menor doc. */
+    private static boolean better(float scoreA, int lengthA, int docA, float scoreB, int lengthB, int docB) {
+        if (scoreA != scoreB) return scoreA > scoreB;
+        if (lengthA != lengthB) return lengthA < lengthB;
+        return docA < docB;
+    }
+
+    /** Términos que matchea un token, con su puntaje base (factor exacto/prefijo x idf). */
+    private final class Match {
+        final IntList termIds = new IntList();
+        final IntIntMap slots = new IntIntMap(16, -1);
+        float[] base = new float[4];
+        long postings;
+
+        void add(int termId, float factor) {
+            Postings p = CatalogSearchIndex.this.postings.get(termId);
+            int slot = termIds.size();
+            if (slot == base.length) base = Arrays.copyOf(base, slot * 2);
+            base[slot] = factor * idf(p);
+            termIds.add(termId);
+            slots.put(termId, slot);
+            postings += p.size;
+        }
+
+        int slot(int termId) {
+            return slots.get(termId);
+        }
+
+        /**
+         * (cota, slot) de cada término ordenados de menor a mayor cota; la cota es lo más que
+         * el término puede sumar (boost del tipo incluido). Son floats positivos: ordenan
+         * igual que sus bits.
+         */
+        long[] byBound() {
+            long[] order = new long[termIds.size()];
+            for (int i = 0; i < order.length; i++) {
+                Postings p = CatalogSearchIndex.this.postings.get(termIds.get(i));
+                order[i] = ((long) Float.floatToIntBits(base[i] * p.headImpacts[0]) << 32) | i;
+            }
+            Arrays.sort(order);
+            return order;
+        }
+    }
+
+    /** Los mejores {@code limit} docs en arrays ordenados (el mejor primero), sin repetir docs. */
+    private final class TopHits {
+        final int limit;
+        int[] docs;
+        float[] scores;
+        int size;
+
+        TopHits(int limit) {
+            this.limit = limit;
+            docs = new int[Math.min(limit, 64)];
+            scores = new float[docs.length];
+        }
+
+        boolean full() {
+            return size == limit;
+        }
+
+        float worstScore() {
+            return scores[size - 1];
+        }
+
+        /** Con el top lleno: si un doc con ese puntaje desplazaría al peor. */
+        boolean couldEnter(int doc, float score) {
+            return better(score, docLength[doc], doc, scores[size - 1], docLength[docs[size - 1]], docs[size - 1]);
+        }
+
+        /** false si el doc no entra (lo que venga después con menor o igual puntaje tampoco). */
+        boolean offer(int doc, float score) {
+            int length = docLength[doc];
+            if (full() && !couldEnter(doc, score)) {
+                return false;
+            }
+            for (int i = 0; i < size; i++) {
+                if (docs[i] != doc) continue;
+                if (scores[i] >= score) return true;
+                System.arraycopy(docs, i + 1, docs, i, size - i - 1);
+                System.arraycopy(scores, i + 1, scores, i, size - i - 1);
+                size--;
+                break;
+            }
+            int i = size < limit ? size : size - 1;
+            if (i == docs.length) {
+                docs = Arrays.copyOf(docs, (int) Math.min(limit, 2L * i));
+                scores = Arrays.copyOf(scores, docs.length);
+            }
+            if (size < limit) size++;
+            while (i > 0 && better(score, length, doc, scores[i - 1], docLength[docs[i - 1]], docs[i - 1])) {
+                docs[i] = docs[i - 1];
+                scores[i] = scores[i - 1];
+                i--;
+            }
+            docs[i] = doc;
+            scores[i] = score;
+            return true;
+        }
+
+        List<Hit> hits() {
+            DocType[] types = DocType.values();
+            List<Hit> out = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                out.add(new Hit(types[docType[docs[i]]], docEntityId[docs[i]], docLabel[docs[i]], scores[i]));
+            }
+            return out;
+        }
+    }
+
+    private record ImpactOrder(int[] docs, float[] impacts) { }
+
+    /**
+     * Posting list: doc ids en orden creciente y peso del campo en que aparece el término,
+     * más la cabeza con los {@value #HEAD_SIZE} docs de mayor impacto, el mejor primero.
+     */
+    private static final class Postings {
+        int[] docs = new int[4];
+        float[] weights = new float[4];
+        int size;
+        int[] headDocs = new int[2];
+        float[] headImpacts = new float[2];
+        int[] headLengths = new int[2];
+        int headSize;
+        // Orden por impacto de la lista completa (ver ordered()); se descarta al cambiar
+        volatile ImpactOrder ordered;
+
+        void add(int doc, float weight, float boost, int length) {
+            ordered = null;
+            if (size > 0 && docs[size - 1] == doc) {
+                if (weight <= weights[size - 1]) return;
+                weights[size - 1] = weight;
+                removeFromHead(doc);
+                offerHead(doc, weight * boost, length);
+                return;
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            docs[size] = doc;
+            weights[size] = weight;
+            size++;
+            offerHead(doc, weight * boost, length);
+        }
+
+        private void offerHead(int doc, float impact, int length) {
+            if (headSize == HEAD_SIZE && !better(impact, length, doc,
+                    headImpacts[headSize - 1], headLengths[headSize - 1], headDocs[headSize - 1])) {
+                return;
+            }
+            if (headSize == headDocs.length) {
+                int cap = Math.min(HEAD_SIZE, headSize * 2);
+                headDocs = Arrays.copyOf(headDocs, cap);
+                headImpacts = Arrays.copyOf(headImpacts, cap);
+                headLengths = Arrays.copyOf(headLengths, cap);
+            }
+            int i = headSize < HEAD_SIZE ? headSize++ : HEAD_SIZE - 1;
+            while (i > 0 && better(impact, length, doc, headImpacts[i - 1], headLengths[i - 1], headDocs[i - 1])) {
+                headDocs[i] = headDocs[i - 1];
+                headImpacts[i] = headImpacts[i - 1];
+                headLengths[i] = headLengths[i - 1];
+                i--;
+            }
+            headDocs[i] = doc;
+            headImpacts[i] = impact;
+            headLengths[i] = length;
+        }
+
+        private void removeFromHead(int doc) {
+            for (int i = 0; i < headSize; i++) {
+                if (headDocs[i] != doc) continue;
+                System.arraycopy(headDocs, i + 1, headDocs, i, headSize - i - 1);
+                System.arraycopy(headImpacts, i + 1, headImpacts, i, headSize - i - 1);
+                System.arraycopy(headLengths, i + 1, headLengths, i, headSize - i - 1);
+                headSize--;
+                return;
+            }
+        }
+    }
+}
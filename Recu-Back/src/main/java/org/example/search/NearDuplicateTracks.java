@@ -0,0 +1,384 @@
+package org.example.search;
+
+import jakarta.persistence.EntityManager;
+import org.example.util.LongList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * Tracks casi duplicados ("Song (Remastered)", "Song - 2011 Remaster", "Dont Stop" y
+ * "Don't Stop") sin comparar todos contra todos. {@code CsvLoader} solo reconoce nombres
+ * idénticos, así que estas variantes terminan como filas distintas.
+ *
+ * Bloqueo: solo se comparan tracks del mismo artista (normalizado). Cada track se describe
+ * con los trigramas de su nombre normalizado (sin puntuación ni calificadores de edición
+ * como "Remastered" o "Radio Edit"; "Live", "Remix" o "Alternate Take" se conservan porque
+ * son otra grabación), y ese conjunto se resume en una firma MinHash de bandas·filas
+ * valores. LSH: dos tracks son candidatos si coinciden en alguna banda, lo que pasa con
+ * probabilidad 1 − (1 − s^filas)^bandas para similitud de Jaccard s (con 16×4: 96% para
+ * s = 0,65 y 12% para s = 0,3). Cada banda se resuelve ordenando un long[] de
+ * (artista + banda + valores, índice), así que el costo es O(n·bandas·log n) en lugar de
+ * O(n²); firmas, bandas y verificación corren en paralelo.
+ *
+ * Los candidatos se confirman con el Jaccard exacto (≥ umbral), los mismos números y marcas
+ * de grabación en el nombre ("Part 1" no es "Part 2", "Song (Live)" no es "Song") y
+ * duraciones a menos de 10% si ambas se conocen. El álbum no entra en la firma (el mismo
+ * tema en un recopilatorio es el duplicado más común) sino en la verificación: con álbumes
+ * distintos el umbral sube 0,1. Los pares confirmados se agrupan
+ * (unión-búsqueda) y en cada grupo sobrevive el track de menor id; los demás forman el plan
+ * de {@link Merge} que aplica {@code TrackMerger}.
+ */
+public final class NearDuplicateTracks {
+
+    public static final double DEFAULT_THRESHOLD = 0.65;
+    public static final int DEFAULT_BANDS = 16;
+    public static final int DEFAULT_ROWS = 4;
+
+    /** Track a comparar; milliseconds = 0 si no se conoce. */
+    public record Entry(int trackId, String name, String album, String artist, int milliseconds) { }
+
+    public record Pair(int trackId, int otherTrackId, double similarity) { }
+
+    /** Reemplazar {@code duplicateId} por {@code survivorId} en todas sus referencias. */
+    public record Merge(int duplicateId, int survivorId) { }
+
+    public record Result(List<Pair> pairs, List<Merge> plan, int tracks, long candidatePairs,
+                         long signatureMillis, long candidateMillis, long verifyMillis) { }
+
+    // Índice del track en los 24 bits bajos de cada clave de banda (el resto es el hash del balde)
+    private static final int INDEX_BITS = 24;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+    // Un balde más grande (p. ej. un artista con cientos de "Intro") solo compara vecinos en esta ventana
+    private static final int MAX_BUCKET = 64;
+    private static final double DURATION_TOLERANCE = 0.10;
+    private static final double OTHER_ALBUM_MARGIN = 0.10;
+
+    private static final Pattern QUALIFIED = Pattern.compile("[(\\[]([^)\\]]*)[)\\]]|\\s-\\s(.*)$");
+    private static final Set<String> QUALIFIERS = Set.of("remaster", "remastered", "remasterizado",
+            "remasterizada", "edit", "mono", "stereo", "explicit", "bonus", "track", "deluxe",
+            "edition", "single", "album", "radio", "digital", "original", "expanded", "anniversary");
+    private static final Set<String> DISTINCT_RECORDINGS = Set.of("live", "vivo", "remix", "mix", "acoustic",
+            "acustico", "demo", "instrumental", "karaoke", "cover", "reprise", "alternate", "alt", "take", "outtake",
+            "unplugged", "rehearsal");
+    private static final Set<String> ROMAN = Set.of("i", "ii", "iii", "iv", "v", "vi", "vii", "viii", "ix", "x",
+            "xi", "xii");
+
+    private final double threshold;
+    private final int bands;
+    private final int rows;
+    private final long[] multipliers;
+    private final long[] increments;
+
+    public NearDuplicateTracks() {
+        this(DEFAULT_THRESHOLD, DEFAULT_BANDS, DEFAULT_ROWS);
+    }
+
+    /**
+     * @param threshold similitud de Jaccard mínima entre los nombres de un par del mismo álbum
+     * @param bands     más bandas = más recall y más candidatos a verificar
+     * @param rows      más filas por banda = menos candidatos con similitud baja
+     */
+    public NearDuplicateTracks(double threshold, int bands, int rows) {
+        if (threshold <= 0 || threshold > 1) throw new IllegalArgumentException("umbral fuera de (0, 1]: " + threshold);
+        if (bands < 1 || rows < 1) throw new IllegalArgumentException("bandas y filas deben ser positivas");
+        this.threshold = threshold;
+        this.bands = bands;
+        this.rows = rows;
+        // Funciones de hash a·x + c (a impar) fijas, para que dos corridas den los mismos candidatos
+        SplittableRandom random = new SplittableRandom(0x4D696E48617368L);
+        this.multipliers = new long[bands * rows];
+        this.increments = new long[bands * rows];
+        for (int i = 0; i < multipliers.length; i++) {
+            multipliers[i] = random.nextLong() | 1;
+            increments[i] = random.nextLong();
+        }
+    }
+
+    /** Tracks del catálogo con álbum, artista y duración. */
+    public static List<Entry> load(EntityManager em) {
+        List<Entry> out = new ArrayList<>();
+        em.createQuery("""
+                        SELECT t.trackId, t.name, al.title, ar.name, t.milliseconds
+                        FROM Track t LEFT JOIN t.album al LEFT JOIN al.artistId ar""", Object[].class)
+                .getResultStream()
+                .forEach(r -> out.add(new Entry((Integer) r[0], (String) r[1], (String) r[2], (String) r[3],
+                        r[4] == null ? 0 : (Integer) r[4])));
+        return out;
+    }
+
+    public Result find(List<Entry> tracks) {
+        int n = tracks.size();
+        if (n > INDEX_MASK) throw new IllegalArgumentException("máximo " + INDEX_MASK + " tracks por corrida: " + n);
+
+        long start = System.nanoTime();
+        long[][] keys = new long[bands][n];
+        IntStream.range(0, n).parallel().forEach(t -> bandKeys(tracks.get(t), t, keys));
+        long signaturesDone = System.nanoTime();
+
+        long[] candidates = candidates(keys);
+        long candidatesDone = System.nanoTime();
+
+        // Cada track que aparece en algún candidato se prepara una sola vez
+        boolean[] involved = new boolean[n];
+        for (long c : candidates) {
+            involved[(int) (c >>> 32)] = true;
+            involved[(int) c] = true;
+        }
+        Prepared[] prepared = new Prepared[n];
+        IntStream.range(0, n).parallel().filter(t -> involved[t]).forEach(t -> prepared[t] = Prepared.of(tracks.get(t)));
+        double[] similarity = new double[candidates.length];
+        boolean[] sameAlbum = new boolean[candidates.length];
+        IntStream.range(0, candidates.length).parallel().forEach(i -> {
+            Prepared a = prepared[(int) (candidates[i] >>> 32)];
+            Prepared b = prepared[(int) candidates[i]];
+            similarity[i] = similarity(a, b);
+            sameAlbum[i] = a.album().equals(b.album());
+        });
+        List<Pair> pairs = new ArrayList<>();
+        int[] parent = IntStream.range(0, n).toArray();
+        for (int i = 0; i < candidates.length; i++) {
+            if (similarity[i] < threshold + (sameAlbum[i] ? 0 : OTHER_ALBUM_MARGIN)) continue;
+            int a = (int) (candidates[i] >>> 32);
+            int b = (int) candidates[i];
+            pairs.add(new Pair(tracks.get(a).trackId(), tracks.get(b).trackId(), similarity[i]));
+            union(parent, a, b, tracks);
+        }
+        List<Merge> plan = new ArrayList<>();
+        for (int t = 0; t < n; t++) {
+            int root = find(parent, t);
+            if (root != t) plan.add(new Merge(tracks.get(t).trackId(), tracks.get(root).trackId()));
+        }
+        long verifyDone = System.nanoTime();
+        return new Result(pairs, plan, n, candidates.length, (signaturesDone - start) / 1_000_000,
+                (candidatesDone - signaturesDone) / 1_000_000, (verifyDone - candidatesDone) / 1_000_000);
+    }
+
+    /**
+     * Nombre para comparar: minúsculas, sin acentos ni apóstrofos, sin los paréntesis o
+     * sufijos " - ..." que solo indican la edición, y con las palabras separadas por un espacio.
+     */
+    public static String normalizeName(String name) {
+        if (name == null) return "";
+        String text = fold(name);
+        if (text.indexOf('(') >= 0 || text.indexOf('[') >= 0 || text.contains(" - ")) {
+            Matcher m = QUALIFIED.matcher(text);
+            StringBuilder out = new StringBuilder();
+            while (m.find()) {
+                String segment = m.group(1) != null ? m.group(1) : m.group(2);
+                m.appendReplacement(out, isEditionQualifier(segment) ? " " : Matcher.quoteReplacement(" " + segment + " "));
+            }
+            m.appendTail(out);
+            text = out.toString();
+        }
+        return words(text);
+    }
+
+    // =========================================================
+    // Firmas y candidatos
+    // =========================================================
+
+    private void bandKeys(Entry entry, int index, long[][] keys) {
+        String name = normalizeName(entry.name());
+        long[] shingles = shingles(name);
+        long block = mix(normalizeName(entry.artist()).hashCode());
+        long[] signature = new long[bands * rows];
+        for (int i = 0; i < signature.length; i++) {
+            long a = multipliers[i];
+            long c = increments[i];
+            long min = Long.MAX_VALUE;
+            for (long x : shingles) min = Math.min(min, (a * x + c) >>> 1);
+            signature[i] = min;
+        }
+        for (int band = 0; band < bands; band++) {
+            long h = mix(block ^ (band + 1) * 0x9E3779B97F4A7C15L);
+            for (int r = 0; r < rows; r++) h = mix(h ^ signature[band * rows + r]);
+            // Sin nombre no hay nada que comparar: cada uno queda en su propio balde
+            if (name.isEmpty()) h = mix(h ^ index);
+            keys[band][index] = (h & ~INDEX_MASK) | index;
+        }
+    }
+
+    /** Pares de índices (a << 32 | b, a < b) que comparten algún balde, sin repetir. */
+    private long[] candidates(long[][] keys) {
+        List<long[]> perBand = IntStream.range(0, bands).parallel().mapToObj(band -> {
+            long[] k = keys[band];
+            Arrays.sort(k);
+            keys[band] = null;
+            LongList pairs = new LongList();
+            int start = 0;
+            while (start < k.length) {
+                long bucket = k[start] & ~INDEX_MASK;
+                int end = start + 1;
+                while (end < k.length && (k[end] & ~INDEX_MASK) == bucket) end++;
+                for (int i = start; i < end; i++) {
+                    for (int j = i + 1; j < Math.min(end, i + MAX_BUCKET); j++) {
+                        pairs.add((k[i] & INDEX_MASK) << 32 | (k[j] & INDEX_MASK));
+                    }
+                }
+                start = end;
+            }
+            return pairs.toArray();
+        }).toList();
+        long[] all = new long[perBand.stream().mapToInt(p -> p.length).sum()];
+        int offset = 0;
+        for (long[] p : perBand) {
+            System.arraycopy(p, 0, all, offset, p.length);
+            offset += p.length;
+        }
+        Arrays.parallelSort(all);
+        int unique = 0;
+        for (int i = 0; i < all.length; i++) {
+            if (i == 0 || all[i] != all[i - 1]) all[unique++] = all[i];
+        }
+        return Arrays.copyOf(all, unique);
+    }
+
+    // =========================================================
+    // Verificación
+    // =========================================================
+
+    /** Lo que la verificación usa de un track, ya normalizado. */
+    private record Prepared(String artist, String album, List<String> markers, long[] shingles, int milliseconds) {
+        static Prepared of(Entry entry) {
+            String name = normalizeName(entry.name());
+            return new Prepared(normalizeName(entry.artist()), normalizeName(entry.album()), NearDuplicateTracks.markers(name),
+                    NearDuplicateTracks.shingles(name), entry.milliseconds());
+        }
+    }
+
+    private static double similarity(Prepared a, Prepared b) {
+        if (!a.artist().equals(b.artist()) || !a.markers().equals(b.markers())) return 0;
+        if (a.milliseconds() > 0 && b.milliseconds() > 0
+                && Math.abs(a.milliseconds() - b.milliseconds()) > DURATION_TOLERANCE * Math.max(a.milliseconds(), b.milliseconds())) {
+            return 0;
+        }
+        return jaccard(a.shingles(), b.shingles());
+    }
+
+    private static double jaccard(long[] a, long[] b) {
+        int i = 0;
+        int j = 0;
+        int common = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        int union = a.length + b.length - common;
+        return union == 0 ? 0 : (double) common / union;
+    }
+
+    /** Números (arábigos o romanos) y marcas de otra grabación, que tienen que coincidir. */
+    private static List<String> markers(String normalizedName) {
+        List<String> out = new ArrayList<>();
+        for (String token : normalizedName.split(" ")) {
+            if (ROMAN.contains(token) || DISTINCT_RECORDINGS.contains(token)
+                    || (!token.isEmpty() && token.chars().anyMatch(Character::isDigit))) {
+                out.add(token);
+            }
+        }
+        return out;
+    }
+
+    /** Trigramas del nombre (con un espacio de borde), hasheados, ordenados y sin repetir. */
+    private static long[] shingles(String name) {
+        LongList out = new LongList(name.length() + 8);
+        if (!name.isEmpty()) {
+            String padded = " " + name + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                out.add(mix(((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2)));
+            }
+        }
+        long[] s = out.toArray();
+        Arrays.sort(s);
+        int unique = 0;
+        for (int i = 0; i < s.length; i++) {
+            if (i == 0 || s[i] != s[i - 1]) s[unique++] = s[i];
+        }
+        return Arrays.copyOf(s, unique);
+    }
+
+    /** Minúsculas sin acentos; los textos ASCII (casi todos) no pasan por la normalización Unicode. */
+    private static String fold(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 128) return Tokenizer.normalize(text);
+        }
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    /** Palabras alfanuméricas separadas por un espacio; los apóstrofos se quitan ("don't" -> "dont"). */
+    private static String words(String text) {
+        char[] out = new char[text.length()];
+        int length = 0;
+        boolean separator = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (separator && length > 0) out[length++] = ' ';
+                separator = false;
+                out[length++] = c;
+            } else if (c != '\'' && c != '’' && c != '`') {
+                separator = true;
+            }
+        }
+        return new String(out, 0, length);
+    }
+
+    private static boolean isEditionQualifier(String segment) {
+        List<String> tokens = Tokenizer.tokens(segment);
+        boolean qualifier = false;
+        for (String token : tokens) {
+            if (DISTINCT_RECORDINGS.contains(token)) return false;
+            if (QUALIFIERS.contains(token)) qualifier = true;
+        }
+        // "(1998)" o "- 2011 Remaster": solo años y calificadores
+        return qualifier || (tokens.size() == 1 && tokens.get(0).matches("(19|20)\\d\\d"));
+    }
+
+    // =========================================================
+    // Unión-búsqueda (la raíz es siempre el track de menor id)
+    // =========================================================
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int a, int b, List<Entry> tracks) {
+        int ra = find(parent, a);
+        int rb = find(parent, b);
+        if (ra == rb) return;
+        if (tracks.get(ra).trackId() < tracks.get(rb).trackId()) {
+            parent[rb] = ra;
+        } else {
+            parent[ra] = rb;
+        }
+    }
+
+    /** Mezclador final de MurmurHash3 (fmix64). */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/** Normalización de texto para búsqueda: minúsculas, sin acentos, tokens alfanuméricos. */
+public final class Tokenizer {
+
+    private Tokenizer() {
+    }
+
+    public static String normalize(String text) {
+        if (text == null) return "";
+        String noAccents = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "");
+        return noAccents.toLowerCase(Locale.ROOT);
+    }
+
+    public static List<String> tokens(String text) {
+        String normalized = normalize(text);
+        List<String> out = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean alnum = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (alnum && start < 0) {
+                start = i;
+            } else if (!alnum && start >= 0) {
+                out.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,638 @@
+package org.example.search;
+
+import jakarta.persistence.EntityManager;
+import org.example.domain.Playlist;
+import org.example.domain.Track;
+import org.example.infra.CsvLoader;
+import org.example.infra.ImportListener;
+import org.example.util.IntIntMap;
+import org.example.util.IntList;
+import org.example.util.IntSet;
+import org.example.util.LongList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * "Tracks que suelen estar en las mismas playlists", a partir del grafo bipartito
+ * PLAYLIST_TRACK.
+ *
+ * Los ids se codifican como índices densos con {@link IntIntMap} y los enlaces se
+ * guardan como listas de adyacencia (playlist -> tracks y track -> playlists): un CSR
+ * compacto más los enlaces agregados desde la última compactación, que se funden en un
+ * CSR nuevo cuando pasan de la mitad del compacto (costo amortizado constante por
+ * enlace). Para cada track se cuentan las co-ocurrencias con un contador denso por hilo
+ * y se conservan solo los K vecinos de mayor similitud coseno
+ * (co-ocurrencias / sqrt(grado_a * grado_b)). La matriz completa nunca se materializa:
+ * la memoria del modelo queda fija en K vecinos por track. El cálculo por track corre
+ * en paralelo.
+ *
+ * Tras cada importación ({@link #importListener()}) solo se agregan los enlaces nuevos,
+ * se recalculan las filas de los tracks cuyo grado cambió y en las demás se corrige el
+ * score contra esos tracks (ver {@code apply}); un vecino que bajó puede quedar en una
+ * fila que otro ya merece, {@link #rebuild} recalcula todo. Las lecturas toman el read
+ * lock; una actualización solo toma el write lock para dar de alta ids y copiar las
+ * filas ya calculadas.
+ * {@code tools.RecommenderBench} mide construcción, actualización y latencia.
+ */
+public class TrackRecommender {
+
+    public record Recommendation(int trackId, float score) { }
+
+    private final int k;
+    private final int maxPlaylistSize;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile Model model;
+
+    /**
+     * @param k               vecinos guardados por track (define el presupuesto de memoria)
+     * @param maxPlaylistSize playlists más grandes se ignoran: aportan poca señal y su costo es cuadrático
+     */
+    public TrackRecommender(int k, int maxPlaylistSize) {
+        this.k = k;
+        this.maxPlaylistSize = maxPlaylistSize;
+        this.model = new Model(k);
+    }
+
+    public static TrackRecommender build(EntityManager em, int k, int maxPlaylistSize) {
+        TrackRecommender recommender = new TrackRecommender(k, maxPlaylistSize);
+        recommender.rebuild(em);
+        return recommender;
+    }
+
+    /** Recalcula el modelo completo desde PLAYLIST_TRACK; hasta terminar se sigue leyendo el anterior. */
+    public synchronized void rebuild(EntityManager em) {
+        IntList playlists = new IntList(1024);
+        IntList tracks = new IntList(1024);
+        em.createQuery("SELECT pt.playlist.playlistId, pt.track.trackId FROM PlaylistTrack pt", Object[].class)
+                .getResultStream()
+                .forEach(r -> {
+                    playlists.add((Integer) r[0]);
+                    tracks.add((Integer) r[1]);
+                });
+        Model next = new Model(k);
+        apply(next, playlists, tracks);
+        lock.writeLock().lock();
+        try {
+            model = next;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Agrega enlaces nuevos y actualiza solo las filas afectadas. */
+    public synchronized void addLinks(IntList playlistIds, IntList trackIds) {
+        if (playlistIds.size() == 0) return;
+        apply(model, playlistIds, trackIds);
+    }
+
+    /**
+     * Aplica los enlaces sobre {@code m}. El grafo y los grados solo los usa el escritor
+     * (este método, bajo {@code synchronized}); lo que leen las consultas (ids y tabla de
+     * vecinos) se modifica con el write lock tomado.
+     *
+     * Se recalculan completas las filas de los tracks cuyo grado cambió (los de los
+     * enlaces nuevos y los de playlists que pasaron de maxPlaylistSize). En el resto
+     * solo cambia el score contra esos tracks, y como el coseno es simétrico sale del
+     * mismo contador: cada fila recalculada deja un parche (vecino, track, score) para
+     * las filas de sus vecinos, que se funde con la fila guardada.
+     */
+    private void apply(Model m, IntList playlistIds, IntList trackIds) {
+        int n = playlistIds.size();
+        int[] p = new int[n];
+        int[] t = new int[n];
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < n; i++) {
+                p[i] = m.playlist(playlistIds.get(i));
+                t[i] = m.track(trackIds.get(i));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        IntSet changed = new IntSet(Math.min(n, 1 << 16));
+        for (int i = 0; i < n; i++) {
+            m.link(p[i], t[i], maxPlaylistSize, changed);
+            changed.add(t[i]);
+        }
+        m.compactIfNeeded();
+
+        // Si cambió una parte grande del grafo conviene recalcular todo sin parches
+        int trackCount = m.trackIds.size();
+        boolean all = (long) changed.size() * 4 > trackCount;
+        int[] rows = all ? IntStream.range(0, trackCount).toArray() : changed.toSortedArray();
+        int[] rowNeighbors = new int[rows.length * k];
+        float[] rowScores = new float[rows.length * k];
+        Patches patches = all ? null : m.patchesFor(changed);
+        m.computeRows(rows, rowNeighbors, rowScores, maxPlaylistSize, patches);
+        long[] order = patches == null ? null : patches.sorted(changed);
+        lock.writeLock().lock();
+        try {
+            for (int r = 0; r < rows.length; r++) {
+                System.arraycopy(rowNeighbors, r * k, m.neighbors, rows[r] * k, k);
+                System.arraycopy(rowScores, r * k, m.scores, rows[r] * k, k);
+            }
+            if (patches != null) m.merge(patches, order);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Recommendation> similarTracks(int trackId, int limit) {
+        lock.readLock().lock();
+        try {
+            Model m = model;
+            int t = m.trackIndex.get(trackId);
+            if (t < 0) return List.of();
+            List<Recommendation> out = new ArrayList<>();
+            for (int i = 0; i < k && out.size() < limit; i++) {
+                int n = m.neighbors[t * k + i];
+                if (n < 0) break;
+                out.add(new Recommendation(m.trackIds.get(n), m.scores[t * k + i]));
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int trackCount() {
+        return model.trackIds.size();
+    }
+
+    /** Memoria aproximada de la tabla de vecinos y del grafo. */
+    public long memoryBytes() {
+        return model.memoryBytes();
+    }
+
+    /** Listener para {@link CsvLoader}: aplica los enlaces nuevos al confirmar la importación. */
+    public ImportListener importListener() {
+        return new ImportListener() {
+            private final IntList playlists = new IntList();
+            private final IntList tracks = new IntList();
+
+            @Override
+            public void onPlaylistTrackInserted(Playlist playlist, Track track) {
+                playlists.add(playlist.getPlaylistId());
+                tracks.add(track.getTrackId());
+            }
+
+            @Override
+            public void onCommit(CsvLoader.Stats stats) {
+                addLinks(playlists, tracks);
+                playlists.clear();
+                tracks.clear();
+            }
+
+            @Override
+            public void onRollback() {
+                playlists.clear();
+                tracks.clear();
+            }
+        };
+    }
+
+    private static final class Model {
+        private static final int PARALLEL_ROWS = 256;
+
+        final int k;
+        final IntIntMap trackIndex = new IntIntMap(1024, -1);
+        final IntIntMap playlistIndex = new IntIntMap(64, -1);
+        final IntList trackIds = new IntList(1024);
+        final IntList playlistIds = new IntList(64);
+        final Adjacency byPlaylist = new Adjacency();
+        final Adjacency byTrack = new Adjacency();
+        // Playlists de hasta maxPlaylistSize tracks en las que está cada track
+        int[] degrees = new int[1024];
+        int[] neighbors;
+        float[] scores;
+        // Contador de co-ocurrencias del escritor (queda en cero entre filas)
+        int[] counter = new int[0];
+
+        Model(int k) {
+            this.k = k;
+            neighbors = new int[1024 * k];
+            scores = new float[1024 * k];
+            Arrays.fill(neighbors, -1);
+        }
+
+        int playlist(int id) {
+            int idx = playlistIndex.get(id);
+            if (idx < 0) {
+                idx = playlistIds.size();
+                playlistIndex.put(id, idx);
+                playlistIds.add(id);
+            }
+            return idx;
+        }
+
+        int track(int id) {
+            int idx = trackIndex.get(id);
+            if (idx < 0) {
+                idx = trackIds.size();
+                if (idx == degrees.length) {
+                    int cap = idx * 2;
+                    degrees = Arrays.copyOf(degrees, cap);
+                    neighbors = Arrays.copyOf(neighbors, cap * k);
+                    scores = Arrays.copyOf(scores, cap * k);
+                    Arrays.fill(neighbors, idx * k, cap * k, -1);
+                }
+                trackIndex.put(id, idx);
+                trackIds.add(id);
+            }
+            return idx;
+        }
+
+        /**
+         * Un enlace nuevo; una playlist que pasa de maxPlaylistSize deja de contar en el
+         * grado de sus tracks, que se agregan a {@code changed}.
+         */
+        void link(int p, int t, int maxPlaylistSize, IntSet changed) {
+            int before = byPlaylist.size(p);
+            if (before < maxPlaylistSize) {
+                degrees[t]++;
+            } else if (before == maxPlaylistSize) {
+                byPlaylist.forEach(p, u -> {
+                    degrees[u]--;
+                    changed.add(u);
+                });
+            }
+            byPlaylist.add(p, t);
+            byTrack.add(t, p);
+        }
+
+        void compactIfNeeded() {
+            byPlaylist.compactIfNeeded();
+            byTrack.compactIfNeeded();
+        }
+
+        long memoryBytes() {
+            return 4L * (neighbors.length + scores.length + degrees.length + counter.length)
+                    + byPlaylist.memoryBytes() + byTrack.memoryBytes()
+                    + 16L * (trackIds.size() + playlistIds.size()); // ids densos + sus mapas
+        }
+
+        /** Calcula las filas de {@code rows}; con {@code patches} deja además los parches para las filas vecinas. */
+        void computeRows(int[] rows, int[] outNeighbors, float[] outScores, int maxPlaylistSize, Patches patches) {
+            int n = trackIds.size();
+            if (rows.length < PARALLEL_ROWS) {
+                // Pocas filas (un commit chico): un solo contador, reusado entre actualizaciones
+                if (counter.length < n) counter = new int[degrees.length];
+                IntList touched = new IntList();
+                Patches.Buffer sink = patches == null ? null : patches.local();
+                for (int r = 0; r < rows.length; r++) {
+                    computeRow(rows[r], counter, touched, maxPlaylistSize, outNeighbors, outScores, r * k, sink);
+                }
+                return;
+            }
+            ThreadLocal<int[]> counters = ThreadLocal.withInitial(() -> new int[n]);
+            ThreadLocal<IntList> touchedLists = ThreadLocal.withInitial(IntList::new);
+            IntStream.range(0, rows.length).parallel().forEach(r ->
+                    computeRow(rows[r], counters.get(), touchedLists.get(), maxPlaylistSize, outNeighbors, outScores,
+                            r * k, patches == null ? null : patches.local()));
+        }
+
+        private void computeRow(int t, int[] counter, IntList touched, int maxPlaylistSize,
+                                int[] outNeighbors, float[] outScores, int base, Patches.Buffer sink) {
+            touched.clear();
+            byTrack.forEach(t, p -> {
+                if (byPlaylist.size(p) > maxPlaylistSize) return;
+                byPlaylist.forEach(p, u -> {
+                    if (u != t && counter[u]++ == 0) touched.add(u);
+                });
+            });
+            // Min-heap de tamaño k sobre (score, vecino); a igual score queda el de menor índice
+            int[] heapIdx = new int[k];
+            float[] heapScore = new float[k];
+            int heapSize = 0;
+            double degT = Math.max(1, degrees[t]);
+            if (sink != null) {
+                // Filas que ya tienen a t: su score cambia (o cae a cero si dejaron de coincidir)
+                for (int i = sink.staleFrom(t); i >= 0 && i < sink.stale.length && (int) (sink.stale[i] >>> 32) == t; i++) {
+                    int u = (int) sink.stale[i];
+                    sink.add(u, t, (float) (counter[u] / Math.sqrt(degT * Math.max(1, degrees[u]))));
+                }
+            }
+            for (int i = 0; i < touched.size(); i++) {
+                int u = touched.get(i);
+                float score = (float) (counter[u] / Math.sqrt(degT * Math.max(1, degrees[u])));
+                counter[u] = 0;
+                if (sink != null && score >= sink.rowMin[u]) sink.add(u, t, score);
+                if (heapSize < k) {
+                    heapIdx[heapSize] = u;
+                    heapScore[heapSize] = score;
+                    siftUp(heapIdx, heapScore, heapSize++);
+                } else if (less(heapScore[0], heapIdx[0], score, u)) {
+                    heapIdx[0] = u;
+                    heapScore[0] = score;
+                    siftDown(heapIdx, heapScore, heapSize);
+                }
+            }
+            // Vacía el heap de menor a mayor y guarda la fila en orden descendente
+            Arrays.fill(outNeighbors, base, base + k, -1);
+            Arrays.fill(outScores, base, base + k, 0f);
+            for (int pos = heapSize - 1; pos >= 0; pos--) {
+                outNeighbors[base + pos] = heapIdx[0];
+                outScores[base + pos] = heapScore[0];
+                heapIdx[0] = heapIdx[pos];
+                heapScore[0] = heapScore[pos];
+                siftDown(heapIdx, heapScore, pos);
+            }
+        }
+
+        /**
+         * Prepara los parches de una actualización: el score mínimo de cada fila guardada
+         * (un par que no lo alcanza no entra) y los pares (track cambiado, fila que ya lo
+         * tiene), que hay que corregir aunque el score baje.
+         */
+        Patches patchesFor(IntSet changed) {
+            int n = trackIds.size();
+            boolean[] mask = new boolean[n];
+            changed.forEach(t -> mask[t] = true);
+            float[] rowMin = new float[n];
+            LongList stale = new LongList();
+            for (int u = 0; u < n; u++) {
+                int last = u * k + k - 1;
+                rowMin[u] = neighbors[last] < 0 ? -1f : scores[last];
+                for (int i = u * k; i <= last && neighbors[i] >= 0; i++) {
+                    if (mask[neighbors[i]]) stale.add(((long) neighbors[i] << 32) | u);
+                }
+            }
+            return new Patches(rowMin, stale.toArray());
+        }
+
+        /**
+         * Funde los parches en las filas que no se recalcularon: la fila nueva son los K
+         * mejores entre lo guardado (con el score actualizado de los tracks parcheados) y
+         * los tracks nuevos. Un vecino guardado cuyo score bajó sigue en la fila aunque
+         * otro no guardado lo supere; {@link #rebuild} lo corrige.
+         */
+        void merge(Patches patches, long[] order) {
+            int[] candIdx = new int[k + 16];
+            float[] candScore = new float[k + 16];
+            for (int from = 0; from < order.length; ) {
+                int u = (int) (order[from] >>> 32);
+                int to = from;
+                while (to < order.length && (int) (order[to] >>> 32) == u) to++;
+                int need = k + (to - from);
+                if (candIdx.length < need) {
+                    candIdx = new int[need];
+                    candScore = new float[need];
+                }
+                int c = 0;
+                for (int i = u * k; i < u * k + k && neighbors[i] >= 0; i++) {
+                    if (!patched(patches, order, from, to, neighbors[i])) {
+                        candIdx[c] = neighbors[i];
+                        candScore[c++] = scores[i];
+                    }
+                }
+                for (int i = from; i < to; i++) {
+                    int e = (int) order[i];
+                    if (patches.scores[e] <= 0f) continue; // ya no coinciden en ninguna playlist
+                    candIdx[c] = patches.tracks[e];
+                    candScore[c++] = patches.scores[e];
+                }
+                // Orden por inserción (c es chico): score descendente, a igual score menor índice
+                for (int i = 1; i < c; i++) {
+                    int idx = candIdx[i];
+                    float score = candScore[i];
+                    int j = i - 1;
+                    for (; j >= 0 && less(candScore[j], candIdx[j], score, idx); j--) {
+                        candIdx[j + 1] = candIdx[j];
+                        candScore[j + 1] = candScore[j];
+                    }
+                    candIdx[j + 1] = idx;
+                    candScore[j + 1] = score;
+                }
+                for (int i = 0; i < k; i++) {
+                    neighbors[u * k + i] = i < c ? candIdx[i] : -1;
+                    scores[u * k + i] = i < c ? candScore[i] : 0f;
+                }
+                from = to;
+            }
+        }
+
+        private static boolean patched(Patches patches, long[] order, int from, int to, int track) {
+            for (int i = from; i < to; i++) {
+                if (patches.tracks[(int) order[i]] == track) return true;
+            }
+            return false;
+        }
+
+        /** (score, vecino) a peor que b. */
+        private static boolean less(float scoreA, int a, float scoreB, int b) {
+            return scoreA < scoreB || (scoreA == scoreB && a > b);
+        }
+
+        private static void siftUp(int[] idx, float[] score, int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!less(score[i], idx[i], score[parent], idx[parent])) break;
+                swap(idx, score, i, parent);
+                i = parent;
+            }
+        }
+
+        private static void siftDown(int[] idx, float[] score, int size) {
+            int i = 0;
+            while (true) {
+                int l = 2 * i + 1, r = l + 1, min = i;
+                if (l < size && less(score[l], idx[l], score[min], idx[min])) min = l;
+                if (r < size && less(score[r], idx[r], score[min], idx[min])) min = r;
+                if (min == i) return;
+                swap(idx, score, i, min);
+                i = min;
+            }
+        }
+
+        private static void swap(int[] idx, float[] score, int a, int b) {
+            int ti = idx[a];
+            idx[a] = idx[b];
+            idx[b] = ti;
+            float ts = score[a];
+            score[a] = score[b];
+            score[b] = ts;
+        }
+    }
+
+    /**
+     * Parches (fila, track, score) que dejan las filas recalculadas para las de sus
+     * vecinos. Cada hilo escribe en su buffer; {@link #sorted} los junta y los ordena
+     * por fila y track, así el resultado no depende del reparto entre hilos.
+     */
+    private static final class Patches {
+        private final ThreadLocal<Buffer> local = ThreadLocal.withInitial(this::newBuffer);
+        private final List<Buffer> buffers = new ArrayList<>();
+        private final float[] rowMin;
+        // (track << 32 | fila) ordenados: filas que hoy tienen de vecino a cada track recalculado
+        private final long[] stale;
+        private final IntIntMap staleFrom;
+        int[] rows;
+        int[] tracks;
+        float[] scores;
+
+        Patches(float[] rowMin, long[] stale) {
+            this.rowMin = rowMin;
+            Arrays.sort(stale);
+            this.stale = stale;
+            this.staleFrom = new IntIntMap(Math.max(16, stale.length / 4), -1);
+            for (int i = 0; i < stale.length; i++) {
+                int t = (int) (stale[i] >>> 32);
+                if (i == 0 || (int) (stale[i - 1] >>> 32) != t) staleFrom.put(t, i);
+            }
+        }
+
+        Buffer local() {
+            return local.get();
+        }
+
+        private synchronized Buffer newBuffer() {
+            Buffer buffer = new Buffer(this);
+            buffers.add(buffer);
+            return buffer;
+        }
+
+        /** Índices de los parches (en los 32 bits bajos) ordenados por fila y track, sin las filas de {@code skip}. */
+        synchronized long[] sorted(IntSet skip) {
+            int total = 0;
+            for (Buffer b : buffers) total += b.rows.size();
+            rows = new int[total];
+            tracks = new int[total];
+            scores = new float[total];
+            int n = 0;
+            for (Buffer b : buffers) {
+                for (int i = 0; i < b.rows.size(); i++, n++) {
+                    rows[n] = b.rows.get(i);
+                    tracks[n] = b.tracks.get(i);
+                    scores[n] = Float.intBitsToFloat(b.scoreBits.get(i));
+                }
+            }
+            long[] keys = new long[total];
+            int kept = 0;
+            for (int i = 0; i < total; i++) {
+                if (!skip.contains(rows[i])) keys[kept++] = ((long) rows[i] << 32) | tracks[i];
+            }
+            Arrays.sort(keys, 0, kept);
+            // Un par puede venir dos veces (entra y además ya estaba), siempre con el mismo score
+            int unique = 0;
+            for (int i = 0; i < kept; i++) {
+                if (unique == 0 || keys[i] != keys[unique - 1]) keys[unique++] = keys[i];
+            }
+            keys = Arrays.copyOf(keys, unique);
+            // Cada par queda una vez: su posición ordenada sale por búsqueda binaria
+            long[] order = new long[unique];
+            for (int i = 0; i < total; i++) {
+                if (skip.contains(rows[i])) continue;
+                int pos = Arrays.binarySearch(keys, ((long) rows[i] << 32) | tracks[i]);
+                order[pos] = ((long) rows[i] << 32) | i;
+            }
+            return order;
+        }
+
+        static final class Buffer {
+            final float[] rowMin;
+            final long[] stale;
+            private final IntIntMap staleFrom;
+            final IntList rows = new IntList();
+            final IntList tracks = new IntList();
+            final IntList scoreBits = new IntList();
+
+            Buffer(Patches patches) {
+                this.rowMin = patches.rowMin;
+                this.stale = patches.stale;
+                this.staleFrom = patches.staleFrom;
+            }
+
+            /** Primer índice de {@link #stale} con el track t, o -1. */
+            int staleFrom(int t) {
+                return staleFrom.get(t);
+            }
+
+            void add(int row, int track, float score) {
+                rows.add(row);
+                tracks.add(track);
+                scoreBits.add(Float.floatToRawIntBits(score));
+            }
+        }
+    }
+
+    /**
+     * Listas de adyacencia de un lado del grafo: CSR compacto para los nodos que existían
+     * en la última compactación, más una lista enlazada por nodo (sobre arrays) con lo
+     * agregado después.
+     */
+    private static final class Adjacency {
+        private static final int MIN_DELTA = 1 << 12;
+
+        int[] start = {0};
+        int[] values = new int[0];
+        int[] sizes = new int[16];
+        int[] head = filled(16);
+        final IntList next = new IntList();
+        final IntList delta = new IntList();
+        int nodes;
+
+        private static int[] filled(int length) {
+            int[] a = new int[length];
+            Arrays.fill(a, -1);
+            return a;
+        }
+
+        int size(int node) {
+            return node < nodes ? sizes[node] : 0;
+        }
+
+        void add(int node, int value) {
+            if (node >= sizes.length) {
+                int cap = Math.max(node + 1, sizes.length * 2);
+                sizes = Arrays.copyOf(sizes, cap);
+                int old = head.length;
+                head = Arrays.copyOf(head, cap);
+                Arrays.fill(head, old, cap, -1);
+            }
+            nodes = Math.max(nodes, node + 1);
+            next.add(head[node]);
+            head[node] = delta.size();
+            delta.add(value);
+            sizes[node]++;
+        }
+
+        void forEach(int node, java.util.function.IntConsumer action) {
+            if (node + 1 < start.length) {
+                for (int i = start[node]; i < start[node + 1]; i++) action.accept(values[i]);
+            }
+            if (node < nodes) {
+                for (int e = head[node]; e >= 0; e = next.get(e)) action.accept(delta.get(e));
+            }
+        }
+
+        /** Funde lo agregado en un CSR nuevo cuando supera la mitad del compacto. */
+        void compactIfNeeded() {
+            if (delta.size() <= Math.max(MIN_DELTA, values.length / 2)) return;
+            int[] s = new int[nodes + 1];
+            for (int node = 0; node < nodes; node++) s[node + 1] = s[node] + sizes[node];
+            int[] v = new int[s[nodes]];
+            for (int node = 0; node < nodes; node++) {
+                int w = s[node];
+                if (node + 1 < start.length) {
+                    int from = start[node], len = start[node + 1] - from;
+                    System.arraycopy(values, from, v, w, len);
+                    w += len;
+                }
+                for (int e = head[node]; e >= 0; e = next.get(e)) v[w++] = delta.get(e);
+                head[node] = -1;
+            }
+            start = s;
+            values = v;
+            next.clear();
+            delta.clear();
+        }
+
+        long memoryBytes() {
+            return 4L * (start.length + values.length + sizes.length + head.length) + 8L * delta.size();
+        }
+    }
+}
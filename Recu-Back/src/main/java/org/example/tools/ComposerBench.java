@@ -0,0 +1,154 @@
+package org.example.tools;
+
+import jakarta.persistence.EntityManager;
+import org.example.domain.Composer;
+import org.example.domain.Track;
+import org.example.infra.DataSourceProvider;
+import org.example.infra.DbInitializer;
+import org.example.infra.LocalEntityManagerProvider;
+import org.example.repo.ComposerRepository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Antes y después de normalizar los compositores: carga tracks por SQL directo (con
+ * TRACKS.COMPOSER "Nombre Apellido | ..." y sin TRACK_COMPOSER), deja que
+ * {@link DbInitializer#finishBulkLoad()} los enlace con {@link ComposerRepository#backfill}
+ * y compara "todos los tracks de X" con {@code UPPER(COMPOSER) LIKE '%X%'} (antes)
+ * contra {@link ComposerRepository#findTracksByComposer} (después). Verifica que el
+ * resultado indexado sea exactamente el del LIKE filtrado por nombre completo (el LIKE
+ * también trae nombres que contienen a X); termina con código 1 si no.
+ *
+ * <pre>
+ * ComposerBench [--tracks=200000] [--composers=20000] [--queries=200] [--seed=42]
+ * </pre>
+ */
+public class ComposerBench {
+
+    private static final String[] SYLLABLES = {"ka", "lo", "mi", "ra", "te", "no", "su", "vi", "da", "re", "lu",
+            "fa", "go", "be", "sa", "to", "ne", "pi", "ma", "zo", "ri", "ca", "de", "la", "mo", "si", "ta", "ve"};
+    private static final int BATCH = 5_000;
+
+    public static void main(String[] args) throws Exception {
+        int tracks = Integer.parseInt(LoadGenerator.option(args, "tracks", "200000"));
+        int composers = Integer.parseInt(LoadGenerator.option(args, "composers", "20000"));
+        int queries = Integer.parseInt(LoadGenerator.option(args, "queries", "200"));
+        long seed = Long.parseLong(LoadGenerator.option(args, "seed", "42"));
+
+        SplittableRandom random = new SplittableRandom(seed);
+        String[] names = new String[composers];
+        for (int i = 0; i < composers; i++) names[i] = syllables(random, 2) + " " + syllables(random, 3) + Integer.toString(i, 36);
+        SearchBench.Zipf zipf = new SearchBench.Zipf(composers, 0.9);
+
+        DbInitializer.initForBulkLoad();
+        long start = System.nanoTime();
+        try (Connection conn = DataSourceProvider.getDataSource().getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement st = conn.createStatement()) {
+                st.execute("INSERT INTO MEDIA_TYPES (NAME) VALUES ('MPEG audio file')");
+                st.execute("INSERT INTO ARTISTS (NAME) VALUES ('Varios')");
+                st.execute("INSERT INTO ALBUMS (TITLE, ARTIST_ID) VALUES ('Compilado', (SELECT MIN(ARTIST_ID) FROM ARTISTS))");
+            }
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO TRACKS (TRACK_ID, NAME, ALBUM_ID, MEDIA_TYPE_ID, "
+                    + "COMPOSER, MILLISECONDS, UNIT_PRICE) VALUES (?, ?, (SELECT MIN(ALBUM_ID) FROM ALBUMS), "
+                    + "(SELECT MIN(MEDIA_TYPE_ID) FROM MEDIA_TYPES), ?, 200000, 0.99)")) {
+                for (int i = 1; i <= tracks; i++) {
+                    int n = random.nextInt(4);
+                    StringBuilder composer = new StringBuilder();
+                    for (int c = 0; c < n; c++) {
+                        if (c > 0) composer.append(" | ");
+                        composer.append(names[zipf.next(random)]);
+                    }
+                    ps.setInt(1, i);
+                    ps.setString(2, "Track " + i);
+                    ps.setString(3, n == 0 ? null : composer.toString());
+                    ps.addBatch();
+                    if (i % BATCH == 0) ps.executeBatch();
+                }
+                ps.executeBatch();
+            }
+            conn.commit();
+        }
+        System.out.printf("Catálogo: %d tracks cargados por SQL en %d ms%n", tracks, (System.nanoTime() - start) / 1_000_000);
+
+        start = System.nanoTime();
+        DbInitializer.BuildReport report = DbInitializer.finishBulkLoad();
+        long finishMillis = (System.nanoTime() - start) / 1_000_000;
+        long links, distinct;
+        try (Connection conn = DataSourceProvider.getDataSource().getConnection();
+             Statement st = conn.createStatement()) {
+            links = count(st, "SELECT COUNT(*) FROM TRACK_COMPOSER");
+            distinct = count(st, "SELECT COUNT(*) FROM COMPOSERS");
+        }
+        System.out.printf("Backfill: %d enlaces, %d compositores en %d ms (%s)%n", links, distinct,
+                finishMillis - report.indexMillis() - report.foreignKeyMillis(), report);
+
+        int failures = 0;
+        long[] likeMicros = new long[queries];
+        long[] indexedMicros = new long[queries];
+        long likeRows = 0, indexedRows = 0;
+        try (EntityManager em = LocalEntityManagerProvider.get().createEntityManager()) {
+            ComposerRepository repo = new ComposerRepository(em);
+            // Dos pasadas: la primera paga la compilación y el plan de las consultas
+            for (int pass = 0; pass < 2; pass++) {
+                likeRows = indexedRows = 0;
+                SplittableRandom sample = new SplittableRandom(seed + 1);
+                for (int q = 0; q < queries; q++) {
+                    String name = names[zipf.next(sample)];
+                    em.clear();
+                    long t0 = System.nanoTime();
+                    List<Track> like = em.createQuery(
+                                    "SELECT t FROM Track t WHERE UPPER(t.composer) LIKE :pattern ORDER BY t.trackId", Track.class)
+                            .setParameter("pattern", "%" + name.toUpperCase(Locale.ROOT) + "%")
+                            .getResultList();
+                    likeMicros[q] = (System.nanoTime() - t0) / 1000;
+                    em.clear();
+                    t0 = System.nanoTime();
+                    List<Track> indexed = repo.findTracksByComposer(name);
+                    indexedMicros[q] = (System.nanoTime() - t0) / 1000;
+                    likeRows += like.size();
+                    indexedRows += indexed.size();
+
+                    List<Integer> expected = like.stream()
+                            .filter(t -> Composer.splitNames(t.getComposer()).stream().anyMatch(name::equalsIgnoreCase))
+                            .map(Track::getTrackId).toList();
+                    List<Integer> actual = indexed.stream().map(Track::getTrackId).toList();
+                    if (pass == 1 && !expected.equals(actual)) {
+                        System.out.printf("[FAIL] %s: LIKE filtrado=%d tracks, TRACK_COMPOSER=%d%n", name, expected.size(), actual.size());
+                        failures++;
+                    }
+                }
+            }
+        }
+        Arrays.sort(likeMicros);
+        Arrays.sort(indexedMicros);
+        System.out.printf("Antes  (LIKE '%%X%%')      : %d consultas, p50=%d µs p99=%d µs, %.1f tracks por consulta%n", queries,
+                SearchBench.percentile(likeMicros, 0.5), SearchBench.percentile(likeMicros, 0.99), (double) likeRows / queries);
+        System.out.printf("Después (TRACK_COMPOSER) : %d consultas, p50=%d µs p99=%d µs, %.1f tracks por consulta%n", queries,
+                SearchBench.percentile(indexedMicros, 0.5), SearchBench.percentile(indexedMicros, 0.99),
+                (double) indexedRows / queries);
+        System.out.println(failures == 0 ? "[OK] Búsqueda por compositor indexada y consistente con TRACKS.COMPOSER"
+                : "[FAIL] " + failures + " errores");
+        if (failures > 0) System.exit(1);
+    }
+
+    private static long count(Statement st, String sql) throws Exception {
+        try (ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static String syllables(SplittableRandom random, int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) sb.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        return Character.toUpperCase(sb.charAt(0)) + sb.substring(1);
+    }
+}
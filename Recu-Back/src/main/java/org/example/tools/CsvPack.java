@@ -0,0 +1,89 @@
+package org.example.tools;
+
+import org.example.infra.BlockCsv;
+import org.example.infra.CsvLoader;
+import org.example.infra.CsvScan;
+import org.example.infra.rules.RuleChain;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Convierte un CSV (plano o gzip) al formato por bloques de {@link BlockCsv}, o compara
+ * la velocidad de lectura y validación de los tres formatos.
+ *
+ * <pre>
+ * CsvPack entrada.csv[.gz] salida.rcsv [--block-rows=2048]
+ * CsvPack --bench [--rows=500000] [--block-rows=2048] [--rounds=3]
+ * </pre>
+ * Con --bench genera un CSV sintético ({@link SyntheticCsv}), lo escribe plano, en gzip
+ * y por bloques y mide filas/s de {@link CsvScan} sobre cada uno (sin base de datos).
+ * Los hilos de decodificación de bloques se eligen con -Drecu.csv.decodeThreads.
+ */
+public class CsvPack {
+
+    public static void main(String[] args) throws Exception {
+        int blockRows = Integer.parseInt(LoadGenerator.option(args, "block-rows",
+                Integer.toString(BlockCsv.DEFAULT_BLOCK_ROWS)));
+        if (List.of(args).contains("--bench")) {
+            bench(Integer.parseInt(LoadGenerator.option(args, "rows", "500000")), blockRows,
+                    Integer.parseInt(LoadGenerator.option(args, "rounds", "3")));
+            return;
+        }
+        if (args.length < 2) {
+            System.err.println("Uso: CsvPack entrada.csv[.gz] salida.rcsv [--block-rows=N] | CsvPack --bench [--rows=N]");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        BlockCsv.Index index;
+        try (InputStream in = Files.newInputStream(Path.of(args[0]))) {
+            index = BlockCsv.write(in, Path.of(args[1]), blockRows);
+        }
+        System.out.printf("%d filas en %d bloques, %s -> %s en %d ms%n", index.rows(), index.blocks().size(),
+                size(Path.of(args[0])), size(Path.of(args[1])), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void bench(int rows, int blockRows, int rounds) throws Exception {
+        Path dir = Files.createTempDirectory("csvpack");
+        Path plain = dir.resolve("feed.csv");
+        Path gzip = dir.resolve("feed.csv.gz");
+        Path blocks = dir.resolve("feed.rcsv");
+        try {
+            SyntheticCsv.write(plain, rows, 1, 42);
+            try (InputStream in = Files.newInputStream(plain);
+                 OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzip), 1 << 16)) {
+                in.transferTo(out);
+            }
+            try (InputStream in = Files.newInputStream(plain)) {
+                BlockCsv.write(in, blocks, blockRows);
+            }
+            System.out.printf("%d filas: plano %s, gzip %s, bloques %s (%d filas/bloque), %d núcleos%n", rows,
+                    size(plain), size(gzip), size(blocks), blockRows, Runtime.getRuntime().availableProcessors());
+            for (int round = 1; round <= rounds; round++) {
+                for (Path file : List.of(plain, gzip, blocks)) {
+                    long start = System.nanoTime();
+                    CsvLoader.Stats st;
+                    try (InputStream in = Files.newInputStream(file)) {
+                        st = CsvScan.scan(in, RuleChain.defaults(), null);
+                    }
+                    double seconds = (System.nanoTime() - start) / 1e9;
+                    System.out.printf("ronda %d %-10s %8.0f filas/s  %6.1f MB/s (sin comprimir)  válidas=%d%n", round,
+                            file.getFileName(), st.totalRows / seconds, Files.size(plain) / seconds / 1e6,
+                            st.processedRows);
+                }
+            }
+        } finally {
+            for (Path p : List.of(plain, gzip, blocks)) Files.deleteIfExists(p);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    private static String size(Path file) throws IOException {
+        return String.format("%.1f MB", Files.size(file) / 1e6);
+    }
+}
@@ -0,0 +1,152 @@
+package org.example.tools;
+
+import org.example.search.NearDuplicateTracks;
+import org.example.search.NearDuplicateTracks.Entry;
+import org.example.search.NearDuplicateTracks.Merge;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Mide {@link NearDuplicateTracks} sobre un catálogo sintético en memoria con variantes
+ * conocidas: "(Remastered 2011)", "- 2009 Remaster", mayúsculas, apóstrofos, una letra
+ * cambiada o el mismo tema en un recopilatorio. También agrega trampas que no se deben
+ * fusionar ("Part 1" / "Part 2", "(Live)", temas distintos con las mismas palabras).
+ * Informa tiempos por etapa, candidatos frente a los n²/2 pares de la comparación
+ * completa, recall y precisión.
+ *
+ * <pre>
+ * DedupBench [--tracks=1000000] [--dup-rate=0.05] [--threshold=0.65] [--seed=42]
+ * </pre>
+ */
+public class DedupBench {
+
+    private static final String[] SYLLABLES = {"ka", "lo", "mi", "ra", "te", "no", "su", "vi", "da", "re", "lu",
+            "fa", "go", "be", "sa", "to", "ne", "pi", "ma", "zo", "ri", "ca", "de", "la", "mo", "si", "ta", "ve"};
+    private static final String[] EDITIONS = {" (Remastered %d)", " - %d Remaster", " [%d Digital Remaster]",
+            " (Remastered)", " (Album Version)", " (Radio Edit)"};
+    private static final int WORDS = 4000;
+    private static final int TRACKS_PER_ALBUM = 15;
+    private static final int ALBUMS_PER_ARTIST = 6;
+
+    public static void main(String[] args) {
+        int tracks = Integer.parseInt(LoadGenerator.option(args, "tracks", "1000000"));
+        double dupRate = Double.parseDouble(LoadGenerator.option(args, "dup-rate", "0.05"));
+        double threshold = Double.parseDouble(LoadGenerator.option(args, "threshold",
+                Double.toString(NearDuplicateTracks.DEFAULT_THRESHOLD)));
+        long seed = Long.parseLong(LoadGenerator.option(args, "seed", "42"));
+
+        long start = System.nanoTime();
+        Catalog catalog = generate(tracks, dupRate, new SplittableRandom(seed));
+        System.out.printf("Catálogo: %d tracks (%d variantes, %d trampas) generado en %d ms, %d núcleos%n",
+                catalog.entries.size(), catalog.variants, catalog.traps, (System.nanoTime() - start) / 1_000_000,
+                Runtime.getRuntime().availableProcessors());
+
+        NearDuplicateTracks engine = new NearDuplicateTracks(threshold, NearDuplicateTracks.DEFAULT_BANDS,
+                NearDuplicateTracks.DEFAULT_ROWS);
+        NearDuplicateTracks.Result result = engine.find(catalog.entries);
+        long total = result.signatureMillis() + result.candidateMillis() + result.verifyMillis();
+        double allPairs = (double) result.tracks() * (result.tracks() - 1) / 2;
+        System.out.printf("Firmas %d ms, candidatos %d ms, verificación %d ms: %d ms en total (%.0f tracks/s)%n",
+                result.signatureMillis(), result.candidateMillis(), result.verifyMillis(), total,
+                result.tracks() * 1000.0 / Math.max(1, total));
+        System.out.printf("Pares candidatos: %d (%.2f por track, %.2e de los %.2e pares posibles)%n",
+                result.candidatePairs(), (double) result.candidatePairs() / result.tracks(),
+                result.candidatePairs() / allPairs, allPairs);
+
+        Map<Integer, Integer> survivor = new HashMap<>();
+        for (Merge m : result.plan()) survivor.put(m.duplicateId(), m.survivorId());
+        int found = 0;
+        for (int[] truth : catalog.truth) {
+            if (survivor.getOrDefault(truth[0], truth[0]).equals(survivor.getOrDefault(truth[1], truth[1]))) found++;
+        }
+        int correct = 0;
+        for (Merge m : result.plan()) {
+            if (catalog.family[m.duplicateId()] == catalog.family[m.survivorId()]) correct++;
+        }
+        System.out.printf("Fusiones: %d; recall %.2f%% (%d de %d variantes), precisión %.2f%% (%d incorrectas)%n",
+                result.plan().size(), 100.0 * found / Math.max(1, catalog.truth.size()), found, catalog.truth.size(),
+                100.0 * correct / Math.max(1, result.plan().size()), result.plan().size() - correct);
+    }
+
+    private static final class Catalog {
+        final List<Entry> entries = new ArrayList<>();
+        final List<int[]> truth = new ArrayList<>();
+        int[] family;
+        int variants;
+        int traps;
+    }
+
+    private static Catalog generate(int tracks, double dupRate, SplittableRandom random) {
+        String[] words = new String[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            int syllables = 2 + random.nextInt(3);
+            StringBuilder w = new StringBuilder();
+            for (int s = 0; s < syllables; s++) w.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            w.setCharAt(0, Character.toUpperCase(w.charAt(0)));
+            words[i] = w.toString();
+        }
+        Catalog catalog = new Catalog();
+        catalog.family = new int[tracks + 1];
+        int originals = (int) (tracks / (1 + dupRate));
+        String album = null;
+        String artist = null;
+        for (int id = 1; id <= originals; id++) {
+            int albumIndex = (id - 1) / TRACKS_PER_ALBUM;
+            if ((id - 1) % TRACKS_PER_ALBUM == 0) {
+                album = title(words, random, 1 + random.nextInt(3)) + " " + albumIndex;
+                artist = "Artist " + albumIndex / ALBUMS_PER_ARTIST;
+            }
+            String name;
+            if (random.nextInt(50) == 0 && id > 1 && catalog.entries.get(id - 2).album().equals(album)) {
+                // Trampa: mismo tema base con otra parte u otra grabación
+                Entry previous = catalog.entries.get(id - 2);
+                name = previous.name() + (random.nextBoolean() ? " (Live)" : ", Pt. 2");
+                catalog.traps++;
+            } else {
+                name = title(words, random, 1 + random.nextInt(5));
+            }
+            catalog.entries.add(new Entry(id, name, album, artist, 120_000 + random.nextInt(300_000)));
+            catalog.family[id] = id;
+        }
+        for (int id = originals + 1; id <= tracks; id++) {
+            Entry original = catalog.entries.get(random.nextInt(originals));
+            String name = variant(original.name(), random);
+            // Una de cada cuatro aparece en un recopilatorio del mismo artista
+            String variantAlbum = random.nextInt(4) == 0 ? "Greatest Hits " + original.artist() : original.album();
+            int millis = original.milliseconds() + random.nextInt(4001) - 2000;
+            catalog.entries.add(new Entry(id, name, variantAlbum, original.artist(), millis));
+            catalog.family[id] = catalog.family[original.trackId()];
+            catalog.truth.add(new int[]{original.trackId(), id});
+            catalog.variants++;
+        }
+        return catalog;
+    }
+
+    private static String title(String[] words, SplittableRandom random, int count) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) out.append(' ');
+            out.append(words[random.nextInt(words.length)]);
+        }
+        return out.toString();
+    }
+
+    private static String variant(String name, SplittableRandom random) {
+        return switch (random.nextInt(5)) {
+            case 0, 1 -> name + String.format(EDITIONS[random.nextInt(EDITIONS.length)], 1995 + random.nextInt(25));
+            case 2 -> random.nextBoolean() ? name.toUpperCase() : name.toLowerCase();
+            case 3 -> name.replace(" ", "' ").replaceFirst("' ", ", ");
+            default -> {
+                // Una letra cambiada (typo) en un nombre de al menos 8 caracteres
+                if (name.length() < 8) yield name + ".";
+                int at = 1 + random.nextInt(name.length() - 2);
+                char c = name.charAt(at) == ' ' ? ' ' : (char) ('a' + random.nextInt(26));
+                yield name.substring(0, at) + c + name.substring(at + 1);
+            }
+        };
+    }
+}
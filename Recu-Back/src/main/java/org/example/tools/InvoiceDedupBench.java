@@ -0,0 +1,148 @@
+package org.example.tools;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.domain.Customer;
+import org.example.infra.DataSourceProvider;
+import org.example.infra.DbInitializer;
+import org.example.infra.LocalEntityManagerProvider;
+import org.example.repo.InvoiceRepository;
+import org.example.repo.InvoiceRepository.InvoiceKey;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Mide la deduplicación de facturas de {@link InvoiceRepository} sobre INVOICES con
+ * muchas filas: una consulta por candidata ({@code findByCustomerDateTotal}) contra
+ * {@code findExistingIds} en lote, verifica que ambas encuentren lo mismo, muestra el
+ * plan de la consulta en lote y comprueba que {@code getOrCreateAll} no duplique al
+ * repetirse. Termina con código 1 si algo no coincide.
+ *
+ * <pre>
+ * InvoiceDedupBench [--invoices=1000000] [--customers=20000] [--candidates=20000] [--seed=42]
+ * </pre>
+ */
+public class InvoiceDedupBench {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2015, 1, 1);
+    private static final int DAYS = 3650;
+
+    public static void main(String[] args) throws Exception {
+        int invoices = Integer.parseInt(LoadGenerator.option(args, "invoices", "1000000"));
+        int customers = Integer.parseInt(LoadGenerator.option(args, "customers", "20000"));
+        int candidates = Integer.parseInt(LoadGenerator.option(args, "candidates", "20000"));
+        long seed = Long.parseLong(LoadGenerator.option(args, "seed", "42"));
+
+        DbInitializer.initForBulkLoad();
+        long start = System.nanoTime();
+        int firstCustomer;
+        try (Connection conn = DataSourceProvider.getDataSource().getConnection();
+             Statement st = conn.createStatement()) {
+            // Customer se lee con su representante (JOIN interno): todos necesitan uno
+            st.execute("INSERT INTO EMPLOYEES (LAST_NAME, FIRST_NAME) VALUES ('Soporte', 'Bench')");
+            st.execute("INSERT INTO CUSTOMERS (FIRST_NAME, LAST_NAME, EMAIL, SUPPORT_REP_ID) "
+                    + "SELECT 'Cliente', 'N' || X, 'c' || X || '@example.org', (SELECT MAX(EMPLOYEE_ID) FROM EMPLOYEES) "
+                    + "FROM SYSTEM_RANGE(1, " + customers + ")");
+            try (ResultSet rs = st.executeQuery("SELECT MIN(CUSTOMER_ID) FROM CUSTOMERS")) {
+                rs.next();
+                firstCustomer = rs.getInt(1);
+            }
+            // Misma fórmula que key(): la factura x es (cliente, fecha, total) de x
+            st.execute("INSERT INTO INVOICES (CUSTOMER_ID, INVOICE_DATE, TOTAL) SELECT "
+                    + firstCustomer + " + MOD(X, " + customers + "), "
+                    + "DATE '" + FIRST_DAY + "' + CAST(MOD(X * 7, " + DAYS + ") AS INTEGER), "
+                    + "MOD(X * 37, 2000) / 100.0 + 0.99 FROM SYSTEM_RANGE(1, " + invoices + ")");
+        }
+        DbInitializer.BuildReport build = DbInitializer.finishBulkLoad();
+        System.out.printf("%d facturas de %d clientes cargadas en %d ms (%s)%n",
+                invoices, customers, (System.nanoTime() - start) / 1_000_000, build);
+
+        // Mitad existentes, mitad con fecha fuera del rango cargado
+        SplittableRandom random = new SplittableRandom(seed);
+        List<InvoiceKey> keys = new ArrayList<>(candidates);
+        for (int i = 0; i < candidates; i++) {
+            long x = 1 + random.nextInt(invoices);
+            InvoiceKey existing = key(x, firstCustomer, customers);
+            keys.add(i % 2 == 0 ? existing
+                    : new InvoiceKey(existing.customerId(), existing.invoiceDate().plusYears(20), existing.total()));
+        }
+
+        EntityManagerFactory emf = LocalEntityManagerProvider.get();
+        int failures = 0;
+        try (EntityManager em = emf.createEntityManager()) {
+            InvoiceRepository repo = new InvoiceRepository(em);
+            repo.findExistingIds(keys.subList(0, Math.min(1000, keys.size()))); // calentamiento
+
+            start = System.nanoTime();
+            Set<InvoiceKey> oneByOne = new HashSet<>();
+            for (InvoiceKey k : keys) {
+                if (repo.findByCustomerDateTotal(em.getReference(Customer.class, k.customerId()),
+                        java.sql.Date.valueOf(k.invoiceDate()), k.total()) != null) {
+                    oneByOne.add(k);
+                }
+            }
+            long singleMillis = (System.nanoTime() - start) / 1_000_000;
+            em.clear();
+
+            start = System.nanoTime();
+            Map<InvoiceKey, Integer> batch = repo.findExistingIds(keys);
+            long batchMillis = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.printf("Una consulta por candidata: %d ms (%.0f claves/s), %d encontradas%n",
+                    singleMillis, candidates * 1000.0 / Math.max(1, singleMillis), oneByOne.size());
+            System.out.printf("findExistingIds en lote:    %d ms (%.0f claves/s), %d encontradas%n",
+                    batchMillis, candidates * 1000.0 / Math.max(1, batchMillis), batch.size());
+            if (!oneByOne.equals(batch.keySet())) {
+                System.out.println("[FAIL] El lote y la consulta por clave no encuentran lo mismo");
+                failures++;
+            }
+
+            em.getTransaction().begin();
+            Map<InvoiceKey, Integer> first = repo.getOrCreateAll(keys);
+            em.flush();
+            Map<InvoiceKey, Integer> second = repo.getOrCreateAll(keys);
+            em.getTransaction().rollback();
+            if (!first.equals(second) || first.size() != new HashSet<>(keys).size()) {
+                System.out.println("[FAIL] getOrCreateAll repetido no devuelve los mismos ids");
+                failures++;
+            }
+        }
+
+        try (Connection conn = DataSourceProvider.getDataSource().getConnection();
+             PreparedStatement ps = conn.prepareStatement("EXPLAIN SELECT INVOICE_ID FROM INVOICES "
+                     + "WHERE (CUSTOMER_ID, INVOICE_DATE, TOTAL) IN ((?1, ?2, ?3), (?4, ?5, ?6))")) {
+            for (int i = 0; i < 6; i += 3) {
+                ps.setInt(i + 1, firstCustomer);
+                ps.setDate(i + 2, java.sql.Date.valueOf(FIRST_DAY));
+                ps.setBigDecimal(i + 3, BigDecimal.ONE);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                String plan = rs.getString(1);
+                System.out.println("Plan del lote: " + plan.replaceAll("\\s+", " "));
+                if (!plan.contains("IDX_INVOICE_CUSTOMER_DATE_TOTAL")) {
+                    System.out.println("[FAIL] La consulta en lote no usa IDX_INVOICE_CUSTOMER_DATE_TOTAL");
+                    failures++;
+                }
+            }
+        }
+        System.out.println(failures == 0 ? "[OK] Deduplicación en lote verificada" : "[FAIL] " + failures + " errores");
+        if (failures > 0) System.exit(1);
+    }
+
+    private static InvoiceKey key(long x, int firstCustomer, int customers) {
+        return new InvoiceKey((int) (firstCustomer + x % customers), FIRST_DAY.plusDays(x * 7 % DAYS),
+                BigDecimal.valueOf(x * 37 % 2000, 2).add(new BigDecimal("0.99")));
+    }
+}
@@ -0,0 +1,132 @@
+package org.example.tools;
+
+import org.example.catalog.CatalogSnapshots;
+import org.example.http.CatalogHttpServer;
+import org.example.infra.CsvLoader;
+import org.example.infra.DbInitializer;
+import org.example.infra.LocalEntityManagerProvider;
+import org.example.infra.metrics.LatencyHistogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generador de carga para {@link CatalogHttpServer}: N clientes concurrentes piden en
+ * bucle rutas al azar durante un tiempo fijo y al final se informan requests/s y los
+ * percentiles de latencia (p50/p99).
+ *
+ * <pre>
+ * LoadGenerator [--url=http://host:puerto] [--clients=16] [--seconds=10] [--warmup=2] [--snapshot]
+ * </pre>
+ * Sin --url levanta la base, importa playlists.csv y arranca el servidor en un puerto libre
+ * (con --snapshot, leyendo del {@link CatalogSnapshots} en lugar de H2).
+ */
+public class LoadGenerator {
+
+    private static final List<String> DEFAULT_PATHS = List.of(
+            "/reports/playlists",
+            "/reports/top?level=PLAYLIST&metric=COST_PER_MINUTE&k=5",
+            "/reports/top?level=ALBUM&metric=TOTAL_DURATION&k=10",
+            "/albums",
+            "/albums/1",
+            "/tracks?name=Enter%20Sandman",
+            "/playlists/Grunge/tracks");
+
+    public record Result(long requests, long errors, double seconds, LatencyHistogram latencies) {
+        public double requestsPerSecond() {
+            return requests / seconds;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("requests=%d errores=%d req/s=%.1f %s",
+                    requests, errors, requestsPerSecond(), latencies.summary());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = option(args, "url", null);
+        int clients = Integer.parseInt(option(args, "clients", "16"));
+        int seconds = Integer.parseInt(option(args, "seconds", "10"));
+        int warmup = Integer.parseInt(option(args, "warmup", "2"));
+        boolean snapshot = List.of(args).contains("--snapshot");
+
+        CatalogHttpServer server = null;
+        if (url == null) {
+            DbInitializer.init();
+            var emf = LocalEntityManagerProvider.get();
+            try (var em = emf.createEntityManager()) {
+                new CsvLoader(em).loadFromClasspath("DATA/playlists.csv");
+            }
+            server = new CatalogHttpServer(emf, 0, 30);
+            if (snapshot) server.withCatalog(new CatalogSnapshots(emf));
+            server.start();
+            url = "http://localhost:" + server.port();
+        }
+        try {
+            System.out.println("Calentando " + warmup + " s contra " + url);
+            run(url, DEFAULT_PATHS, clients, Duration.ofSeconds(warmup));
+            Result result = run(url, DEFAULT_PATHS, clients, Duration.ofSeconds(seconds));
+            System.out.println(clients + " clientes, " + seconds + " s: " + result);
+        } finally {
+            if (server != null) server.stop();
+        }
+    }
+
+    public static Result run(String baseUrl, List<String> paths, int clients, Duration duration) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        List<HttpRequest> requests = paths.stream()
+                .map(p -> HttpRequest.newBuilder(URI.create(baseUrl + p)).GET().build())
+                .toList();
+        LatencyHistogram histogram = new LatencyHistogram();
+        LongAdder ok = new LongAdder();
+        LongAdder errors = new LongAdder();
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+
+        List<Thread> threads = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            Thread t = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    HttpRequest request = requests.get(random.nextInt(requests.size()));
+                    long t0 = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        histogram.record(System.nanoTime() - t0);
+                        if (response.statusCode() < 400) ok.increment();
+                        else errors.increment();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    } catch (Exception e) {
+                        errors.increment();
+                    }
+                }
+            }, "load-" + i);
+            t.start();
+            threads.add(t);
+        }
+        for (Thread t : threads) t.join();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        return new Result(ok.sum() + errors.sum(), errors.sum(), elapsed, histogram);
+    }
+
+    static String option(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) return arg.substring(prefix.length());
+        }
+        return defaultValue;
+    }
+}
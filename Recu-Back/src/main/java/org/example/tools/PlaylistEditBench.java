@@ -0,0 +1,308 @@
+package org.example.tools;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.domain.Playlist;
+import org.example.domain.Track;
+import org.example.infra.CsvLoader;
+import org.example.infra.DataSourceProvider;
+import org.example.infra.DbInitializer;
+import org.example.infra.LocalEntityManagerProvider;
+import org.example.infra.PlaylistTrackShards;
+import org.example.infra.metrics.LatencyHistogram;
+import org.example.playlist.PlaylistEditService;
+import org.example.playlist.PlaylistEditService.Options;
+import org.example.playlist.PlaylistEditService.Snapshot;
+import org.example.repo.PlaylistTrackRepository;
+import org.example.util.IntList;
+import org.hibernate.Session;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Compara la edición síncrona de playlists (una transacción por edición, con los
+ * repositorios) contra {@link PlaylistEditService} con la misma mezcla de ediciones
+ * concurrentes: 60% agregar, 25% quitar, 10% agregar 5 de una vez, 5% renombrar, sobre
+ * un conjunto chico de tracks para que las ediciones choquen y se coalescan.
+ * Después verifica que la base coincida con las vistas del servicio y simula una caída:
+ * edita sin flush, abandona la instancia y reabre sobre el mismo WAL. Termina con
+ * código 1 si alguna playlist no coincide.
+ *
+ * <pre>
+ * PlaylistEditBench [--threads=8] [--seconds=5] [--playlists=100] [--pool=300]
+ *                   [--segment-kb=256] [--wal=target/playlist-wal] [--seed=42]
+ * </pre>
+ */
+public class PlaylistEditBench {
+
+    private static int mismatches;
+
+    public static void main(String[] args) throws Exception {
+        int threads = Integer.parseInt(LoadGenerator.option(args, "threads", "8"));
+        int seconds = Integer.parseInt(LoadGenerator.option(args, "seconds", "5"));
+        int playlistCount = Integer.parseInt(LoadGenerator.option(args, "playlists", "100"));
+        int poolSize = Integer.parseInt(LoadGenerator.option(args, "pool", "300"));
+        long segmentBytes = Long.parseLong(LoadGenerator.option(args, "segment-kb", "256")) * 1024;
+        Path wal = Path.of(LoadGenerator.option(args, "wal", "target/playlist-wal"));
+        long seed = Long.parseLong(LoadGenerator.option(args, "seed", "42"));
+
+        DbInitializer.init();
+        EntityManagerFactory emf = LocalEntityManagerProvider.get();
+        try (EntityManager em = emf.createEntityManager()) {
+            new CsvLoader(em).loadFromClasspath("DATA/playlists.csv");
+        }
+        int[] pool = trackPool(poolSize, new SplittableRandom(seed));
+        deleteTree(wal);
+        System.out.printf("%d hilos, %d s por etapa, %d playlists, %d tracks en juego, %d núcleos%n",
+                threads, seconds, playlistCount, pool.length, Runtime.getRuntime().availableProcessors());
+
+        System.out.println("== Síncrono: una transacción por edición");
+        int[] syncPlaylists = new int[playlistCount];
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            for (int i = 0; i < playlistCount; i++) {
+                Playlist p = Playlist.builder().name("Sync " + i).build();
+                em.persist(p);
+                syncPlaylists[i] = p.getPlaylistId();
+            }
+            em.getTransaction().commit();
+        }
+        run(threads, seconds, seed, syncPlaylists, pool, new SyncEditor(emf));
+
+        System.out.println("== PlaylistEditService");
+        Options options = new Options(Options.DEFAULT.flushInterval(), Options.DEFAULT.maxPendingOps(),
+                segmentBytes, Options.DEFAULT.groupCommit(), true);
+        List<Snapshot> views = new ArrayList<>();
+        PlaylistEditService.Stats stats;
+        try (PlaylistEditService service = PlaylistEditService.open(emf, wal.resolve("run"), options)) {
+            int[] playlists = new int[playlistCount];
+            for (int i = 0; i < playlistCount; i++) playlists[i] = service.create("Edit " + i);
+            run(threads, seconds, seed, playlists, pool, new ServiceEditor(service));
+            for (int id : playlists) views.add(service.get(id));
+            stats = service.stats();
+        }
+        System.out.printf("Ediciones %d (%d sin efecto), escritas %d: %.2f ediciones por operación escrita%n",
+                stats.edits(), stats.noops(), stats.written(), stats.coalescing());
+        System.out.printf("Flushes %d (%d fallidos), altas rechazadas %d, WAL %d KB al final%n",
+                stats.flushes(), stats.flushFailures(), stats.rejected(), stats.walBytes() / 1024);
+        verify("después de close()", views);
+
+        System.out.println("== Caída sin flush y recuperación desde el WAL");
+        Path crashDir = wal.resolve("crash");
+        Options noFlush = new Options(Duration.ofDays(1), Integer.MAX_VALUE, 64L << 20, Duration.ofMillis(2), true);
+        List<Snapshot> expected = new ArrayList<>();
+        // La instancia queda abandonada sin close(): su flusher no vuelve a correr
+        PlaylistEditService crashed = PlaylistEditService.open(emf, crashDir, noFlush);
+        int[] crashPlaylists = new int[21];
+        SplittableRandom random = new SplittableRandom(seed + 1);
+        for (int i = 1; i < crashPlaylists.length; i++) crashPlaylists[i] = crashed.create("Crash " + i);
+        crashPlaylists[0] = views.get(0).playlistId(); // una que ya estaba en la base
+        ServiceEditor editor = new ServiceEditor(crashed);
+        for (int i = 0; i < 20_000; i++) editor.edit(random, crashPlaylists, pool);
+        for (int id : crashPlaylists) expected.add(crashed.get(id));
+        System.out.printf("Ediciones confirmadas sin escribir: %d, WAL %d KB%n",
+                crashed.stats().pendingOps(), crashed.stats().walBytes() / 1024);
+        long start = System.nanoTime();
+        try (PlaylistEditService reopened = PlaylistEditService.open(emf, crashDir, options)) {
+            System.out.printf("Reabierto en %d ms: %d registros del WAL reaplicados%n",
+                    (System.nanoTime() - start) / 1_000_000, reopened.stats().recovered());
+            verify("después de la recuperación", expected);
+            for (Snapshot s : expected) {
+                if (!Arrays.equals(reopened.get(s.playlistId()).trackIds(), s.trackIds())) mismatches++;
+            }
+        }
+
+        System.out.println(mismatches == 0 ? "[OK] La base coincide con las vistas"
+                : "[FAIL] " + mismatches + " playlists no coinciden");
+        if (mismatches > 0) System.exit(1);
+    }
+
+    /** Una forma de aplicar ediciones, para correr la misma carga contra las dos variantes. */
+    private interface Editor {
+        void add(int playlistId, int trackId);
+
+        void remove(int playlistId, int trackId);
+
+        void addAll(int playlistId, int[] trackIds);
+
+        void rename(int playlistId, String name);
+
+        default void edit(SplittableRandom random, int[] playlists, int[] pool) {
+            int playlistId = playlists[random.nextInt(playlists.length)];
+            int r = random.nextInt(100);
+            if (r < 60) {
+                add(playlistId, pool[random.nextInt(pool.length)]);
+            } else if (r < 85) {
+                remove(playlistId, pool[random.nextInt(pool.length)]);
+            } else if (r < 95) {
+                int[] bulk = new int[5];
+                for (int i = 0; i < bulk.length; i++) bulk[i] = pool[random.nextInt(pool.length)];
+                addAll(playlistId, bulk);
+            } else {
+                rename(playlistId, "Playlist " + random.nextInt(1000));
+            }
+        }
+    }
+
+    private record ServiceEditor(PlaylistEditService service) implements Editor {
+        @Override
+        public void add(int playlistId, int trackId) {
+            service.add(playlistId, trackId);
+        }
+
+        @Override
+        public void remove(int playlistId, int trackId) {
+            service.remove(playlistId, trackId);
+        }
+
+        @Override
+        public void addAll(int playlistId, int[] trackIds) {
+            service.addAll(playlistId, trackIds);
+        }
+
+        @Override
+        public void rename(int playlistId, String name) {
+            service.rename(playlistId, name);
+        }
+    }
+
+    /** Lo que se hacía antes: cada edición abre su EntityManager y confirma su transacción. */
+    private record SyncEditor(EntityManagerFactory emf) implements Editor {
+        @Override
+        public void add(int playlistId, int trackId) {
+            addAll(playlistId, new int[]{trackId});
+        }
+
+        @Override
+        public void remove(int playlistId, int trackId) {
+            inTransaction(em -> em.unwrap(Session.class).doWork(conn -> {
+                IntList playlists = new IntList(1);
+                IntList tracks = new IntList(1);
+                playlists.add(playlistId);
+                tracks.add(trackId);
+                PlaylistTrackShards.delete(conn, playlists, tracks);
+            }));
+        }
+
+        @Override
+        public void addAll(int playlistId, int[] trackIds) {
+            inTransaction(em -> {
+                PlaylistTrackRepository repo = new PlaylistTrackRepository(em);
+                Playlist playlist = em.find(Playlist.class, playlistId);
+                for (int trackId : Arrays.stream(trackIds).distinct().toArray()) {
+                    Track track = em.find(Track.class, trackId);
+                    if (!repo.exists(playlist, track)) repo.create(playlist, track);
+                }
+            });
+        }
+
+        @Override
+        public void rename(int playlistId, String name) {
+            inTransaction(em -> em.find(Playlist.class, playlistId).setName(name));
+        }
+
+        private void inTransaction(Consumer<EntityManager> work) {
+            try (EntityManager em = emf.createEntityManager()) {
+                em.getTransaction().begin();
+                try {
+                    work.accept(em);
+                    em.getTransaction().commit();
+                } catch (RuntimeException e) {
+                    if (em.getTransaction().isActive()) em.getTransaction().rollback();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static void run(int threads, int seconds, long seed, int[] playlists, int[] pool, Editor editor)
+            throws InterruptedException {
+        LatencyHistogram latency = new LatencyHistogram();
+        AtomicLong errors = new AtomicLong();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            SplittableRandom random = new SplittableRandom(seed * 31 + t);
+            Thread worker = new Thread(() -> {
+                while (System.nanoTime() < deadline) {
+                    long t0 = System.nanoTime();
+                    try {
+                        editor.edit(random, playlists, pool);
+                        latency.record(System.nanoTime() - t0);
+                    } catch (RuntimeException e) {
+                        // Con la edición síncrona dos usuarios pueden chocar en la misma fila
+                        errors.incrementAndGet();
+                    }
+                }
+            }, "editor-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) worker.join();
+        System.out.printf("%.0f ediciones/s, %d errores; %s%n",
+                latency.count() / (double) seconds, errors.get(), latency.summary());
+    }
+
+    private static void verify(String when, List<Snapshot> views) throws Exception {
+        int bad = 0;
+        try (Connection conn = DataSourceProvider.getDataSource().getConnection()) {
+            for (Snapshot view : views) {
+                String name;
+                try (PreparedStatement ps = conn.prepareStatement("SELECT NAME FROM PLAYLISTS WHERE PLAYLIST_ID = ?")) {
+                    ps.setInt(1, view.playlistId());
+                    try (ResultSet rs = ps.executeQuery()) {
+                        name = rs.next() ? rs.getString(1) : null;
+                    }
+                }
+                IntList tracks = new IntList();
+                try (PreparedStatement ps = conn.prepareStatement("SELECT TRACK_ID FROM "
+                        + PlaylistTrackShards.tableFor(view.playlistId()) + " WHERE PLAYLIST_ID = ? ORDER BY 1")) {
+                    ps.setInt(1, view.playlistId());
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) tracks.add(rs.getInt(1));
+                    }
+                }
+                if (!view.name().equals(name) || !Arrays.equals(view.trackIds(), tracks.toArray())) bad++;
+            }
+        }
+        System.out.printf("Verificación %s: %d de %d playlists coinciden%n", when, views.size() - bad, views.size());
+        mismatches += bad;
+    }
+
+    private static int[] trackPool(int size, SplittableRandom random) throws Exception {
+        IntList ids = new IntList();
+        try (Connection conn = DataSourceProvider.getDataSource().getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT TRACK_ID FROM TRACKS");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) ids.add(rs.getInt(1));
+        }
+        int[] all = ids.toArray();
+        for (int i = all.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = all[i];
+            all[i] = all[j];
+            all[j] = tmp;
+        }
+        return Arrays.copyOf(all, Math.min(size, all.length));
+    }
+
+    private static void deleteTree(Path dir) throws Exception {
+        if (!Files.exists(dir)) return;
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(p);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package org.example.tools;
+
+import org.example.search.TrackRecommender;
+import org.example.util.IntList;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Mide {@link TrackRecommender} sobre un grafo sintético de playlists (tamaños y
+ * popularidad de tracks con distribución de Zipf): construcción completa, memoria,
+ * commits incrementales como los que aplica su listener de importación y latencia de
+ * {@code similarTracks}. Verifica que, tras los commits, las filas recalculadas sean
+ * iguales a las de un modelo armado de cero con todos los enlaces e informa cuántas de
+ * las filas parcheadas se apartan de él. Termina con código 1
+ * si el p99 de las consultas supera {@code --max-p99-us} o si alguna fila no coincide.
+ *
+ * <pre>
+ * RecommenderBench [--links=5000000] [--playlists=100000] [--tracks=1000000] [--commits=50]
+ *                  [--commit-links=2000] [--k=20] [--max-playlist=1000] [--queries=200000]
+ *                  [--max-p99-us=50] [--seed=42]
+ * </pre>
+ */
+public class RecommenderBench {
+
+    public static void main(String[] args) {
+        int links = Integer.parseInt(LoadGenerator.option(args, "links", "5000000"));
+        int playlists = Integer.parseInt(LoadGenerator.option(args, "playlists", "100000"));
+        int tracks = Integer.parseInt(LoadGenerator.option(args, "tracks", "1000000"));
+        int commits = Integer.parseInt(LoadGenerator.option(args, "commits", "50"));
+        int commitLinks = Integer.parseInt(LoadGenerator.option(args, "commit-links", "2000"));
+        int k = Integer.parseInt(LoadGenerator.option(args, "k", "20"));
+        int maxPlaylist = Integer.parseInt(LoadGenerator.option(args, "max-playlist", "1000"));
+        int queries = Integer.parseInt(LoadGenerator.option(args, "queries", "200000"));
+        long maxP99 = Long.parseLong(LoadGenerator.option(args, "max-p99-us", "50"));
+        long seed = Long.parseLong(LoadGenerator.option(args, "seed", "42"));
+
+        SplittableRandom random = new SplittableRandom(seed);
+        SearchBench.Zipf playlistZipf = new SearchBench.Zipf(playlists, 0.8);
+        SearchBench.Zipf trackZipf = new SearchBench.Zipf(tracks, 0.9);
+        // Enlaces distintos (PLAYLIST_TRACK tiene clave primaria) en orden aleatorio: los
+        // primeros arman el modelo y el resto llega en commits
+        long[] keys = uniqueLinks(links + commits * commitLinks, playlistZipf, trackZipf, random);
+        IntList allPlaylists = new IntList(keys.length);
+        IntList allTracks = new IntList(keys.length);
+        for (int i = 0; i < links; i++) {
+            allPlaylists.add((int) (keys[i] >>> 32));
+            allTracks.add((int) keys[i]);
+        }
+
+        TrackRecommender recommender = new TrackRecommender(k, maxPlaylist);
+        long start = System.nanoTime();
+        recommender.addLinks(allPlaylists, allTracks);
+        long buildMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.printf("Construcción: %d enlaces, %d tracks en %d ms, modelo ~%d MB%n",
+                allPlaylists.size(), recommender.trackCount(), buildMillis, recommender.memoryBytes() >> 20);
+
+        long[] commitMicros = new long[commits];
+        IntList lastPlaylists = new IntList();
+        IntList lastTracks = new IntList();
+        for (int c = 0; c < commits; c++) {
+            lastPlaylists.clear();
+            lastTracks.clear();
+            for (int i = links + c * commitLinks; i < links + (c + 1) * commitLinks; i++) {
+                lastPlaylists.add((int) (keys[i] >>> 32));
+                lastTracks.add((int) keys[i]);
+            }
+            start = System.nanoTime();
+            recommender.addLinks(lastPlaylists, lastTracks);
+            commitMicros[c] = (System.nanoTime() - start) / 1000;
+            for (int i = 0; i < lastPlaylists.size(); i++) {
+                allPlaylists.add(lastPlaylists.get(i));
+                allTracks.add(lastTracks.get(i));
+            }
+        }
+        Arrays.sort(commitMicros);
+        System.out.printf("Commits: %d de %d enlaces, p50=%d ms p99=%d ms, modelo ~%d MB%n", commits, commitLinks,
+                SearchBench.percentile(commitMicros, 0.5) / 1000, SearchBench.percentile(commitMicros, 0.99) / 1000,
+                recommender.memoryBytes() >> 20);
+
+        int failures = 0;
+        // Las filas del último commit contra un modelo armado de cero (los grados son los mismos)
+        TrackRecommender fresh = new TrackRecommender(k, maxPlaylist);
+        fresh.addLinks(allPlaylists, allTracks);
+        int compared = 0, mismatched = 0;
+        for (int i = 0; i < lastTracks.size(); i++) {
+            int trackId = lastTracks.get(i);
+            compared++;
+            if (!same(recommender.similarTracks(trackId, k), fresh.similarTracks(trackId, k))) mismatched++;
+        }
+        System.out.printf("Filas del último commit comparadas con un modelo nuevo: %d, distintas: %d%n", compared, mismatched);
+        if (mismatched > 0) {
+            System.out.println("[FAIL] El recálculo incremental no coincide con el completo");
+            failures++;
+        }
+        // El resto de las filas se parchea: se informa cuánto se aparta del modelo nuevo
+        int rows = 0, drifted = 0;
+        long expectedNeighbors = 0, kept = 0;
+        for (int trackId = 1; trackId <= tracks; trackId++) {
+            List<TrackRecommender.Recommendation> expected = fresh.similarTracks(trackId, k);
+            if (expected.isEmpty()) continue;
+            List<TrackRecommender.Recommendation> actual = recommender.similarTracks(trackId, k);
+            rows++;
+            if (!same(actual, expected)) drifted++;
+            expectedNeighbors += expected.size();
+            for (TrackRecommender.Recommendation r : expected) {
+                for (TrackRecommender.Recommendation a : actual) {
+                    if (a.trackId() == r.trackId()) {
+                        kept++;
+                        break;
+                    }
+                }
+            }
+        }
+        System.out.printf("Filas que difieren de un modelo nuevo: %d de %d, vecinos en común: %.2f%%%n",
+                drifted, rows, 100.0 * kept / Math.max(1, expectedNeighbors));
+
+        int[] sample = new int[queries];
+        for (int i = 0; i < queries; i++) sample[i] = 1 + trackZipf.next(random);
+        for (int i = 0; i < Math.min(queries, 50_000); i++) recommender.similarTracks(sample[i], 10); // calentamiento
+        long[] micros = new long[queries];
+        long found = 0;
+        for (int i = 0; i < queries; i++) {
+            long t0 = System.nanoTime();
+            found += recommender.similarTracks(sample[i], 10).size();
+            micros[i] = (System.nanoTime() - t0) / 1000;
+        }
+        Arrays.sort(micros);
+        long p99 = SearchBench.percentile(micros, 0.99);
+        System.out.printf("Consultas: %d, p50=%d µs p99=%d µs máx=%d µs, %.1f vecinos por consulta%n", queries,
+                SearchBench.percentile(micros, 0.5), p99, micros[queries - 1], (double) found / queries);
+        if (p99 > maxP99) {
+            System.out.printf("[FAIL] p99 %d µs supera el máximo de %d µs%n", p99, maxP99);
+            failures++;
+        }
+        System.out.println(failures == 0 ? "[OK] Recomendador dentro del objetivo" : "[FAIL] " + failures + " errores");
+        if (failures > 0) System.exit(1);
+    }
+
+    /** {@code count} pares (playlist << 32 | track) distintos, por popularidad y mezclados. */
+    private static long[] uniqueLinks(int count, SearchBench.Zipf playlistZipf, SearchBench.Zipf trackZipf,
+                                      SplittableRandom random) {
+        long[] keys = new long[0];
+        while (keys.length < count) {
+            int missing = count - keys.length;
+            long[] more = Arrays.copyOf(keys, keys.length + missing + missing / 4 + 16);
+            for (int i = keys.length; i < more.length; i++) {
+                more[i] = ((long) (1 + playlistZipf.next(random)) << 32) | (1 + trackZipf.next(random));
+            }
+            Arrays.sort(more);
+            int n = 0;
+            for (int i = 0; i < more.length; i++) {
+                if (n == 0 || more[i] != more[n - 1]) more[n++] = more[i];
+            }
+            keys = Arrays.copyOf(more, n);
+        }
+        for (int i = keys.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long t = keys[i];
+            keys[i] = keys[j];
+            keys[j] = t;
+        }
+        return Arrays.copyOf(keys, count);
+    }
+
+    private static boolean same(List<TrackRecommender.Recommendation> a, List<TrackRecommender.Recommendation> b) {
+        if (a.size() != b.size()) return false;
+        for (int i = 0; i < a.size(); i++) {
+            if (Float.compare(a.get(i).score(), b.get(i).score()) != 0) return false;
+        }
+        return true;
+    }
+}
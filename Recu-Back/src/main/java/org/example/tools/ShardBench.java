@@ -0,0 +1,263 @@
+package org.example.tools;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.domain.Playlist;
+import org.example.domain.Track;
+import org.example.infra.DataSourceProvider;
+import org.example.infra.DbInitializer;
+import org.example.infra.LocalEntityManagerProvider;
+import org.example.infra.PlaylistTrackShards;
+import org.example.repo.PlaylistTrackRepository;
+import org.example.repo.ReportRepository;
+import org.example.repo.projection.PlaylistStats;
+import org.example.util.IntList;
+import org.example.util.LongSet;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Throughput de PLAYLIST_TRACK según la cantidad de particiones. Como
+ * {@code recu.playlistTrack.shards} se fija al iniciar la JVM, cada valor de
+ * {@code --shards} corre en un proceso hijo con el mismo classpath, sobre el mismo
+ * catálogo sintético (misma semilla): tracks de dos géneros, playlists con tamaños de
+ * Zipf y enlaces distintos escritos con {@link PlaylistTrackShards#insert}. Cada hijo mide
+ *
+ * <ul>
+ *   <li>inserción de enlaces (filas/s, batch JDBC por partición),</li>
+ *   <li>consultas por playlist ({@link PlaylistTrackRepository#exists}, una partición),</li>
+ *   <li>los reportes scatter-gather {@link ReportRepository#findPlaylistStats()} y
+ *       {@link ReportRepository#countPlaylistsOnlyGenre}.</li>
+ * </ul>
+ *
+ * Los reportes tienen que dar lo mismo con cualquier N; si no, termina con código 1.
+ * El paralelismo del scatter depende de los núcleos disponibles, que se informan.
+ *
+ * <pre>
+ * ShardBench [--shards=1,2,4,8] [--links=1000000] [--playlists=5000] [--tracks=100000]
+ *            [--lookups=50000] [--reports=10] [--seed=42] [--xmx=2g]
+ * </pre>
+ */
+public class ShardBench {
+
+    private static final String RESULT = "RESULT ";
+    private static final int BATCH = 50_000;
+    private static final int ONLY_GENRE_ID = 2;
+
+    private record Result(int shards, double insertRowsPerSecond, double lookupsPerSecond, long lookupP99Micros,
+                          long statsP50Millis, long onlyGenreP50Millis, long playlistsWithStats, long linkedTracks,
+                          long onlyGenrePlaylists) {
+
+        String encode() {
+            return RESULT + shards + " " + insertRowsPerSecond + " " + lookupsPerSecond + " " + lookupP99Micros
+                    + " " + statsP50Millis + " " + onlyGenreP50Millis + " " + playlistsWithStats + " " + linkedTracks
+                    + " " + onlyGenrePlaylists;
+        }
+
+        static Result decode(String line) {
+            String[] f = line.substring(RESULT.length()).trim().split(" ");
+            return new Result(Integer.parseInt(f[0]), Double.parseDouble(f[1]), Double.parseDouble(f[2]),
+                    Long.parseLong(f[3]), Long.parseLong(f[4]), Long.parseLong(f[5]), Long.parseLong(f[6]),
+                    Long.parseLong(f[7]), Long.parseLong(f[8]));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (List.of(args).contains("--worker")) {
+            System.out.println(worker(args).encode());
+            System.exit(0);
+        }
+        String[] counts = LoadGenerator.option(args, "shards", "1,2,4,8").split(",");
+        String xmx = LoadGenerator.option(args, "xmx", "2g");
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+
+        System.out.printf("Núcleos disponibles: %d%n", Runtime.getRuntime().availableProcessors());
+        List<Result> results = new ArrayList<>();
+        for (String count : counts) {
+            List<String> command = new ArrayList<>(List.of(java, "-Xmx" + xmx,
+                    "-Drecu.playlistTrack.shards=" + count.trim(),
+                    "-cp", System.getProperty("java.class.path"), ShardBench.class.getName(), "--worker"));
+            command.addAll(List.of(args));
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            Result result = null;
+            try (BufferedReader out = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = out.readLine()) != null) {
+                    if (line.startsWith(RESULT)) result = Result.decode(line);
+                    else if (line.startsWith("[FAIL]")) System.out.println(line);
+                }
+            }
+            if (process.waitFor() != 0 || result == null) {
+                System.out.println("[FAIL] El proceso con " + count.trim() + " particiones terminó con código "
+                        + process.exitValue());
+                System.exit(1);
+            }
+            results.add(result);
+            System.out.printf("N=%-2d inserción %,9.0f filas/s | exists %,8.0f/s p99 %,5d µs | "
+                            + "findPlaylistStats p50 %,5d ms | countPlaylistsOnlyGenre p50 %,5d ms%n",
+                    result.shards(), result.insertRowsPerSecond(), result.lookupsPerSecond(), result.lookupP99Micros(),
+                    result.statsP50Millis(), result.onlyGenreP50Millis());
+        }
+
+        int failures = 0;
+        Result first = results.get(0);
+        for (Result r : results) {
+            if (r.playlistsWithStats() != first.playlistsWithStats() || r.linkedTracks() != first.linkedTracks()
+                    || r.onlyGenrePlaylists() != first.onlyGenrePlaylists()) {
+                System.out.printf("[FAIL] N=%d: %d playlists / %d enlaces / %d solo género, N=%d: %d / %d / %d%n",
+                        r.shards(), r.playlistsWithStats(), r.linkedTracks(), r.onlyGenrePlaylists(), first.shards(),
+                        first.playlistsWithStats(), first.linkedTracks(), first.onlyGenrePlaylists());
+                failures++;
+            }
+        }
+        System.out.println(failures == 0 ? "[OK] Reportes iguales con todas las particiones"
+                : "[FAIL] " + failures + " errores");
+        if (failures > 0) System.exit(1);
+    }
+
+    private static Result worker(String[] args) throws Exception {
+        int links = Integer.parseInt(LoadGenerator.option(args, "links", "1000000"));
+        int playlists = Integer.parseInt(LoadGenerator.option(args, "playlists", "5000"));
+        int tracks = Integer.parseInt(LoadGenerator.option(args, "tracks", "100000"));
+        int lookups = Integer.parseInt(LoadGenerator.option(args, "lookups", "50000"));
+        int reports = Integer.parseInt(LoadGenerator.option(args, "reports", "10"));
+        long seed = Long.parseLong(LoadGenerator.option(args, "seed", "42"));
+
+        DbInitializer.init();
+        SplittableRandom random = new SplittableRandom(seed);
+        try (Connection conn = DataSourceProvider.getDataSource().getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement st = conn.createStatement()) {
+                st.execute("INSERT INTO MEDIA_TYPES (NAME) VALUES ('MPEG audio file')");
+                st.execute("INSERT INTO GENRES (GENRE_ID, NAME) VALUES (1, 'Rock'), (2, 'Jazz')");
+                st.execute("INSERT INTO ARTISTS (NAME) VALUES ('Varios')");
+                st.execute("INSERT INTO ALBUMS (TITLE, ARTIST_ID) VALUES ('Compilado', (SELECT MIN(ARTIST_ID) FROM ARTISTS))");
+            }
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO TRACKS (TRACK_ID, NAME, ALBUM_ID, MEDIA_TYPE_ID, "
+                    + "GENRE_ID, MILLISECONDS, UNIT_PRICE) VALUES (?, ?, (SELECT MIN(ALBUM_ID) FROM ALBUMS), "
+                    + "(SELECT MIN(MEDIA_TYPE_ID) FROM MEDIA_TYPES), ?, ?, 0.99)")) {
+                for (int i = 1; i <= tracks; i++) {
+                    ps.setInt(1, i);
+                    ps.setString(2, "Track " + i);
+                    // Uno de cada diez es de jazz: algunas playlists chicas quedan de un solo género
+                    ps.setInt(3, random.nextInt(10) == 0 ? ONLY_GENRE_ID : 1);
+                    ps.setInt(4, 60_000 + random.nextInt(300_000));
+                    ps.addBatch();
+                    if (i % BATCH == 0) ps.executeBatch();
+                }
+                ps.executeBatch();
+            }
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO PLAYLISTS (PLAYLIST_ID, NAME) VALUES (?, ?)")) {
+                for (int i = 1; i <= playlists; i++) {
+                    ps.setInt(1, i);
+                    ps.setString(2, "Playlist " + i);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            conn.commit();
+
+            // Enlaces distintos: playlists y tracks con popularidad de Zipf
+            SearchBench.Zipf playlistZipf = new SearchBench.Zipf(playlists, 0.8);
+            SearchBench.Zipf trackZipf = new SearchBench.Zipf(tracks, 0.9);
+            LongSet seen = new LongSet(links);
+            IntList playlistIds = new IntList(links);
+            IntList trackIds = new IntList(links);
+            while (playlistIds.size() < links) {
+                int p = 1 + playlistZipf.next(random);
+                int t = 1 + trackZipf.next(random);
+                if (!seen.add(((long) p << 32) | t)) continue;
+                playlistIds.add(p);
+                trackIds.add(t);
+            }
+            long start = System.nanoTime();
+            IntList batchPlaylists = new IntList(BATCH);
+            IntList batchTracks = new IntList(BATCH);
+            for (int i = 0; i < links; i++) {
+                batchPlaylists.add(playlistIds.get(i));
+                batchTracks.add(trackIds.get(i));
+                if (batchPlaylists.size() == BATCH || i == links - 1) {
+                    PlaylistTrackShards.insert(conn, batchPlaylists, batchTracks);
+                    batchPlaylists.clear();
+                    batchTracks.clear();
+                }
+            }
+            conn.commit();
+            double insertRate = links * 1e9 / (System.nanoTime() - start);
+
+            EntityManagerFactory emf = LocalEntityManagerProvider.get();
+            try (EntityManager em = emf.createEntityManager()) {
+                // Consultas por playlist: mitad de pares existentes, mitad al azar
+                PlaylistTrackRepository repo = new PlaylistTrackRepository(em);
+                Playlist playlist = new Playlist();
+                Track track = new Track();
+                long[] micros = new long[lookups];
+                long found = 0;
+                for (int pass = 0; pass < 2; pass++) {
+                    SplittableRandom sample = new SplittableRandom(seed + 1);
+                    for (int i = 0; i < lookups; i++) {
+                        int k = sample.nextInt(links);
+                        playlist.setPlaylistId(playlistIds.get(k));
+                        track.setTrackId(sample.nextBoolean() ? trackIds.get(k) : 1 + sample.nextInt(tracks));
+                        long t0 = System.nanoTime();
+                        if (repo.exists(playlist, track)) found++;
+                        micros[i] = (System.nanoTime() - t0) / 1000;
+                    }
+                }
+                long lookupNanos = Arrays.stream(micros).sum() * 1000;
+                Arrays.sort(micros);
+
+                ReportRepository reportRepo = new ReportRepository(em);
+                long[] statsMillis = new long[reports];
+                long[] onlyGenreMillis = new long[reports];
+                // Calentamiento: la primera pasada por cada partición compila sus planes
+                List<PlaylistStats> stats = List.of();
+                long onlyGenre = 0;
+                for (int i = 0; i < 3; i++) {
+                    stats = reportRepo.findPlaylistStats();
+                    onlyGenre = reportRepo.countPlaylistsOnlyGenre(ONLY_GENRE_ID);
+                }
+                for (int i = 0; i < reports; i++) {
+                    touch(conn);
+                    long t0 = System.nanoTime();
+                    stats = reportRepo.findPlaylistStats();
+                    statsMillis[i] = (System.nanoTime() - t0) / 1_000_000;
+                    touch(conn);
+                    t0 = System.nanoTime();
+                    onlyGenre = reportRepo.countPlaylistsOnlyGenre(ONLY_GENRE_ID);
+                    onlyGenreMillis[i] = (System.nanoTime() - t0) / 1_000_000;
+                }
+                Arrays.sort(statsMillis);
+                Arrays.sort(onlyGenreMillis);
+                long linked = stats.stream().mapToLong(PlaylistStats::trackCount).sum();
+                if (found == 0) System.out.println("[FAIL] exists no encontró ningún par cargado");
+                return new Result(PlaylistTrackShards.count(), insertRate, lookups * 1e9 / Math.max(1, lookupNanos),
+                        SearchBench.percentile(micros, 0.99), SearchBench.percentile(statsMillis, 0.5),
+                        SearchBench.percentile(onlyGenreMillis, 0.5), stats.size(), linked, onlyGenre);
+            }
+        }
+    }
+
+    /**
+     * Una escritura confirmada: H2 devuelve el resultado anterior de una consulta idéntica
+     * si sus tablas no cambiaron desde entonces, y los reportes se medirían contra esa copia.
+     */
+    private static void touch(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate("UPDATE TRACKS SET MILLISECONDS = MILLISECONDS WHERE TRACK_ID = 1");
+        }
+        conn.commit();
+    }
+}
@@ -0,0 +1,184 @@
+package org.example.tools;
+
+import jakarta.persistence.EntityManager;
+import org.example.infra.CsvLoader;
+import org.example.infra.DataSourceProvider;
+import org.example.infra.DbInitializer;
+import org.example.infra.LocalEntityManagerProvider;
+import org.example.infra.SketchStore;
+import org.example.report.CatalogSketches;
+import org.example.report.CatalogSketches.Dimension;
+import org.example.report.CatalogSketches.Measure;
+import org.example.report.HyperLogLog;
+import org.example.report.QuantileSketch;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Verifica las cotas de error documentadas de {@link HyperLogLog}, {@link QuantileSketch}
+ * y {@link CatalogSketches}: primero con datos sintéticos (incluida la combinación de
+ * sketches parciales) y después contra los valores exactos de la base tras importar
+ * playlists.csv. Termina con código 1 si alguna estimación queda fuera de su cota.
+ *
+ * <pre>
+ * SketchAccuracy [--seed=42]
+ * </pre>
+ */
+public class SketchAccuracy {
+
+    private static final double[] QUANTILES = {0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99};
+    // Las cotas de HLL son estadísticas: 3σ deja afuera ~0,3% de los casos
+    private static final double HLL_SIGMAS = 3;
+
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        long seed = Long.parseLong(LoadGenerator.option(args, "seed", "42"));
+        SplittableRandom random = new SplittableRandom(seed);
+
+        System.out.println("== HyperLogLog (p = " + HyperLogLog.DEFAULT_PRECISION + ")");
+        for (int n : new int[]{10, 1_000, 10_000, 100_000, 1_000_000}) {
+            HyperLogLog hll = new HyperLogLog();
+            HyperLogLog[] parts = {new HyperLogLog(), new HyperLogLog(), new HyperLogLog()};
+            for (int i = 0; i < n; i++) {
+                String value = "valor-" + random.nextLong();
+                hll.add(value);
+                hll.add(value); // los repetidos no cuentan
+                parts[i % parts.length].add(value);
+            }
+            HyperLogLog merged = parts[0].merge(parts[1]).merge(parts[2]);
+            checkCardinality("n=" + n, hll.estimate(), n, hll.standardError());
+            checkCardinality("n=" + n + " combinado", merged.estimate(), n, merged.standardError());
+        }
+
+        System.out.println("== QuantileSketch (α = " + QuantileSketch.DEFAULT_RELATIVE_ACCURACY + ")");
+        for (String distribution : List.of("uniforme", "lognormal", "pareto")) {
+            int n = 200_000;
+            double[] values = new double[n];
+            QuantileSketch sketch = new QuantileSketch();
+            QuantileSketch[] parts = {new QuantileSketch(), new QuantileSketch()};
+            for (int i = 0; i < n; i++) {
+                values[i] = sample(distribution, random);
+                sketch.add(values[i]);
+                parts[i % 2].add(values[i]);
+            }
+            Arrays.sort(values);
+            checkQuantiles(distribution, sketch, values);
+            checkQuantiles(distribution + " combinado", parts[0].merge(parts[1]), values);
+        }
+
+        System.out.println("== Catálogo importado vs. SQL exacto");
+        DbInitializer.init();
+        try (EntityManager em = LocalEntityManagerProvider.get().createEntityManager()) {
+            new CsvLoader(em).loadFromClasspath("DATA/playlists.csv");
+        }
+        CatalogSketches sketches = SketchStore.load();
+        double hllError = new HyperLogLog().standardError();
+        try (Connection conn = DataSourceProvider.getDataSource().getConnection()) {
+            checkCardinality("compositores", sketches.distinctComposers(),
+                    scalar(conn, "SELECT COUNT(DISTINCT NAME_KEY) FROM COMPOSERS"), hllError);
+            checkCardinality("artistas", sketches.distinctArtists(), scalar(conn, """
+                    SELECT COUNT(DISTINCT UPPER(ar.NAME)) FROM TRACKS t
+                    JOIN ALBUMS al ON al.ALBUM_ID = t.ALBUM_ID JOIN ARTISTS ar ON ar.ARTIST_ID = al.ARTIST_ID"""),
+                    hllError);
+            for (String genre : sketches.values(Dimension.GENRE)) {
+                checkCardinality("artistas de " + genre, sketches.distinctArtists(genre), scalar(conn, """
+                        SELECT COUNT(DISTINCT UPPER(ar.NAME)) FROM TRACKS t
+                        JOIN GENRES g ON g.GENRE_ID = t.GENRE_ID
+                        JOIN ALBUMS al ON al.ALBUM_ID = t.ALBUM_ID JOIN ARTISTS ar ON ar.ARTIST_ID = al.ARTIST_ID
+                        WHERE g.NAME = ?""", genre), hllError);
+                double[] exact = column(conn, """
+                        SELECT t.MILLISECONDS FROM TRACKS t JOIN GENRES g ON g.GENRE_ID = t.GENRE_ID
+                        WHERE g.NAME = ? ORDER BY 1""", genre);
+                for (double q : QUANTILES) {
+                    checkValue("duración " + genre + " q" + q,
+                            sketches.quantile(Measure.MILLISECONDS, Dimension.GENRE, genre, q),
+                            exact[(int) (q * (exact.length - 1))]);
+                }
+            }
+            for (Measure measure : Measure.values()) {
+                String column = switch (measure) {
+                    case MILLISECONDS -> "MILLISECONDS";
+                    case BYTES -> "BYTES";
+                    case UNIT_PRICE -> "UNIT_PRICE";
+                };
+                double[] exact = column(conn, "SELECT " + column + " FROM TRACKS WHERE " + column
+                        + " IS NOT NULL ORDER BY 1");
+                for (double q : QUANTILES) {
+                    checkValue(measure + " q" + q, sketches.quantile(measure, q), exact[(int) (q * (exact.length - 1))]);
+                }
+            }
+        }
+
+        System.out.println(failures == 0 ? "[OK] Todas las estimaciones dentro de su cota"
+                : "[FAIL] " + failures + " estimaciones fuera de su cota");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static void checkCardinality(String label, long estimate, long exact, double standardError) {
+        double error = exact == 0 ? estimate : Math.abs(estimate - exact) / (double) exact;
+        boolean ok = error <= HLL_SIGMAS * standardError;
+        if (!ok) failures++;
+        System.out.printf("  %-4s %-40s exacto=%-8d estimado=%-8d error=%.2f%% (cota %.2f%%)%n", ok ? "ok" : "FUERA",
+                label, exact, estimate, 100 * error, 100 * HLL_SIGMAS * standardError);
+    }
+
+    private static void checkQuantiles(String label, QuantileSketch sketch, double[] sorted) {
+        double worst = 0;
+        for (double q : QUANTILES) {
+            double exact = sorted[(int) (q * (sorted.length - 1))];
+            worst = Math.max(worst, Math.abs(sketch.quantile(q) - exact) / exact);
+        }
+        boolean ok = worst <= sketch.relativeAccuracy() + 1e-9;
+        if (!ok) failures++;
+        System.out.printf("  %-4s %-40s peor error relativo=%.3f%% (cota %.1f%%)%n", ok ? "ok" : "FUERA", label,
+                100 * worst, 100 * sketch.relativeAccuracy());
+    }
+
+    private static void checkValue(String label, double estimate, double exact) {
+        double error = Math.abs(estimate - exact) / exact;
+        if (error > QuantileSketch.DEFAULT_RELATIVE_ACCURACY + 1e-9) {
+            failures++;
+            System.out.printf("  FUERA %-40s exacto=%.2f estimado=%.2f error=%.3f%%%n", label, exact, estimate, 100 * error);
+        }
+    }
+
+    private static double sample(String distribution, SplittableRandom random) {
+        return switch (distribution) {
+            case "uniforme" -> 1 + random.nextDouble() * 10_000;
+            case "lognormal" -> Math.exp(12 + 1.5 * gaussian(random));
+            default -> 1000 / Math.pow(1 - random.nextDouble(), 1 / 1.2);
+        };
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    private static long scalar(Connection conn, String sql, Object... params) throws Exception {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) ps.setObject(i + 1, params[i]);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private static double[] column(Connection conn, String sql, Object... params) throws Exception {
+        List<Double> out = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) ps.setObject(i + 1, params[i]);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) out.add(rs.getDouble(1));
+            }
+        }
+        return out.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+}
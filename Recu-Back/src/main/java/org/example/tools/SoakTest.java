@@ -0,0 +1,264 @@
+package org.example.tools;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.http.Json;
+import org.example.infra.CsvLoader;
+import org.example.infra.DataSourceProvider;
+import org.example.infra.DbInitializer;
+import org.example.infra.LocalEntityManagerProvider;
+import org.example.infra.metrics.LatencyHistogram;
+import org.example.report.RankingService;
+import org.example.repo.AlbumRepository;
+import org.example.repo.ReportRepository;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prueba de resistencia de lecturas concurrentes con importaciones: un hilo importa
+ * sin parar lotes sintéticos ({@link SyntheticCsv}) con {@link CsvLoader} mientras N
+ * lectores ejecutan las consultas de los reportes y búsquedas de repositorios.
+ *
+ * <pre>
+ * SoakTest [--readers=8] [--seconds=60] [--rows=2000] [--seed=42] [--out=soak-report.json]
+ * </pre>
+ *
+ * Mide latencia por operación (percentiles con {@link LatencyHistogram}), throughput
+ * segundo a segundo, espera por locks de H2 (muestreando INFORMATION_SCHEMA.SESSIONS
+ * cada {@value #LOCK_SAMPLE_MILLIS} ms) y el tiempo bloqueado/en espera de los hilos
+ * según la JVM. El resultado se escribe en JSON para comparar entre versiones.
+ */
+public class SoakTest {
+
+    public enum Operation { TOP_PLAYLISTS, ONLY_GENRE, PLAYLIST_STATS, TRACK_BY_NAME, ALBUM_BY_ID }
+
+    private static final long LOCK_SAMPLE_MILLIS = 50;
+    private static final long INTERVAL_MILLIS = 1000;
+    private static final int JAZZ_GENRE_ID = 2;
+
+    public record Config(int readers, int seconds, int rowsPerImport, long seed) { }
+
+    public record LatencyStats(long count, long errors, double meanMillis, double p50Millis, double p90Millis,
+                               double p99Millis, double p999Millis, double maxMillis) {
+        static LatencyStats of(LatencyHistogram h, long errors) {
+            return new LatencyStats(h.count(), errors, h.meanNanos() / 1e6, millis(h, 0.50), millis(h, 0.90),
+                    millis(h, 0.99), millis(h, 0.999), h.maxNanos() / 1e6);
+        }
+
+        private static double millis(LatencyHistogram h, double p) {
+            return h.percentileNanos(p) / 1e6;
+        }
+    }
+
+    /** Espera por locks: H2 estimada por muestreo (sesiones bloqueadas x intervalo) y JVM exacta. */
+    public record LockStats(long samples, long h2BlockedSessionMillis, int maxBlockedSessions,
+                            long jvmBlockedMillis, long jvmWaitedMillis) { }
+
+    public record Interval(int second, long reads, double readP99Millis, long importedRows, int maxBlockedSessions) { }
+
+    public record Report(String startedAt, Config config, double seconds, long imports, long importedRows,
+                         LatencyStats importLatency, double readsPerSecond, Map<Operation, LatencyStats> reads,
+                         LockStats locks, List<Interval> timeline) { }
+
+    public static void main(String[] args) throws Exception {
+        Config config = new Config(
+                Integer.parseInt(LoadGenerator.option(args, "readers", "8")),
+                Integer.parseInt(LoadGenerator.option(args, "seconds", "60")),
+                Integer.parseInt(LoadGenerator.option(args, "rows", "2000")),
+                Long.parseLong(LoadGenerator.option(args, "seed", "42")));
+        Path out = Path.of(LoadGenerator.option(args, "out", "soak-report.json"));
+
+        DbInitializer.init();
+        EntityManagerFactory emf = LocalEntityManagerProvider.get();
+        try (EntityManager em = emf.createEntityManager()) {
+            new CsvLoader(em).loadFromClasspath("DATA/playlists.csv");
+        }
+        Report report = run(emf, config);
+        Files.writeString(out, Json.write(report), StandardCharsets.UTF_8);
+
+        System.out.printf("%d importaciones (%d filas, p99 %.0f ms) en %.1f s%n", report.imports(),
+                report.importedRows(), report.importLatency().p99Millis(), report.seconds());
+        System.out.printf("Lecturas: %.1f/s%n", report.readsPerSecond());
+        report.reads().forEach((op, s) -> System.out.printf(" - %-15s n=%d err=%d p50=%.2f p99=%.2f max=%.2f ms%n",
+                op, s.count(), s.errors(), s.p50Millis(), s.p99Millis(), s.maxMillis()));
+        System.out.println("Locks: " + report.locks());
+        System.out.println("[OK] Reporte en " + out.toAbsolutePath());
+        System.exit(0);
+    }
+
+    /** Corre la prueba sobre una base ya cargada (los lectores consultan lo existente). */
+    public static Report run(EntityManagerFactory emf, Config config) throws Exception {
+        List<String> trackNames;
+        int maxAlbumId;
+        try (EntityManager em = emf.createEntityManager()) {
+            trackNames = em.createQuery("SELECT t.name FROM Track t", String.class).getResultList();
+            maxAlbumId = em.createQuery("SELECT MAX(a.albumId) FROM Album a", Integer.class).getSingleResult();
+        }
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads.isThreadContentionMonitoringSupported()) threads.setThreadContentionMonitoringEnabled(true);
+
+        String startedAt = Instant.now().toString();
+        long start = System.nanoTime();
+        long deadline = start + config.seconds() * 1_000_000_000L;
+        AtomicBoolean stop = new AtomicBoolean();
+        Map<Operation, LatencyHistogram> readLatency = new EnumMap<>(Operation.class);
+        Map<Operation, LongAdder> readErrors = new EnumMap<>(Operation.class);
+        for (Operation op : Operation.values()) {
+            readLatency.put(op, new LatencyHistogram());
+            readErrors.put(op, new LongAdder());
+        }
+        AtomicReference<LatencyHistogram> intervalLatency = new AtomicReference<>(new LatencyHistogram());
+        LatencyHistogram importLatency = new LatencyHistogram();
+        AtomicLong imports = new AtomicLong();
+        AtomicLong importedRows = new AtomicLong();
+        LongAdder importErrors = new LongAdder();
+        LongAdder jvmBlockedMillis = new LongAdder();
+        LongAdder jvmWaitedMillis = new LongAdder();
+
+        Path dir = Files.createTempDirectory("soak");
+        List<Thread> workers = new ArrayList<>();
+        workers.add(new Thread(() -> {
+            for (int batch = 0; System.nanoTime() < deadline; batch++) {
+                Path csv = dir.resolve("batch-" + batch + ".csv");
+                try {
+                    SyntheticCsv.write(csv, config.rowsPerImport(), batch, config.seed());
+                    long t0 = System.nanoTime();
+                    CsvLoader.Stats stats;
+                    try (EntityManager em = emf.createEntityManager(); InputStream in = Files.newInputStream(csv)) {
+                        stats = new CsvLoader(em).load(in);
+                    }
+                    importLatency.record(System.nanoTime() - t0);
+                    imports.incrementAndGet();
+                    importedRows.addAndGet(stats.processedRows);
+                    Files.deleteIfExists(csv);
+                } catch (Exception e) {
+                    importErrors.increment();
+                    System.err.println("[WARN] Importación " + batch + " falló: " + e.getMessage());
+                }
+            }
+            addThreadTimes(threads, jvmBlockedMillis, jvmWaitedMillis);
+        }, "soak-writer"));
+        for (int i = 0; i < config.readers(); i++) {
+            long seed = config.seed() + i;
+            workers.add(new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                Operation[] ops = Operation.values();
+                while (!stop.get()) {
+                    Operation op = ops[random.nextInt(ops.length)];
+                    long t0 = System.nanoTime();
+                    try {
+                        execute(op, emf, random, trackNames, maxAlbumId);
+                    } catch (RuntimeException e) {
+                        readErrors.get(op).increment();
+                    }
+                    long elapsed = System.nanoTime() - t0;
+                    readLatency.get(op).record(elapsed);
+                    intervalLatency.get().record(elapsed);
+                }
+                addThreadTimes(threads, jvmBlockedMillis, jvmWaitedMillis);
+            }, "soak-reader-" + i));
+        }
+        workers.forEach(Thread::start);
+
+        // Hilo principal: muestrea locks de H2 y arma la línea de tiempo por segundo
+        List<Interval> timeline = new ArrayList<>();
+        long samples = 0;
+        long blockedSessionMillis = 0;
+        int maxBlocked = 0;
+        try (Connection conn = DataSourceProvider.getDataSource().getConnection();
+             Statement st = conn.createStatement()) {
+            long nextTick = start + INTERVAL_MILLIS * 1_000_000;
+            long lastReads = 0;
+            long lastRows = 0;
+            int intervalMaxBlocked = 0;
+            while (System.nanoTime() < deadline) {
+                Thread.sleep(LOCK_SAMPLE_MILLIS);
+                int blocked = blockedSessions(st);
+                samples++;
+                blockedSessionMillis += blocked * LOCK_SAMPLE_MILLIS;
+                maxBlocked = Math.max(maxBlocked, blocked);
+                intervalMaxBlocked = Math.max(intervalMaxBlocked, blocked);
+                if (System.nanoTime() >= nextTick) {
+                    LatencyHistogram interval = intervalLatency.getAndSet(new LatencyHistogram());
+                    long reads = totalCount(readLatency);
+                    long rows = importedRows.get();
+                    timeline.add(new Interval(timeline.size() + 1, reads - lastReads,
+                            interval.percentileNanos(0.99) / 1e6, rows - lastRows, intervalMaxBlocked));
+                    lastReads = reads;
+                    lastRows = rows;
+                    intervalMaxBlocked = 0;
+                    nextTick += INTERVAL_MILLIS * 1_000_000;
+                }
+            }
+        }
+        stop.set(true);
+        // La importación en curso puede terminar después; el throughput de lecturas se mide hasta acá
+        double seconds = (System.nanoTime() - start) / 1e9;
+        for (Thread t : workers) t.join();
+        Files.deleteIfExists(dir);
+
+        Map<Operation, LatencyStats> reads = new LinkedHashMap<>();
+        readLatency.forEach((op, h) -> reads.put(op, LatencyStats.of(h, readErrors.get(op).sum())));
+        return new Report(startedAt, config, seconds, imports.get(), importedRows.get(),
+                LatencyStats.of(importLatency, importErrors.sum()), totalCount(readLatency) / seconds, reads,
+                new LockStats(samples, blockedSessionMillis, maxBlocked, jvmBlockedMillis.sum(), jvmWaitedMillis.sum()),
+                timeline);
+    }
+
+    private static void execute(Operation op, EntityManagerFactory emf, SplittableRandom random,
+                                List<String> trackNames, int maxAlbumId) {
+        try (EntityManager em = emf.createEntityManager()) {
+            switch (op) {
+                case TOP_PLAYLISTS -> new RankingService(em)
+                        .top(RankingService.Level.PLAYLIST, RankingService.Metric.COST_PER_MINUTE, 5);
+                case ONLY_GENRE -> new ReportRepository(em).countPlaylistsOnlyGenre(JAZZ_GENRE_ID);
+                case PLAYLIST_STATS -> new ReportRepository(em).findPlaylistStats();
+                case TRACK_BY_NAME -> new ReportRepository(em)
+                        .findTrackSummariesByName(trackNames.get(random.nextInt(trackNames.size())));
+                case ALBUM_BY_ID -> new AlbumRepository(em).findById(1 + random.nextInt(maxAlbumId));
+            }
+        }
+    }
+
+    private static int blockedSessions(Statement st) throws SQLException {
+        try (ResultSet rs = st.executeQuery(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.SESSIONS WHERE BLOCKER_ID IS NOT NULL")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static long totalCount(Map<Operation, LatencyHistogram> histograms) {
+        long total = 0;
+        for (LatencyHistogram h : histograms.values()) total += h.count();
+        return total;
+    }
+
+    /** Suma el tiempo bloqueado (monitores) y en espera del hilo actual; -1 si la JVM no lo mide. */
+    private static void addThreadTimes(ThreadMXBean threads, LongAdder blocked, LongAdder waited) {
+        ThreadInfo info = threads.getThreadInfo(Thread.currentThread().getId());
+        if (info == null) return;
+        if (info.getBlockedTime() > 0) blocked.add(info.getBlockedTime());
+        if (info.getWaitedTime() > 0) waited.add(info.getWaitedTime());
+    }
+}
@@ -0,0 +1,131 @@
+package org.example.tools;
+
+import jakarta.persistence.EntityManager;
+import org.example.infra.CsvLoader;
+import org.example.infra.DataSourceProvider;
+import org.example.infra.DbInitializer;
+import org.example.infra.ImportListener;
+import org.example.infra.LocalEntityManagerProvider;
+import org.example.infra.StatelessCsvLoader;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * Carga archivos sintéticos ({@link SyntheticCsv}) de distintos tamaños con
+ * {@link StatelessCsvLoader} sobre un esquema vacío y después los vuelve a importar
+ * sobre lo ya cargado (todos los nombres existen: mide las búsquedas por bloque). Hasta
+ * {@code --compare-max-rows} filas también carga con {@link CsvLoader} (unidad bulk) y
+ * verifica que los Stats sean iguales (más no: CsvLoader busca cada track nuevo con
+ * UPPER(NAME), sin índice, y su costo crece con el cuadrado de las filas). Informa
+ * tiempo, filas/s, la memoria que retiene el loader al llegar al commit (heap tras GC en
+ * onCommit menos heap tras GC al terminar, cuando ya soltó sus mapas) y cuánto creció la
+ * base H2 en memoria. Termina con código 1 si los Stats difieren o si la reimportación
+ * inserta algo.
+ *
+ * <pre>
+ * StatelessLoadBench [--rows=100000,1000000,10000000] [--compare-max-rows=20000] [--seed=42]
+ * </pre>
+ */
+public class StatelessLoadBench {
+
+    private static final int BULK_FLUSH_INTERVAL = 5_000;
+
+    public static void main(String[] args) throws Exception {
+        String[] sizes = LoadGenerator.option(args, "rows", "100000,1000000,10000000").split(",");
+        int compareMax = Integer.parseInt(LoadGenerator.option(args, "compare-max-rows", "20000"));
+        long seed = Long.parseLong(LoadGenerator.option(args, "seed", "42"));
+
+        int failures = 0;
+        Path dir = Files.createTempDirectory("stateless-bench");
+        for (String size : sizes) {
+            int rows = Integer.parseInt(size.trim());
+            Path csv = dir.resolve("rows-" + rows + ".csv");
+            SyntheticCsv.write(csv, rows, 0, seed);
+            System.out.printf("== %,d filas (%d MB)%n", rows, Files.size(csv) >> 20);
+
+            resetSchema();
+            Run stateless = run(csv, false);
+            print("StatelessCsvLoader", rows, stateless);
+            Run again = run(csv, false);
+            print("  reimportación", rows, again);
+            CsvLoader.Stats s = again.stats();
+            if (s.insertedTracks + s.insertedAlbums + s.insertedPlaylists + s.insertedPlaylistTracks
+                    + s.insertedComposers != 0 || s.processedRows != rows) {
+                System.out.println("[FAIL] La reimportación insertó filas: " + s);
+                failures++;
+            }
+
+            if (rows <= compareMax) {
+                resetSchema();
+                Run stateful = run(csv, true);
+                print("CsvLoader (bulk)", rows, stateful);
+                if (!stateful.stats().toString().equals(stateless.stats().toString())) {
+                    System.out.println("[FAIL] Stats distintos:\n  stateless=" + stateless.stats()
+                            + "\n  CsvLoader=" + stateful.stats());
+                    failures++;
+                }
+            }
+            Files.deleteIfExists(csv);
+        }
+        Files.deleteIfExists(dir);
+        System.out.println(failures == 0 ? "[OK] Cargas consistentes" : "[FAIL] " + failures + " errores");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private record Run(CsvLoader.Stats stats, long millis, long loaderBytes, long databaseBytes) { }
+
+    private static Run run(Path csv, boolean stateful) throws Exception {
+        long before = heapAfterGc();
+        long[] atCommit = new long[1];
+        // El GC de la medición queda dentro del tiempo, pero es uno por carga
+        ImportListener probe = new ImportListener() {
+            @Override
+            public void onCommit(CsvLoader.Stats stats) {
+                atCommit[0] = heapAfterGc();
+            }
+        };
+        long start = System.nanoTime();
+        CsvLoader.Stats stats;
+        try (InputStream in = Files.newInputStream(csv)) {
+            if (stateful) {
+                try (EntityManager em = LocalEntityManagerProvider.getBulk().createEntityManager()) {
+                    CsvLoader loader = new CsvLoader(em).withFlushInterval(BULK_FLUSH_INTERVAL);
+                    loader.addListener(probe);
+                    stats = loader.load(in);
+                }
+            } else {
+                StatelessCsvLoader loader = new StatelessCsvLoader(LocalEntityManagerProvider.get());
+                loader.addListener(probe);
+                stats = loader.load(in);
+            }
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        long after = heapAfterGc();
+        return new Run(stats, millis, Math.max(0, atCommit[0] - after), after - before);
+    }
+
+    private static long heapAfterGc() {
+        System.gc();
+        System.gc();
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static void print(String label, int rows, Run run) {
+        System.out.printf("%-20s: %,d ms, %,.0f filas/s, loader %,d MB, base +%,d MB, %d tracks nuevos%n", label,
+                run.millis(), rows * 1000.0 / Math.max(1, run.millis()), run.loaderBytes() >> 20,
+                run.databaseBytes() >> 20, run.stats().insertedTracks);
+    }
+
+    private static void resetSchema() throws Exception {
+        try (Connection conn = DataSourceProvider.getDataSource().getConnection();
+             Statement st = conn.createStatement()) {
+            st.execute("DROP ALL OBJECTS");
+        }
+        DbInitializer.init();
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.tools;
+
+import com.opencsv.CSVWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Genera CSVs sintéticos con el mismo formato que DATA/playlists.csv. Los nombres de
+ * tracks, álbumes, artistas y playlists llevan el número de lote, así cada lote inserta
+ * filas nuevas; géneros, medios y compositores se repiten entre lotes como en el real.
+ */
+public final class SyntheticCsv {
+
+    public static final String[] HEADER = {"playListName", "trackName", "composer", "milliseconds", "bytes",
+            "unitPrice", "albumTitle", "artistName", "genreName", "mediaTypeName"};
+
+    private static final String[] GENRES = {"Rock", "Jazz", "Metal", "Alternative & Punk", "Latin", "Blues",
+            "Classical", "Pop", "Reggae", "Soundtrack"};
+    private static final String[] MEDIA_TYPES = {"MPEG audio file", "AAC audio file", "Protected AAC audio file"};
+    private static final BigDecimal[] PRICES = {new BigDecimal("0.99"), new BigDecimal("1.99")};
+    private static final int TRACKS_PER_ALBUM = 12;
+    private static final int ALBUMS_PER_ARTIST = 3;
+    private static final int PLAYLISTS_PER_BATCH = 8;
+    private static final int COMPOSERS = 500;
+
+    private SyntheticCsv() {
+    }
+
+    /**
+     * Escribe {@code rows} filas del lote {@code batch}. Cada track aparece en una o dos
+     * playlists, así que hay algo menos de {@code rows} tracks distintos.
+     */
+    public static void write(Path file, int rows, int batch, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed ^ (batch * 0x9E3779B97F4A7C15L));
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+             CSVWriter csv = new CSVWriter(out)) {
+            csv.writeNext(HEADER, false);
+            String[] line = new String[HEADER.length];
+            int track = 0;
+            for (int row = 0; row < rows; track++) {
+                int copies = random.nextInt(4) == 0 ? 2 : 1;
+                int album = track / TRACKS_PER_ALBUM;
+                int millis = 60_000 + random.nextInt(360_000);
+                String composer = "Composer " + random.nextInt(COMPOSERS)
+                        + (random.nextBoolean() ? " | Composer " + random.nextInt(COMPOSERS) : "");
+                line[1] = "Soak Track " + batch + "-" + track;
+                line[2] = composer;
+                line[3] = Integer.toString(millis);
+                line[4] = Integer.toString(millis * 32);
+                line[5] = PRICES[random.nextInt(PRICES.length)].toPlainString();
+                line[6] = "Soak Album " + batch + "-" + album;
+                line[7] = "Soak Artist " + batch + "-" + album / ALBUMS_PER_ARTIST;
+                line[8] = GENRES[random.nextInt(GENRES.length)];
+                line[9] = MEDIA_TYPES[random.nextInt(MEDIA_TYPES.length)];
+                int firstPlaylist = random.nextInt(PLAYLISTS_PER_BATCH);
+                for (int c = 0; c < copies && row < rows; c++, row++) {
+                    line[0] = "Soak " + batch + "-" + (firstPlaylist + c) % PLAYLISTS_PER_BATCH;
+                    csv.writeNext(line, false);
+                }
+            }
+            if (csv.checkError()) throw new IOException("Error escribiendo " + file);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.util;
+
+import java.util.Arrays;
+
+/**
+ * Mapa int -> int con direccionamiento abierto (sondeo lineal), sin boxing.
+ * Las claves deben ser distintas de {@link Integer#MIN_VALUE}, que marca celda libre.
+ */
+public final class IntIntMap {
+
+    private static final int FREE = Integer.MIN_VALUE;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private final int missing;
+
+    /** @param missing valor devuelto por {@link #get} cuando la clave no está */
+    public IntIntMap(int expectedSize, int missing) {
+        int cap = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new int[cap];
+        values = new int[cap];
+        Arrays.fill(keys, FREE);
+        this.missing = missing;
+    }
+
+    public int get(int key) {
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == key) return values[i];
+            if (k == FREE) return missing;
+        }
+    }
+
+    public void put(int key, int value) {
+        if (key == FREE) throw new IllegalArgumentException("Clave reservada: " + key);
+        if ((size + 1) * 2 > keys.length) rehash(keys.length * 2);
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            if (keys[i] == FREE) {
+                keys[i] = key;
+                values[i] = value;
+                size++;
+                return;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, FREE);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) put(oldKeys[i], oldValues[i]);
+        }
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Conjunto de int con direccionamiento abierto (sondeo lineal) y borrado por corrimiento
+ * hacia atrás, así no quedan marcas de borrado que degraden las búsquedas.
+ * Integer.MIN_VALUE no se puede guardar (marca los huecos).
+ */
+public final class IntSet {
+
+    private static final int FREE = Integer.MIN_VALUE;
+
+    private int[] slots;
+    private int size;
+
+    public IntSet() {
+        this(8);
+    }
+
+    public IntSet(int expectedSize) {
+        slots = new int[Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1];
+        Arrays.fill(slots, FREE);
+    }
+
+    /** true si no estaba. */
+    public boolean add(int value) {
+        if (value == FREE) throw new IllegalArgumentException("valor reservado: " + value);
+        if ((size + 1) * 4 > slots.length * 3) resize();
+        int mask = slots.length - 1;
+        for (int i = slot(value); ; i = (i + 1) & mask) {
+            if (slots[i] == value) return false;
+            if (slots[i] == FREE) {
+                slots[i] = value;
+                size++;
+                return true;
+            }
+        }
+    }
+
+    public boolean contains(int value) {
+        int mask = slots.length - 1;
+        for (int i = slot(value); slots[i] != FREE; i = (i + 1) & mask) {
+            if (slots[i] == value) return true;
+        }
+        return false;
+    }
+
+    /** true si estaba. */
+    public boolean remove(int value) {
+        int mask = slots.length - 1;
+        int i = slot(value);
+        while (slots[i] != value) {
+            if (slots[i] == FREE) return false;
+            i = (i + 1) & mask;
+        }
+        // Corre hacia el hueco los elementos siguientes cuyo slot ideal no queda entre el hueco y ellos
+        int gap = i;
+        for (int j = (gap + 1) & mask; slots[j] != FREE; j = (j + 1) & mask) {
+            int home = slot(slots[j]);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                slots[gap] = slots[j];
+                gap = j;
+            }
+        }
+        slots[gap] = FREE;
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, FREE);
+        size = 0;
+    }
+
+    public void forEach(IntConsumer action) {
+        for (int v : slots) {
+            if (v != FREE) action.accept(v);
+        }
+    }
+
+    /** Elementos ordenados. */
+    public int[] toSortedArray() {
+        int[] out = new int[size];
+        int n = 0;
+        for (int v : slots) {
+            if (v != FREE) out[n++] = v;
+        }
+        Arrays.sort(out);
+        return out;
+    }
+
+    private int slot(int value) {
+        int h = value * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (slots.length - 1);
+    }
+
+    private void resize() {
+        int[] old = slots;
+        slots = new int[old.length * 2];
+        Arrays.fill(slots, FREE);
+        size = 0;
+        for (int v : old) {
+            if (v != FREE) add(v);
+        }
+    }
+}
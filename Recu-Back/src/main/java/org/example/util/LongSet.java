@@ -0,0 +1,83 @@
+package org.example.util;
+
+import java.util.Arrays;
+
+/**
+ * Conjunto de long con direccionamiento abierto (sondeo lineal), sin borrado: la
+ * contraparte de {@link IntSet} para claves compuestas de dos int.
+ * Long.MIN_VALUE no se puede guardar (marca los huecos).
+ */
+public final class LongSet {
+
+    private static final long FREE = Long.MIN_VALUE;
+
+    private long[] slots;
+    private int size;
+
+    public LongSet() {
+        this(8);
+    }
+
+    public LongSet(int expectedSize) {
+        slots = new long[Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1];
+        Arrays.fill(slots, FREE);
+    }
+
+    /** true si no estaba. */
+    public boolean add(long value) {
+        if (value == FREE) throw new IllegalArgumentException("valor reservado: " + value);
+        if ((size + 1) * 4L > slots.length * 3L) resize();
+        int mask = slots.length - 1;
+        for (int i = slot(value); ; i = (i + 1) & mask) {
+            if (slots[i] == value) return false;
+            if (slots[i] == FREE) {
+                slots[i] = value;
+                size++;
+                return true;
+            }
+        }
+    }
+
+    public boolean contains(long value) {
+        int mask = slots.length - 1;
+        for (int i = slot(value); slots[i] != FREE; i = (i + 1) & mask) {
+            if (slots[i] == value) return true;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Vacía el conjunto y vuelve a la capacidad inicial (no retiene la memoria de una carga grande). */
+    public void clear() {
+        slots = new long[8];
+        Arrays.fill(slots, FREE);
+        size = 0;
+    }
+
+    /** Bytes que ocupa la tabla (para informes de memoria). */
+    public long memoryBytes() {
+        return (long) slots.length * Long.BYTES;
+    }
+
+    private int slot(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (slots.length - 1);
+    }
+
+    private void resize() {
+        long[] old = slots;
+        slots = new long[old.length * 2];
+        Arrays.fill(slots, FREE);
+        size = 0;
+        for (long v : old) {
+            if (v != FREE) add(v);
+        }
+    }
+}
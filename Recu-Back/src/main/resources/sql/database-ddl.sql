@@ -15,6 +15,8 @@ CREATE SEQUENCE SEQ_PLAYLIST_ID        START WITH 1 INCREMENT BY 1;
 CREATE SEQUENCE SEQ_TRACK_ID           START WITH 1 INCREMENT BY 1;
 CREATE SEQUENCE SEQ_INVOICE_LINE_ID    START WITH 1 INCREMENT BY 1;
 CREATE SEQUENCE SEQ_PLAYLIST_TRACK_ID  START WITH 1 INCREMENT BY 1;
+CREATE SEQUENCE SEQ_COMPOSER_ID        START WITH 1 INCREMENT BY 1;
+CREATE SEQUENCE SEQ_TRACK_COMPOSER_ID  START WITH 1 INCREMENT BY 1;
 
 -- =========================================================
 -- TABLA ARTISTS
@@ -24,9 +26,14 @@ CREATE TABLE ARTISTS
 (
     ARTIST_ID INTEGER      NOT NULL DEFAULT NEXT VALUE FOR SEQ_ARTIST_ID,
     NAME      VARCHAR(120),
+    NAME_KEY  VARCHAR(120) GENERATED ALWAYS AS (UPPER(NAME)),
     CONSTRAINT PK_ARTISTS PRIMARY KEY (ARTIST_ID)
 );
 
+-- Búsqueda por nombre sin distinguir mayúsculas usando índice (como COMPOSERS.NAME_KEY)
+CREATE INDEX IDX_ARTIST_NAME_KEY
+    ON ARTISTS (NAME_KEY);
+
 -- =========================================================
 -- TABLA ALBUMS
 -- =========================================================
@@ -35,6 +42,7 @@ CREATE TABLE ALBUMS
 (
     ALBUM_ID   INTEGER       NOT NULL DEFAULT NEXT VALUE FOR SEQ_ALBUM_ID,
     TITLE      VARCHAR(160)  NOT NULL,
+    TITLE_KEY  VARCHAR(160)  GENERATED ALWAYS AS (UPPER(TITLE)),
     ARTIST_ID  INTEGER       NOT NULL,
     CONSTRAINT PK_ALBUMS PRIMARY KEY (ALBUM_ID),
     CONSTRAINT FK_ALBUM_ARTIST
@@ -44,6 +52,9 @@ CREATE TABLE ALBUMS
 CREATE INDEX IFK_ALBUM_ARTIST_ID
     ON ALBUMS (ARTIST_ID);
 
+CREATE INDEX IDX_ALBUM_TITLE_KEY
+    ON ALBUMS (TITLE_KEY);
+
 -- =========================================================
 -- TABLA EMPLOYEES
 -- =========================================================
@@ -73,6 +84,27 @@ CREATE TABLE EMPLOYEES
 CREATE INDEX IFK_EMPLOYEE_REPORTS_TO
     ON EMPLOYEES (REPORTS_TO);
 
+-- =========================================================
+-- TABLA EMPLOYEE_CLOSURE (clausura transitiva de REPORTS_TO)
+-- Una fila por cada par (jefe, subordinado) a cualquier nivel,
+-- incluida la fila (e, e, 0) de cada empleado consigo mismo.
+-- =========================================================
+
+CREATE TABLE EMPLOYEE_CLOSURE
+(
+    ANCESTOR_ID   INTEGER NOT NULL,
+    DESCENDANT_ID INTEGER NOT NULL,
+    DEPTH         INTEGER NOT NULL,
+    CONSTRAINT PK_EMPLOYEE_CLOSURE PRIMARY KEY (ANCESTOR_ID, DESCENDANT_ID),
+    CONSTRAINT FK_EMPLOYEE_CLOSURE_ANCESTOR
+        FOREIGN KEY (ANCESTOR_ID) REFERENCES EMPLOYEES (EMPLOYEE_ID),
+    CONSTRAINT FK_EMPLOYEE_CLOSURE_DESCENDANT
+        FOREIGN KEY (DESCENDANT_ID) REFERENCES EMPLOYEES (EMPLOYEE_ID)
+);
+
+CREATE INDEX IFK_EMPLOYEE_CLOSURE_DESCENDANT_ID
+    ON EMPLOYEE_CLOSURE (DESCENDANT_ID);
+
 -- =========================================================
 -- TABLA CUSTOMERS
 -- =========================================================
@@ -131,8 +163,10 @@ CREATE TABLE INVOICES
         FOREIGN KEY (CUSTOMER_ID) REFERENCES CUSTOMERS (CUSTOMER_ID)
 );
 
-CREATE INDEX IFK_INVOICE_CUSTOMER_ID
-    ON INVOICES (CUSTOMER_ID);
+-- Índice compuesto para la deduplicación por cliente/fecha/total; su prefijo
+-- CUSTOMER_ID también cubre la FK (reemplaza a IFK_INVOICE_CUSTOMER_ID)
+CREATE INDEX IDX_INVOICE_CUSTOMER_DATE_TOTAL
+    ON INVOICES (CUSTOMER_ID, INVOICE_DATE, TOTAL);
 
 -- =========================================================
 -- TABLA MEDIA_TYPES
@@ -153,9 +187,13 @@ CREATE TABLE PLAYLISTS
 (
     PLAYLIST_ID INTEGER      NOT NULL DEFAULT NEXT VALUE FOR SEQ_PLAYLIST_ID,
     NAME        VARCHAR(120),
+    NAME_KEY    VARCHAR(120) GENERATED ALWAYS AS (UPPER(NAME)),
     CONSTRAINT PK_PLAYLISTS PRIMARY KEY (PLAYLIST_ID)
 );
 
+CREATE INDEX IDX_PLAYLIST_NAME_KEY
+    ON PLAYLISTS (NAME_KEY);
+
 -- =========================================================
 -- TABLA TRACKS
 -- =========================================================
@@ -164,6 +202,7 @@ CREATE TABLE TRACKS
 (
     TRACK_ID      INTEGER        NOT NULL DEFAULT NEXT VALUE FOR SEQ_TRACK_ID,
     NAME          VARCHAR(200)   NOT NULL,
+    NAME_KEY      VARCHAR(200)   GENERATED ALWAYS AS (UPPER(NAME)),
     ALBUM_ID      INTEGER,
     MEDIA_TYPE_ID INTEGER        NOT NULL,
     GENRE_ID      INTEGER,
@@ -189,6 +228,9 @@ CREATE INDEX IFK_TRACK_MEDIA_TYPE_ID
 CREATE INDEX IFK_TRACK_GENRE_ID
     ON TRACKS (GENRE_ID);
 
+CREATE INDEX IDX_TRACK_NAME_KEY
+    ON TRACKS (NAME_KEY);
+
 -- =========================================================
 -- TABLA INVOICE_ITEMS
 -- =========================================================
@@ -217,17 +259,56 @@ CREATE INDEX IFK_INVOICE_LINE_TRACK_ID
 -- TABLA PLAYLIST_TRACK
 -- =========================================================
 
-CREATE TABLE PLAYLIST_TRACK
+-- Particionada por hash de PLAYLIST_ID en PLAYLIST_TRACK_0..N-1, con la vista
+-- PLAYLIST_TRACK (UNION ALL) encima. Las crea DbInitializer a partir de
+-- PlaylistTrackShards.ddl() porque N se configura al iniciar (recu.playlistTrack.shards).
+
+-- =========================================================
+-- TABLA COMPOSERS (cada nombre del campo TRACKS.COMPOSER separado por '|')
+-- =========================================================
+
+CREATE TABLE COMPOSERS
 (
-    PLAYLIST_TRACK_ID INTEGER NOT NULL DEFAULT NEXT VALUE FOR SEQ_PLAYLIST_TRACK_ID,
-    PLAYLIST_ID       INTEGER NOT NULL,
+    COMPOSER_ID INTEGER      NOT NULL DEFAULT NEXT VALUE FOR SEQ_COMPOSER_ID,
+    NAME        VARCHAR(220) NOT NULL,
+    NAME_KEY    VARCHAR(220) GENERATED ALWAYS AS (UPPER(NAME)),
+    CONSTRAINT PK_COMPOSERS PRIMARY KEY (COMPOSER_ID)
+);
+
+-- Búsqueda por nombre sin distinguir mayúsculas usando índice (NAME_KEY = UPPER(NAME))
+CREATE INDEX IDX_COMPOSER_NAME_KEY
+    ON COMPOSERS (NAME_KEY);
+
+-- =========================================================
+-- TABLA TRACK_COMPOSER (relación muchos a muchos)
+-- =========================================================
+
+CREATE TABLE TRACK_COMPOSER
+(
+    TRACK_COMPOSER_ID INTEGER NOT NULL DEFAULT NEXT VALUE FOR SEQ_TRACK_COMPOSER_ID,
     TRACK_ID          INTEGER NOT NULL,
-    CONSTRAINT PK_PLAYLIST_TRACK PRIMARY KEY (PLAYLIST_TRACK_ID),
-    CONSTRAINT FK_PLAYLIST_TRACK_PLAYLIST
-        FOREIGN KEY (PLAYLIST_ID) REFERENCES PLAYLISTS (PLAYLIST_ID),
-    CONSTRAINT FK_PLAYLIST_TRACK_TRACK
-        FOREIGN KEY (TRACK_ID) REFERENCES TRACKS (TRACK_ID)
+    COMPOSER_ID       INTEGER NOT NULL,
+    CONSTRAINT PK_TRACK_COMPOSER PRIMARY KEY (TRACK_COMPOSER_ID),
+    CONSTRAINT UK_TRACK_COMPOSER UNIQUE (TRACK_ID, COMPOSER_ID),
+    CONSTRAINT FK_TRACK_COMPOSER_TRACK
+        FOREIGN KEY (TRACK_ID) REFERENCES TRACKS (TRACK_ID),
+    CONSTRAINT FK_TRACK_COMPOSER_COMPOSER
+        FOREIGN KEY (COMPOSER_ID) REFERENCES COMPOSERS (COMPOSER_ID)
 );
 
-CREATE INDEX IFK_PLAYLIST_TRACK_TRACK_ID
-    ON PLAYLIST_TRACK (TRACK_ID);
+CREATE INDEX IFK_TRACK_COMPOSER_COMPOSER_ID
+    ON TRACK_COMPOSER (COMPOSER_ID);
+
+-- =========================================================
+-- TABLA IMPORT_SKETCHES (estadísticas aproximadas del catálogo)
+-- Un sketch serializado por clave (ver CatalogSketches); cada importación suma los suyos
+-- en la misma transacción, así que siempre reflejan exactamente lo confirmado.
+-- =========================================================
+
+CREATE TABLE IMPORT_SKETCHES
+(
+    SKETCH_KEY VARCHAR(300)   NOT NULL,
+    DATA       VARBINARY      NOT NULL,
+    UPDATED_AT TIMESTAMP      NOT NULL,
+    CONSTRAINT PK_IMPORT_SKETCHES PRIMARY KEY (SKETCH_KEY)
+);
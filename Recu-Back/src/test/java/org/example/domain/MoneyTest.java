@@ -0,0 +1,82 @@
+package org.example.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/** {@link Money#parse} contra BigDecimal, en especial cerca del límite del long de centavos. */
+class MoneyTest {
+
+    @Test
+    void parsesCommonFormats() {
+        assertEquals(Money.ofCents(1200), Money.parse("12"));
+        assertEquals(Money.ofCents(99), Money.parse("0.99"));
+        assertEquals(Money.ofCents(150), Money.parse(" 1,5 "));
+        assertEquals(Money.ofCents(-301), Money.parse("-3.005"));
+        assertEquals(Money.ofCents(500), Money.parse("+5"));
+        assertNull(Money.parse(""));
+        assertNull(Money.parse("abc"));
+        assertNull(Money.parse("-"));
+    }
+
+    @Test
+    void matchesBigDecimalNearTheFastPathLimit() {
+        String[] integers = {
+                "9999999999999999",          // 16 dígitos: último tamaño del camino rápido
+                "99999999999999999",         // 17 dígitos: desbordaba units * 100
+                "10000000000000000",
+                "92233720368547757",
+                "92233720368547758",         // Long.MAX_VALUE / 100
+                "92233720368547759",
+                "922337203685477580",
+                "0000000000000000000012",    // ceros a la izquierda no cuentan como dígitos
+        };
+        String[] fractions = {"", ".0", ".07", ".074", ".075", ".08", ".994", ".995", ".999"};
+        for (String integer : integers) {
+            for (String fraction : fractions) {
+                for (String sign : new String[]{"", "-", "+"}) {
+                    assertMatchesBigDecimal(sign + integer + fraction);
+                }
+            }
+        }
+    }
+
+    @Test
+    void matchesBigDecimalOnRandomInputs() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 200_000; i++) {
+            StringBuilder text = new StringBuilder();
+            if (random.nextInt(4) == 0) text.append('-');
+            int digits = 1 + random.nextInt(19);
+            for (int d = 0; d < digits; d++) text.append((char) ('0' + random.nextInt(10)));
+            if (random.nextBoolean()) {
+                text.append(random.nextBoolean() ? '.' : ',');
+                int decimals = random.nextInt(5);
+                for (int d = 0; d < decimals; d++) text.append((char) ('0' + random.nextInt(10)));
+            }
+            assertMatchesBigDecimal(text.toString());
+        }
+    }
+
+    private static void assertMatchesBigDecimal(String text) {
+        Money expected = reference(text);
+        assertEquals(expected, Money.parse(text), text);
+        assertEquals(expected == null ? Money.INVALID_CENTS : expected.cents(), Money.parseCents(text), text);
+    }
+
+    private static Money reference(String text) {
+        try {
+            BigDecimal value = new BigDecimal(text.trim().replace(',', '.')).setScale(2, RoundingMode.HALF_UP);
+            long cents = value.unscaledValue().longValueExact();
+            // Long.MIN_VALUE centavos es Money.INVALID_CENTS
+            return cents == Money.INVALID_CENTS ? null : Money.ofCents(cents);
+        } catch (NumberFormatException | ArithmeticException e) {
+            return null;
+        }
+    }
+}
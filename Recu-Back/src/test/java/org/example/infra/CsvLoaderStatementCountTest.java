@@ -0,0 +1,105 @@
+package org.example.infra;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.infra.metrics.SqlMetrics;
+import org.example.infra.rules.RuleChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sentencias que ejecuta {@link CsvLoader} sobre playlists.csv con la unidad normal y con
+ * "database-bulk" (lotes JDBC), contadas por {@link SqlMetrics}: un lote es una ejecución.
+ */
+class CsvLoaderStatementCountTest {
+
+    private static final String SAMPLE = "DATA/playlists.csv";
+    private static final String HEADER = "playListName,trackName,composer,milliseconds,bytes,unitPrice,"
+            + "albumTitle,artistName,genreName,mediaTypeName\n";
+
+    /** Ejecuciones de la carga: total, INSERT INTO TRACKS y filas que esos inserts escribieron. */
+    private record Counts(CsvLoader.Stats stats, long executions, long trackInserts, long trackRows, long tracks) { }
+
+    @BeforeEach
+    void freshSchema() throws SQLException {
+        try (Connection conn = DataSourceProvider.getDataSource().getConnection();
+             Statement st = conn.createStatement()) {
+            st.execute("DROP ALL OBJECTS");
+        }
+        DbInitializer.init();
+    }
+
+    @Test
+    void bulkUnitBatchesTheSampleLoad() throws Exception {
+        Counts plain = load(LocalEntityManagerProvider.get(), 0);
+        freshSchema();
+        Counts bulk = load(LocalEntityManagerProvider.getBulk(), 1000);
+
+        assertEquals(plain.stats().toString(), bulk.stats().toString());
+        assertEquals(plain.tracks(), bulk.tracks());
+        assertEquals(plain.trackRows(), bulk.trackRows());
+        // Sin lotes, un INSERT por track; con batch_size=100, a lo sumo uno cada 100 más uno por flush
+        assertEquals(plain.tracks(), plain.trackInserts());
+        long flushes = bulk.stats().processedRows / 1000 + 1;
+        assertTrue(bulk.trackInserts() <= bulk.tracks() / 100 + flushes,
+                "INSERT INTO TRACKS con lotes: " + bulk.trackInserts());
+        assertTrue(bulk.executions() < plain.executions(),
+                "sentencias: normal=" + plain.executions() + " bulk=" + bulk.executions());
+    }
+
+    @Test
+    void rowsTheDatabaseWouldRejectAreQuarantinedBeforeTheFlush() throws Exception {
+        String csv = HEADER
+                + "Mix,Corta,Autor,1000,10,0.99,Disco,Artista,Rock,MPEG audio file\n"
+                + "Mix," + "x".repeat(201) + ",Autor,1000,10,0.99,Disco,Artista,Rock,MPEG audio file\n"
+                + "Mix,Cara,Autor,1000,10,123456789.00,Disco,Artista,Rock,MPEG audio file\n";
+        CsvLoader.Stats stats;
+        try (EntityManager em = LocalEntityManagerProvider.getBulk().createEntityManager()) {
+            stats = new CsvLoader(em).load(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+        }
+        // Con flush al commit, esas filas habrían hecho fallar la transacción completa
+        assertEquals(1, stats.processedRows);
+        assertEquals(1, stats.rejectionsByRule.get(RuleChain.FIELD_TOO_LONG));
+        assertEquals(1, stats.rejectionsByRule.get(RuleChain.INVALID_PRICE));
+        assertEquals(1, count("SELECT COUNT(*) FROM TRACKS"));
+    }
+
+    private static Counts load(EntityManagerFactory emf, int flushInterval) throws Exception {
+        SqlMetrics.get().reset();
+        CsvLoader.Stats stats;
+        try (EntityManager em = emf.createEntityManager();
+             InputStream in = CsvLoaderStatementCountTest.class.getClassLoader().getResourceAsStream(SAMPLE)) {
+            stats = new CsvLoader(em).withFlushInterval(flushInterval).load(in);
+        }
+        long executions = 0, trackInserts = 0, trackRows = 0;
+        for (SqlMetrics.StatementStats s : SqlMetrics.get().statements()) {
+            executions += s.count();
+            if (s.key().toUpperCase(Locale.ROOT).startsWith("INSERT INTO TRACKS ")) {
+                trackInserts += s.count();
+                trackRows += s.updates();
+            }
+        }
+        return new Counts(stats, executions, trackInserts, trackRows, count("SELECT COUNT(*) FROM TRACKS"));
+    }
+
+    private static long count(String sql) throws SQLException {
+        try (Connection conn = DataSourceProvider.getDataSource().getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}